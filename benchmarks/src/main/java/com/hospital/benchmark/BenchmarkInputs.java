@@ -0,0 +1,57 @@
+package com.hospital.benchmark;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.rule.Rule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+/**
+ * Shared inputs of the benchmarks.
+ */
+final class BenchmarkInputs {
+
+  private BenchmarkInputs() {
+    // Utility class, no instantiation needed
+  }
+
+  static List<Rule> defaultRules() {
+    return List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule());
+  }
+
+  /**
+   * Population with the same number of patients in every health state.
+   */
+  static Map<HealthState, Integer> patientsPerState(int count) {
+    Map<HealthState, Integer> patientsByState = new EnumMap<>(HealthState.class);
+    for (HealthState state : HealthState.values()) {
+      patientsByState.put(state, count);
+    }
+    return patientsByState;
+  }
+
+  static Set<Drug> drugs(int drugMask) {
+    return Drug.fromMask(drugMask);
+  }
+
+  /**
+   * Drug list in command-line syntax, such as {@code "As,P"}.
+   */
+  static String drugCodes(int drugMask) {
+    return drugs(drugMask).stream().map(Drug::getCode).collect(Collectors.joining(","));
+  }
+}
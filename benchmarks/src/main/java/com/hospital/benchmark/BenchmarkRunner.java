@@ -0,0 +1,66 @@
+package com.hospital.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark JAR.
+ * 
+ * <p>
+ * Accepts the regular JMH command-line options and adds two defaults so that
+ * every run can be compared with the committed baselines:
+ * <ul>
+ * <li>the GC profiler ({@code -prof gc}), which reports bytes allocated per
+ * operation;</li>
+ * <li>a JSON result file under {@code results/}, unless {@code -rff} is given.</li>
+ * </ul>
+ * Simulator logging is also lowered to WARN in the forked JVMs, unless
+ * {@code -jvmArgsAppend} is given, so that console output is not measured.
+ */
+public final class BenchmarkRunner {
+
+  private static final Path RESULTS_DIRECTORY = Path.of("results");
+  private static final String QUIET_LOGGING = "-Dorg.slf4j.simpleLogger.log.com.hospital=warn";
+
+  private BenchmarkRunner() {
+    // Entry point, no instantiation needed
+  }
+
+  public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+    CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+    if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList()
+        || commandLineOptions.shouldListProfilers() || commandLineOptions.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+    if (commandLineOptions.getProfilers().stream()
+        .noneMatch(p -> p.getKlass().equals("gc") || p.getKlass().equals(GCProfiler.class.getName()))) {
+      options.addProfiler(GCProfiler.class);
+    }
+    if (!commandLineOptions.getJvmArgsAppend().hasValue()) {
+      options.jvmArgsAppend(QUIET_LOGGING);
+    }
+    if (!commandLineOptions.getResult().hasValue()) {
+      Files.createDirectories(RESULTS_DIRECTORY);
+      String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+      options.resultFormat(ResultFormatType.JSON)
+          .result(RESULTS_DIRECTORY.resolve("jmh-" + timestamp + ".json").toString());
+    }
+
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,56 @@
+package com.hospital.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.rule.BinomialSampler;
+import com.hospital.rule.impl.ApacheBinomialSampler;
+import com.hospital.rule.impl.FastBinomialSampler;
+
+/**
+ * Cost of a single binomial draw, for each sampler implementation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BinomialSamplerBenchmark {
+
+  @Param({ "ApacheBinomialSampler", "FastBinomialSampler" })
+  private String samplerName;
+
+  @Param({ "10", "2000000", "2000000000" })
+  private int trials;
+
+  @Param({ "0.000001", "0.3" })
+  private double probability;
+
+  private BinomialSampler binomialSampler;
+
+  @Setup
+  public void setUp() {
+    binomialSampler = switch (samplerName) {
+      case "ApacheBinomialSampler" -> new ApacheBinomialSampler();
+      case "FastBinomialSampler" -> new FastBinomialSampler(42L);
+      default -> throw new IllegalArgumentException("Unknown sampler: " + samplerName);
+    };
+  }
+
+  @Benchmark
+  public int sample() {
+    return binomialSampler.sample(trials, probability);
+  }
+}
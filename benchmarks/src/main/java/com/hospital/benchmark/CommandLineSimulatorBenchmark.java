@@ -0,0 +1,63 @@
+package com.hospital.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.client.CommandLineSimulator;
+import com.hospital.domain.HealthState;
+import com.hospital.service.SimulatorEngine;
+
+/**
+ * Cost of {@link CommandLineSimulator#run}: parsing the arguments, simulating
+ * and formatting the result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandLineSimulatorBenchmark {
+
+  @Param({ "1", "1000", "100000" })
+  private int patients;
+
+  @Param({ "0", "5", "15" })
+  private int drugMask;
+
+  private CommandLineSimulator commandLineSimulator;
+  private String[] args;
+
+  @Setup
+  public void setUp() {
+    commandLineSimulator = new CommandLineSimulator(new SimulatorEngine(BenchmarkInputs.defaultRules()));
+
+    HealthState[] states = HealthState.values();
+    StringBuilder patientCodes = new StringBuilder();
+    for (int i = 0; i < patients; i++) {
+      if (i > 0) {
+        patientCodes.append(',');
+      }
+      patientCodes.append(states[i % states.length].getCode());
+    }
+    args = drugMask == 0
+        ? new String[] { patientCodes.toString() }
+        : new String[] { patientCodes.toString(), BenchmarkInputs.drugCodes(drugMask) };
+  }
+
+  @Benchmark
+  public String run() {
+    return commandLineSimulator.run(args);
+  }
+}
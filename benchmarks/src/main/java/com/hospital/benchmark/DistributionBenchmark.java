@@ -0,0 +1,54 @@
+package com.hospital.benchmark;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.service.SimulatorEngine;
+
+/**
+ * Cost of {@link SimulatorEngine#distribution} with the default rules, whose
+ * only stochastic step resurrects dead patients, and of a tail probability
+ * query on its result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistributionBenchmark {
+
+  @Param({ "1", "1000000", "1000000000000" })
+  private long deadPatients;
+
+  private SimulatorEngine simulatorEngine;
+  private PatientCounts patientCounts;
+
+  @Setup
+  public void setUp() {
+    simulatorEngine = new SimulatorEngine(BenchmarkInputs.defaultRules());
+    patientCounts = new PatientCounts();
+    patientCounts.set(HealthState.FEVER, 1_000);
+    patientCounts.set(HealthState.DEAD, deadPatients);
+  }
+
+  @Benchmark
+  public double probabilityAtLeast() {
+    return simulatorEngine.distribution(patientCounts, Set.of())
+        .probabilityAtLeast(HealthState.HEALTHY, 2);
+  }
+}
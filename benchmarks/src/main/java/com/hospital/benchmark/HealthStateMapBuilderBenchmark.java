@@ -0,0 +1,55 @@
+package com.hospital.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.domain.HealthState;
+import com.hospital.rule.impl.utils.HealthStateMapBuilder;
+
+/**
+ * Cost of building a transitioned map with {@link HealthStateMapBuilder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HealthStateMapBuilderBenchmark {
+
+  @Param({ "1", "1000000", "400000000" })
+  private int patientsPerState;
+
+  private Map<HealthState, Integer> patientsByState;
+
+  @Setup
+  public void setUp() {
+    patientsByState = BenchmarkInputs.patientsPerState(patientsPerState);
+  }
+
+  @Benchmark
+  public Map<HealthState, Integer> transition() {
+    return HealthStateMapBuilder.from(patientsByState)
+        .transition(HealthState.FEVER, HealthState.HEALTHY, patientsPerState)
+        .build();
+  }
+
+  @Benchmark
+  public Map<HealthState, Integer> killAll() {
+    return HealthStateMapBuilder.from(patientsByState)
+        .killAll()
+        .build();
+  }
+}
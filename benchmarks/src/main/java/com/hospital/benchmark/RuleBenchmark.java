@@ -0,0 +1,83 @@
+package com.hospital.benchmark;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.Rule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+/**
+ * Cost of a single rule application, through the map-based
+ * {@link Rule#apply} and through {@link Rule#applyInPlace}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleBenchmark {
+
+  @Param({ "AspirinRule", "AntibioticRule", "InsulinRule", "ParacetamolRule", "FlyingSpaghettiMonsterRule" })
+  private String ruleName;
+
+  @Param({ "1", "1000000" })
+  private int patientsPerState;
+
+  @Param({ "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15" })
+  private int drugMask;
+
+  private Rule rule;
+  private Map<HealthState, Integer> patientsByState;
+  private Set<Drug> drugs;
+  private PatientCounts initialCounts;
+  private PatientCounts patientCounts;
+
+  @Setup
+  public void setUp() {
+    rule = switch (ruleName) {
+      case "AspirinRule" -> new AspirinRule();
+      case "AntibioticRule" -> new AntibioticRule();
+      case "InsulinRule" -> new InsulinRule();
+      case "ParacetamolRule" -> new ParacetamolRule();
+      case "FlyingSpaghettiMonsterRule" -> new FlyingSpaghettiMonsterRule();
+      default -> throw new IllegalArgumentException("Unknown rule: " + ruleName);
+    };
+    patientsByState = BenchmarkInputs.patientsPerState(patientsPerState);
+    drugs = BenchmarkInputs.drugs(drugMask);
+    initialCounts = PatientCounts.from(patientsByState);
+    patientCounts = new PatientCounts();
+  }
+
+  @Benchmark
+  public Map<HealthState, Integer> apply() {
+    return rule.apply(patientsByState, drugs);
+  }
+
+  @Benchmark
+  public PatientCounts applyInPlace() {
+    patientCounts.copyFrom(initialCounts);
+    rule.applyInPlace(patientCounts, drugs);
+    return patientCounts;
+  }
+}
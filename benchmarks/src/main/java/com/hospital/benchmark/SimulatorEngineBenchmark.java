@@ -0,0 +1,71 @@
+package com.hospital.benchmark;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.service.SimulatorEngine;
+
+/**
+ * End-to-end cost of {@link SimulatorEngine#simulate}, through the
+ * request/response API and through the primitive {@link PatientCounts} API,
+ * for every drug combination.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulatorEngineBenchmark {
+
+  @Param({ "1", "1000", "1000000", "400000000" })
+  private int patientsPerState;
+
+  @Param({ "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15" })
+  private int drugMask;
+
+  private SimulatorEngine simulatorEngine;
+  private SimulationRequest request;
+  private Set<Drug> drugs;
+  private PatientCounts initialCounts;
+  private PatientCounts patientCounts;
+
+  @Setup
+  public void setUp() {
+    simulatorEngine = new SimulatorEngine(BenchmarkInputs.defaultRules());
+    Map<HealthState, Integer> initialPatients = BenchmarkInputs.patientsPerState(patientsPerState);
+    drugs = BenchmarkInputs.drugs(drugMask);
+    request = new SimulationRequest(initialPatients, drugs);
+    initialCounts = PatientCounts.from(initialPatients);
+    patientCounts = new PatientCounts();
+  }
+
+  @Benchmark
+  public SimulationResponse simulateRequest() {
+    return simulatorEngine.simulate(request);
+  }
+
+  @Benchmark
+  public PatientCounts simulatePatientCounts() {
+    patientCounts.copyFrom(initialCounts);
+    return simulatorEngine.simulate(patientCounts, drugs);
+  }
+}
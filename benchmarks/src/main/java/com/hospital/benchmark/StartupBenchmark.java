@@ -0,0 +1,93 @@
+package com.hospital.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to first result of the executable JAR: launching a new JVM on a
+ * command-line simulation until its output line is read. Unlike
+ * {@link CommandLineSimulatorBenchmark}, this is dominated by JVM startup and
+ * class loading, which is what a single invocation pays for.
+ *
+ * <p>
+ * The JAR is {@code ../target/hospital-simulator.jar}, relative to the
+ * benchmarks module, unless the {@code hospital.jar} system property names
+ * another one. Its class data sharing archive is expected next to it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 20)
+@Fork(1)
+public class StartupBenchmark {
+
+  /**
+   * {@code off} disables class data sharing, {@code default} uses the JDK's
+   * archive only and {@code app} adds the archive built with the JAR.
+   */
+  @Param({ "off", "default", "app" })
+  private String classDataSharing;
+
+  private List<String> command;
+  private Process process;
+
+  @Setup
+  public void setUp() {
+    Path jar = Path.of(System.getProperty("hospital.jar", "../target/hospital-simulator.jar"));
+    Path archive = jar.resolveSibling(jar.getFileName().toString().replaceFirst("\\.jar$", ".jsa"));
+    if (!Files.isRegularFile(jar) || classDataSharing.equals("app") && !Files.isRegularFile(archive)) {
+      throw new IllegalStateException("Build the simulator first, missing " + jar + " or " + archive);
+    }
+
+    command = new ArrayList<>();
+    command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+    switch (classDataSharing) {
+      case "off" -> command.add("-Xshare:off");
+      case "default" -> {
+        // The JDK's archive is used by default
+      }
+      case "app" -> command.add("-XX:SharedArchiveFile=" + archive);
+      default -> throw new IllegalArgumentException("Unknown class data sharing: " + classDataSharing);
+    }
+    command.addAll(List.of("-jar", jar.toString(), "F,H,D,T,X", "As,An,I,P"));
+  }
+
+  @Benchmark
+  public String firstResult() throws IOException {
+    process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    String result = process.inputReader().readLine();
+    if (result == null || !result.startsWith("F:")) {
+      throw new IllegalStateException("Unexpected output of " + command + ": " + result);
+    }
+    return result;
+  }
+
+  /**
+   * Waits for the JVM to exit, outside of the measurement.
+   */
+  @TearDown(Level.Invocation)
+  public void awaitExit() throws InterruptedException {
+    if (process.waitFor() != 0) {
+      throw new IllegalStateException("Exit code " + process.exitValue() + " of " + command);
+    }
+  }
+}
@@ -1,16 +1,19 @@
 package com.hospital.client;
 
-import java.util.Arrays;
-import java.util.EnumMap;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-import com.hospital.client.model.SimulationRequest;
-import com.hospital.client.model.SimulationResponse;
+import com.hospital.client.daemon.SimulatorDaemon;
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
 import com.hospital.rule.impl.AntibioticRule;
 import com.hospital.rule.impl.AspirinRule;
 import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
@@ -29,12 +32,25 @@ import com.hospital.service.SimulatorEngine;
  * <h2>Usage</h2>
  * <pre>
  * java -jar hospital-simulator.jar &lt;patients&gt; [&lt;drugs&gt;]
+ * java -jar hospital-simulator.jar --stream [&lt;file&gt;]
+ * java -jar hospital-simulator.jar --daemon [&lt;socket path&gt;]
  * </pre>
  * 
+ * <p>With {@code --stream}, scenarios are read one per line from the given file, or from
+ * standard input when no file is given, and one result line is printed per scenario.
+ * See {@link StreamingSimulator}.
+ * 
+ * <p>With {@code --daemon}, a warmed-up simulator stays resident and answers invocations on a
+ * Unix domain socket, by default {@link SimulatorDaemon#defaultSocketPath()}. The
+ * {@code hospital-simulator} launcher built next to the JAR forwards to it, and runs the JAR
+ * when no daemon answers. See {@link SimulatorDaemon}.
+ * 
  * <h3>Arguments</h3>
  * <ul>
  * <li><strong>patients</strong> (required): Comma-separated list of patient health state codes
- *     (e.g., "F,H,D,T,X" for Fever, Healthy, Diabetes, Tuberculosis, Dead)</li>
+ *     (e.g., "F,H,D,T,X" for Fever, Healthy, Diabetes, Tuberculosis, Dead), optionally with
+ *     run-length counts (e.g., "F:1000000,H:250"), or {@code @} followed by the path of a file
+ *     holding such a list. See {@link ScenarioParser}.</li>
  * <li><strong>drugs</strong> (optional): Comma-separated list of drug codes to administer
  *     (e.g., "As,An,I,P" for Aspirin, Antibiotic, Insulin, Paracetamol)</li>
  * </ul>
@@ -67,6 +83,15 @@ public class CommandLineSimulator {
       No arguments provided for simulation.
       Usage: java -jar hospital-simulator.jar <patients> [<drugs>]""";
 
+  static final String STREAM_OPTION = "--stream";
+  static final String DAEMON_OPTION = "--daemon";
+
+  /** Prefix of a patients argument naming a file to read the patients from. */
+  static final String FILE_PREFIX = "@";
+
+  /** Prefix of the line printed when a simulation fails. */
+  public static final String ERROR_PREFIX = "Error: ";
+
   private final SimulatorEngine simulatorEngine;
 
   public CommandLineSimulator(SimulatorEngine simulatorEngine) {
@@ -74,65 +99,99 @@ public class CommandLineSimulator {
   }
 
   public static void main(String[] args) {
-    CommandLineSimulator cli = new CommandLineSimulator(new SimulatorEngine(List.of(
-        new AspirinRule(),
-        new AntibioticRule(),
-        new InsulinRule(),
-        new ParacetamolRule(),
-        new FlyingSpaghettiMonsterRule())));
+    if (args.length > 0 && DAEMON_OPTION.equals(args[0])) {
+      daemon(args);
+      return;
+    }
 
+    SimulatorEngine simulatorEngine = defaultEngine();
+    if (args.length > 0 && STREAM_OPTION.equals(args[0])) {
+      stream(new StreamingSimulator(simulatorEngine), args);
+      return;
+    }
+
+    CommandLineSimulator cli = new CommandLineSimulator(simulatorEngine);
     try {
       String result = cli.run(args);
       System.out.println(result);
     } catch (Exception e) {
-      System.err.println("Error: " + e.getMessage());
+      System.err.println(ERROR_PREFIX + e.getMessage());
     }
   }
 
+  private static SimulatorEngine defaultEngine() {
+    return new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule()));
+  }
+
   public String run(String[] args) {
     if (args.length == 0) {
       throw new IllegalArgumentException(NO_ARGUMENTS_ERROR_MESSAGE);
     }
 
-    SimulationRequest request = createRequest(args);
-    SimulationResponse response = simulatorEngine.simulate(request);
+    PatientCounts patients = parsePatients(args[0]);
+    Set<Drug> drugs = args.length > 1 ? ScenarioParser.parseDrugs(args[1]) : Set.of();
+    simulatorEngine.simulate(patients, drugs);
 
-    return formatResponse(response);
+    return formatCounts(patients);
   }
 
-  private SimulationRequest createRequest(String[] args) {
-    // Parse patients (first argument)
-    Map<HealthState, Integer> patientsByState = parsePatients(args[0]);
-
-    // Parse drugs (if provided)
-    Set<Drug> drugs = args.length > 1 ? parseDrugs(args[1]) : Set.of();
-
-    return new SimulationRequest(patientsByState, drugs);
+  private static void daemon(String[] args) {
+    Path socketPath = args.length > 1 ? Path.of(args[1]) : SimulatorDaemon.defaultSocketPath();
+    try {
+      SimulatorDaemon daemon = new SimulatorDaemon(new CommandLineSimulator(defaultEngine()), socketPath);
+      Runtime.getRuntime().addShutdownHook(new Thread(daemon::close));
+      daemon.start();
+    } catch (IOException | RuntimeException e) {
+      System.err.println(ERROR_PREFIX + e.getMessage());
+      System.exit(1);
+    }
   }
 
-  private Map<HealthState, Integer> parsePatients(String input) {
-    Map<HealthState, Integer> patientsByState = new EnumMap<>(HealthState.class);
-    for (String token : input.split(",")) {
-      HealthState state = HealthState.fromCode(token.trim());
-      patientsByState.merge(state, 1, Integer::sum);
+  private static void stream(StreamingSimulator streamingSimulator, String[] args) {
+    try (ReadableByteChannel input = args.length > 1
+        ? FileChannel.open(Path.of(args[1]))
+        : Channels.newChannel(System.in)) {
+      StreamingSimulator.Summary summary = streamingSimulator.run(input,
+          new FileOutputStream(FileDescriptor.out).getChannel(),
+          new FileOutputStream(FileDescriptor.err).getChannel());
+      if (summary.failed() > 0) {
+        System.exit(1);
+      }
+    } catch (IOException | RuntimeException e) {
+      System.err.println(ERROR_PREFIX + e.getMessage());
+      System.exit(1);
     }
-    return patientsByState;
   }
 
-  private Set<Drug> parseDrugs(String input) {
-    return Arrays.stream(input.split(","))
-        .map(String::trim)
-        .map(Drug::fromCode)
-        .collect(Collectors.toSet());
+  private static PatientCounts parsePatients(String input) {
+    if (!input.startsWith(FILE_PREFIX)) {
+      return ScenarioParser.parsePatients(input);
+    }
+    Path file = Path.of(input.substring(FILE_PREFIX.length()));
+    try {
+      return ScenarioParser.parsePatients(file);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Cannot read patients file: " + file, e);
+    }
   }
 
-  private String formatResponse(SimulationResponse response) {
-    Map<HealthState, Integer> counts = response.patientsByState();
-    return String.format("F:%d,H:%d,D:%d,T:%d,X:%d",
-        counts.getOrDefault(HealthState.FEVER, 0),
-        counts.getOrDefault(HealthState.HEALTHY, 0),
-        counts.getOrDefault(HealthState.DIABETES, 0),
-        counts.getOrDefault(HealthState.TUBERCULOSIS, 0),
-        counts.getOrDefault(HealthState.DEAD, 0));
+  /**
+   * Formats counts as {@code F:x,H:x,D:x,T:x,X:x}. Appends rather than uses
+   * {@link String#format}, whose formatter and locale data take longer to
+   * load than a whole command-line simulation.
+   */
+  static String formatCounts(PatientCounts counts) {
+    return new StringBuilder(64)
+        .append("F:").append(counts.get(HealthState.FEVER))
+        .append(",H:").append(counts.get(HealthState.HEALTHY))
+        .append(",D:").append(counts.get(HealthState.DIABETES))
+        .append(",T:").append(counts.get(HealthState.TUBERCULOSIS))
+        .append(",X:").append(counts.get(HealthState.DEAD))
+        .toString();
   }
 }
@@ -0,0 +1,233 @@
+package com.hospital.client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Single-pass parser for the patient and drug arguments of the simulator.
+ * 
+ * <p>
+ * Patients are a list of entries separated by commas or line breaks. An entry
+ * is either a health state code, counting one patient, or a code followed by
+ * {@code :} and a count, so {@code F,F,H} and {@code F:2,H:1} describe the
+ * same population. Codes are case-insensitive, whitespace around codes and
+ * counts is ignored, blank lines and a trailing separator are allowed. Counts
+ * may exceed {@link Integer#MAX_VALUE}; only the total must fit in a
+ * {@code long}.
+ * 
+ * <p>
+ * Input is scanned in place: codes are looked up directly on the characters
+ * of the input and counts are accumulated into a {@link PatientCounts}, so
+ * nothing is allocated per patient or per entry. Files are memory-mapped and
+ * read without being decoded into a string.
+ */
+public final class ScenarioParser {
+
+  /** Largest region of a file mapped at once. */
+  static final long MAX_REGION_SIZE = 1L << 30;
+
+  private ScenarioParser() {
+    // Utility class, no instantiation needed
+  }
+
+  /**
+   * @param input the patient entries, e.g. {@code F,F,H} or {@code F:2,H:1}
+   * @return the parsed population
+   * @throws IllegalArgumentException if an entry is invalid
+   */
+  public static PatientCounts parsePatients(CharSequence input) {
+    PatientScanner scanner = new PatientScanner();
+    scanner.scan(input, true);
+    return scanner.finish();
+  }
+
+  /**
+   * Parses patient entries from a file, which is memory-mapped rather than
+   * read into the heap. The file is expected to be ASCII.
+   * 
+   * @param file the file holding the patient entries
+   * @return the parsed population
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if an entry is invalid
+   */
+  public static PatientCounts parsePatients(Path file) throws IOException {
+    return parsePatients(file, MAX_REGION_SIZE);
+  }
+
+  static PatientCounts parsePatients(Path file, long regionSize) throws IOException {
+    PatientScanner scanner = new PatientScanner();
+    try (FileChannel channel = FileChannel.open(file)) {
+      long size = channel.size();
+      for (long position = 0; position < size; position += regionSize) {
+        long length = Math.min(regionSize, size - position);
+        ByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        scanner.scan(new AsciiSequence(region), position + length == size);
+      }
+    }
+    return scanner.finish();
+  }
+
+  /**
+   * @param input the drug codes separated by commas, e.g. {@code As,An}
+   * @return the parsed drugs
+   * @throws IllegalArgumentException if a code is unknown
+   */
+  public static Set<Drug> parseDrugs(CharSequence input) {
+    Set<Drug> drugs = EnumSet.noneOf(Drug.class);
+    int length = input.length();
+    int start = 0;
+    while (true) {
+      int end = start;
+      while (end < length && input.charAt(end) != ',') {
+        end++;
+      }
+      drugs.add(Drug.fromCode(input, skipLeadingWhitespace(input, start, end),
+          skipTrailingWhitespace(input, start, end)));
+      if (end == length) {
+        return drugs;
+      }
+      start = end + 1;
+    }
+  }
+
+  private static int skipLeadingWhitespace(CharSequence input, int start, int end) {
+    while (start < end && input.charAt(start) <= ' ') {
+      start++;
+    }
+    return start;
+  }
+
+  private static int skipTrailingWhitespace(CharSequence input, int start, int end) {
+    while (end > start && input.charAt(end - 1) <= ' ') {
+      end--;
+    }
+    return end;
+  }
+
+  /**
+   * Accumulates patient entries, possibly fed in several slices. An entry cut
+   * at the end of a slice is carried over to the next one.
+   */
+  private static final class PatientScanner {
+
+    private final PatientCounts patients = new PatientCounts();
+    private final StringBuilder carry = new StringBuilder();
+    private long total;
+    private long entries;
+
+    void scan(CharSequence input, boolean last) {
+      int length = input.length();
+      int start = 0;
+      for (int i = 0; i < length; i++) {
+        char c = input.charAt(i);
+        if (c == ',' || c == '\n') {
+          if (carry.isEmpty()) {
+            entry(input, start, i, c == ',');
+          } else {
+            carry.append(input, start, i);
+            entry(carry, 0, carry.length(), c == ',');
+            carry.setLength(0);
+          }
+          start = i + 1;
+        }
+      }
+      carry.append(input, start, length);
+      if (last) {
+        entry(carry, 0, carry.length(), false);
+        carry.setLength(0);
+      }
+    }
+
+    private void entry(CharSequence input, int start, int end, boolean beforeComma) {
+      start = skipLeadingWhitespace(input, start, end);
+      end = skipTrailingWhitespace(input, start, end);
+      if (start == end) {
+        if (beforeComma) {
+          // An empty entry between commas is a missing code, not a blank line
+          HealthState.fromCode(input, start, end);
+        }
+        return;
+      }
+
+      int colon = start;
+      while (colon < end && input.charAt(colon) != ':') {
+        colon++;
+      }
+      HealthState state = HealthState.fromCode(input, start, skipTrailingWhitespace(input, start, colon));
+      long count = colon == end ? 1 : parseCount(input, skipLeadingWhitespace(input, colon + 1, end), end);
+
+      try {
+        total = Math.addExact(total, count);
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException("Total number of patients cannot exceed " + Long.MAX_VALUE + ".");
+      }
+      patients.add(state, count);
+      entries++;
+    }
+
+    private static long parseCount(CharSequence input, int start, int end) {
+      if (start == end) {
+        throw invalidCount(input, start, end);
+      }
+      long count = 0;
+      for (int i = start; i < end; i++) {
+        int digit = input.charAt(i) - '0';
+        if (digit < 0 || digit > 9) {
+          throw invalidCount(input, start, end);
+        }
+        try {
+          count = Math.addExact(Math.multiplyExact(count, 10), digit);
+        } catch (ArithmeticException e) {
+          throw invalidCount(input, start, end);
+        }
+      }
+      return count;
+    }
+
+    private static IllegalArgumentException invalidCount(CharSequence input, int start, int end) {
+      return new IllegalArgumentException("Invalid patient count: " + input.subSequence(start, end));
+    }
+
+    PatientCounts finish() {
+      if (entries == 0) {
+        throw new IllegalArgumentException("Invalid Health State: ");
+      }
+      return patients;
+    }
+  }
+
+  /** Read-only view of ASCII bytes as characters, without decoding or copying them. */
+  private record AsciiSequence(ByteBuffer bytes) implements CharSequence {
+
+    @Override
+    public int length() {
+      return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new AsciiSequence(bytes.slice(start, end - start));
+    }
+
+    @Override
+    public String toString() {
+      byte[] chars = new byte[length()];
+      bytes.get(0, chars);
+      return new String(chars, StandardCharsets.ISO_8859_1);
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package com.hospital.client;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.PatientCounts;
+import com.hospital.service.SimulatorEngine;
+
+/**
+ * Line-oriented front-end simulating one scenario per input line.
+ * 
+ * <p>
+ * Each line holds the same two arguments as the command line,
+ * {@code <patients> [<drugs>]}, separated by whitespace, and produces one
+ * {@code F:x,H:x,D:x,T:x,X:x} line on the output. Blank lines are skipped.
+ * Invalid lines are reported on the error output with their line number and
+ * do not produce an output line; the rest of the stream is still processed.
+ * This includes lines that are not valid UTF-8 and lines longer than
+ * {@link #MAX_LINE_LENGTH} bytes, which are split from the input on their
+ * bytes so that they only fail themselves.
+ * 
+ * <p>
+ * Processing is a three-stage pipeline: the calling thread reads and slices
+ * the input into chunks, worker threads parse and simulate chunks, and a
+ * writer thread writes finished chunks in input order. At most twice as many
+ * chunks as workers are queued at any time, so memory stays bounded whatever
+ * the length of the input.
+ */
+public class StreamingSimulator {
+
+  static final int DEFAULT_CHUNK_SIZE = 4_096;
+
+  /** Longest accepted line, in bytes; longer lines are reported as invalid. */
+  static final int MAX_LINE_LENGTH = 1 << 16;
+
+  private static final String TOO_MANY_ARGUMENTS_ERROR_MESSAGE =
+      "Expected <patients> [<drugs>] separated by whitespace.";
+  private static final String LINE_TOO_LONG_ERROR_MESSAGE = "Line exceeds " + MAX_LINE_LENGTH + " bytes.";
+  private static final String MALFORMED_LINE_ERROR_MESSAGE = "Line is not valid UTF-8.";
+  private static final char REPLACEMENT_CHARACTER = '\uFFFD';
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final long WRITER_CHECK_INTERVAL_MILLIS = 100;
+  private static final ChunkResult END_OF_INPUT = new ChunkResult("", "", 0, 0);
+
+  private final SimulatorEngine simulatorEngine;
+  private final int chunkSize;
+  private final int workers;
+
+  public StreamingSimulator(SimulatorEngine simulatorEngine) {
+    this(simulatorEngine, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+  }
+
+  public StreamingSimulator(SimulatorEngine simulatorEngine, int chunkSize, int workers) {
+    if (chunkSize < 1 || workers < 1) {
+      throw new IllegalArgumentException("Chunk size and number of workers must be positive.");
+    }
+    this.simulatorEngine = simulatorEngine;
+    this.chunkSize = chunkSize;
+    this.workers = workers;
+  }
+
+  /**
+   * Simulates every scenario of the input.
+   * 
+   * @param input the scenarios, one per line, UTF-8 encoded
+   * @param output where results are written, one line per valid scenario
+   * @param errors where invalid lines are reported
+   * @return a summary of the processed lines
+   * @throws IOException if reading or writing fails
+   */
+  public Summary run(ReadableByteChannel input, WritableByteChannel output, WritableByteChannel errors)
+      throws IOException {
+    BlockingQueue<Future<ChunkResult>> pending = new ArrayBlockingQueue<>(2 * workers);
+    // One extra thread for the writer, which spends most of its time waiting on the queue
+    ExecutorService executor = Executors.newFixedThreadPool(workers + 1);
+    CompletableFuture<Summary> writer = CompletableFuture.supplyAsync(
+        () -> writeChunks(pending, output, errors), executor);
+
+    // The input belongs to the caller, so it is read but not closed
+    try {
+      LineReader reader = new LineReader(input);
+      long lineNumber = 0;
+      List<String> lines = new ArrayList<>(chunkSize);
+      while (reader.readLine()) {
+        lines.add(reader.line());
+        if (lines.size() == chunkSize) {
+          submit(executor, pending, writer, lineNumber + 1, lines);
+          lineNumber += lines.size();
+          lines = new ArrayList<>(chunkSize);
+        }
+      }
+      if (!lines.isEmpty()) {
+        submit(executor, pending, writer, lineNumber + 1, lines);
+      }
+      put(pending, writer, CompletableFuture.completedFuture(END_OF_INPUT));
+      return writer.join();
+    } catch (RuntimeException e) {
+      writer.cancel(true);
+      if (e.getCause() instanceof UncheckedIOException io) {
+        throw io.getCause();
+      }
+      throw e;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void submit(ExecutorService executor, BlockingQueue<Future<ChunkResult>> pending,
+      CompletableFuture<Summary> writer, long firstLineNumber, List<String> lines) {
+    put(pending, writer, executor.submit(() -> simulateChunk(firstLineNumber, lines)));
+  }
+
+  /**
+   * Waits for room in the queue, rethrowing the writer's failure if it stops
+   * taking chunks.
+   */
+  private static void put(BlockingQueue<Future<ChunkResult>> pending, CompletableFuture<Summary> writer,
+      Future<ChunkResult> chunk) {
+    try {
+      while (!pending.offer(chunk, WRITER_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+        if (writer.isDone()) {
+          writer.join();
+          throw new IllegalStateException("Writer stopped before the end of the input.");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while reading scenarios.", e);
+    }
+  }
+
+  /**
+   * @param lines the lines of the chunk, {@code null} for those longer than
+   *        {@link #MAX_LINE_LENGTH}
+   */
+  ChunkResult simulateChunk(long firstLineNumber, List<String> lines) {
+    StringBuilder output = new StringBuilder(lines.size() * 24);
+    StringBuilder errors = new StringBuilder();
+    int simulated = 0;
+    int failures = 0;
+    for (int i = 0; i < lines.size(); i++) {
+      String line = lines.get(i) == null ? null : lines.get(i).strip();
+      if (line != null && line.isEmpty()) {
+        continue;
+      }
+      try {
+        if (line == null) {
+          throw new IllegalArgumentException(LINE_TOO_LONG_ERROR_MESSAGE);
+        }
+        if (line.indexOf(REPLACEMENT_CHARACTER) >= 0) {
+          throw new IllegalArgumentException(MALFORMED_LINE_ERROR_MESSAGE);
+        }
+        String[] args = line.split("\\s+");
+        if (args.length > 2) {
+          throw new IllegalArgumentException(TOO_MANY_ARGUMENTS_ERROR_MESSAGE);
+        }
+        PatientCounts patients = ScenarioParser.parsePatients(args[0]);
+        Set<Drug> drugs = args.length > 1 ? ScenarioParser.parseDrugs(args[1]) : Set.of();
+        simulatorEngine.simulate(patients, drugs);
+        output.append(CommandLineSimulator.formatCounts(patients)).append('\n');
+        simulated++;
+      } catch (RuntimeException e) {
+        failures++;
+        errors.append("Error at line ").append(firstLineNumber + i).append(": ")
+            .append(e.getMessage()).append('\n');
+      }
+    }
+    return new ChunkResult(output.toString(), errors.toString(), simulated, failures);
+  }
+
+  private static Summary writeChunks(BlockingQueue<Future<ChunkResult>> pending,
+      WritableByteChannel output, WritableByteChannel errors) {
+    long simulated = 0;
+    long failed = 0;
+    // The channels belong to the caller, so the writers are flushed but not closed
+    Writer outputWriter = Channels.newWriter(output, StandardCharsets.UTF_8);
+    Writer errorWriter = Channels.newWriter(errors, StandardCharsets.UTF_8);
+    try {
+      while (true) {
+        ChunkResult chunk = pending.take().get();
+        if (chunk == END_OF_INPUT) {
+          outputWriter.flush();
+          return new Summary(simulated, failed);
+        }
+        outputWriter.write(chunk.output());
+        if (!chunk.errors().isEmpty()) {
+          errorWriter.write(chunk.errors());
+          errorWriter.flush();
+        }
+        simulated += chunk.simulated();
+        failed += chunk.failed();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while writing results.", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Simulation of a chunk failed.", e.getCause());
+    }
+  }
+
+  record ChunkResult(String output, String errors, int simulated, int failed) {
+  }
+
+  /**
+   * Splits the input into lines on its bytes, then decodes each line on its
+   * own, replacing malformed input, so that neither an undecodable nor an
+   * overlong line ends the stream. Bytes beyond {@link #MAX_LINE_LENGTH} are
+   * skipped until the end of their line rather than buffered.
+   */
+  private static final class LineReader {
+
+    private final ReadableByteChannel input;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private byte[] line = new byte[256];
+    private int length;
+    private boolean tooLong;
+
+    LineReader(ReadableByteChannel input) {
+      this.input = input;
+    }
+
+    /**
+     * @return whether a line was read, which is then given by {@link #line()}
+     */
+    boolean readLine() throws IOException {
+      length = 0;
+      tooLong = false;
+      boolean read = false;
+      while (true) {
+        if (!buffer.hasRemaining()) {
+          buffer.clear();
+          int count = input.read(buffer);
+          buffer.flip();
+          if (count < 0) {
+            return read;
+          }
+          continue;
+        }
+        read = true;
+        byte[] bytes = buffer.array();
+        int start = buffer.position();
+        int end = start;
+        while (end < buffer.limit() && bytes[end] != '\n') {
+          end++;
+        }
+        append(bytes, start, end - start);
+        if (end < buffer.limit()) {
+          buffer.position(end + 1);
+          return true;
+        }
+        buffer.position(end);
+      }
+    }
+
+    /**
+     * @return the line read, without its terminator, or {@code null} if it
+     *         is longer than {@link #MAX_LINE_LENGTH}
+     */
+    String line() {
+      if (tooLong) {
+        return null;
+      }
+      try {
+        return decoder.decode(ByteBuffer.wrap(line, 0, length)).toString();
+      } catch (CharacterCodingException e) {
+        // Malformed input is replaced, never reported
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private void append(byte[] bytes, int offset, int count) {
+      if (tooLong) {
+        return;
+      }
+      if (length + count > MAX_LINE_LENGTH) {
+        tooLong = true;
+        return;
+      }
+      if (length + count > line.length) {
+        line = Arrays.copyOf(line, Math.max(2 * line.length, length + count));
+      }
+      System.arraycopy(bytes, offset, line, length, count);
+      length += count;
+    }
+  }
+
+  /**
+   * @param simulated the number of scenarios simulated
+   * @param failed the number of invalid lines
+   */
+  public record Summary(long simulated, long failed) {
+  }
+}
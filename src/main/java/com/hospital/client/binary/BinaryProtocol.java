@@ -0,0 +1,202 @@
+package com.hospital.client.binary;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Length-prefixed binary encoding of simulation requests and responses.
+ * 
+ * <p>
+ * Every message is a frame: its payload length as an unsigned varint,
+ * followed by the payload. Varints use the LEB128 layout of Protocol
+ * Buffers, 7 bits per byte, least significant group first.
+ * 
+ * <ul>
+ * <li>A request payload is the {@link Drug#toMask(Set) drug bitmask} as one
+ *     byte, then the number of patients in each health state as five varints,
+ *     in {@link HealthState} ordinal order.</li>
+ * <li>A response payload is a status byte. {@link #STATUS_OK} is followed by
+ *     the five resulting counts, in the same order; {@link #STATUS_ERROR} is
+ *     followed by a UTF-8 error message.</li>
+ * </ul>
+ * 
+ * <p>
+ * Responses come back in request order, so a client can send many requests
+ * before reading any response.
+ */
+public final class BinaryProtocol {
+
+  public static final byte STATUS_OK = 0;
+  public static final byte STATUS_ERROR = 1;
+
+  /** Longest accepted payload; larger frames close the connection. */
+  public static final int MAX_PAYLOAD_SIZE = 1 << 16;
+
+  /** Longest request frame: a length byte, a mask byte and five 10-byte varints. */
+  static final int MAX_REQUEST_SIZE = 1 + 1 + 5 * 10;
+
+  /** Longest error message sent back; longer messages are truncated. */
+  static final int MAX_ERROR_MESSAGE_SIZE = 1_024;
+
+  /** Longest response frame: an error with the longest message. */
+  static final int MAX_RESPONSE_SIZE = 2 + 1 + MAX_ERROR_MESSAGE_SIZE;
+
+  private static final HealthState[] STATES = HealthState.values();
+
+  @SuppressWarnings("unchecked")
+  private static final Set<Drug>[] DRUG_SETS = new Set[Drug.COMBINATIONS];
+
+  static {
+    for (int mask = 0; mask < Drug.COMBINATIONS; mask++) {
+      DRUG_SETS[mask] = Collections.unmodifiableSet(Drug.fromMask(mask));
+    }
+  }
+
+  private BinaryProtocol() {
+    // Utility class, no instantiation needed
+  }
+
+  /**
+   * @param mask a drug bitmask
+   * @return the shared, unmodifiable set of drugs of that bitmask
+   */
+  public static Set<Drug> drugs(int mask) {
+    if (mask < 0 || mask >= Drug.COMBINATIONS) {
+      throw new IllegalArgumentException("Invalid drug mask: " + mask);
+    }
+    return DRUG_SETS[mask];
+  }
+
+  public static void writeRequest(ByteBuffer buffer, PatientCounts patients, Set<Drug> drugs) {
+    int start = buffer.position();
+    buffer.position(start + 1);
+    buffer.put((byte) Drug.toMask(drugs));
+    writeCounts(buffer, patients);
+    writeFrameLength(buffer, start);
+  }
+
+  public static void writeResponse(ByteBuffer buffer, PatientCounts patients) {
+    int start = buffer.position();
+    buffer.position(start + 1);
+    buffer.put(STATUS_OK);
+    writeCounts(buffer, patients);
+    writeFrameLength(buffer, start);
+  }
+
+  public static void writeError(ByteBuffer buffer, String message) {
+    byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+    int length = Math.min(bytes.length, MAX_ERROR_MESSAGE_SIZE);
+    writeVarint(buffer, 1 + length);
+    buffer.put(STATUS_ERROR).put(bytes, 0, length);
+  }
+
+  private static void writeCounts(ByteBuffer buffer, PatientCounts patients) {
+    for (HealthState state : STATES) {
+      writeVarint(buffer, patients.get(state));
+    }
+  }
+
+  /**
+   * Payloads written by this class are shorter than 128 bytes, so their length
+   * fits in the single byte reserved before them.
+   */
+  private static void writeFrameLength(ByteBuffer buffer, int start) {
+    buffer.put(start, (byte) (buffer.position() - start - 1));
+  }
+
+  /**
+   * Reads the length of the next frame if all of it is in the buffer.
+   * 
+   * @param buffer the received bytes, positioned at the start of a frame
+   * @return the payload length, with the buffer positioned at the payload, or
+   *         {@code -1}, with the buffer unchanged, if the frame is incomplete
+   * @throws IllegalStateException if the frame exceeds {@link #MAX_PAYLOAD_SIZE}
+   *         or its length is not a valid varint, since the stream cannot be
+   *         resynchronised after either
+   */
+  public static int readFrameLength(ByteBuffer buffer) {
+    int start = buffer.position();
+    try {
+      long length = readVarint(buffer);
+      // A negative length is a varint of 10 bytes that overflowed into the sign bit
+      if (length < 0) {
+        throw new IllegalStateException("Invalid frame length: " + length + ".");
+      }
+      if (length > MAX_PAYLOAD_SIZE) {
+        throw new IllegalStateException("Frame of " + length + " bytes exceeds " + MAX_PAYLOAD_SIZE + ".");
+      }
+      if (buffer.remaining() >= length) {
+        return (int) length;
+      }
+    } catch (BufferUnderflowException e) {
+      // The length itself is incomplete
+    } catch (IllegalArgumentException e) {
+      throw new IllegalStateException("Invalid frame length. " + e.getMessage(), e);
+    }
+    buffer.position(start);
+    return -1;
+  }
+
+  /**
+   * Decodes a request payload into the given counts.
+   * 
+   * @return the drug bitmask of the request
+   */
+  public static int readRequest(ByteBuffer payload, PatientCounts patients) {
+    int mask = payload.get() & 0xFF;
+    readCounts(payload, patients);
+    return mask;
+  }
+
+  /**
+   * Decodes a response payload into the given counts.
+   * 
+   * @throws IllegalArgumentException with the server's message if the
+   *         response is an error
+   */
+  public static void readResponse(ByteBuffer payload, PatientCounts patients) {
+    byte status = payload.get();
+    if (status == STATUS_ERROR) {
+      byte[] message = new byte[payload.remaining()];
+      payload.get(message);
+      throw new IllegalArgumentException(new String(message, StandardCharsets.UTF_8));
+    }
+    readCounts(payload, patients);
+  }
+
+  private static void readCounts(ByteBuffer payload, PatientCounts patients) {
+    for (HealthState state : STATES) {
+      patients.set(state, readVarint(payload));
+    }
+    if (payload.hasRemaining()) {
+      throw new IllegalArgumentException("Unexpected " + payload.remaining() + " bytes after counts.");
+    }
+  }
+
+  static void writeVarint(ByteBuffer buffer, long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  static long readVarint(ByteBuffer buffer) {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IllegalArgumentException("Varint is longer than 10 bytes.");
+  }
+}
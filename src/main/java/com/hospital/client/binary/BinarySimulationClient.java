@@ -0,0 +1,151 @@
+package com.hospital.client.binary;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Blocking client of the {@link BinarySimulationServer}, over TCP or a Unix
+ * domain socket.
+ * 
+ * <p>
+ * {@link #simulateAll(List, List)} pipelines requests: it keeps up to
+ * {@value #WINDOW} requests in flight, writing them in batches and reading
+ * responses as they arrive, so a single connection is never idle waiting for
+ * a round trip. Instances are not thread-safe; use one client per thread.
+ */
+public class BinarySimulationClient implements AutoCloseable {
+
+  /** Largest number of requests sent ahead of their responses. */
+  static final int WINDOW = 1_024;
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private final SocketChannel channel;
+  private final ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+  private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE).flip();
+
+  private BinarySimulationClient(SocketChannel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * @param address an {@link java.net.InetSocketAddress} or a
+   *        {@link java.net.UnixDomainSocketAddress}
+   * @return a client connected to the server at that address
+   * @throws IOException if the connection fails
+   */
+  public static BinarySimulationClient connect(SocketAddress address) throws IOException {
+    return new BinarySimulationClient(SocketChannel.open(address));
+  }
+
+  /**
+   * Simulates a single population, in one round trip.
+   * 
+   * @param patients the initial patients, replaced by the final state
+   * @param drugs the drugs administered
+   * @return the given {@code patients}, for chaining
+   * @throws IOException if the connection fails
+   * @throws IllegalArgumentException if the server rejects the request
+   */
+  public PatientCounts simulate(PatientCounts patients, Set<Drug> drugs) throws IOException {
+    BinaryProtocol.writeRequest(output, patients, drugs);
+    flush();
+    readResponse(patients);
+    return patients;
+  }
+
+  /**
+   * Simulates many populations over the same connection, pipelining requests.
+   * 
+   * <p>
+   * Once the server rejects a request, no further request is sent, but the
+   * responses to those already in flight are still read before the rejection
+   * is thrown, so the client remains usable.
+   * 
+   * @param patients the initial patients of each simulation
+   * @param drugs the drugs of each simulation, one entry per population
+   * @return the final patients of each simulation, in order
+   * @throws IOException if the connection fails
+   * @throws IllegalArgumentException if the server rejects a request, with the
+   *         first rejection
+   */
+  public List<PatientCounts> simulateAll(List<PatientCounts> patients, List<Set<Drug>> drugs) throws IOException {
+    if (patients.size() != drugs.size()) {
+      throw new IllegalArgumentException("Expected drugs for each of the " + patients.size() + " populations.");
+    }
+    List<PatientCounts> results = new ArrayList<>(patients.size());
+    IllegalArgumentException rejection = null;
+    int sent = 0;
+    int received = 0;
+    while (received < sent || (rejection == null && sent < patients.size())) {
+      if (rejection == null) {
+        while (sent < patients.size() && sent - received < WINDOW
+            && output.remaining() >= BinaryProtocol.MAX_REQUEST_SIZE) {
+          BinaryProtocol.writeRequest(output, patients.get(sent), drugs.get(sent));
+          sent++;
+        }
+        flush();
+      }
+      // Read at least one response, then whatever else has already arrived
+      do {
+        PatientCounts result = new PatientCounts();
+        try {
+          readResponse(result);
+          results.add(result);
+        } catch (IllegalArgumentException e) {
+          if (rejection == null) {
+            rejection = e;
+          }
+        }
+        received++;
+      } while (received < sent && hasBufferedFrame());
+    }
+    if (rejection != null) {
+      throw rejection;
+    }
+    return results;
+  }
+
+  private void flush() throws IOException {
+    output.flip();
+    while (output.hasRemaining()) {
+      channel.write(output);
+    }
+    output.clear();
+  }
+
+  private boolean hasBufferedFrame() {
+    int start = input.position();
+    int length = BinaryProtocol.readFrameLength(input);
+    input.position(start);
+    return length >= 0;
+  }
+
+  private void readResponse(PatientCounts patients) throws IOException {
+    int length;
+    while ((length = BinaryProtocol.readFrameLength(input)) < 0) {
+      input.compact();
+      if (channel.read(input) < 0) {
+        throw new EOFException("Connection closed by server");
+      }
+      input.flip();
+    }
+    ByteBuffer payload = input.slice(input.position(), length);
+    input.position(input.position() + length);
+    BinaryProtocol.readResponse(payload, patients);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
@@ -0,0 +1,275 @@
+package com.hospital.client.binary;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FastBinomialSampler;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.rule.impl.RecordingSampler;
+import com.hospital.service.SimulatorEngine;
+import com.hospital.service.metrics.SimulationMetrics;
+
+/**
+ * Serves the {@link BinaryProtocol} over TCP or a Unix domain socket.
+ * 
+ * <p>
+ * A single selector thread owns every connection. Each time a connection is
+ * readable, every complete request in its input buffer is simulated and the
+ * responses are appended to its output buffer, which is then written with as
+ * few system calls as the socket allows. Clients can thus pipeline any number
+ * of requests. A connection whose peer does not read its responses stops
+ * being read once {@value #MAX_PENDING_OUTPUT} bytes are pending, which bounds
+ * memory per connection.
+ * 
+ * <h2>Usage</h2>
+ * <pre>
+ * java -cp hospital-simulator.jar com.hospital.client.binary.BinarySimulationServer &lt;port | socket path&gt; [&lt;metrics file&gt;]
+ * </pre>
+ * 
+ * <p>
+ * When a metrics file is given, the engine's {@link SimulationMetrics} are
+ * written to it in the Prometheus text format every
+ * {@value #METRICS_PERIOD_SECONDS} seconds and on shutdown.
+ */
+public class BinarySimulationServer implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(BinarySimulationServer.class);
+
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_PENDING_OUTPUT = 1 << 20;
+  private static final int METRICS_PERIOD_SECONDS = 15;
+
+  private final SimulatorEngine simulatorEngine;
+  private final ServerSocketChannel serverChannel;
+  private final Selector selector;
+  private final Thread selectorThread;
+  private volatile boolean running = true;
+
+  public BinarySimulationServer(SimulatorEngine simulatorEngine, SocketAddress address) throws IOException {
+    this.simulatorEngine = simulatorEngine;
+    this.serverChannel = address instanceof UnixDomainSocketAddress
+        ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+        : ServerSocketChannel.open();
+    this.serverChannel.bind(address);
+    this.serverChannel.configureBlocking(false);
+    this.selector = Selector.open();
+    this.serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    this.selectorThread = new Thread(this::serve, "binary-simulation-server");
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: BinarySimulationServer <port | socket path> [<metrics file>]");
+      System.exit(1);
+    }
+    SocketAddress address = args[0].chars().allMatch(Character::isDigit)
+        ? new InetSocketAddress(Integer.parseInt(args[0]))
+        : UnixDomainSocketAddress.of(args[0]);
+    SimulationMetrics metrics = new SimulationMetrics();
+    BinarySimulationServer server = new BinarySimulationServer(new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule(metrics.countingSampler(new RecordingSampler(new FastBinomialSampler())))), null, metrics),
+        address);
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    if (args.length == 2) {
+      Path metricsFile = Path.of(args[1]);
+      ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+          Thread.ofPlatform().name("metrics-writer").daemon().factory());
+      scheduler.scheduleAtFixedRate(() -> writeMetrics(metrics, metricsFile),
+          METRICS_PERIOD_SECONDS, METRICS_PERIOD_SECONDS, TimeUnit.SECONDS);
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> writeMetrics(metrics, metricsFile)));
+    }
+  }
+
+  private static void writeMetrics(SimulationMetrics metrics, Path file) {
+    try {
+      metrics.writePrometheus(file);
+    } catch (RuntimeException e) {
+      // A failed write must not cancel the next ones
+      log.warn("Cannot write metrics", e);
+    }
+  }
+
+  public void start() {
+    selectorThread.start();
+    log.info("Binary simulation server listening on {}", localAddress());
+  }
+
+  public SocketAddress localAddress() {
+    try {
+      return serverChannel.getLocalAddress();
+    } catch (IOException e) {
+      throw new IllegalStateException("Server socket is closed.", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    SocketAddress address = localAddress();
+    selector.wakeup();
+    try {
+      selectorThread.join();
+      // Only needed if the server was never started
+      selector.close();
+      serverChannel.close();
+      if (address instanceof UnixDomainSocketAddress unixAddress) {
+        Files.deleteIfExists(unixAddress.getPath());
+      }
+    } catch (IOException e) {
+      log.warn("Failed to close binary simulation server", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void serve() {
+    try {
+      while (running) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if (key.isAcceptable()) {
+              accept();
+            } else {
+              ((Connection) key.attachment()).handle(key);
+            }
+          } catch (IOException | IllegalStateException e) {
+            log.debug("Closing connection: {}", e.getMessage());
+            closeQuietly(key);
+          } catch (RuntimeException e) {
+            // A single peer must never stop the server
+            log.warn("Closing connection after unexpected failure", e);
+            closeQuietly(key);
+          }
+        }
+      }
+    } catch (IOException e) {
+      log.error("Binary simulation server stopped", e);
+    } finally {
+      for (SelectionKey key : selector.keys()) {
+        if (key.channel() != serverChannel) {
+          closeQuietly(key);
+        }
+      }
+      try {
+        selector.close();
+      } catch (IOException e) {
+        log.warn("Failed to close selector", e);
+      }
+    }
+  }
+
+  private static void closeQuietly(SelectionKey key) {
+    key.cancel();
+    try {
+      key.channel().close();
+    } catch (IOException e) {
+      // Nothing left to do
+    }
+  }
+
+  private void accept() throws IOException {
+    SocketChannel channel = serverChannel.accept();
+    if (channel != null) {
+      channel.configureBlocking(false);
+      channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+  }
+
+  private final class Connection {
+
+    private final SocketChannel channel;
+    private final PatientCounts patients = new PatientCounts();
+    private ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+    private ByteBuffer output = ByteBuffer.allocate(BUFFER_SIZE);
+
+    Connection(SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    void handle(SelectionKey key) throws IOException {
+      if (key.isReadable() && channel.read(input) < 0) {
+        throw new IOException("Connection closed by peer");
+      }
+      input.flip();
+      processRequests();
+      input.compact();
+
+      output.flip();
+      channel.write(output);
+      output.compact();
+
+      boolean pending = output.position() > 0;
+      boolean reading = output.position() < MAX_PENDING_OUTPUT;
+      key.interestOps((reading ? SelectionKey.OP_READ : 0) | (pending ? SelectionKey.OP_WRITE : 0));
+    }
+
+    private void processRequests() {
+      while (output.position() < MAX_PENDING_OUTPUT) {
+        int length = BinaryProtocol.readFrameLength(input);
+        if (length < 0) {
+          growInputIfFull();
+          return;
+        }
+        ensureOutputSpace();
+        ByteBuffer payload = input.slice(input.position(), length);
+        input.position(input.position() + length);
+        try {
+          int mask = BinaryProtocol.readRequest(payload, patients);
+          simulatorEngine.simulate(patients, BinaryProtocol.drugs(mask));
+          BinaryProtocol.writeResponse(output, patients);
+        } catch (IllegalArgumentException | BufferUnderflowException e) {
+          BinaryProtocol.writeError(output, e.getMessage() != null ? e.getMessage() : "Truncated request.");
+        }
+      }
+    }
+
+    /** A frame larger than the input buffer needs a larger buffer to be read at all. */
+    private void growInputIfFull() {
+      if (input.position() == 0 && input.limit() == input.capacity()) {
+        input = ByteBuffer.allocate(2 * input.capacity()).put(input).flip();
+      }
+    }
+
+    private void ensureOutputSpace() {
+      // Room for the longest response, an error with the longest message
+      if (output.remaining() < BinaryProtocol.MAX_RESPONSE_SIZE) {
+        output = ByteBuffer.allocate(2 * output.capacity()).put(output.flip());
+      }
+    }
+  }
+}
@@ -0,0 +1,311 @@
+package com.hospital.client.daemon;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hospital.client.CommandLineSimulator;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+
+/**
+ * Resident simulator answering command-line invocations over a Unix domain
+ * socket, so that they do not pay for a cold JVM each.
+ *
+ * <p>
+ * A connection carries one invocation. The client sends the arguments of the
+ * command line on one line, separated by whitespace, and the daemon answers
+ * with exactly what {@link CommandLineSimulator} would print, either the
+ * {@code F:x,H:x,D:x,T:x,X:x} line or {@code Error: <message>}, then closes
+ * the connection. Patients files are read by the daemon, so they should be
+ * given with an absolute path.
+ *
+ * <p>
+ * The client is the {@code hospital-simulator} launcher rather than the JAR:
+ * opening a Unix domain socket initializes the JDK's security providers, which
+ * alone takes longer in a new JVM than simulating in-process. The launcher
+ * forwards through {@code socat} or {@code nc -U} in a few milliseconds, and
+ * runs the JAR when no daemon answers.
+ *
+ * <p>
+ * Each connection is handled on its own virtual thread. Before listening, the
+ * daemon runs every drug combination through the simulator until it is
+ * compiled, so the first invocations are as fast as the later ones. The
+ * socket file is only accessible to the daemon's user, since a patients file
+ * argument makes the daemon read that file. A client that does not send its
+ * line within {@link #DEFAULT_READ_TIMEOUT} is disconnected, so that it cannot
+ * hold its thread and buffer forever.
+ *
+ * <h2>Usage</h2>
+ * <pre>
+ * java -jar hospital-simulator.jar --daemon [&lt;socket path&gt;]
+ * </pre>
+ */
+public class SimulatorDaemon implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(SimulatorDaemon.class);
+
+  /** Longest accepted request line; longer requests are answered with an error. */
+  static final int MAX_REQUEST_SIZE = 1 << 16;
+
+  /** Longest wait for the request line of a connection. */
+  static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10);
+
+  private static final int WARM_UP_ITERATIONS = 20_000;
+
+  /** Environment variable overriding {@link #defaultSocketPath()}. */
+  public static final String SOCKET_VARIABLE = "HOSPITAL_SIMULATOR_SOCKET";
+
+  /**
+   * Directory of the default socket. Not {@code java.io.tmpdir}, which the
+   * launcher cannot read and which differs from {@code /tmp} on some systems.
+   */
+  private static final String DEFAULT_SOCKET_DIRECTORY = "/tmp";
+
+  private final CommandLineSimulator commandLineSimulator;
+  private final Path socketPath;
+  private final ServerSocketChannel serverChannel;
+  private final Duration readTimeout;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final ScheduledThreadPoolExecutor deadlines = newDeadlineExecutor();
+  private volatile Thread acceptorThread;
+  private volatile boolean running = true;
+
+  /**
+   * Binds the socket, replacing the socket file of a daemon that did not shut
+   * down cleanly.
+   *
+   * @param commandLineSimulator the simulator answering invocations
+   * @param socketPath the path of the socket file
+   * @throws IOException if the socket cannot be bound
+   * @throws IllegalStateException if another daemon listens on that path
+   */
+  public SimulatorDaemon(CommandLineSimulator commandLineSimulator, Path socketPath) throws IOException {
+    this(commandLineSimulator, socketPath, DEFAULT_READ_TIMEOUT);
+  }
+
+  /**
+   * @param readTimeout the longest wait for the request line of a connection
+   */
+  SimulatorDaemon(CommandLineSimulator commandLineSimulator, Path socketPath, Duration readTimeout)
+      throws IOException {
+    this.commandLineSimulator = commandLineSimulator;
+    this.socketPath = socketPath;
+    this.readTimeout = readTimeout;
+    UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+    if (Files.exists(socketPath)) {
+      if (isListening(address)) {
+        throw new IllegalStateException("A simulator daemon already listens on " + socketPath);
+      }
+      Files.delete(socketPath);
+    }
+    this.serverChannel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    this.serverChannel.bind(address);
+    restrictToOwner(socketPath);
+  }
+
+  /**
+   * @return the socket of {@link #SOCKET_VARIABLE}, or else
+   *         {@code /tmp/hospital-simulator-<user>.sock}, where the
+   *         {@code hospital-simulator} launcher looks for it
+   */
+  public static Path defaultSocketPath() {
+    String path = System.getenv(SOCKET_VARIABLE);
+    if (path != null && !path.isEmpty()) {
+      return Path.of(path);
+    }
+    return Path.of(DEFAULT_SOCKET_DIRECTORY, "hospital-simulator-" + System.getProperty("user.name") + ".sock");
+  }
+
+  private static ScheduledThreadPoolExecutor newDeadlineExecutor() {
+    ScheduledThreadPoolExecutor deadlines = new ScheduledThreadPoolExecutor(1,
+        Thread.ofPlatform().name("simulator-daemon-deadlines").daemon().factory());
+    // Almost every deadline is cancelled, and would otherwise stay queued until due
+    deadlines.setRemoveOnCancelPolicy(true);
+    return deadlines;
+  }
+
+  private static boolean isListening(UnixDomainSocketAddress address) {
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(address);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static void restrictToOwner(Path socketPath) throws IOException {
+    try {
+      Files.setPosixFilePermissions(socketPath, PosixFilePermissions.fromString("rw-------"));
+    } catch (UnsupportedOperationException e) {
+      // Not a POSIX file system, the socket keeps the default permissions
+    }
+  }
+
+  /**
+   * Warms up the simulator, then starts answering invocations.
+   */
+  public void start() {
+    warmUp();
+    Thread thread = new Thread(this::serve, "simulator-daemon");
+    acceptorThread = thread;
+    thread.start();
+    log.info("Simulator daemon listening on {}", socketPath);
+  }
+
+  public Path socketPath() {
+    return socketPath;
+  }
+
+  /**
+   * Runs every drug combination on every health state through the whole
+   * command-line path, parsing and formatting included.
+   */
+  private void warmUp() {
+    String patients = Arrays.stream(HealthState.values())
+        .map(state -> state.getCode() + ":3")
+        .collect(Collectors.joining(","));
+    List<String[]> invocations = new ArrayList<>();
+    invocations.add(new String[] { patients });
+    for (int mask = 1; mask < Drug.COMBINATIONS; mask++) {
+      String drugs = Drug.fromMask(mask).stream().map(Drug::getCode).collect(Collectors.joining(","));
+      invocations.add(new String[] { patients, drugs });
+    }
+    for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+      commandLineSimulator.run(invocations.get(i % invocations.size()));
+    }
+  }
+
+  @Override
+  public void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    try {
+      serverChannel.close();
+      Thread thread = acceptorThread;
+      if (thread != null && thread.isAlive()) {
+        thread.join();
+      }
+      executor.close();
+      deadlines.shutdownNow();
+      Files.deleteIfExists(socketPath);
+    } catch (IOException e) {
+      log.warn("Failed to close simulator daemon", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void serve() {
+    while (running) {
+      try {
+        SocketChannel channel = serverChannel.accept();
+        executor.execute(() -> answer(channel));
+      } catch (ClosedChannelException e) {
+        // Closed by close()
+        return;
+      } catch (IOException e) {
+        log.error("Simulator daemon stopped", e);
+        return;
+      }
+    }
+  }
+
+  private void answer(SocketChannel channel) {
+    // Closing the channel ends a blocked read, which channels offer no timeout for
+    Future<?> deadline = deadlines.schedule(() -> closeQuietly(channel), readTimeout.toNanos(),
+        TimeUnit.NANOSECONDS);
+    try (channel) {
+      String request;
+      try {
+        request = readRequest(channel);
+      } finally {
+        deadline.cancel(false);
+      }
+      String reply = reply(request);
+      ByteBuffer output = ByteBuffer.wrap(reply.getBytes(StandardCharsets.UTF_8));
+      while (output.hasRemaining()) {
+        channel.write(output);
+      }
+    } catch (IOException e) {
+      log.debug("Closing connection: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * @return the request line, without its line terminator, or {@code null} if
+   *         it exceeds {@link #MAX_REQUEST_SIZE}
+   */
+  private static String readRequest(SocketChannel channel) throws IOException {
+    ByteBuffer input = ByteBuffer.allocate(MAX_REQUEST_SIZE + 1);
+    int end = -1;
+    // Until the end of the line, or of the input, scanning only the bytes just read
+    while (end < 0 && input.hasRemaining()) {
+      int scanned = input.position();
+      if (channel.read(input) < 0) {
+        break;
+      }
+      end = lineEnd(input, scanned);
+    }
+    if (end < 0 && !input.hasRemaining()) {
+      return null;
+    }
+    int length = end < 0 ? input.position() : end;
+    return new String(input.array(), 0, length, StandardCharsets.UTF_8).strip();
+  }
+
+  private static int lineEnd(ByteBuffer input, int from) {
+    for (int i = from; i < input.position(); i++) {
+      if (input.get(i) == '\n') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static void closeQuietly(SocketChannel channel) {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.debug("Failed to close connection: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * @return what the command line prints for the given request line
+   */
+  String reply(String request) {
+    if (request == null) {
+      return CommandLineSimulator.ERROR_PREFIX + "Request exceeds " + MAX_REQUEST_SIZE + " bytes."
+          + System.lineSeparator();
+    }
+    String[] args = request.isEmpty() ? new String[0] : request.split("\\s+");
+    try {
+      return commandLineSimulator.run(args) + System.lineSeparator();
+    } catch (Exception e) {
+      return CommandLineSimulator.ERROR_PREFIX + e.getMessage() + System.lineSeparator();
+    }
+  }
+}
@@ -0,0 +1,521 @@
+package com.hospital.client.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+
+/**
+ * JSON encoding of {@link SimulationRequest} and {@link SimulationResponse}.
+ * 
+ * <p>
+ * A request looks like
+ * {@code {"initialPatients":{"FEVER":2,"H":1},"drugs":["ASPIRIN","An"],"seed":42}},
+ * where health states and drugs are given by name or by code, ignoring case,
+ * and {@code drugs} and {@code seed} are optional. Unknown fields are
+ * skipped. A response looks like
+ * {@code {"patientsByState":{"HEALTHY":1,"FEVER":0,...},"seed":42}}.
+ * 
+ * <p>
+ * This is a hand-written codec for these two records only: it scans the
+ * UTF-8 bytes of the body directly and builds the records without any
+ * intermediate tree, which keeps parsing to a handful of allocations per
+ * request. Health states and drugs are looked up straight from the bytes of
+ * their key, by code through the domain's code tables or by name through a
+ * table indexed by first letter, so no string is built for them unless they
+ * hold escapes. Malformed input is reported with an
+ * {@link IllegalArgumentException} giving the offending offset.
+ */
+public final class JsonCodec {
+
+  private static final Spellings<HealthState> STATES = new Spellings<>(HealthState.values(),
+      HealthState::lookupCode);
+  private static final Spellings<Drug> DRUGS = new Spellings<>(Drug.values(), Drug::lookupCode);
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final byte[] input;
+  private final CharSequence chars = new InputChars();
+  private final StringBuilder string = new StringBuilder();
+  private int position;
+  /** Start of the content of the last string read by {@link #readPlainString()}. */
+  private int plainStart;
+
+  private JsonCodec(byte[] input) {
+    this.input = input;
+  }
+
+  /**
+   * @param json the UTF-8 encoded request
+   * @return the decoded request
+   * @throws IllegalArgumentException if the request is malformed
+   */
+  public static SimulationRequest parseRequest(byte[] json) {
+    JsonCodec codec = new JsonCodec(json);
+    SimulationRequest request = codec.readRequest();
+    codec.expectEnd();
+    return request;
+  }
+
+  /**
+   * @param json the UTF-8 encoded array of requests
+   * @return the decoded requests
+   * @throws IllegalArgumentException if a request is malformed
+   */
+  public static List<SimulationRequest> parseRequests(byte[] json) {
+    JsonCodec codec = new JsonCodec(json);
+    List<SimulationRequest> requests = new ArrayList<>();
+    codec.expect('[');
+    if (!codec.consume(']')) {
+      do {
+        requests.add(codec.readRequest());
+      } while (codec.consume(','));
+      codec.expect(']');
+    }
+    codec.expectEnd();
+    return requests;
+  }
+
+  public static byte[] writeResponse(SimulationResponse response) {
+    StringBuilder json = new StringBuilder(128);
+    appendResponse(json, response);
+    return json.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  public static byte[] writeResponses(List<SimulationResponse> responses) {
+    StringBuilder json = new StringBuilder(2 + 128 * responses.size());
+    json.append('[');
+    for (int i = 0; i < responses.size(); i++) {
+      if (i > 0) {
+        json.append(',');
+      }
+      appendResponse(json, responses.get(i));
+    }
+    return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param message the error message
+   * @return an object holding the message, e.g. {@code {"error":"..."}}
+   */
+  public static byte[] writeError(String message) {
+    StringBuilder json = new StringBuilder(message.length() + 16).append("{\"error\":");
+    appendString(json, message);
+    return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static void appendResponse(StringBuilder json, SimulationResponse response) {
+    json.append("{\"patientsByState\":{");
+    boolean first = true;
+    for (Map.Entry<HealthState, Integer> entry : response.patientsByState().entrySet()) {
+      json.append(first ? "\"" : ",\"").append(entry.getKey().name()).append("\":").append(entry.getValue());
+      first = false;
+    }
+    json.append('}');
+    if (response.seed() != null) {
+      json.append(",\"seed\":").append(response.seed().longValue());
+    }
+    json.append('}');
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> json.append("\\\"");
+        case '\\' -> json.append("\\\\");
+        case '\n' -> json.append("\\n");
+        default -> {
+          if (c < ' ') {
+            json.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+          } else {
+            json.append(c);
+          }
+        }
+      }
+    }
+    json.append('"');
+  }
+
+  private SimulationRequest readRequest() {
+    Map<HealthState, Integer> initialPatients = null;
+    Set<Drug> drugs = null;
+    Long seed = null;
+    expect('{');
+    if (!consume('}')) {
+      do {
+        String field = readString();
+        expect(':');
+        switch (field) {
+          case "initialPatients" -> initialPatients = readPatients();
+          case "drugs" -> drugs = readDrugs();
+          case "seed" -> seed = consumeNull() ? null : readLong();
+          default -> skipValue();
+        }
+      } while (consume(','));
+      expect('}');
+    }
+    if (initialPatients == null) {
+      throw new IllegalArgumentException("Invalid SimulationRequest: Initial patients map cannot be null.");
+    }
+    return new SimulationRequest(initialPatients, drugs, seed);
+  }
+
+  private Map<HealthState, Integer> readPatients() {
+    Map<HealthState, Integer> patients = new EnumMap<>(HealthState.class);
+    expect('{');
+    if (!consume('}')) {
+      do {
+        HealthState state = readConstant(STATES, "health state name or code");
+        expect(':');
+        long count = readLong();
+        if (count > Integer.MAX_VALUE || count < Integer.MIN_VALUE) {
+          throw error("patient count fitting in an int");
+        }
+        patients.merge(state, (int) count, Integer::sum);
+      } while (consume(','));
+      expect('}');
+    }
+    return patients;
+  }
+
+  private Set<Drug> readDrugs() {
+    if (consumeNull()) {
+      return null;
+    }
+    Set<Drug> drugs = EnumSet.noneOf(Drug.class);
+    expect('[');
+    if (!consume(']')) {
+      do {
+        drugs.add(readConstant(DRUGS, "drug name or code"));
+      } while (consume(','));
+      expect(']');
+    }
+    return drugs;
+  }
+
+  /**
+   * Reads a string naming an enum constant, decoding it only if it holds
+   * escapes.
+   */
+  private <E extends Enum<E>> E readConstant(Spellings<E> spellings, String expected) {
+    int start = position;
+    CharSequence key = chars;
+    int to = readPlainString();
+    int from = plainStart;
+    if (to < 0) {
+      key = readString();
+      from = 0;
+      to = key.length();
+    }
+    E constant = spellings.lookup(key, from, to);
+    if (constant == null) {
+      position = start;
+      throw error(expected + " but got \"" + key.subSequence(from, to) + "\"");
+    }
+    return constant;
+  }
+
+  /**
+   * Reads a string without escapes, leaving its content in the input.
+   *
+   * @return the index after the last byte of the content, which starts at
+   *         {@link #plainStart}, or {@code -1}, with the position unchanged, if
+   *         the string holds an escape or is not closed
+   */
+  private int readPlainString() {
+    int start = position;
+    expect('"');
+    plainStart = position;
+    while (position < input.length) {
+      byte b = input[position++];
+      if (b == '"') {
+        return position - 1;
+      }
+      if (b == '\\') {
+        break;
+      }
+    }
+    position = start;
+    return -1;
+  }
+
+  private String readString() {
+    expect('"');
+    string.setLength(0);
+    while (true) {
+      if (position >= input.length) {
+        throw error("closing quote");
+      }
+      int b = input[position++] & 0xFF;
+      if (b == '"') {
+        return string.toString();
+      }
+      if (b == '\\') {
+        readEscape();
+      } else if (b < 0x80) {
+        string.append((char) b);
+      } else {
+        readMultiByteCharacter(b);
+      }
+    }
+  }
+
+  private void readEscape() {
+    if (position >= input.length) {
+      throw error("escape sequence");
+    }
+    char c = (char) input[position++];
+    switch (c) {
+      case '"', '\\', '/' -> string.append(c);
+      case 'b' -> string.append('\b');
+      case 'f' -> string.append('\f');
+      case 'n' -> string.append('\n');
+      case 'r' -> string.append('\r');
+      case 't' -> string.append('\t');
+      case 'u' -> {
+        if (position + 4 > input.length) {
+          throw error("four hexadecimal digits");
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(input[position++], 16);
+          if (digit < 0) {
+            position--;
+            throw error("hexadecimal digit");
+          }
+          code = code * 16 + digit;
+        }
+        string.append((char) code);
+      }
+      default -> {
+        position--;
+        throw error("escape sequence");
+      }
+    }
+  }
+
+  private void readMultiByteCharacter(int first) {
+    // Rare in requests, so decode the code point with the JDK rather than by hand
+    int length = first >= 0xF0 ? 4 : first >= 0xE0 ? 3 : 2;
+    int start = position - 1;
+    position = Math.min(input.length, start + length);
+    string.append(new String(input, start, position - start, StandardCharsets.UTF_8));
+  }
+
+  private long readLong() {
+    skipWhitespace();
+    int start = position;
+    boolean negative = position < input.length && input[position] == '-';
+    if (negative) {
+      position++;
+    }
+    long value = 0;
+    int digits = 0;
+    while (position < input.length && input[position] >= '0' && input[position] <= '9') {
+      int digit = input[position++] - '0';
+      if (value < (Long.MIN_VALUE + digit) / 10) {
+        position = start;
+        throw error("integer within range");
+      }
+      value = value * 10 - digit;
+      digits++;
+    }
+    if (digits == 0 || (position < input.length && (input[position] == '.' || (input[position] | 0x20) == 'e'))) {
+      position = start;
+      throw error("integer");
+    }
+    if (!negative) {
+      if (value == Long.MIN_VALUE) {
+        position = start;
+        throw error("integer within range");
+      }
+      value = -value;
+    }
+    return value;
+  }
+
+  private void skipValue() {
+    skipWhitespace();
+    if (position >= input.length) {
+      throw error("value");
+    }
+    switch (input[position]) {
+      case '"' -> readString();
+      case '{' -> {
+        position++;
+        if (!consume('}')) {
+          do {
+            readString();
+            expect(':');
+            skipValue();
+          } while (consume(','));
+          expect('}');
+        }
+      }
+      case '[' -> {
+        position++;
+        if (!consume(']')) {
+          do {
+            skipValue();
+          } while (consume(','));
+          expect(']');
+        }
+      }
+      default -> {
+        int start = position;
+        while (position < input.length && "{}[],: \t\r\n\"".indexOf(input[position]) < 0) {
+          position++;
+        }
+        if (position == start) {
+          throw error("value");
+        }
+      }
+    }
+  }
+
+  private boolean consumeNull() {
+    skipWhitespace();
+    if (position + 4 <= input.length && input[position] == 'n' && input[position + 1] == 'u'
+        && input[position + 2] == 'l' && input[position + 3] == 'l') {
+      position += 4;
+      return true;
+    }
+    return false;
+  }
+
+  private boolean consume(char c) {
+    skipWhitespace();
+    if (position < input.length && input[position] == c) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private void expect(char c) {
+    if (!consume(c)) {
+      throw error("'" + c + "'");
+    }
+  }
+
+  private void expectEnd() {
+    skipWhitespace();
+    if (position < input.length) {
+      throw error("end of input");
+    }
+  }
+
+  private void skipWhitespace() {
+    while (position < input.length) {
+      byte b = input[position];
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+        return;
+      }
+      position++;
+    }
+  }
+
+  private IllegalArgumentException error(String expected) {
+    return new IllegalArgumentException("Invalid JSON at offset " + position + ": expected " + expected + ".");
+  }
+
+  /**
+   * View of the input bytes as characters, for the lookup tables. Only ASCII
+   * bytes can match, so bytes are widened without decoding them.
+   */
+  private final class InputChars implements CharSequence {
+
+    @Override
+    public int length() {
+      return input.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (input[index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return new String(input, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+      return new String(input, StandardCharsets.UTF_8);
+    }
+  }
+
+  @FunctionalInterface
+  private interface CodeLookup<E> {
+
+    E lookup(CharSequence input, int start, int end);
+  }
+
+  /**
+   * Case-insensitive lookup of enum constants by code, through the domain's
+   * code tables, or by name. Names are grouped by first letter, so a lookup
+   * compares the key with at most a couple of names.
+   */
+  private static final class Spellings<E extends Enum<E>> {
+
+    private static final int LETTERS = 26;
+
+    private final CodeLookup<E> codes;
+    private final List<List<E>> namesByLetter = new ArrayList<>(LETTERS);
+
+    Spellings(E[] values, CodeLookup<E> codes) {
+      this.codes = codes;
+      for (int letter = 0; letter < LETTERS; letter++) {
+        namesByLetter.add(new ArrayList<>(1));
+      }
+      for (E value : values) {
+        namesByLetter.get(letter(value.name().charAt(0))).add(value);
+      }
+    }
+
+    E lookup(CharSequence key, int start, int end) {
+      E constant = codes.lookup(key, start, end);
+      if (constant != null || start == end) {
+        return constant;
+      }
+      int letter = letter(key.charAt(start));
+      if (letter < 0) {
+        return null;
+      }
+      for (E value : namesByLetter.get(letter)) {
+        if (matches(value.name(), key, start, end)) {
+          return value;
+        }
+      }
+      return null;
+    }
+
+    /** Names are upper-case ASCII letters, which setting bit 5 lower-cases on both sides. */
+    private static boolean matches(String name, CharSequence key, int start, int end) {
+      if (name.length() != end - start) {
+        return false;
+      }
+      for (int i = 0; i < name.length(); i++) {
+        if ((key.charAt(start + i) | 0x20) != (name.charAt(i) | 0x20)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private static int letter(char c) {
+      int letter = (c | 0x20) - 'a';
+      return letter >= 0 && letter < LETTERS ? letter : -1;
+    }
+  }
+}
@@ -0,0 +1,218 @@
+package com.hospital.client.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FastBinomialSampler;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.rule.impl.RecordingSampler;
+import com.hospital.service.SimulatorEngine;
+import com.hospital.service.metrics.SimulationMetrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP front-end for the {@link SimulatorEngine}.
+ * 
+ * <h2>Endpoints</h2>
+ * <ul>
+ * <li>{@code POST /simulate}: takes a {@link SimulationRequest} and returns a
+ *     {@link SimulationResponse}</li>
+ * <li>{@code POST /simulate/batch}: takes an array of requests and returns the
+ *     array of responses, in the same order</li>
+ * <li>{@code GET /metrics}: returns the engine's {@link SimulationMetrics} in
+ *     the Prometheus text format, if the engine records any</li>
+ * </ul>
+ * 
+ * <p>
+ * Bodies are JSON, see {@link JsonCodec}. Invalid requests are answered with
+ * {@code 400} and {@code {"error":"..."}}, and bodies larger than
+ * {@link #MAX_BODY_SIZE} with {@code 413}, without being read. Every exchange runs on its own
+ * virtual thread, and since every response carries a {@code Content-Length},
+ * connections are kept alive between requests. {@link #main} enables
+ * {@code TCP_NODELAY}; applications embedding the server should launch the
+ * JVM with {@code -Dsun.net.httpserver.nodelay=true} for the same latency.
+ * 
+ * <h2>Usage</h2>
+ * <pre>
+ * java -cp hospital-simulator.jar com.hospital.client.http.SimulationHttpServer [&lt;port&gt;]
+ * </pre>
+ */
+public class SimulationHttpServer implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(SimulationHttpServer.class);
+
+  static final String SIMULATE_PATH = "/simulate";
+  static final String BATCH_PATH = "/simulate/batch";
+  static final String METRICS_PATH = "/metrics";
+
+  /** Largest accepted request body, in bytes. */
+  static final int MAX_BODY_SIZE = 1 << 24;
+
+  private static final int DEFAULT_PORT = 8080;
+  private static final int BACKLOG = 1_024;
+  private static final String CONTENT_TYPE = "application/json";
+  private static final String METRICS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * The JDK server writes response headers and body separately; with Nagle's
+   * algorithm, the body then waits for the client's delayed ACK, about 40 ms
+   * per keep-alive exchange. The property applies to every {@code HttpServer}
+   * of the JVM and is read once, when the first one is created.
+   */
+  private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+  private final SimulatorEngine simulatorEngine;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  public SimulationHttpServer(SimulatorEngine simulatorEngine, InetSocketAddress address) throws IOException {
+    this.simulatorEngine = simulatorEngine;
+    this.server = HttpServer.create(address, BACKLOG);
+    this.server.setExecutor(executor);
+    this.server.createContext(SIMULATE_PATH, this::handle);
+    if (simulatorEngine.metrics() != null) {
+      this.server.createContext(METRICS_PATH, this::handleMetrics);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    // This JVM only runs this server, so the JVM-wide setting is ours to choose unless given at launch
+    if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+      System.setProperty(NO_DELAY_PROPERTY, "true");
+    }
+    int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+    SimulationMetrics metrics = new SimulationMetrics();
+    SimulationHttpServer server = new SimulationHttpServer(new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule(metrics.countingSampler(new RecordingSampler(new FastBinomialSampler())))), null, metrics),
+        new InetSocketAddress(port));
+    server.start();
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+  }
+
+  public void start() {
+    server.start();
+    log.info("Simulation HTTP server listening on port {}", port());
+  }
+
+  /**
+   * @return the port the server listens on, useful when bound to port 0
+   */
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.close();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String path = exchange.getRequestURI().getPath();
+      if (!path.equals(SIMULATE_PATH) && !path.equals(BATCH_PATH)) {
+        send(exchange, 404, JsonCodec.writeError("Unknown path: " + path));
+        return;
+      }
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "POST");
+        send(exchange, 405, JsonCodec.writeError("Method not allowed: " + exchange.getRequestMethod()));
+        return;
+      }
+
+      byte[] body = readBody(exchange);
+      if (body == null) {
+        send(exchange, 413, JsonCodec.writeError("Request body exceeds " + MAX_BODY_SIZE + " bytes."));
+        return;
+      }
+      byte[] response;
+      try {
+        response = path.equals(BATCH_PATH) ? simulateBatch(body) : simulate(body);
+      } catch (IllegalArgumentException e) {
+        send(exchange, 400, JsonCodec.writeError(e.getMessage()));
+        return;
+      } catch (RuntimeException e) {
+        log.error("Simulation request failed", e);
+        send(exchange, 500, JsonCodec.writeError("Internal server error."));
+        return;
+      }
+      send(exchange, 200, response);
+    }
+  }
+
+  /**
+   * @return the request body, or {@code null} if it exceeds
+   *         {@link #MAX_BODY_SIZE}, in which case it is read no further than
+   *         that, and not at all when its length is declared
+   */
+  private static byte[] readBody(HttpExchange exchange) throws IOException {
+    String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+    if (contentLength != null && Long.parseLong(contentLength.strip()) > MAX_BODY_SIZE) {
+      return null;
+    }
+    // Chunked bodies have no declared length, so one byte more than allowed tells they are too large
+    try (InputStream input = exchange.getRequestBody()) {
+      byte[] body = input.readNBytes(MAX_BODY_SIZE + 1);
+      return body.length > MAX_BODY_SIZE ? null : body;
+    }
+  }
+
+  private void handleMetrics(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String path = exchange.getRequestURI().getPath();
+      if (!path.equals(METRICS_PATH)) {
+        send(exchange, 404, JsonCodec.writeError("Unknown path: " + path));
+        return;
+      }
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.getResponseHeaders().set("Allow", "GET");
+        send(exchange, 405, JsonCodec.writeError("Method not allowed: " + exchange.getRequestMethod()));
+        return;
+      }
+      send(exchange, 200, METRICS_CONTENT_TYPE,
+          simulatorEngine.metrics().toPrometheus().getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  private byte[] simulate(byte[] body) {
+    return JsonCodec.writeResponse(simulatorEngine.simulate(JsonCodec.parseRequest(body)));
+  }
+
+  private byte[] simulateBatch(byte[] body) {
+    // Exchanges already run concurrently, so a batch is simulated sequentially on its own virtual thread
+    List<SimulationRequest> requests = JsonCodec.parseRequests(body);
+    return JsonCodec.writeResponses(simulatorEngine.simulateAll(requests.stream()).toList());
+  }
+
+  private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+    send(exchange, status, CONTENT_TYPE, body);
+  }
+
+  private static void send(HttpExchange exchange, int status, String contentType, byte[] body)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream output = exchange.getResponseBody()) {
+      output.write(body);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.hospital.client.model;
+
+import java.util.Map;
+
+import com.hospital.domain.HealthState;
+
+/**
+ * @param replicates the number of replicates simulated
+ * @param seed the master seed the replicates' random streams were derived
+ *        from, which reproduces this response when sent back in a request
+ * @param statisticsByState the distribution of the final number of patients in
+ *        each health state across replicates
+ */
+public record EnsembleResponse(
+    long replicates,
+    long seed,
+    Map<HealthState, Statistics> statisticsByState
+) {
+
+  /**
+   * Quantiles are exact up to {@code 255} patients and within {@code 1/256}
+   * of the true value, relatively, above.
+   * 
+   * @param mean the mean number of patients
+   * @param variance the unbiased sample variance of the number of patients
+   * @param min the smallest number of patients
+   * @param max the largest number of patients
+   * @param p50 the median number of patients
+   * @param p95 the 95th percentile of the number of patients
+   * @param p99 the 99th percentile of the number of patients
+   */
+  public record Statistics(
+      double mean,
+      double variance,
+      long min,
+      long max,
+      long p50,
+      long p95,
+      long p99
+  ) {
+  }
+}
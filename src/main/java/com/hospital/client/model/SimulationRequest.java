@@ -6,8 +6,14 @@ import java.util.Set;
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
 
+/**
+ * @param initialPatients the number of patients in each health state
+ * @param drugs the drugs administered, empty if {@code null}
+ * @param seed the seed of the simulation's random stream, or {@code null} to
+ *        let the engine pick one
+ */
 public record SimulationRequest(Map<HealthState, Integer> initialPatients,
-        Set<Drug> drugs) {
+        Set<Drug> drugs, Long seed) {
 
     public SimulationRequest {
         if (initialPatients == null) {
@@ -22,4 +28,8 @@ public record SimulationRequest(Map<HealthState, Integer> initialPatients,
             drugs = Set.of();
         }
     }
+
+    public SimulationRequest(Map<HealthState, Integer> initialPatients, Set<Drug> drugs) {
+        this(initialPatients, drugs, null);
+    }
 }
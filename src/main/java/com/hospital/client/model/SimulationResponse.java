@@ -4,6 +4,17 @@ import java.util.Map;
 
 import com.hospital.domain.HealthState;
 
+/**
+ * @param patientsByState the number of patients in each health state
+ * @param seed the seed the simulation's random stream was created from, which
+ *        reproduces this response when sent back in a request
+ */
 public record SimulationResponse(
-    Map<HealthState, Integer> patientsByState
-) {}
+    Map<HealthState, Integer> patientsByState,
+    Long seed
+) {
+
+  public SimulationResponse(Map<HealthState, Integer> patientsByState) {
+    this(patientsByState, null);
+  }
+}
@@ -0,0 +1,62 @@
+package com.hospital.domain;
+
+import java.util.function.Function;
+
+/**
+ * Case-insensitive lookup table from one- or two-letter codes to enum
+ * constants.
+ *
+ * <p>
+ * A code is mapped to a slot computed from its letters, so a lookup costs two
+ * character reads and an array access, and works on any slice of a
+ * {@link CharSequence} without copying it.
+ */
+final class CodeTable<E extends Enum<E>> {
+
+  private static final int LETTERS = 26;
+  private static final int SECOND_LETTERS = LETTERS + 1;
+
+  private final Object[] entries = new Object[LETTERS * SECOND_LETTERS];
+
+  CodeTable(E[] values, Function<E, String> code) {
+    for (E value : values) {
+      String valueCode = code.apply(value);
+      int slot = slot(valueCode, 0, valueCode.length());
+      if (slot < 0 || entries[slot] != null) {
+        throw new IllegalStateException("Code must be one or two unique letters: " + valueCode);
+      }
+      entries[slot] = value;
+    }
+  }
+
+  /**
+   * @param input the characters to look up
+   * @param start the index of the first character of the code
+   * @param end   the index after the last character of the code
+   * @return the constant whose code matches, ignoring case, or {@code null}
+   */
+  @SuppressWarnings("unchecked")
+  E lookup(CharSequence input, int start, int end) {
+    int slot = slot(input, start, end);
+    return slot < 0 ? null : (E) entries[slot];
+  }
+
+  private static int slot(CharSequence input, int start, int end) {
+    int length = end - start;
+    if (length < 1 || length > 2) {
+      return -1;
+    }
+    int first = letter(input.charAt(start));
+    int second = length == 1 ? 0 : letter(input.charAt(start + 1)) + 1;
+    if (first < 0 || (length == 2 && second == 0)) {
+      return -1;
+    }
+    return first * SECOND_LETTERS + second;
+  }
+
+  private static int letter(char c) {
+    // Setting bit 5 lower-cases ASCII letters and moves every other character out of range
+    int letter = (c | 0x20) - 'a';
+    return letter >= 0 && letter < LETTERS ? letter : -1;
+  }
+}
@@ -1,5 +1,8 @@
 package com.hospital.domain;
 
+import java.util.EnumSet;
+import java.util.Set;
+
 public enum Drug {
 
   ASPIRIN("As"),
@@ -7,6 +10,13 @@ public enum Drug {
   INSULIN("I"),
   ANTIBIOTIC("An");
 
+  /** Number of distinct drug sets, i.e. the size of the drug bitmask space. */
+  public static final int COMBINATIONS = 1 << values().length;
+
+  private static final Drug[] DRUGS = values();
+
+  private static final CodeTable<Drug> CODES = new CodeTable<>(values(), Drug::getCode);
+
   private final String code;
 
   Drug(String code) {
@@ -18,10 +28,70 @@ public enum Drug {
   }
 
   public static Drug fromCode(String code) {
-    for (Drug drug : values()) {
-      if (drug.code.equalsIgnoreCase(code))
-        return drug;
+    if (code == null) {
+      throw new IllegalArgumentException("Unknown drug: null");
+    }
+    return fromCode(code, 0, code.length());
+  }
+
+  /**
+   * Looks up the drug whose code, ignoring case, is the given slice of
+   * characters. The slice is not copied unless the code is invalid.
+   *
+   * @param input the characters holding the code
+   * @param start the index of the first character of the code
+   * @param end   the index after the last character of the code
+   * @return the matching drug
+   * @throws IllegalArgumentException if no drug has that code
+   */
+  public static Drug fromCode(CharSequence input, int start, int end) {
+    Drug drug = lookupCode(input, start, end);
+    if (drug == null) {
+      throw new IllegalArgumentException("Unknown drug: " + input.subSequence(start, end));
+    }
+    return drug;
+  }
+
+  /**
+   * Same as {@link #fromCode(CharSequence, int, int)}, for callers that report
+   * invalid codes themselves.
+   *
+   * @return the matching drug, or {@code null} if none has that code
+   */
+  public static Drug lookupCode(CharSequence input, int start, int end) {
+    return CODES.lookup(input, start, end);
+  }
+
+  /**
+   * Encodes a set of drugs as a bitmask where bit {@code i} is set when the drug
+   * with ordinal {@code i} is present.
+   *
+   * @param drugs the drugs to encode
+   * @return the bitmask, in the range {@code [0, COMBINATIONS)}
+   */
+  public static int toMask(Set<Drug> drugs) {
+    int mask = 0;
+    for (Drug drug : DRUGS) {
+      if (drugs.contains(drug)) {
+        mask |= 1 << drug.ordinal();
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Decodes a bitmask produced by {@link #toMask(Set)}.
+   *
+   * @param mask the bitmask to decode
+   * @return a new set containing the encoded drugs
+   */
+  public static Set<Drug> fromMask(int mask) {
+    Set<Drug> drugs = EnumSet.noneOf(Drug.class);
+    for (Drug drug : DRUGS) {
+      if ((mask & (1 << drug.ordinal())) != 0) {
+        drugs.add(drug);
+      }
     }
-    throw new IllegalArgumentException("Unknown drug: " + code);
+    return drugs;
   }
 }
@@ -0,0 +1,118 @@
+package com.hospital.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The drugs administered at each step of a multi-step simulation.
+ * 
+ * <p>
+ * A schedule is a finite pattern of drug sets, one per step, that either
+ * keeps its last drug set forever or repeats from the start, e.g. a weekly
+ * treatment plan. Drug sets are stored as {@link Drug#toMask(Set) bitmasks}
+ * and consecutive steps with the same drugs are grouped into runs, so that a
+ * simulation can treat each run as a whole. Instances are immutable.
+ */
+public final class DrugSchedule {
+
+  private final int[] masks;
+  private final boolean cyclic;
+
+  private DrugSchedule(int[] masks, boolean cyclic) {
+    this.masks = masks;
+    this.cyclic = cyclic;
+  }
+
+  /**
+   * @param drugs the drugs administered at every step
+   * @return a schedule that never changes
+   */
+  public static DrugSchedule constant(Set<Drug> drugs) {
+    return new DrugSchedule(new int[] { Drug.toMask(drugs) }, false);
+  }
+
+  /**
+   * @param drugsByStep the drugs administered at each step; the last drug set
+   *        applies to every later step
+   * @return the schedule
+   */
+  public static DrugSchedule of(List<Set<Drug>> drugsByStep) {
+    return new DrugSchedule(toMasks(drugsByStep), false);
+  }
+
+  /**
+   * @param drugsByStep the drugs administered at each step of one period
+   * @return a schedule repeating the given period forever
+   */
+  public static DrugSchedule cyclic(List<Set<Drug>> drugsByStep) {
+    int[] masks = toMasks(drugsByStep);
+    boolean changes = Arrays.stream(masks).anyMatch(mask -> mask != masks[0]);
+    // A period without changes is a constant schedule, whose single run never ends
+    return changes ? new DrugSchedule(masks, true) : new DrugSchedule(new int[] { masks[0] }, false);
+  }
+
+  private static int[] toMasks(List<Set<Drug>> drugsByStep) {
+    if (drugsByStep == null || drugsByStep.isEmpty()) {
+      throw new IllegalArgumentException("Drug schedule must contain at least one step.");
+    }
+    int[] masks = new int[drugsByStep.size()];
+    for (int step = 0; step < masks.length; step++) {
+      Set<Drug> drugs = drugsByStep.get(step);
+      if (drugs == null) {
+        throw new IllegalArgumentException("Drugs of step " + step + " cannot be null.");
+      }
+      masks[step] = Drug.toMask(drugs);
+    }
+    return masks;
+  }
+
+  /**
+   * @return the number of steps after which a cyclic schedule repeats, or
+   *         {@code 0} if the schedule is not cyclic
+   */
+  public int period() {
+    return cyclic ? masks.length : 0;
+  }
+
+  /**
+   * @param step a step, starting at {@code 0}
+   * @return the drug bitmask of that step
+   */
+  public int maskAt(long step) {
+    return masks[index(step)];
+  }
+
+  public Set<Drug> drugsAt(long step) {
+    return Drug.fromMask(maskAt(step));
+  }
+
+  /**
+   * @param step a step, starting at {@code 0}
+   * @return the first step after {@code step} whose drugs differ, or
+   *         {@link Long#MAX_VALUE} if the drugs never change again
+   */
+  public long runEnd(long step) {
+    int index = index(step);
+    int mask = masks[index];
+    int end = index + 1;
+    while (end < masks.length && masks[end] == mask) {
+      end++;
+    }
+    if (end == masks.length && !cyclic) {
+      return Long.MAX_VALUE;
+    }
+    // Cyclic runs stop at the end of the period, even if the next one starts with the same drugs
+    return step + (end - index);
+  }
+
+  private int index(long step) {
+    if (step < 0) {
+      throw new IllegalArgumentException("Step cannot be negative: " + step);
+    }
+    if (cyclic) {
+      return (int) (step % masks.length);
+    }
+    return (int) Math.min(step, masks.length - 1);
+  }
+}
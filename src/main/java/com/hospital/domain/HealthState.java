@@ -1,5 +1,7 @@
 package com.hospital.domain;
 
+import java.util.Set;
+
 public enum HealthState {
 
   HEALTHY("H"),
@@ -8,6 +10,10 @@ public enum HealthState {
   TUBERCULOSIS("T"),
   DEAD("X");
 
+  private static final HealthState[] STATES = values();
+
+  private static final CodeTable<HealthState> CODES = new CodeTable<>(values(), HealthState::getCode);
+
   private final String code;
 
   HealthState(String code) {
@@ -19,10 +25,54 @@ public enum HealthState {
   }
 
   public static HealthState fromCode(String code) {
-    for (HealthState state : values()) {
-      if (state.code.equalsIgnoreCase(code))
-        return state;
+    if (code == null) {
+      throw new IllegalArgumentException("Invalid Health State: null");
+    }
+    return fromCode(code, 0, code.length());
+  }
+
+  /**
+   * Looks up the health state whose code, ignoring case, is the given slice of
+   * characters. The slice is not copied unless the code is invalid.
+   *
+   * @param input the characters holding the code
+   * @param start the index of the first character of the code
+   * @param end   the index after the last character of the code
+   * @return the matching health state
+   * @throws IllegalArgumentException if no health state has that code
+   */
+  public static HealthState fromCode(CharSequence input, int start, int end) {
+    HealthState state = lookupCode(input, start, end);
+    if (state == null) {
+      throw new IllegalArgumentException("Invalid Health State: " + input.subSequence(start, end));
+    }
+    return state;
+  }
+
+  /**
+   * Same as {@link #fromCode(CharSequence, int, int)}, for callers that report
+   * invalid codes themselves.
+   *
+   * @return the matching health state, or {@code null} if none has that code
+   */
+  public static HealthState lookupCode(CharSequence input, int start, int end) {
+    return CODES.lookup(input, start, end);
+  }
+
+  /**
+   * Encodes a set of health states as a bitmask where bit {@code i} is set when
+   * the state with ordinal {@code i} is present.
+   *
+   * @param states the health states to encode
+   * @return the bitmask
+   */
+  public static int toMask(Set<HealthState> states) {
+    int mask = 0;
+    for (HealthState state : STATES) {
+      if (states.contains(state)) {
+        mask |= 1 << state.ordinal();
+      }
     }
-    throw new IllegalArgumentException("Invalid Health State: " + code);
+    return mask;
   }
 }
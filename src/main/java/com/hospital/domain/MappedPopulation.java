@@ -0,0 +1,267 @@
+package com.hospital.domain;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Population of individually tracked patients stored in a memory-mapped file,
+ * for populations that do not fit on the heap.
+ *
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE}-byte header followed by two
+ * state areas, each holding one byte per patient with the ordinal of its
+ * {@link HealthState}, in the same order as {@link PatientPopulation}. The
+ * patient bytes are mapped in regions of up to {@link #REGION_SIZE} bytes; the
+ * mapped pages live outside the heap and are paged in and out by the operating
+ * system, so heap usage does not depend on the population size. Patients are
+ * read and written in bulk, one range at a time, through caller-provided
+ * buffers.
+ *
+ * <p>
+ * The header records the seed of the simulation and how many steps it has
+ * completed, whose parity selects the area holding the current states.
+ * {@link #beginStep()} and {@link #checkpoint()} bracket every step. During a
+ * step, patients are read from the current area and written to the other one,
+ * which the step must write in full. A checkpoint flushes that area to disk,
+ * then records the step as completed with a single 8-byte write to the header,
+ * which makes it the current area. The current area is thus never modified by
+ * a step, and a population reopened after a crash or a failure at any point of
+ * a step resumes from its last checkpoint. Instances are not thread-safe, but
+ * disjoint ranges of patients can be read and written concurrently.
+ */
+public final class MappedPopulation implements AutoCloseable {
+
+  /** Size of the file header, in bytes. */
+  public static final int HEADER_SIZE = 64;
+
+  /** Largest number of patients mapped by a single region. */
+  public static final int REGION_SIZE = 1 << 30;
+
+  private static final long MAGIC = 0x48535030_50505032L;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int SIZE_OFFSET = 8;
+  private static final int SEED_OFFSET = 16;
+  private static final int COMPLETED_STEPS_OFFSET = 24;
+  private static final int BUFFER_SIZE = 1 << 20;
+  private static final HealthState[] STATES = HealthState.values();
+
+  private final FileChannel channel;
+  private final MappedByteBuffer header;
+  /** The regions of both state areas, by area. */
+  private final MappedByteBuffer[][] areas = new MappedByteBuffer[2][];
+  private final long size;
+  private MappedByteBuffer[] current;
+  private MappedByteBuffer[] written;
+
+  private MappedPopulation(FileChannel channel, long size) throws IOException {
+    this.channel = channel;
+    this.size = size;
+    this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+    int regions = (int) ((size + REGION_SIZE - 1) / REGION_SIZE);
+    for (int area = 0; area < areas.length; area++) {
+      areas[area] = new MappedByteBuffer[regions];
+      for (int region = 0; region < regions; region++) {
+        long start = (long) region * REGION_SIZE;
+        areas[area][region] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + area * size + start,
+            Math.min(REGION_SIZE, size - start));
+      }
+    }
+  }
+
+  /**
+   * Selects the current area from the completed steps, outside of any step.
+   */
+  private void selectCurrentArea() {
+    current = areas[(int) (completedSteps() & 1)];
+    written = current;
+  }
+
+  /**
+   * Creates a population file with the given number of patients in each
+   * health state, laid out state by state. An existing file is overwritten.
+   *
+   * @param file the file to create
+   * @param patientCounts the number of patients in each health state
+   * @param seed the seed of the simulations run on this population
+   * @return the new population
+   * @throws IOException if the file cannot be created
+   */
+  public static MappedPopulation create(Path file, PatientCounts patientCounts, long seed) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      long size = patientCounts.total();
+      channel.truncate(0);
+      MappedPopulation population = new MappedPopulation(channel, size);
+      population.header.putLong(MAGIC_OFFSET, MAGIC)
+          .putLong(SIZE_OFFSET, size)
+          .putLong(SEED_OFFSET, seed)
+          .putLong(COMPLETED_STEPS_OFFSET, 0);
+      population.selectCurrentArea();
+      long index = 0;
+      for (HealthState state : STATES) {
+        long end = index + patientCounts.get(state);
+        population.fill(index, end, (byte) state.ordinal());
+        index = end;
+      }
+      force(population.current);
+      population.header.force();
+      return population;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Opens an existing population file, to resume the simulation from its last
+   * checkpoint.
+   *
+   * @param file the file to open
+   * @return the population
+   * @throws IOException if the file cannot be read
+   * @throws IllegalStateException if the file is not a population file
+   */
+  public static MappedPopulation open(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+        // Read the whole header
+      }
+      if (header.hasRemaining() || header.getLong(MAGIC_OFFSET) != MAGIC) {
+        throw new IllegalStateException("Not a population file: " + file);
+      }
+      long size = header.getLong(SIZE_OFFSET);
+      if (channel.size() != HEADER_SIZE + 2 * size) {
+        throw new IllegalStateException("Population file is truncated: " + file);
+      }
+      // Whatever a step left in the other area is overwritten by the next one
+      MappedPopulation population = new MappedPopulation(channel, size);
+      population.selectCurrentArea();
+      return population;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public long seed() {
+    return header.getLong(SEED_OFFSET);
+  }
+
+  public long completedSteps() {
+    return header.getLong(COMPLETED_STEPS_OFFSET);
+  }
+
+  /**
+   * Starts a step: until the next {@link #checkpoint()}, patients are read
+   * from the states of the last checkpoint and written to the next states. A
+   * step that fails or is interrupted can be restarted with another call.
+   */
+  public void beginStep() {
+    written = areas[(int) ((completedSteps() + 1) & 1)];
+  }
+
+  /**
+   * Flushes the patients written by the step to disk, then records the step
+   * as completed, which makes them the current states.
+   *
+   * @throws IllegalStateException if no step was started
+   */
+  public void checkpoint() {
+    if (written == current) {
+      throw new IllegalStateException("No step in progress.");
+    }
+    force(written);
+    header.putLong(COMPLETED_STEPS_OFFSET, completedSteps() + 1);
+    header.force();
+    selectCurrentArea();
+  }
+
+  /**
+   * Copies a range of patients, as health state ordinals, into a buffer.
+   * During a step, these are the states of the last checkpoint. The range
+   * must not cross a region boundary.
+   *
+   * @param from the index of the first patient to read
+   * @param buffer the buffer to copy to, from its start
+   * @param length the number of patients to read
+   */
+  public void read(long from, byte[] buffer, int length) {
+    current[(int) (from / REGION_SIZE)].get((int) (from % REGION_SIZE), buffer, 0, length);
+  }
+
+  /**
+   * Copies health state ordinals from a buffer over a range of patients.
+   * During a step, they become the states of the next checkpoint; outside of
+   * a step, they replace the current states. The range must not cross a
+   * region boundary.
+   *
+   * @param from the index of the first patient to write
+   * @param buffer the buffer to copy from, from its start
+   * @param length the number of patients to write
+   */
+  public void write(long from, byte[] buffer, int length) {
+    written[(int) (from / REGION_SIZE)].put((int) (from % REGION_SIZE), buffer, 0, length);
+  }
+
+  public HealthState get(long index) {
+    return STATES[current[(int) (index / REGION_SIZE)].get((int) (index % REGION_SIZE))];
+  }
+
+  /**
+   * @return the number of patients in each health state
+   */
+  public PatientCounts countStates() {
+    PatientCounts patientCounts = new PatientCounts();
+    byte[] buffer = new byte[(int) Math.min(size, BUFFER_SIZE)];
+    long from = 0;
+    while (from < size) {
+      int length = rangeLength(from, size, buffer.length);
+      read(from, buffer, length);
+      PatientPopulation.countStates(buffer, 0, length, patientCounts);
+      from += length;
+    }
+    return patientCounts;
+  }
+
+  private void fill(long from, long to, byte state) {
+    byte[] buffer = new byte[(int) Math.min(to - from, BUFFER_SIZE)];
+    Arrays.fill(buffer, state);
+    while (from < to) {
+      int length = rangeLength(from, to, buffer.length);
+      write(from, buffer, length);
+      from += length;
+    }
+  }
+
+  /**
+   * @return the length of the range starting at {@code from} that ends at
+   *         {@code to}, at the end of the region or after {@code maxLength}
+   *         patients, whichever comes first
+   */
+  public static int rangeLength(long from, long to, int maxLength) {
+    return (int) Math.min(Math.min(to - from, maxLength), REGION_SIZE - from % REGION_SIZE);
+  }
+
+  private static void force(MappedByteBuffer[] area) {
+    for (MappedByteBuffer region : area) {
+      region.force();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
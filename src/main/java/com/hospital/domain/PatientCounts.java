@@ -0,0 +1,185 @@
+package com.hospital.domain;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Mutable, primitive population of patients indexed by {@link HealthState#ordinal()}.
+ *
+ * <p>
+ * This is the allocation-free counterpart of {@code Map<HealthState, Integer>}:
+ * counts are stored in a {@code long[]} and every operation updates them in
+ * place, so a single instance can be reused across rules and simulations.
+ * Instances are not thread-safe.
+ */
+public final class PatientCounts {
+
+  private static final HealthState[] STATES = HealthState.values();
+
+  final long[] counts = new long[STATES.length];
+
+  /** Scratch buffer used by {@link TransitionMatrix#applyTo(PatientCounts)}. */
+  final long[] scratch = new long[STATES.length];
+
+  public PatientCounts() {
+    // All health states start at zero
+  }
+
+  /**
+   * Creates a population from a map of health states to patient counts.
+   * Health states missing from the map are set to zero.
+   *
+   * @param patientsByState a map of health states to the number of patients in that state
+   * @return a new population holding the same counts
+   */
+  public static PatientCounts from(Map<HealthState, Integer> patientsByState) {
+    PatientCounts patientCounts = new PatientCounts();
+    patientCounts.assign(patientsByState);
+    return patientCounts;
+  }
+
+  public long get(HealthState state) {
+    return counts[state.ordinal()];
+  }
+
+  public void set(HealthState state, long count) {
+    counts[state.ordinal()] = count;
+  }
+
+  public void add(HealthState state, long count) {
+    counts[state.ordinal()] += count;
+  }
+
+  /**
+   * Transitions a specified count of patients from one health state to another.
+   * Non-positive counts are ignored, mirroring {@code HealthStateMapBuilder}.
+   *
+   * @param fromState the health state to transition from
+   * @param toState   the health state to transition to
+   * @param count     the number of patients to transition
+   */
+  public void transition(HealthState fromState, HealthState toState, long count) {
+    if (count > 0) {
+      counts[fromState.ordinal()] -= count;
+      counts[toState.ordinal()] += count;
+    }
+  }
+
+  /**
+   * Kills all patients by moving every count to {@link HealthState#DEAD}.
+   */
+  public void killAll() {
+    long total = total();
+    Arrays.fill(counts, 0);
+    counts[HealthState.DEAD.ordinal()] = total;
+  }
+
+  public long total() {
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    return total;
+  }
+
+  public boolean hasNegativeCount() {
+    for (long count : counts) {
+      if (count < 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the bitmask, as per {@link HealthState#toMask(java.util.Set)}, of
+   *         the health states that have at least one patient
+   */
+  public int nonEmptyStates() {
+    int mask = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] != 0) {
+        mask |= 1 << i;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * Counts the patients that moved to another health state since the given
+   * population, net of moves that cancel out: the sum of the increases of
+   * every state.
+   *
+   * @param before the same patients, at an earlier time
+   * @return the net number of patients whose health state changed
+   */
+  public long transitionsFrom(PatientCounts before) {
+    long transitions = 0;
+    for (int i = 0; i < counts.length; i++) {
+      transitions += Math.max(0, counts[i] - before.counts[i]);
+    }
+    return transitions;
+  }
+
+  public void clear() {
+    Arrays.fill(counts, 0);
+  }
+
+  public void copyFrom(PatientCounts other) {
+    System.arraycopy(other.counts, 0, counts, 0, counts.length);
+  }
+
+  public PatientCounts copy() {
+    PatientCounts copy = new PatientCounts();
+    copy.copyFrom(this);
+    return copy;
+  }
+
+  /**
+   * Replaces all counts with the ones in the given map.
+   * Health states missing from the map are set to zero.
+   *
+   * @param patientsByState a map of health states to the number of patients in that state
+   */
+  public void assign(Map<HealthState, Integer> patientsByState) {
+    Arrays.fill(counts, 0);
+    patientsByState.forEach((state, count) -> counts[state.ordinal()] = count);
+  }
+
+  /**
+   * Converts the population to a map containing every health state.
+   *
+   * @return a new map of health states to patient counts
+   * @throws ArithmeticException if a count does not fit into an {@code int}
+   */
+  public Map<HealthState, Integer> toMap() {
+    Map<HealthState, Integer> patientsByState = new EnumMap<>(HealthState.class);
+    for (HealthState state : STATES) {
+      patientsByState.put(state, Math.toIntExact(counts[state.ordinal()]));
+    }
+    return patientsByState;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof PatientCounts other && Arrays.equals(counts, other.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(counts);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder("{");
+    for (HealthState state : STATES) {
+      if (state.ordinal() > 0) {
+        builder.append(", ");
+      }
+      builder.append(state).append('=').append(counts[state.ordinal()]);
+    }
+    return builder.append('}').toString();
+  }
+}
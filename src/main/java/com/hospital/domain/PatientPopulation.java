@@ -0,0 +1,124 @@
+package com.hospital.domain;
+
+import java.util.Arrays;
+
+/**
+ * Population of individually tracked patients, each stored as the ordinal of
+ * its {@link HealthState} in a single byte.
+ *
+ * <p>
+ * Patient states live in their own arrays rather than in patient objects, so
+ * that rules stream over densely packed bytes. Populations larger than a Java
+ * array are split into segments of {@link #SEGMENT_SIZE} patients; patient
+ * {@code i} is at offset {@code i % SEGMENT_SIZE} of segment
+ * {@code i / SEGMENT_SIZE}. Instances are not thread-safe, but disjoint ranges
+ * of patients can be updated concurrently.
+ */
+public final class PatientPopulation {
+
+  private static final HealthState[] STATES = HealthState.values();
+
+  /** Number of patients per segment, a power of two. */
+  public static final int SEGMENT_SIZE = 1 << 30;
+
+  private final long size;
+  private final byte[][] segments;
+
+  /**
+   * Creates a population of healthy patients.
+   *
+   * @param size the number of patients
+   */
+  public PatientPopulation(long size) {
+    if (size < 0) {
+      throw new IllegalArgumentException("Population size cannot be negative: " + size);
+    }
+    this.size = size;
+    this.segments = new byte[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)][];
+    for (int segment = 0; segment < segments.length; segment++) {
+      segments[segment] = new byte[(int) Math.min(SEGMENT_SIZE, size - (long) segment * SEGMENT_SIZE)];
+    }
+  }
+
+  /**
+   * Creates a population with the given number of patients in each health
+   * state. Patients are laid out state by state, in ordinal order.
+   *
+   * @param patientCounts the number of patients in each health state
+   * @return a new population
+   */
+  public static PatientPopulation of(PatientCounts patientCounts) {
+    PatientPopulation population = new PatientPopulation(patientCounts.total());
+    long index = 0;
+    for (HealthState state : STATES) {
+      long end = index + patientCounts.get(state);
+      population.fill(index, end, state);
+      index = end;
+    }
+    return population;
+  }
+
+  private void fill(long from, long to, HealthState state) {
+    while (from < to) {
+      int segment = (int) (from / SEGMENT_SIZE);
+      int offset = (int) (from % SEGMENT_SIZE);
+      int length = (int) Math.min(to - from, SEGMENT_SIZE - offset);
+      Arrays.fill(segments[segment], offset, offset + length, (byte) state.ordinal());
+      from += length;
+    }
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public HealthState get(long index) {
+    return STATES[segments[(int) (index / SEGMENT_SIZE)][(int) (index % SEGMENT_SIZE)]];
+  }
+
+  public void set(long index, HealthState state) {
+    segments[(int) (index / SEGMENT_SIZE)][(int) (index % SEGMENT_SIZE)] = (byte) state.ordinal();
+  }
+
+  public int segmentCount() {
+    return segments.length;
+  }
+
+  /**
+   * Returns the live array of a segment, for rules that update patients in
+   * bulk.
+   *
+   * @param segment the index of the segment
+   * @return the health state ordinals of the patients of that segment
+   */
+  public byte[] segment(int segment) {
+    return segments[segment];
+  }
+
+  /**
+   * @return the number of patients in each health state
+   */
+  public PatientCounts countStates() {
+    PatientCounts patientCounts = new PatientCounts();
+    for (byte[] segment : segments) {
+      countStates(segment, 0, segment.length, patientCounts);
+    }
+    return patientCounts;
+  }
+
+  /**
+   * Adds the number of patients in each health state within a range of health
+   * state ordinals to the given counts.
+   *
+   * @param states the health state ordinals
+   * @param from the index of the first patient of the range
+   * @param to the index after the last patient of the range
+   * @param patientCounts the counts to add to
+   */
+  public static void countStates(byte[] states, int from, int to, PatientCounts patientCounts) {
+    long[] counts = patientCounts.counts;
+    for (int i = from; i < to; i++) {
+      counts[states[i]]++;
+    }
+  }
+}
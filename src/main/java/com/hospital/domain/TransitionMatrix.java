@@ -0,0 +1,182 @@
+package com.hospital.domain;
+
+import java.util.Arrays;
+
+/**
+ * Square matrix mapping patient counts before a step to patient counts after it.
+ *
+ * <p>
+ * The element at {@code (to, from)} is the number of patients that end up in
+ * health state {@code to} for every patient initially in health state
+ * {@code from}. Rules that move whole populations between states produce 0/1
+ * matrices whose columns each sum to one. Instances are immutable.
+ */
+public final class TransitionMatrix {
+
+  private static final HealthState[] STATES = HealthState.values();
+  private static final int SIZE = STATES.length;
+
+  private final long[] elements;
+
+  private TransitionMatrix(long[] elements) {
+    this.elements = elements;
+  }
+
+  public static TransitionMatrix identity() {
+    long[] elements = new long[SIZE * SIZE];
+    for (int i = 0; i < SIZE; i++) {
+      elements[i * SIZE + i] = 1;
+    }
+    return new TransitionMatrix(elements);
+  }
+
+  /**
+   * Builds a matrix column by column, where column {@code from} holds the
+   * patient counts obtained from a single patient in health state {@code from}.
+   *
+   * @param columns one entry per health state, indexed by ordinal
+   * @return the matrix whose columns are the given counts
+   */
+  public static TransitionMatrix fromColumns(PatientCounts[] columns) {
+    if (columns.length != SIZE) {
+      throw new IllegalArgumentException("Expected " + SIZE + " columns but got " + columns.length + ".");
+    }
+    long[] elements = new long[SIZE * SIZE];
+    for (int from = 0; from < SIZE; from++) {
+      for (int to = 0; to < SIZE; to++) {
+        elements[to * SIZE + from] = columns[from].counts[to];
+      }
+    }
+    return new TransitionMatrix(elements);
+  }
+
+  public long get(HealthState to, HealthState from) {
+    return elements[to.ordinal() * SIZE + from.ordinal()];
+  }
+
+  public boolean isIdentity() {
+    return equals(identity());
+  }
+
+  /**
+   * Composes this matrix with another one.
+   *
+   * @param next the matrix applied after this one
+   * @return a matrix equivalent to applying this matrix and then {@code next}
+   */
+  public TransitionMatrix then(TransitionMatrix next) {
+    long[] product = new long[SIZE * SIZE];
+    for (int to = 0; to < SIZE; to++) {
+      for (int from = 0; from < SIZE; from++) {
+        long sum = 0;
+        for (int k = 0; k < SIZE; k++) {
+          sum += next.elements[to * SIZE + k] * elements[k * SIZE + from];
+        }
+        product[to * SIZE + from] = sum;
+      }
+    }
+    return new TransitionMatrix(product);
+  }
+
+  /**
+   * Raises this matrix to a power by repeated squaring, which takes
+   * {@code O(log exponent)} products. Entries stay within range as long as the
+   * columns of this matrix sum to one, as they do for rules that move whole
+   * populations between states.
+   *
+   * @param exponent the number of times this matrix is applied
+   * @return a matrix equivalent to applying this matrix {@code exponent} times
+   */
+  public TransitionMatrix power(long exponent) {
+    if (exponent < 0) {
+      throw new IllegalArgumentException("Exponent cannot be negative: " + exponent);
+    }
+    TransitionMatrix result = identity();
+    TransitionMatrix square = this;
+    while (exponent > 0) {
+      if ((exponent & 1) != 0) {
+        result = result.then(square);
+      }
+      exponent >>>= 1;
+      if (exponent > 0) {
+        square = square.then(square);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Describes this matrix as a function from health states to health states,
+   * if it is one: every column holds a single {@code 1} and zeros elsewhere.
+   *
+   * @return the ordinal of the image of each health state, indexed by ordinal,
+   *         or {@code null} if some state is not mapped to exactly one state
+   */
+  public byte[] toStateMapping() {
+    byte[] mapping = new byte[SIZE];
+    for (int from = 0; from < SIZE; from++) {
+      int image = -1;
+      for (int to = 0; to < SIZE; to++) {
+        long element = elements[to * SIZE + from];
+        if (element == 1 && image < 0) {
+          image = to;
+        } else if (element != 0) {
+          return null;
+        }
+      }
+      if (image < 0) {
+        return null;
+      }
+      mapping[from] = (byte) image;
+    }
+    return mapping;
+  }
+
+  /**
+   * Multiplies the given patient counts by this matrix, in place and without
+   * allocating.
+   *
+   * @param patientCounts the patient counts to transform
+   */
+  public void applyTo(PatientCounts patientCounts) {
+    long[] counts = patientCounts.counts;
+    long[] result = patientCounts.scratch;
+    for (int to = 0; to < SIZE; to++) {
+      long sum = 0;
+      int row = to * SIZE;
+      for (int from = 0; from < SIZE; from++) {
+        sum += elements[row + from] * counts[from];
+      }
+      result[to] = sum;
+    }
+    System.arraycopy(result, 0, counts, 0, SIZE);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof TransitionMatrix other && Arrays.equals(elements, other.elements);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(elements);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (HealthState from : STATES) {
+      for (HealthState to : STATES) {
+        long count = get(to, from);
+        if (count != 0) {
+          builder.append(builder.isEmpty() ? "" : ", ")
+              .append(from.getCode()).append("->").append(to.getCode());
+          if (count != 1) {
+            builder.append('x').append(count);
+          }
+        }
+      }
+    }
+    return "[" + builder + "]";
+  }
+}
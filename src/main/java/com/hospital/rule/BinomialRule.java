@@ -0,0 +1,35 @@
+package com.hospital.rule;
+
+import java.util.Set;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+
+/**
+ * A stochastic {@link Rule} moving each patient of one health state to another
+ * independently, with a probability that only depends on the drugs: the
+ * number of patients moved follows a binomial distribution.
+ *
+ * <p>
+ * Declaring this lets the engine compute the exact distribution of outcomes
+ * instead of sampling it, see
+ * {@link com.hospital.service.SimulatorEngine#distribution(com.hospital.domain.PatientCounts, Set)}.
+ */
+public interface BinomialRule extends Rule {
+
+  /**
+   * @return the health state patients are moved from
+   */
+  HealthState sourceState();
+
+  /**
+   * @return the health state patients are moved to
+   */
+  HealthState targetState();
+
+  /**
+   * @param drugs the drugs administered
+   * @return the probability that a patient of the source state is moved
+   */
+  double probability(Set<Drug> drugs);
+}
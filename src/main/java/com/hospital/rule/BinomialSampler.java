@@ -1,5 +1,7 @@
 package com.hospital.rule;
 
+import java.util.random.RandomGenerator;
+
 /**
  * Interface for sampling from a binomial distribution.
  * This interface abstracts the sampling logic, allowing for different implementations.
@@ -7,4 +9,44 @@ package com.hospital.rule;
 public interface BinomialSampler {
 
   int sample(int trials, double probability);
+
+  /**
+   * Samples the number of successes among a possibly very large number of trials.
+   * 
+   * <p>
+   * The default implementation relies on the additivity of the binomial
+   * distribution and sums int-sized samples. Implementations that natively
+   * support {@code long} trial counts should override it.
+   * 
+   * @param trials the number of trials, non-negative
+   * @param probability the probability of success of each trial
+   * @return the number of successes
+   */
+  default long sample(long trials, double probability) {
+    long successes = 0;
+    long remaining = trials;
+    while (remaining > Integer.MAX_VALUE) {
+      successes += sample(Integer.MAX_VALUE, probability);
+      remaining -= Integer.MAX_VALUE;
+    }
+    return successes + sample((int) remaining, probability);
+  }
+
+  /**
+   * Samples the number of successes drawing randomness from the given generator,
+   * which lets callers make simulations reproducible by seeding it.
+   * 
+   * <p>
+   * Samplers that cannot draw from an external generator, which is the case of
+   * the default implementation, ignore it and fall back to
+   * {@link #sample(long, double)}.
+   * 
+   * @param trials the number of trials, non-negative
+   * @param probability the probability of success of each trial
+   * @param random the source of randomness for this draw
+   * @return the number of successes
+   */
+  default long sample(long trials, double probability, RandomGenerator random) {
+    return sample(trials, probability);
+  }
 }
@@ -0,0 +1,30 @@
+package com.hospital.rule;
+
+import java.util.Map;
+import java.util.Set;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.impl.utils.RuleValidationUtils;
+
+/**
+ * A {@link Rule} whose logic works directly on {@link PatientCounts}.
+ * 
+ * <p>
+ * Implementations only provide {@link #applyInPlace(PatientCounts, Set)};
+ * the map-based {@link #apply(Map, Set)} is derived from it.
+ */
+public interface InPlaceRule extends Rule {
+
+  @Override
+  void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs);
+
+  @Override
+  default Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
+    RuleValidationUtils.validateRulePreconditions(patientsByState, drugs);
+    PatientCounts patientCounts = PatientCounts.from(patientsByState);
+    applyInPlace(patientCounts, drugs);
+    return patientCounts.toMap();
+  }
+}
@@ -0,0 +1,30 @@
+package com.hospital.rule;
+
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.PatientPopulation;
+
+/**
+ * A {@link Rule} that can also be applied to individual patients.
+ * 
+ * <p>
+ * Linear rules need no such support: the engine derives their per-patient
+ * effect from their transition matrix. Other rules, such as stochastic ones,
+ * implement this interface to take part in per-patient simulations.
+ */
+public interface PatientRule extends Rule {
+
+  /**
+   * Applies the rule to a range of patients of a {@link PatientPopulation},
+   * each given as the ordinal of its health state.
+   * 
+   * @param states the health state ordinals, updated in place
+   * @param from the index of the first patient of the range
+   * @param to the index after the last patient of the range
+   * @param drugs the drugs administered
+   * @param random the random stream of this range of patients
+   */
+  void applyToPatients(byte[] states, int from, int to, Set<Drug> drugs, RandomGenerator random);
+}
@@ -1,10 +1,13 @@
 package com.hospital.rule;
 
+import java.util.EnumSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.random.RandomGenerator;
 
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
 
 /**
  * Rule interface defines the contract for applying health rules to patients based on their current health states and available drugs.
@@ -19,4 +22,103 @@ public interface Rule {
    * @return a map of health states to the updated number of patients in that state after applying the rule
    */
   Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs);  
+
+  /**
+   * Applies the rule to the patients, updating their counts in place.
+   * 
+   * <p>
+   * Unlike {@link #apply(Map, Set)}, the arguments are not validated: callers,
+   * such as the engine, check them once before applying a whole chain of rules.
+   * The default implementation adapts map-based rules by round-tripping through
+   * {@link #apply(Map, Set)}. Rules on the hot path should implement
+   * {@link InPlaceRule} instead, which avoids any allocation.
+   * 
+   * @param patientCounts the patient counts to update
+   * @param drugs a set of drugs that may affect the health states
+   */
+  default void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+    patientCounts.assign(apply(patientCounts.toMap(), drugs));
+  }
+
+  /**
+   * Applies the rule in place, drawing any randomness from the given stream.
+   * 
+   * <p>
+   * The engine calls this method with one stream per simulation so that seeded
+   * simulations are reproducible. Deterministic rules can ignore it, which is
+   * what the default implementation does.
+   * 
+   * @param patientCounts the patient counts to update
+   * @param drugs a set of drugs that may affect the health states
+   * @param random the random stream of the current simulation
+   */
+  default void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+    applyInPlace(patientCounts, drugs);
+  }
+
+  /**
+   * Indicates whether, for any fixed set of drugs, the rule is a deterministic
+   * linear map of the patient counts: applying it to the sum of two populations
+   * gives the sum of applying it to each of them.
+   * 
+   * <p>
+   * The engine compiles consecutive linear rules into a single
+   * {@link com.hospital.domain.TransitionMatrix} per drug set. Defaults to
+   * {@code false}, which always keeps the rule as an individual step.
+   * 
+   * @return {@code true} if the rule is linear in the patient counts
+   */
+  default boolean isLinear() {
+    return false;
+  }
+
+  /**
+   * Indicates whether the rule always produces the same output for the same
+   * patient counts and drugs, never drawing from the random stream.
+   * 
+   * <p>
+   * The engine may memoize the outcome of deterministic rules, see
+   * {@link com.hospital.service.SimulationCache}. Defaults to
+   * {@link #isLinear()}, since linear rules are deterministic; a non-linear
+   * rule that is deterministic can override it to become cacheable.
+   * 
+   * @return {@code true} if the rule never uses randomness
+   */
+  default boolean isDeterministic() {
+    return isLinear();
+  }
+
+  /**
+   * Declares the drugs that trigger the rule: unless at least one of them is
+   * administered, the rule leaves the patients unchanged. The engine does not
+   * apply a rule to drug sets that do not trigger it.
+   * 
+   * <p>
+   * Defaults to an empty set, meaning the rule may fire whatever the drugs.
+   * 
+   * @return the drugs that trigger the rule
+   */
+  default Set<Drug> triggerDrugs() {
+    return Set.of();
+  }
+
+  /**
+   * Declares the health states the rule reads: when none of them has any
+   * patient, the rule leaves the patients unchanged. Defaults to every state.
+   * 
+   * @return the health states the rule reads
+   */
+  default Set<HealthState> readStates() {
+    return EnumSet.allOf(HealthState.class);
+  }
+
+  /**
+   * Declares the health states whose number of patients the rule may change.
+   * Defaults to every state.
+   * 
+   * @return the health states the rule writes
+   */
+  default Set<HealthState> writtenStates() {
+    return EnumSet.allOf(HealthState.class);
+  }
 }
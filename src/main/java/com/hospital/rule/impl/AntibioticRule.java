@@ -1,25 +1,40 @@
 package com.hospital.rule.impl;
 
-import java.util.Map;
+import java.util.EnumSet;
 import java.util.Set;
 
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
-import com.hospital.rule.Rule;
-import com.hospital.rule.impl.utils.HealthStateMapBuilder;
-import com.hospital.rule.impl.utils.RuleValidationUtils;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
 
-public class AntibioticRule implements Rule {
+public class AntibioticRule implements InPlaceRule {
 
   @Override
-  public Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
-    RuleValidationUtils.validateRulePreconditions(patientsByState, drugs);
+  public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
     if (drugs.contains(Drug.ANTIBIOTIC)) {
-      int tuberculosisCount = patientsByState.getOrDefault(HealthState.TUBERCULOSIS, 0);
-      return HealthStateMapBuilder.from(patientsByState)
-          .transition(HealthState.TUBERCULOSIS, HealthState.HEALTHY, tuberculosisCount)
-          .build();
+      long tuberculosisCount = patientCounts.get(HealthState.TUBERCULOSIS);
+      patientCounts.transition(HealthState.TUBERCULOSIS, HealthState.HEALTHY, tuberculosisCount);
     }
-    return HealthStateMapBuilder.from(patientsByState).build();
-  }  
+  }
+
+  @Override
+  public boolean isLinear() {
+    return true;
+  }
+
+  @Override
+  public Set<Drug> triggerDrugs() {
+    return EnumSet.of(Drug.ANTIBIOTIC);
+  }
+
+  @Override
+  public Set<HealthState> readStates() {
+    return EnumSet.of(HealthState.TUBERCULOSIS);
+  }
+
+  @Override
+  public Set<HealthState> writtenStates() {
+    return EnumSet.of(HealthState.TUBERCULOSIS, HealthState.HEALTHY);
+  }
 }
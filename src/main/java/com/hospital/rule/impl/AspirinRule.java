@@ -1,26 +1,40 @@
 package com.hospital.rule.impl;
 
-import java.util.Map;
+import java.util.EnumSet;
 import java.util.Set;
 
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
-import com.hospital.rule.Rule;
-import com.hospital.rule.impl.utils.HealthStateMapBuilder;
-import com.hospital.rule.impl.utils.RuleValidationUtils;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
 
-public class AspirinRule implements Rule {
+public class AspirinRule implements InPlaceRule {
 
   @Override
-  public Map<HealthState, Integer> apply(
-      Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
-    RuleValidationUtils.validateRulePreconditions(patientsByState, drugs);
+  public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
     if (drugs.contains(Drug.ASPIRIN)) {
-      int feverCount = patientsByState.getOrDefault(HealthState.FEVER, 0);
-      return HealthStateMapBuilder.from(patientsByState)
-          .transition(HealthState.FEVER, HealthState.HEALTHY, feverCount)
-          .build();
+      long feverCount = patientCounts.get(HealthState.FEVER);
+      patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, feverCount);
     }
-    return HealthStateMapBuilder.from(patientsByState).build();
+  }
+
+  @Override
+  public boolean isLinear() {
+    return true;
+  }
+
+  @Override
+  public Set<Drug> triggerDrugs() {
+    return EnumSet.of(Drug.ASPIRIN);
+  }
+
+  @Override
+  public Set<HealthState> readStates() {
+    return EnumSet.of(HealthState.FEVER);
+  }
+
+  @Override
+  public Set<HealthState> writtenStates() {
+    return EnumSet.of(HealthState.FEVER, HealthState.HEALTHY);
   }
 }
@@ -0,0 +1,243 @@
+package com.hospital.rule.impl;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+import com.hospital.rule.BinomialSampler;
+
+/**
+ * Binomial sampler that keeps its random state between calls and never
+ * allocates while sampling.
+ * 
+ * <p>
+ * The algorithm is chosen by regime, on {@code r = min(p, 1 - p)}:
+ * <ul>
+ * <li>{@code n * r < 30}: sequential inversion of the CDF using the PMF
+ * recurrence, which takes {@code O(1 + n * r)} uniforms and suits the tiny
+ * {@code n * p} of {@link FlyingSpaghettiMonsterRule};</li>
+ * <li>otherwise: the BTPE triangle/parallelogram/exponential rejection
+ * algorithm of Kachitvichyanukul and Schmeiser (1988), whose expected cost
+ * does not depend on {@code n}.</li>
+ * </ul>
+ * Samples for {@code p > 0.5} are obtained as {@code n - X} with
+ * {@code X ~ B(n, 1 - p)}.
+ * 
+ * <p>
+ * The no-argument constructor draws from {@link ThreadLocalRandom} and is
+ * thread-safe. Instances built on a given {@link RandomGenerator} are as
+ * thread-safe as that generator; a {@link SplittableRandom} is not, so
+ * concurrent users of a seeded sampler should each take their own
+ * {@link #split()} or pass their own stream to
+ * {@link #sample(long, double, RandomGenerator)}.
+ */
+public class FastBinomialSampler implements BinomialSampler {
+
+  private static final double INVERSION_THRESHOLD = 30.0;
+
+  private final RandomGenerator random;
+
+  public FastBinomialSampler() {
+    this.random = null;
+  }
+
+  public FastBinomialSampler(long seed) {
+    this(new SplittableRandom(seed));
+  }
+
+  public FastBinomialSampler(RandomGenerator random) {
+    this.random = Objects.requireNonNull(random, "Random generator cannot be null.");
+  }
+
+  @Override
+  public int sample(int trials, double probability) {
+    return (int) sample((long) trials, probability);
+  }
+
+  @Override
+  public long sample(long trials, double probability) {
+    return sample(trials, probability, random != null ? random : ThreadLocalRandom.current());
+  }
+
+  /**
+   * Creates a sampler over a new, statistically independent stream split off
+   * this sampler's generator.
+   * 
+   * @return a new sampler that can be used concurrently with this one
+   * @throws UnsupportedOperationException if the generator is not splittable
+   */
+  public FastBinomialSampler split() {
+    if (random instanceof RandomGenerator.SplittableGenerator splittableGenerator) {
+      return new FastBinomialSampler(splittableGenerator.split());
+    }
+    throw new UnsupportedOperationException("Random generator is not splittable.");
+  }
+
+  @Override
+  public long sample(long trials, double probability, RandomGenerator random) {
+    if (trials < 0) {
+      throw new IllegalArgumentException("Invalid number of trials: " + trials);
+    }
+    if (!(probability >= 0.0 && probability <= 1.0)) {
+      throw new IllegalArgumentException("Invalid probability: " + probability);
+    }
+
+    if (trials == 0 || probability == 0.0) {
+      return 0;
+    }
+    if (probability == 1.0) {
+      return trials;
+    }
+
+    if (probability > 0.5) {
+      return trials - sampleLowerHalf(trials, 1.0 - probability, random);
+    }
+    return sampleLowerHalf(trials, probability, random);
+  }
+
+  private static long sampleLowerHalf(long n, double p, RandomGenerator random) {
+    return n * p < INVERSION_THRESHOLD ? inversion(n, p, random) : btpe(n, p, random);
+  }
+
+  /**
+   * Sequential search of the CDF starting at zero, with
+   * {@code P(x) = P(x - 1) * ((n + 1) / x - 1) * p / q}. Searches running past
+   * a generous bound are restarted to guard against rounding in the tail.
+   */
+  private static long inversion(long n, double p, RandomGenerator random) {
+    double q = 1.0 - p;
+    double s = p / q;
+    double a = (n + 1.0) * s;
+    double probabilityOfZero = Math.exp(n * Math.log1p(-p));
+    double mean = n * p;
+    double bound = Math.min(n, mean + 10.0 * Math.sqrt(mean * q + 1.0));
+
+    while (true) {
+      double u = random.nextDouble();
+      double pmf = probabilityOfZero;
+      long x = 0;
+      while (u > pmf) {
+        u -= pmf;
+        x++;
+        if (x > bound) {
+          break;
+        }
+        pmf *= a / x - s;
+      }
+      if (x <= bound) {
+        return x;
+      }
+    }
+  }
+
+  /**
+   * BTPE, for {@code p <= 0.5} and {@code n * p >= 30}. Variable names follow
+   * the original paper.
+   */
+  private static long btpe(long n, double p, RandomGenerator random) {
+    double q = 1.0 - p;
+    double npq = n * p * q;
+    double fm = n * p + p;
+    long m = (long) Math.floor(fm);
+    double p1 = Math.floor(2.195 * Math.sqrt(npq) - 4.6 * q) + 0.5;
+    double xm = m + 0.5;
+    double xl = xm - p1;
+    double xr = xm + p1;
+    double c = 0.134 + 20.5 / (15.3 + m);
+    double a = (fm - xl) / (fm - xl * p);
+    double lambdaL = a * (1.0 + 0.5 * a);
+    a = (xr - fm) / (xr * q);
+    double lambdaR = a * (1.0 + 0.5 * a);
+    double p2 = p1 * (1.0 + 2.0 * c);
+    double p3 = p2 + c / lambdaL;
+    double p4 = p3 + c / lambdaR;
+
+    while (true) {
+      double u = random.nextDouble() * p4;
+      double v = random.nextDouble();
+      long y;
+
+      if (u <= p1) {
+        // Triangular region: accept immediately
+        return (long) Math.floor(xm - p1 * v + u);
+      }
+
+      if (u <= p2) {
+        // Parallelogram region
+        double x = xl + (u - p1) / c;
+        v = v * c + 1.0 - Math.abs(m - x + 0.5) / p1;
+        if (v > 1.0 || v <= 0.0) {
+          continue;
+        }
+        y = (long) Math.floor(x);
+      } else if (u <= p3) {
+        // Left exponential tail
+        double x = Math.floor(xl + Math.log(v) / lambdaL);
+        if (x < 0) {
+          continue;
+        }
+        y = (long) x;
+        v = v * (u - p2) * lambdaL;
+      } else {
+        // Right exponential tail
+        double x = Math.floor(xr - Math.log(v) / lambdaR);
+        if (x > n) {
+          continue;
+        }
+        y = (long) x;
+        v = v * (u - p3) * lambdaR;
+      }
+
+      if (accept(n, p, q, npq, m, xm, y, v)) {
+        return y;
+      }
+    }
+  }
+
+  private static boolean accept(long n, double p, double q, double npq, long m, double xm, long y, double v) {
+    long k = Math.abs(y - m);
+    if (k <= 20 || k >= npq / 2 - 1) {
+      // Explicit evaluation of f(y) / f(m) through the PMF recurrence
+      double s = p / q;
+      double a = s * (n + 1);
+      double f = 1.0;
+      if (m < y) {
+        for (long i = m + 1; i <= y; i++) {
+          f *= a / i - s;
+        }
+      } else if (m > y) {
+        for (long i = y + 1; i <= m; i++) {
+          f /= a / i - s;
+        }
+      }
+      return v <= f;
+    }
+
+    // Squeeze using upper and lower bounds on log(f(y))
+    double rho = (k / npq) * ((k * (k / 3.0 + 0.625) + 0.1666666666666) / npq + 0.5);
+    double t = -(double) k * k / (2 * npq);
+    double logV = Math.log(v);
+    if (logV < t - rho) {
+      return true;
+    }
+    if (logV > t + rho) {
+      return false;
+    }
+
+    // Final comparison with Stirling's formula
+    double x1 = y + 1.0;
+    double f1 = m + 1.0;
+    double z = n + 1.0 - m;
+    double w = n - y + 1.0;
+    return logV <= xm * Math.log(f1 / x1)
+        + (n - m + 0.5) * Math.log(z / w)
+        + (y - m) * Math.log(w * p / (x1 * q))
+        + stirlingCorrection(f1) + stirlingCorrection(z) + stirlingCorrection(x1) + stirlingCorrection(w);
+  }
+
+  private static double stirlingCorrection(double x) {
+    double x2 = x * x;
+    return (13860.0 - (462.0 - (132.0 - (99.0 - 140.0 / x2) / x2) / x2) / x2) / x / 166320.0;
+  }
+}
@@ -1,23 +1,28 @@
 package com.hospital.rule.impl;
 
-import java.util.Map;
+import java.util.EnumSet;
 import java.util.Set;
+import java.util.random.RandomGenerator;
 
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.BinomialRule;
 import com.hospital.rule.BinomialSampler;
-import com.hospital.rule.Rule;
-import com.hospital.rule.impl.utils.HealthStateMapBuilder;
-import com.hospital.rule.impl.utils.RuleValidationUtils;
+import com.hospital.rule.InPlaceRule;
+import com.hospital.rule.PatientRule;
 
-public class FlyingSpaghettiMonsterRule implements Rule {
+public class FlyingSpaghettiMonsterRule implements InPlaceRule, PatientRule, BinomialRule {
 
   private static final double RESURRECTION_PROBABILITY = 1.0 / 1_000_000;
+  private static final double LOG_STAYING_DEAD = Math.log1p(-RESURRECTION_PROBABILITY);
+  private static final byte DEAD = (byte) HealthState.DEAD.ordinal();
+  private static final byte HEALTHY = (byte) HealthState.HEALTHY.ordinal();
 
   private final BinomialSampler binomialSampler;
 
   public FlyingSpaghettiMonsterRule() {
-    this.binomialSampler = new ApacheBinomialSampler();
+    this.binomialSampler = new RecordingSampler(new FastBinomialSampler());
   }
 
   public FlyingSpaghettiMonsterRule(BinomialSampler binomialSampler) {
@@ -25,18 +30,82 @@ public class FlyingSpaghettiMonsterRule implements Rule {
   }
 
   @Override
-  public Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
-    RuleValidationUtils.validateRulePreconditions(patientsByState, drugs);
-    int deadCount = patientsByState.getOrDefault(HealthState.DEAD, 0);   
+  public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+    applyInPlace(patientCounts, drugs, null);
+  }
+
+  /**
+   * Resurrects dead patients drawing from the given stream, or from the
+   * sampler's own randomness when {@code random} is {@code null}.
+   */
+  @Override
+  public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+    long deadCount = patientCounts.get(HealthState.DEAD);
 
     if (deadCount == 0) {
-      return HealthStateMapBuilder.from(patientsByState).build();
+      return;
+    }
+
+    long resurrected = random != null
+        ? binomialSampler.sample(deadCount, RESURRECTION_PROBABILITY, random)
+        : sample(deadCount);
+
+    patientCounts.transition(HealthState.DEAD, HealthState.HEALTHY, resurrected);
+  }
+
+  private long sample(long deadCount) {
+    // Prefer the int overload, which every sampler implements natively
+    return deadCount <= Integer.MAX_VALUE
+        ? binomialSampler.sample((int) deadCount, RESURRECTION_PROBABILITY)
+        : binomialSampler.sample(deadCount, RESURRECTION_PROBABILITY);
+  }
+
+  /**
+   * Resurrects each dead patient of the range independently. Instead of
+   * drawing a number per dead patient, the number of dead patients to skip
+   * before the next resurrection is drawn from the geometric distribution.
+   */
+  @Override
+  public void applyToPatients(byte[] states, int from, int to, Set<Drug> drugs, RandomGenerator random) {
+    long skip = deadPatientsToSkip(random);
+    for (int i = from; i < to; i++) {
+      if (states[i] == DEAD) {
+        if (skip == 0) {
+          states[i] = HEALTHY;
+          skip = deadPatientsToSkip(random);
+        } else {
+          skip--;
+        }
+      }
     }
+  }
+
+  private static long deadPatientsToSkip(RandomGenerator random) {
+    return (long) (Math.log(1 - random.nextDouble()) / LOG_STAYING_DEAD);
+  }
 
-    int resurrected = binomialSampler.sample(deadCount, RESURRECTION_PROBABILITY);
-    
-    return HealthStateMapBuilder.from(patientsByState)
-        .transition(HealthState.DEAD, HealthState.HEALTHY, resurrected)
-        .build();
+  @Override
+  public HealthState sourceState() {
+    return HealthState.DEAD;
+  }
+
+  @Override
+  public HealthState targetState() {
+    return HealthState.HEALTHY;
+  }
+
+  @Override
+  public double probability(Set<Drug> drugs) {
+    return RESURRECTION_PROBABILITY;
+  }
+
+  @Override
+  public Set<HealthState> readStates() {
+    return EnumSet.of(HealthState.DEAD);
+  }
+
+  @Override
+  public Set<HealthState> writtenStates() {
+    return EnumSet.of(HealthState.DEAD, HealthState.HEALTHY);
   }
 }
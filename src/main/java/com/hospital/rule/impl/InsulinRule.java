@@ -1,34 +1,43 @@
 package com.hospital.rule.impl;
 
-import java.util.Map;
+import java.util.EnumSet;
 import java.util.Set;
 
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
-import com.hospital.rule.Rule;
-import com.hospital.rule.impl.utils.HealthStateMapBuilder;
-import com.hospital.rule.impl.utils.RuleValidationUtils;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
 
-public class InsulinRule implements Rule {
+public class InsulinRule implements InPlaceRule {
 
   @Override
-  public Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
-    RuleValidationUtils.validateRulePreconditions(patientsByState, drugs);
+  public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
     if (drugs.contains(Drug.INSULIN) && drugs.contains(Drug.ANTIBIOTIC)) {
-      int healthyCount = patientsByState.getOrDefault(HealthState.HEALTHY, 0);
-      return HealthStateMapBuilder.from(patientsByState)
-          .transition(HealthState.HEALTHY, HealthState.FEVER, healthyCount)
-          .build();
+      long healthyCount = patientCounts.get(HealthState.HEALTHY);
+      patientCounts.transition(HealthState.HEALTHY, HealthState.FEVER, healthyCount);
+      return;
     }
 
     if (drugs.contains(Drug.INSULIN)) {
-      return HealthStateMapBuilder.from(patientsByState)
-          .build();
+      return;
     }
 
-    int diabetesCount = patientsByState.getOrDefault(HealthState.DIABETES, 0);
-    return HealthStateMapBuilder.from(patientsByState)
-        .transition(HealthState.DIABETES, HealthState.DEAD, diabetesCount)
-        .build();
+    long diabetesCount = patientCounts.get(HealthState.DIABETES);
+    patientCounts.transition(HealthState.DIABETES, HealthState.DEAD, diabetesCount);
+  }
+
+  @Override
+  public boolean isLinear() {
+    return true;
+  }
+
+  @Override
+  public Set<HealthState> readStates() {
+    return EnumSet.of(HealthState.HEALTHY, HealthState.DIABETES);
+  }
+
+  @Override
+  public Set<HealthState> writtenStates() {
+    return EnumSet.of(HealthState.HEALTHY, HealthState.FEVER, HealthState.DIABETES, HealthState.DEAD);
   }
 }
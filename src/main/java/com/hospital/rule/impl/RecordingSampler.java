@@ -0,0 +1,88 @@
+package com.hospital.rule.impl;
+
+import java.util.Objects;
+import java.util.random.RandomGenerator;
+
+import com.hospital.rule.BinomialSampler;
+import com.hospital.rule.impl.utils.FlightRecording;
+
+/**
+ * Sampler that emits a {@code com.hospital.BinomialSample} flight recorder
+ * event for each draw of the sampler it wraps, with the trials and
+ * probability of that draw.
+ *
+ * <p>
+ * Wrapping the sampler rather than its callers records every draw, whichever
+ * rule, ensemble or client makes it. While no recording runs, a draw costs
+ * one volatile read more than the wrapped sampler's, see
+ * {@link FlightRecording}. Events name the wrapped sampler by its simple class
+ * name, so decorators that should not hide it, such as counting ones, go
+ * around this one.
+ */
+public final class RecordingSampler implements BinomialSampler {
+
+  private final BinomialSampler sampler;
+
+  /**
+   * @param sampler the sampler whose draws are recorded
+   */
+  public RecordingSampler(BinomialSampler sampler) {
+    this.sampler = Objects.requireNonNull(sampler, "Sampler must not be null.");
+  }
+
+  @Override
+  public int sample(int trials, double probability) {
+    if (!FlightRecording.isRunning()) {
+      return sampler.sample(trials, probability);
+    }
+    SamplerEvent event = new SamplerEvent();
+    if (!event.isEnabled()) {
+      return sampler.sample(trials, probability);
+    }
+    event.begin();
+    int successes = sampler.sample(trials, probability);
+    commit(event, trials, probability, successes);
+    return successes;
+  }
+
+  @Override
+  public long sample(long trials, double probability) {
+    if (!FlightRecording.isRunning()) {
+      return sampler.sample(trials, probability);
+    }
+    SamplerEvent event = new SamplerEvent();
+    if (!event.isEnabled()) {
+      return sampler.sample(trials, probability);
+    }
+    event.begin();
+    long successes = sampler.sample(trials, probability);
+    commit(event, trials, probability, successes);
+    return successes;
+  }
+
+  @Override
+  public long sample(long trials, double probability, RandomGenerator random) {
+    if (!FlightRecording.isRunning()) {
+      return sampler.sample(trials, probability, random);
+    }
+    SamplerEvent event = new SamplerEvent();
+    if (!event.isEnabled()) {
+      return sampler.sample(trials, probability, random);
+    }
+    event.begin();
+    long successes = sampler.sample(trials, probability, random);
+    commit(event, trials, probability, successes);
+    return successes;
+  }
+
+  private void commit(SamplerEvent event, long trials, double probability, long successes) {
+    event.end();
+    if (event.shouldCommit()) {
+      event.sampler = sampler.getClass().getSimpleName();
+      event.trials = trials;
+      event.probability = probability;
+      event.successes = successes;
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.hospital.rule.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one draw from a
+ * {@link com.hospital.rule.BinomialSampler}. Disabled unless a recording
+ * enables it, see {@code hospital.jfc}.
+ */
+@Name("com.hospital.BinomialSample")
+@Label("Binomial Sample")
+@Category({ "Hospital", "Sampling" })
+@Description("A draw of the number of successes among independent trials")
+@StackTrace(false)
+@Enabled(false)
+final class SamplerEvent extends Event {
+
+  @Label("Sampler")
+  @Description("Simple class name of the sampler")
+  String sampler;
+
+  @Label("Trials")
+  long trials;
+
+  @Label("Probability")
+  double probability;
+
+  @Label("Successes")
+  long successes;
+}
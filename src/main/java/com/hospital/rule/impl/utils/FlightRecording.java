@@ -0,0 +1,68 @@
+package com.hospital.rule.impl.utils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Tells whether flight recorder events of the simulator are worth creating.
+ *
+ * <p>
+ * Loading an event class takes hundreds of milliseconds, which would double
+ * the time of a command-line simulation, and a disabled event is only free
+ * once the JIT compiler has removed its allocation. Call sites therefore check
+ * {@link #isRunning()} before touching their event: it is a volatile read
+ * while the flight recorder has never been started, and a listener tracking
+ * the running recordings is only registered once it has.
+ */
+public final class FlightRecording {
+
+  private FlightRecording() {
+    // Utility class, no instantiation needed
+  }
+
+  /**
+   * @return whether a recording is running, which may or may not enable the
+   *         simulator's events
+   */
+  public static boolean isRunning() {
+    return FlightRecorder.isInitialized() && RunningRecordings.INSTANCE.any;
+  }
+
+  private static final class RunningRecordings implements FlightRecorderListener {
+
+    private static final RunningRecordings INSTANCE = register();
+
+    private final Set<Recording> running = new HashSet<>();
+    private volatile boolean any;
+
+    private static RunningRecordings register() {
+      RunningRecordings recordings = new RunningRecordings();
+      // Reports the recordings already running through recorderInitialized
+      FlightRecorder.addListener(recordings);
+      return recordings;
+    }
+
+    @Override
+    public void recorderInitialized(FlightRecorder recorder) {
+      // Not synchronized, since listing recordings takes the recorder's own lock
+      for (Recording recording : recorder.getRecordings()) {
+        recordingStateChanged(recording);
+      }
+    }
+
+    @Override
+    public synchronized void recordingStateChanged(Recording recording) {
+      if (recording.getState() == RecordingState.RUNNING) {
+        running.add(recording);
+      } else {
+        running.remove(recording);
+      }
+      any = !running.isEmpty();
+    }
+  }
+}
@@ -1,9 +1,7 @@
 package com.hospital.rule.impl.utils;
 
-import java.util.Arrays;
 import java.util.EnumMap;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import com.hospital.domain.HealthState;
 
@@ -18,8 +16,10 @@ public class HealthStateMapBuilder {
   private final Map<HealthState, Integer> map;
 
   private HealthStateMapBuilder(Map<HealthState, Integer> source) {
-    this.map = Arrays.stream(HealthState.values())
-        .collect(Collectors.toMap(h -> h, h -> 0));
+    this.map = new EnumMap<>(HealthState.class);
+    for (HealthState state : HealthState.values()) {
+      this.map.put(state, 0);
+    }
     this.map.putAll(source);
   }
 
@@ -51,8 +51,12 @@ public class HealthStateMapBuilder {
    * @return HealthStateMapBuilder instance with all patients marked as DEAD.
    */
   public HealthStateMapBuilder killAll() {
-    int total = map.values().stream().mapToInt(Integer::intValue).sum();
-    map.replaceAll((state, count) -> state == HealthState.DEAD ? total : 0);
+    int total = 0;
+    for (Map.Entry<HealthState, Integer> entry : map.entrySet()) {
+      total += entry.getValue();
+      entry.setValue(0);
+    }
+    map.put(HealthState.DEAD, total);
     return this;
   }
 
@@ -7,6 +7,7 @@ import java.util.Set;
 
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
 
 public final class RuleValidationUtils {
 
@@ -33,4 +34,29 @@ public final class RuleValidationUtils {
       throw new IllegalArgumentException(String.join("\n", errors));
     }
   }
+
+  /**
+   * Same checks as {@link #validateRulePreconditions(Map, Set)} for primitive
+   * patient counts. Nothing is allocated unless validation fails.
+   */
+  public static void validateRulePreconditions(PatientCounts patientCounts, Set<Drug> drugs) {
+    if (patientCounts != null && drugs != null && !patientCounts.hasNegativeCount()) {
+      return;
+    }
+
+    List<String> errors = new ArrayList<>();
+    if (patientCounts == null) {
+      errors.add("Information about patients health state cannot be null.");
+    }
+
+    if (drugs == null) {
+      errors.add("Information about drugs cannot be null.");
+    }
+
+    if (patientCounts != null && patientCounts.hasNegativeCount()) {
+      errors.add("Patient counts cannot be negative.");
+    }
+
+    throw new IllegalArgumentException(String.join("\n", errors));
+  }
 }
@@ -0,0 +1,187 @@
+package com.hospital.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.MappedPopulation;
+import com.hospital.domain.PatientPopulation;
+import com.hospital.rule.PatientRule;
+
+/**
+ * Applies a compiled rule chain to every patient of a
+ * {@link PatientPopulation} or a {@link MappedPopulation}.
+ * 
+ * <p>
+ * Each step of the chain becomes a bulk kernel over byte arrays of health
+ * state ordinals. A matrix step whose matrix maps every state to a single
+ * state becomes a lookup table, so all consecutive linear rules cost one load
+ * and one store per patient; a rule step must be a {@link PatientRule}. The
+ * population is cut into chunks that go through every kernel while they are
+ * in cache. Chunk {@code i} draws its randomness from
+ * {@link RandomStreams#stream(long, long)} with index {@code i}, so results do
+ * not depend on the parallelism.
+ */
+final class AgentSimulation {
+
+  /**
+   * Patients per chunk, a divisor of {@link PatientPopulation#SEGMENT_SIZE}
+   * and of {@link MappedPopulation#REGION_SIZE}.
+   */
+  static final int CHUNK_SIZE = 1 << 20;
+
+  /** Tasks per worker, leaving room for work stealing. */
+  private static final int TASKS_PER_WORKER = 4;
+
+  private final Kernel[] kernels;
+  private final Set<Drug> drugs;
+  private final long seed;
+
+  AgentSimulation(CompiledRuleChain chain, Set<Drug> drugs, long seed) {
+    this.kernels = compile(chain);
+    this.drugs = drugs;
+    this.seed = seed;
+  }
+
+  private static Kernel[] compile(CompiledRuleChain chain) {
+    List<Kernel> kernels = new ArrayList<>(chain.size());
+    for (int i = 0; i < chain.size(); i++) {
+      CompiledRuleChain.Step step = chain.step(i);
+      if (step instanceof CompiledRuleChain.MatrixStep matrixStep) {
+        byte[] table = matrixStep.matrix().toStateMapping();
+        if (table == null) {
+          throw new IllegalArgumentException("Rules " + matrixStep.ruleNames()
+              + " do not map each patient to a single health state.");
+        }
+        kernels.add(new TableKernel(table));
+      } else if (step instanceof CompiledRuleChain.RuleStep ruleStep && ruleStep.rule() instanceof PatientRule rule) {
+        kernels.add(new PatientRuleKernel(rule));
+      } else {
+        throw new IllegalArgumentException("Rule " + step + " cannot be applied to individual patients.");
+      }
+    }
+    return kernels.toArray(Kernel[]::new);
+  }
+
+  void run(PatientPopulation population, int parallelism) {
+    run(population.size(), parallelism, (fromChunk, toChunk) -> simulateChunks(population, fromChunk, toChunk));
+  }
+
+  /**
+   * Streams a mapped population through the kernels, one chunk at a time:
+   * each chunk is copied to a heap buffer, simulated, and copied back, so
+   * pages are accessed sequentially and the heap only holds one buffer per
+   * worker.
+   */
+  void run(MappedPopulation population, int parallelism) {
+    run(population.size(), parallelism, (fromChunk, toChunk) -> simulateChunks(population, fromChunk, toChunk));
+  }
+
+  private void run(long size, int parallelism, ChunkRange range) {
+    long chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    if (parallelism <= 1 || chunks <= 1) {
+      range.simulate(0, chunks);
+      return;
+    }
+    // A few tasks per worker leave room for work stealing
+    long grain = Math.max(1, chunks / (TASKS_PER_WORKER * parallelism));
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new ChunkTask(range, 0, chunks, grain));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private void simulateChunks(PatientPopulation population, long fromChunk, long toChunk) {
+    int chunksPerSegment = PatientPopulation.SEGMENT_SIZE / CHUNK_SIZE;
+    for (long chunk = fromChunk; chunk < toChunk; chunk++) {
+      byte[] states = population.segment((int) (chunk / chunksPerSegment));
+      int from = (int) (chunk % chunksPerSegment) * CHUNK_SIZE;
+      int to = Math.min(states.length, from + CHUNK_SIZE);
+      simulateChunk(chunk, states, from, to);
+    }
+  }
+
+  private void simulateChunks(MappedPopulation population, long fromChunk, long toChunk) {
+    byte[] buffer = new byte[(int) Math.min(CHUNK_SIZE, population.size())];
+    for (long chunk = fromChunk; chunk < toChunk; chunk++) {
+      long from = chunk * CHUNK_SIZE;
+      int length = (int) Math.min(CHUNK_SIZE, population.size() - from);
+      population.read(from, buffer, length);
+      simulateChunk(chunk, buffer, 0, length);
+      population.write(from, buffer, length);
+    }
+  }
+
+  private void simulateChunk(long chunk, byte[] states, int from, int to) {
+    RandomGenerator random = RandomStreams.stream(seed, chunk);
+    for (Kernel kernel : kernels) {
+      kernel.apply(states, from, to, drugs, random);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ChunkRange {
+
+    void simulate(long fromChunk, long toChunk);
+  }
+
+  private static final class ChunkTask extends RecursiveAction {
+
+    private final ChunkRange range;
+    private final long fromChunk;
+    private final long toChunk;
+    private final long grain;
+
+    ChunkTask(ChunkRange range, long fromChunk, long toChunk, long grain) {
+      this.range = range;
+      this.fromChunk = fromChunk;
+      this.toChunk = toChunk;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (toChunk - fromChunk <= grain) {
+        range.simulate(fromChunk, toChunk);
+        return;
+      }
+      long middle = (fromChunk + toChunk) >>> 1;
+      invokeAll(new ChunkTask(range, fromChunk, middle, grain), new ChunkTask(range, middle, toChunk, grain));
+    }
+  }
+
+  sealed interface Kernel permits TableKernel, PatientRuleKernel {
+
+    void apply(byte[] states, int from, int to, Set<Drug> drugs, RandomGenerator random);
+  }
+
+  /**
+   * Replaces each state by its image in a lookup table. The loop has no
+   * branches and no dependencies between iterations, which lets the JIT unroll
+   * it.
+   */
+  record TableKernel(byte[] table) implements Kernel {
+
+    @Override
+    public void apply(byte[] states, int from, int to, Set<Drug> drugs, RandomGenerator random) {
+      byte[] table = this.table;
+      for (int i = from; i < to; i++) {
+        states[i] = table[states[i]];
+      }
+    }
+  }
+
+  record PatientRuleKernel(PatientRule rule) implements Kernel {
+
+    @Override
+    public void apply(byte[] states, int from, int to, Set<Drug> drugs, RandomGenerator random) {
+      rule.applyToPatients(states, from, to, drugs, random);
+    }
+  }
+}
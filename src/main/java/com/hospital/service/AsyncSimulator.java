@@ -0,0 +1,194 @@
+package com.hospital.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+
+/**
+ * Asynchronous front of a {@link SimulatorEngine}: callers submit requests and
+ * get a {@link CompletableFuture} of the response instead of blocking a thread
+ * on the simulation.
+ *
+ * <p>
+ * Simulations run on a virtual thread each, or on the executor given at
+ * construction. At most {@code capacity} simulations are pending at once,
+ * queued or running, whatever the executor's own queue; a submission beyond
+ * that is handled by the {@link OverflowPolicy}. The permit of a simulation is
+ * released before its future completes, so a callback that submits the next
+ * request always finds room. {@link SimulationProcessor} adapts this to
+ * {@link java.util.concurrent.Flow reactive streams}.
+ */
+public final class AsyncSimulator implements AutoCloseable {
+
+  /** Default number of pending simulations. */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /**
+   * What a submission does when {@code capacity} simulations are already
+   * pending.
+   */
+  public enum OverflowPolicy {
+    /** Fails the returned future at once with a {@link RejectedExecutionException}. */
+    REJECT,
+    /** Blocks the submitting thread until a pending simulation completes. */
+    BLOCK,
+    /** Runs the simulation on the submitting thread, which slows it down. */
+    CALLER_RUNS
+  }
+
+  private final SimulatorEngine engine;
+  private final Executor executor;
+  private final ExecutorService ownedExecutor;
+  private final int capacity;
+  private final OverflowPolicy policy;
+  private final Semaphore permits;
+  private final LongAdder rejected = new LongAdder();
+  private volatile boolean closed;
+
+  /**
+   * Creates a simulator running each simulation on its own virtual thread,
+   * with {@value #DEFAULT_CAPACITY} pending simulations and the
+   * {@link OverflowPolicy#REJECT} policy.
+   */
+  public AsyncSimulator(SimulatorEngine engine) {
+    this(engine, DEFAULT_CAPACITY, OverflowPolicy.REJECT);
+  }
+
+  /**
+   * Creates a simulator running each simulation on its own virtual thread.
+   *
+   * @param engine the engine running the simulations
+   * @param capacity the largest number of pending simulations
+   * @param policy what to do with submissions beyond {@code capacity}
+   */
+  public AsyncSimulator(SimulatorEngine engine, int capacity, OverflowPolicy policy) {
+    this(engine, Executors.newVirtualThreadPerTaskExecutor(), true, capacity, policy);
+  }
+
+  /**
+   * Creates a simulator running its simulations on the given executor, which
+   * {@link #close()} leaves open.
+   *
+   * @param engine the engine running the simulations
+   * @param executor the executor running the simulations
+   * @param capacity the largest number of pending simulations
+   * @param policy what to do with submissions beyond {@code capacity}
+   */
+  public AsyncSimulator(SimulatorEngine engine, Executor executor, int capacity, OverflowPolicy policy) {
+    this(engine, executor, false, capacity, policy);
+  }
+
+  private AsyncSimulator(SimulatorEngine engine, Executor executor, boolean owned, int capacity,
+      OverflowPolicy policy) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Capacity must be positive.");
+    }
+    this.engine = engine;
+    this.executor = executor;
+    this.ownedExecutor = owned ? (ExecutorService) executor : null;
+    this.capacity = capacity;
+    this.policy = policy;
+    this.permits = new Semaphore(capacity);
+  }
+
+  /**
+   * Submits a simulation. Invalid requests, like simulations failing on the
+   * executor, fail the returned future rather than throw.
+   *
+   * @param request the simulation request
+   * @return the future response, failed with a
+   *         {@link RejectedExecutionException} if the simulation was rejected
+   */
+  public CompletableFuture<SimulationResponse> simulateAsync(SimulationRequest request) {
+    if (closed) {
+      return reject("Simulator is closed.");
+    }
+    if (!permits.tryAcquire()) {
+      switch (policy) {
+        case REJECT:
+          return reject("Simulation queue is full: " + capacity + " pending simulations.");
+        case CALLER_RUNS:
+          return simulateNow(request);
+        case BLOCK:
+          try {
+            permits.acquire();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return reject("Interrupted while waiting for simulation queue capacity.");
+          }
+          break;
+      }
+    }
+
+    CompletableFuture<SimulationResponse> future = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        SimulationResponse response;
+        try {
+          response = engine.simulate(request);
+        } catch (Throwable e) {
+          permits.release();
+          future.completeExceptionally(e);
+          return;
+        }
+        permits.release();
+        future.complete(response);
+      });
+    } catch (RejectedExecutionException e) {
+      permits.release();
+      rejected.increment();
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
+  private CompletableFuture<SimulationResponse> simulateNow(SimulationRequest request) {
+    try {
+      return CompletableFuture.completedFuture(engine.simulate(request));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private CompletableFuture<SimulationResponse> reject(String message) {
+    rejected.increment();
+    return CompletableFuture.failedFuture(new RejectedExecutionException(message));
+  }
+
+  /**
+   * @return the number of simulations queued or running
+   */
+  public int pending() {
+    return capacity - permits.availablePermits();
+  }
+
+  public int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return the number of submissions rejected so far
+   */
+  public long rejected() {
+    return rejected.sum();
+  }
+
+  /**
+   * Rejects further submissions, then waits for pending simulations to
+   * complete if the simulator owns its executor.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (ownedExecutor != null) {
+      ownedExecutor.close();
+    }
+  }
+}
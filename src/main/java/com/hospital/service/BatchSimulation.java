@@ -0,0 +1,118 @@
+package com.hospital.service;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+
+/**
+ * Runs a batch of simulations, grouped by drug set, on a fork/join pool.
+ * 
+ * <p>
+ * Requests are ordered by drug bitmask with a counting sort, so that the
+ * chain of each drug set is resolved once per group and consecutive work
+ * items share it. The ordered range is then split recursively between the
+ * workers. Responses are written back at the position of their request, so
+ * the output follows the input order whatever the parallelism.
+ */
+final class BatchSimulation {
+
+  /** Below this many requests per worker, splitting costs more than it saves. */
+  private static final int SEQUENTIAL_THRESHOLD = 1_024;
+
+  private final SimulatorEngine simulatorEngine;
+  private final SimulationRequest[] requests;
+  private final int[] drugMasks;
+  private final int[] order;
+  private final CompiledRuleChain[] chains = new CompiledRuleChain[Drug.COMBINATIONS];
+  private final SimulationResponse[] responses;
+
+  BatchSimulation(SimulatorEngine simulatorEngine, Collection<SimulationRequest> requests) {
+    this.simulatorEngine = simulatorEngine;
+    this.requests = requests.toArray(SimulationRequest[]::new);
+    this.drugMasks = new int[this.requests.length];
+    this.order = new int[this.requests.length];
+    this.responses = new SimulationResponse[this.requests.length];
+  }
+
+  /**
+   * @return the number of distinct drug sets in the batch
+   */
+  int group() {
+    int[] groupSizes = new int[Drug.COMBINATIONS + 1];
+    for (int i = 0; i < requests.length; i++) {
+      if (requests[i] == null) {
+        throw new IllegalArgumentException("Simulation request cannot be null.");
+      }
+      drugMasks[i] = Drug.toMask(requests[i].drugs());
+      groupSizes[drugMasks[i] + 1]++;
+    }
+
+    // Every group runs on the same rules, even if they are reloaded meanwhile
+    RuleSnapshot rules = simulatorEngine.snapshot();
+    int groups = 0;
+    for (int mask = 0; mask < Drug.COMBINATIONS; mask++) {
+      if (groupSizes[mask + 1] > 0) {
+        chains[mask] = rules.chain(mask);
+        groups++;
+      }
+      groupSizes[mask + 1] += groupSizes[mask];
+    }
+
+    for (int i = 0; i < requests.length; i++) {
+      order[groupSizes[drugMasks[i]]++] = i;
+    }
+    return groups;
+  }
+
+  List<SimulationResponse> run(int parallelism) {
+    if (parallelism <= 1 || requests.length <= SEQUENTIAL_THRESHOLD) {
+      simulateRange(0, requests.length);
+    } else {
+      // A few tasks per worker leave room for work stealing
+      int grain = Math.max(SEQUENTIAL_THRESHOLD, requests.length / (4 * parallelism));
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        pool.invoke(new RangeTask(0, requests.length, grain));
+      } finally {
+        pool.shutdown();
+      }
+    }
+    return Arrays.asList(responses);
+  }
+
+  private void simulateRange(int from, int to) {
+    for (int position = from; position < to; position++) {
+      int index = order[position];
+      responses[index] = simulatorEngine.simulate(requests[index], chains[drugMasks[index]]);
+    }
+  }
+
+  private final class RangeTask extends RecursiveAction {
+
+    private final int from;
+    private final int to;
+    private final int grain;
+
+    RangeTask(int from, int to, int grain) {
+      this.from = from;
+      this.to = to;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= grain) {
+        simulateRange(from, to);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new RangeTask(from, middle, grain), new RangeTask(middle, to, grain));
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.hospital.service;
+
+import java.util.EnumMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.PatientCounts;
+import com.hospital.service.metrics.SimulationMetrics;
+
+/**
+ * Single-flight front of a {@link SimulatorEngine}: concurrent identical
+ * requests share one simulation, run by the first of them, and all receive its
+ * outcome.
+ *
+ * <p>
+ * Requests are identified by their packed {@link SimulationKey}, which
+ * includes the generation of the engine's rules, so a request never shares a
+ * simulation still running on rules that were reloaded since. Whether two
+ * requests are identical depends on the compiled chain of their drugs:
+ * <ul>
+ * <li>a deterministic chain gives the same outcome whatever the seed, so the
+ * seed is left out of the key;</li>
+ * <li>a stochastic chain gives the same outcome for the same seed, so seeded
+ * requests are keyed with their seed;</li>
+ * <li>unseeded requests on a stochastic chain would each get an independent
+ * draw, so they only share one if the simulator was created with
+ * {@code coalesceStochastic}, trading independence for throughput.</li>
+ * </ul>
+ * Only simulations in flight are shared, nothing is kept once they complete;
+ * see {@link SimulationCache} to memoize outcomes. Every caller gets its own
+ * copy of the response, reporting its own seed when it gave one. A failed
+ * simulation fails all the requests sharing it.
+ */
+public final class CoalescingSimulator {
+
+  private final SimulatorEngine engine;
+  private final boolean coalesceStochastic;
+  private final SimulationMetrics metrics;
+  private final ConcurrentHashMap<FlightKey, CompletableFuture<SimulationResponse>> flights =
+      new ConcurrentHashMap<>();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder coalesced = new LongAdder();
+
+  /**
+   * Creates a simulator sharing simulations of deterministic chains and of
+   * seeded requests only.
+   */
+  public CoalescingSimulator(SimulatorEngine engine) {
+    this(engine, false);
+  }
+
+  /**
+   * @param engine the engine running the simulations, whose metrics, if any,
+   *        also count coalesced requests
+   * @param coalesceStochastic whether concurrent unseeded requests on a
+   *        stochastic chain share one random outcome
+   */
+  public CoalescingSimulator(SimulatorEngine engine, boolean coalesceStochastic) {
+    this.engine = engine;
+    this.coalesceStochastic = coalesceStochastic;
+    this.metrics = engine.metrics();
+  }
+
+  /**
+   * Simulates a request, or waits for the identical simulation in flight.
+   *
+   * @param request the simulation request
+   * @return the response to the request
+   */
+  public SimulationResponse simulate(SimulationRequest request) {
+    if (request == null) {
+      record(false);
+      return engine.simulate(request);
+    }
+    // Keys and runs the request on the same chain, even if the rules are reloaded in between
+    int drugMask = Drug.toMask(request.drugs());
+    CompiledRuleChain chain = engine.snapshot().chain(drugMask);
+    FlightKey key = keyOf(request, drugMask, chain);
+    if (key == null) {
+      record(false);
+      return engine.simulateLogged(request, chain);
+    }
+
+    CompletableFuture<SimulationResponse> flight = new CompletableFuture<>();
+    CompletableFuture<SimulationResponse> leader = flights.putIfAbsent(key, flight);
+    if (leader != null) {
+      record(true);
+      return follow(leader, request);
+    }
+
+    record(false);
+    try {
+      SimulationResponse response = engine.simulateLogged(request, chain);
+      flight.complete(response);
+      return response;
+    } catch (Throwable e) {
+      // Errors too, or the requests sharing the flight would wait forever
+      flight.completeExceptionally(e);
+      throw e;
+    } finally {
+      flights.remove(key, flight);
+    }
+  }
+
+  private FlightKey keyOf(SimulationRequest request, int drugMask, CompiledRuleChain chain) {
+    boolean deterministic = chain.deterministicPrefix() == chain.size();
+    boolean seeded = !deterministic && request.seed() != null;
+    if (!deterministic && !seeded && !coalesceStochastic) {
+      return null;
+    }
+    SimulationKey input = SimulationKey.of(PatientCounts.from(request.initialPatients()), drugMask,
+        chain.generation());
+    return new FlightKey(input, seeded, seeded ? request.seed() : 0);
+  }
+
+  private static SimulationResponse follow(CompletableFuture<SimulationResponse> leader, SimulationRequest request) {
+    SimulationResponse shared;
+    try {
+      shared = leader.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      if (e.getCause() instanceof Error cause) {
+        throw cause;
+      }
+      throw e;
+    }
+    Long seed = request.seed() != null ? request.seed() : shared.seed();
+    return new SimulationResponse(new EnumMap<>(shared.patientsByState()), seed);
+  }
+
+  private void record(boolean shared) {
+    requests.increment();
+    if (shared) {
+      coalesced.increment();
+    }
+    if (metrics != null) {
+      metrics.recordCoalescing(shared);
+    }
+  }
+
+  /**
+   * @return the statistics of this simulator since its creation
+   */
+  public Stats stats() {
+    return new Stats(requests.sum(), coalesced.sum(), flights.size());
+  }
+
+  /**
+   * @param requests the number of requests received
+   * @param coalesced the number of requests that shared a simulation in flight
+   *        instead of running their own
+   * @param inFlight the number of simulations currently running
+   */
+  public record Stats(long requests, long coalesced, long inFlight) {
+
+    /**
+     * @return the fraction of requests that were coalesced, or {@code 0} before
+     *         any request
+     */
+    public double coalescingRatio() {
+      return requests == 0 ? 0 : (double) coalesced / requests;
+    }
+  }
+
+  private record FlightKey(SimulationKey input, boolean seeded, long seed) {
+  }
+}
@@ -0,0 +1,461 @@
+package com.hospital.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.domain.TransitionMatrix;
+import com.hospital.rule.Rule;
+import com.hospital.rule.impl.utils.FlightRecording;
+import com.hospital.service.metrics.SimulationMetrics;
+
+/**
+ * A rule chain specialised for a single set of drugs.
+ * 
+ * <p>
+ * Every run of consecutive {@link Rule#isLinear() linear} rules is folded into
+ * one {@link TransitionMatrix}; other rules are kept as individual steps, in
+ * their original order. Runs that compile to the identity are dropped.
+ * 
+ * <p>
+ * The chain is also an execution plan that avoids running rules that cannot
+ * change anything. Rules whose {@link Rule#triggerDrugs() trigger drugs} are
+ * all absent are elided at compile time. At run time, a step is skipped when
+ * none of the states it reads may have patients, judging from the states that
+ * had patients initially and the states written by the steps already applied.
+ * Steps do not validate their input: the engine does it once per simulation.
+ * 
+ * <p>
+ * A chain compiled with {@link SimulationMetrics} can measure the steps it
+ * applies, under the joined names of the rules of the step. Whatever the
+ * metrics, every step applied emits a {@link RuleEvent} when flight recording
+ * enables it.
+ * 
+ * <p>
+ * Instances are immutable, apart from their count of skipped rule invocations,
+ * and can be shared between threads.
+ */
+final class CompiledRuleChain {
+
+  private static final HealthState[] STATES = HealthState.values();
+
+  private final Step[] steps;
+  private final int deterministicPrefix;
+  private final int elidedRules;
+  private final long generation;
+  private final LongAdder skippedInvocations = new LongAdder();
+  private final SimulationMetrics.RuleMetrics[] stepMetrics;
+
+  private CompiledRuleChain(Step[] steps, int elidedRules, long generation, SimulationMetrics metrics) {
+    this.steps = steps;
+    this.elidedRules = elidedRules;
+    this.generation = generation;
+    this.stepMetrics = metrics == null ? null : Arrays.stream(steps)
+        .map(step -> metrics.rule(step.name()))
+        .toArray(SimulationMetrics.RuleMetrics[]::new);
+    int prefix = 0;
+    while (prefix < steps.length && steps[prefix].isDeterministic()) {
+      prefix++;
+    }
+    this.deterministicPrefix = prefix;
+  }
+
+  static CompiledRuleChain compile(Rule[] rules, Set<Drug> drugs) {
+    return compile(rules, drugs, null);
+  }
+
+  /**
+   * @param metrics the registry measuring the steps, or {@code null} for none
+   */
+  static CompiledRuleChain compile(Rule[] rules, Set<Drug> drugs, SimulationMetrics metrics) {
+    return compile(rules, drugs, 0, metrics);
+  }
+
+  /**
+   * @param generation the {@link RuleSnapshot#generation() generation} of the
+   *        rule set
+   * @param metrics the registry measuring the steps, or {@code null} for none
+   */
+  static CompiledRuleChain compile(Rule[] rules, Set<Drug> drugs, long generation, SimulationMetrics metrics) {
+    List<Step> steps = new ArrayList<>();
+    List<Rule> linearRun = new ArrayList<>();
+    for (Rule rule : rules) {
+      if (!isTriggered(rule, drugs)) {
+        continue;
+      }
+      if (rule.isLinear()) {
+        linearRun.add(rule);
+        continue;
+      }
+      addMatrixStep(steps, linearRun, drugs);
+      steps.add(new RuleStep(rule));
+    }
+    addMatrixStep(steps, linearRun, drugs);
+    int appliedRules = steps.stream().mapToInt(Step::ruleCount).sum();
+    return new CompiledRuleChain(steps.toArray(Step[]::new), rules.length - appliedRules, generation, metrics);
+  }
+
+  private static boolean isTriggered(Rule rule, Set<Drug> drugs) {
+    Set<Drug> triggerDrugs = rule.triggerDrugs();
+    if (triggerDrugs.isEmpty()) {
+      return true;
+    }
+    for (Drug drug : triggerDrugs) {
+      if (drugs.contains(drug)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void addMatrixStep(List<Step> steps, List<Rule> linearRun, Set<Drug> drugs) {
+    if (linearRun.isEmpty()) {
+      return;
+    }
+    TransitionMatrix matrix = toMatrix(linearRun, drugs);
+    if (!matrix.isIdentity()) {
+      steps.add(new MatrixStep(matrix, linearRun.stream()
+          .map(rule -> rule.getClass().getSimpleName())
+          .toList()));
+    }
+    linearRun.clear();
+  }
+
+  /**
+   * Linear rules are fully described by their effect on a single patient in
+   * each health state, so the matrix columns are obtained by running the rules
+   * on unit populations.
+   */
+  private static TransitionMatrix toMatrix(List<Rule> linearRules, Set<Drug> drugs) {
+    PatientCounts[] columns = new PatientCounts[STATES.length];
+    for (HealthState from : STATES) {
+      PatientCounts column = new PatientCounts();
+      column.set(from, 1);
+      for (Rule rule : linearRules) {
+        rule.applyInPlace(column, drugs);
+      }
+      columns[from.ordinal()] = column;
+    }
+    return TransitionMatrix.fromColumns(columns);
+  }
+
+  int size() {
+    return steps.length;
+  }
+
+  Step step(int index) {
+    return steps[index];
+  }
+
+  /**
+   * @return the whole chain as a single matrix, or {@code null} if it has a
+   *         step that is not linear
+   */
+  TransitionMatrix matrix() {
+    if (steps.length == 0) {
+      return TransitionMatrix.identity();
+    }
+    // Consecutive matrices are folded at compile time, so a linear chain has a single step
+    return steps.length == 1 && steps[0] instanceof MatrixStep step ? step.matrix() : null;
+  }
+
+  /**
+   * @return the number of leading steps that never use randomness, whose
+   *         outcome only depends on the input patients
+   */
+  int deterministicPrefix() {
+    return deterministicPrefix;
+  }
+
+  /**
+   * @return the generation of the rule set this chain was compiled from
+   */
+  long generation() {
+    return generation;
+  }
+
+  /**
+   * @return the number of rules that were elided at compile time, which the
+   *         chain never applies
+   */
+  int elidedRules() {
+    return elidedRules;
+  }
+
+  /**
+   * @return the number of rule invocations this chain avoided, counting elided
+   *         rules once per simulation
+   */
+  long skippedInvocations() {
+    return skippedInvocations.sum();
+  }
+
+  void recordSkipped(long invocations) {
+    if (invocations > 0) {
+      skippedInvocations.add(invocations);
+    }
+  }
+
+  void apply(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+    recordSkipped(run(patientCounts, drugs, random, 0, steps.length));
+  }
+
+  void apply(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random, int from, int to) {
+    recordSkipped(run(patientCounts, drugs, random, from, to));
+  }
+
+  /**
+   * Applies the steps from index {@code from}, inclusive, to index {@code to},
+   * exclusive, skipping those that cannot change the patients. Unlike
+   * {@code apply}, skipped invocations are returned rather than recorded, so
+   * that tight loops can record them in bulk.
+   * 
+   * @return the number of rule invocations skipped, including the elided rules
+   *         when the range ends the chain and so completes a simulation
+   */
+  int run(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random, int from, int to) {
+    int nonEmptyStates = patientCounts.nonEmptyStates();
+    int skipped = to == steps.length ? elidedRules : 0;
+    for (int i = from; i < to; i++) {
+      Step step = steps[i];
+      if (!step.canChange(nonEmptyStates)) {
+        skipped += step.ruleCount();
+        continue;
+      }
+      applyRecorded(step, patientCounts, drugs, random);
+      nonEmptyStates |= step.writtenStates();
+    }
+    return skipped;
+  }
+
+  /**
+   * Same as {@link #apply(PatientCounts, Set, RandomGenerator, int, int)},
+   * measuring every step in the chain's metrics. Steps are timed back to back,
+   * each from the end of the previous one, which reads the clock once per step
+   * rather than twice.
+   * 
+   * @param start the time the range starts, as per {@link System#nanoTime()}
+   * @return the time the last step applied ended, or the current time if no
+   *         step was applied
+   */
+  long runMeasured(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random, int from, int to,
+      long start) {
+    PatientCounts before = new PatientCounts();
+    int nonEmptyStates = patientCounts.nonEmptyStates();
+    int skipped = to == steps.length ? elidedRules : 0;
+    long time = start;
+    boolean applied = false;
+    for (int i = from; i < to; i++) {
+      Step step = steps[i];
+      if (!step.canChange(nonEmptyStates)) {
+        skipped += step.ruleCount();
+        continue;
+      }
+      before.copyFrom(patientCounts);
+      applyRecorded(step, patientCounts, drugs, random);
+      long now = System.nanoTime();
+      stepMetrics[i].record(now - time, patientCounts.transitionsFrom(before));
+      time = now;
+      applied = true;
+      nonEmptyStates |= step.writtenStates();
+    }
+    recordSkipped(skipped);
+    return applied ? time : System.nanoTime();
+  }
+
+  /**
+   * @return whether the steps applied by this chain are measured
+   */
+  boolean isMeasured() {
+    return stepMetrics != null;
+  }
+
+  /**
+   * Applies a single step, measuring it if the chain has metrics.
+   */
+  void applyStep(int index, PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+    if (stepMetrics == null) {
+      applyRecorded(steps[index], patientCounts, drugs, random);
+      return;
+    }
+    PatientCounts before = patientCounts.copy();
+    long start = System.nanoTime();
+    applyRecorded(steps[index], patientCounts, drugs, random);
+    long nanos = System.nanoTime() - start;
+    stepMetrics[index].record(nanos, patientCounts.transitionsFrom(before));
+  }
+
+  /**
+   * Applies a step, emitting a {@link RuleEvent} if flight recording enables
+   * it. While it does not, the event is never populated and the JIT compiler
+   * removes its allocation, so the step costs the same as a direct call.
+   */
+  private static void applyRecorded(Step step, PatientCounts patientCounts, Set<Drug> drugs,
+      RandomGenerator random) {
+    if (!FlightRecording.isRunning()) {
+      step.apply(patientCounts, drugs, random);
+      return;
+    }
+    RuleEvent event = new RuleEvent();
+    if (!event.isEnabled()) {
+      step.apply(patientCounts, drugs, random);
+      return;
+    }
+    event.setInput(patientCounts);
+    event.begin();
+    step.apply(patientCounts, drugs, random);
+    event.end();
+    if (event.shouldCommit()) {
+      event.rule = step.name();
+      event.setOutput(patientCounts);
+      event.commit();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return List.of(steps).toString();
+  }
+
+  sealed interface Step permits MatrixStep, RuleStep {
+
+    void apply(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random);
+
+    boolean isDeterministic();
+
+    /**
+     * @return the bitmask of the states the step reads, as per
+     *         {@link HealthState#toMask(Set)}
+     */
+    int readStates();
+
+    /**
+     * @return the bitmask of the states the step may change, as per
+     *         {@link HealthState#toMask(Set)}
+     */
+    int writtenStates();
+
+    /**
+     * @return the number of rules the step applies
+     */
+    int ruleCount();
+
+    /**
+     * @return the name of the rule the step applies, or the names of its rules
+     *         joined with {@code +}
+     */
+    String name();
+
+    /**
+     * @param nonEmptyStates the bitmask of the states that may have patients
+     * @return {@code false} if the step certainly leaves such patients unchanged
+     */
+    default boolean canChange(int nonEmptyStates) {
+      return (readStates() & nonEmptyStates) != 0;
+    }
+  }
+
+  /**
+   * The states a matrix reads and writes are derived from the matrix itself:
+   * it reads the states whose patients do not all stay put, and writes them
+   * along with the states they move to.
+   */
+  record MatrixStep(TransitionMatrix matrix, List<String> ruleNames, int readStates, int writtenStates)
+      implements Step {
+
+    MatrixStep(TransitionMatrix matrix, List<String> ruleNames) {
+      this(matrix, ruleNames, readStates(matrix), writtenStates(matrix));
+    }
+
+    private static int readStates(TransitionMatrix matrix) {
+      int mask = 0;
+      for (HealthState from : STATES) {
+        for (HealthState to : STATES) {
+          if (matrix.get(to, from) != (from == to ? 1 : 0)) {
+            mask |= 1 << from.ordinal();
+          }
+        }
+      }
+      return mask;
+    }
+
+    private static int writtenStates(TransitionMatrix matrix) {
+      int read = readStates(matrix);
+      int mask = read;
+      for (HealthState from : STATES) {
+        if ((read & 1 << from.ordinal()) == 0) {
+          continue;
+        }
+        for (HealthState to : STATES) {
+          if (matrix.get(to, from) != 0) {
+            mask |= 1 << to.ordinal();
+          }
+        }
+      }
+      return mask;
+    }
+
+    @Override
+    public void apply(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+      matrix.applyTo(patientCounts);
+    }
+
+    @Override
+    public boolean isDeterministic() {
+      return true;
+    }
+
+    @Override
+    public int ruleCount() {
+      return ruleNames.size();
+    }
+
+    @Override
+    public String name() {
+      return String.join("+", ruleNames);
+    }
+
+    @Override
+    public String toString() {
+      return "Compiled" + ruleNames + " " + matrix;
+    }
+  }
+
+  record RuleStep(Rule rule, int readStates, int writtenStates) implements Step {
+
+    RuleStep(Rule rule) {
+      this(rule, HealthState.toMask(rule.readStates()), HealthState.toMask(rule.writtenStates()));
+    }
+
+    @Override
+    public void apply(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+      rule.applyInPlace(patientCounts, drugs, random);
+    }
+
+    @Override
+    public boolean isDeterministic() {
+      return rule.isDeterministic();
+    }
+
+    @Override
+    public int ruleCount() {
+      return 1;
+    }
+
+    @Override
+    public String name() {
+      return rule.getClass().getSimpleName();
+    }
+
+    @Override
+    public String toString() {
+      return name();
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.hospital.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.apache.commons.math3.special.Erf;
+
+import com.hospital.client.model.EnsembleResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.service.stats.RunningStatistics;
+
+/**
+ * Runs replicates of one simulation and summarises their outcomes.
+ * 
+ * <p>
+ * Replicates are split into fixed-size chunks. Chunk {@code i} draws all its
+ * randomness from {@link RandomStreams#stream(long, long)} with index
+ * {@code i} and records its outcomes into its own {@link RunningStatistics},
+ * which are merged into the totals in chunk order. Results therefore depend
+ * only on the seed and the number of replicates, never on the parallelism.
+ * Chunks run in waves of a few per worker, so memory stays constant however
+ * many replicates are requested.
+ */
+final class EnsembleSimulation {
+
+  /** Replicates simulated with one random stream and one set of accumulators. */
+  static final int CHUNK_SIZE = 4_096;
+
+  /** Chunks per worker in a wave, leaving room for work stealing. */
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private static final HealthState[] STATES = HealthState.values();
+
+  private final CompiledRuleChain chain;
+  private final PatientCounts initialPatients;
+  private final Set<Drug> drugs;
+  private final long seed;
+  private final RunningStatistics[] totals = newStatistics();
+  private long replicates;
+
+  EnsembleSimulation(CompiledRuleChain chain, PatientCounts initialPatients, Set<Drug> drugs, long seed) {
+    this.chain = chain;
+    this.initialPatients = initialPatients;
+    this.drugs = drugs;
+    this.seed = seed;
+  }
+
+  /**
+   * Runs exactly the given number of replicates.
+   */
+  EnsembleResponse run(long replicates, int parallelism) {
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+    try {
+      while (this.replicates < replicates) {
+        runWave(pool, replicates, parallelism, Double.NaN, Double.NaN);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return toResponse();
+  }
+
+  /**
+   * Runs waves of replicates until the confidence interval of the mean of
+   * every health state is at most {@code 2 * halfWidth} wide, or until
+   * {@code maxReplicates} replicates have run. The criterion is checked after
+   * every chunk, in chunk order, and chunks of a wave beyond the one meeting it
+   * are discarded, so the stopping point does not depend on the parallelism.
+   */
+  EnsembleResponse runUntil(double halfWidth, double confidence, long maxReplicates, int parallelism) {
+    double z = Math.sqrt(2) * Erf.erfInv(confidence);
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+    try {
+      while (replicates < maxReplicates && !isPrecise(z, halfWidth)) {
+        runWave(pool, maxReplicates, parallelism, z, halfWidth);
+      }
+    } finally {
+      pool.shutdown();
+    }
+    return toResponse();
+  }
+
+  /**
+   * Runs the next wave of chunks and merges them in order, stopping after the
+   * first chunk that satisfies the stopping criterion, if any.
+   * 
+   * @param z the standard normal quantile of the target confidence level
+   * @param halfWidth the target half-width, or {@code NaN} to merge every
+   *        chunk of the wave
+   */
+  private void runWave(ForkJoinPool pool, long limit, int parallelism, double z, double halfWidth) {
+    long firstChunk = replicates / CHUNK_SIZE;
+    long remainingChunks = (limit - replicates + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    int chunks = (int) Math.min(remainingChunks, (long) CHUNKS_PER_WORKER * Math.max(1, parallelism));
+
+    RunningStatistics[][] results = new RunningStatistics[chunks][];
+    pool.invoke(new ChunkTask(results, firstChunk, limit, 0, chunks));
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      merge(firstChunk + chunk, results[chunk], limit);
+      if (isPrecise(z, halfWidth)) {
+        return;
+      }
+    }
+  }
+
+  private boolean isPrecise(double z, double halfWidth) {
+    for (RunningStatistics statistics : totals) {
+      if (!(statistics.confidenceHalfWidth(z) <= halfWidth)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the number of chunks of the given number of replicates
+   */
+  static long chunks(long replicates) {
+    return (replicates + CHUNK_SIZE - 1) / CHUNK_SIZE;
+  }
+
+  /**
+   * Adds the outcomes of a chunk to the totals. Chunks must be merged in
+   * order, each once, for results to match {@link #run(long, int)}.
+   */
+  void merge(long chunk, RunningStatistics[] statistics, long limit) {
+    for (int state = 0; state < STATES.length; state++) {
+      totals[state].merge(statistics[state]);
+    }
+    replicates = Math.min(limit, (chunk + 1) * CHUNK_SIZE);
+  }
+
+  /**
+   * Simulates the replicates of one chunk, up to {@code limit}. Chunks only
+   * share read-only state, so they can run on any thread.
+   */
+  RunningStatistics[] simulateChunk(long chunk, long limit) {
+    RunningStatistics[] statistics = newStatistics();
+    PatientCounts patients = new PatientCounts();
+    SplittableRandom random = RandomStreams.stream(seed, chunk);
+    long end = Math.min(limit, (chunk + 1) * CHUNK_SIZE);
+    long skipped = 0;
+    for (long replicate = chunk * CHUNK_SIZE; replicate < end; replicate++) {
+      patients.copyFrom(initialPatients);
+      skipped += chain.run(patients, drugs, random, 0, chain.size());
+      for (int state = 0; state < STATES.length; state++) {
+        statistics[state].add(patients.get(STATES[state]));
+      }
+    }
+    chain.recordSkipped(skipped);
+    return statistics;
+  }
+
+  EnsembleResponse toResponse() {
+    Map<HealthState, EnsembleResponse.Statistics> statisticsByState = new EnumMap<>(HealthState.class);
+    for (HealthState state : STATES) {
+      RunningStatistics statistics = totals[state.ordinal()];
+      statisticsByState.put(state, new EnsembleResponse.Statistics(
+          statistics.mean(),
+          statistics.variance(),
+          statistics.min(),
+          statistics.max(),
+          statistics.quantile(0.50),
+          statistics.quantile(0.95),
+          statistics.quantile(0.99)));
+    }
+    return new EnsembleResponse(replicates, seed, statisticsByState);
+  }
+
+  private static RunningStatistics[] newStatistics() {
+    RunningStatistics[] statistics = new RunningStatistics[STATES.length];
+    for (int state = 0; state < STATES.length; state++) {
+      statistics[state] = new RunningStatistics();
+    }
+    return statistics;
+  }
+
+  private final class ChunkTask extends RecursiveAction {
+
+    private final RunningStatistics[][] results;
+    private final long firstChunk;
+    private final long limit;
+    private final int from;
+    private final int to;
+
+    ChunkTask(RunningStatistics[][] results, long firstChunk, long limit, int from, int to) {
+      this.results = results;
+      this.firstChunk = firstChunk;
+      this.limit = limit;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        results[from] = simulateChunk(firstChunk + from, limit);
+        return;
+      }
+      int middle = (from + to) >>> 1;
+      invokeAll(new ChunkTask(results, firstChunk, limit, from, middle),
+          new ChunkTask(results, firstChunk, limit, middle, to));
+    }
+  }
+}
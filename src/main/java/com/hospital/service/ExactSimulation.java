@@ -0,0 +1,235 @@
+package com.hospital.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.BinomialRule;
+import com.hospital.service.stats.CountDistribution;
+import com.hospital.service.stats.TruncatedBinomial;
+
+/**
+ * Computes the distribution of the outcomes of one simulation by propagating
+ * it through the compiled chain, instead of sampling it.
+ *
+ * <p>
+ * The distribution is a set of outcomes, each a patient count per health state
+ * with its probability, starting from the initial patients with probability
+ * one. A deterministic step maps every outcome, and a {@link BinomialRule}
+ * splits every outcome into one outcome per number of patients it may move,
+ * weighted by the binomial distribution truncated to its non-negligible
+ * terms. Outcomes that become equal are merged. Chains with any other
+ * stochastic rule are rejected.
+ *
+ * <p>
+ * With a single binomial step, as with {@code FlyingSpaghettiMonsterRule},
+ * there are as many outcomes as non-negligible binomial terms: a few dozen
+ * up to a million dead patients, some seventeen thousand for a trillion.
+ */
+final class ExactSimulation {
+
+  /** Largest number of outcomes, which bounds the memory of chains with many binomial steps. */
+  static final int MAX_OUTCOMES = 1 << 22;
+
+  private static final HealthState[] STATES = HealthState.values();
+  private static final int SIZE = STATES.length;
+
+  private final CompiledRuleChain chain;
+  private final Set<Drug> drugs;
+  private final double tail;
+  private long[] counts;
+  private double[] probabilities;
+  private int outcomes;
+
+  /**
+   * @param tail the ratio to the mode's probability below which binomial terms
+   *        are dropped, see {@link TruncatedBinomial}
+   */
+  ExactSimulation(CompiledRuleChain chain, Set<Drug> drugs, double tail) {
+    this.chain = chain;
+    this.drugs = drugs;
+    this.tail = tail;
+  }
+
+  /**
+   * @throws IllegalArgumentException if a step is neither deterministic nor a
+   *         {@link BinomialRule}, or the outcomes exceed {@link #MAX_OUTCOMES}
+   */
+  OutcomeDistribution run(PatientCounts initialPatients) {
+    counts = new long[SIZE];
+    for (int s = 0; s < SIZE; s++) {
+      counts[s] = initialPatients.get(STATES[s]);
+    }
+    probabilities = new double[] { 1 };
+    outcomes = 1;
+
+    for (int i = 0; i < chain.size(); i++) {
+      CompiledRuleChain.Step step = chain.step(i);
+      if (step instanceof CompiledRuleChain.RuleStep ruleStep && ruleStep.rule() instanceof BinomialRule rule) {
+        split(rule);
+        merge();
+      } else if (step.isDeterministic()) {
+        map(step);
+        merge();
+      } else {
+        throw new IllegalArgumentException(step.name()
+            + " is neither deterministic nor binomial, so its outcomes cannot be computed exactly.");
+      }
+    }
+    return summarize();
+  }
+
+  private void map(CompiledRuleChain.Step step) {
+    PatientCounts patientCounts = new PatientCounts();
+    for (int o = 0; o < outcomes; o++) {
+      int row = o * SIZE;
+      for (int s = 0; s < SIZE; s++) {
+        patientCounts.set(STATES[s], counts[row + s]);
+      }
+      step.apply(patientCounts, drugs, null);
+      for (int s = 0; s < SIZE; s++) {
+        counts[row + s] = patientCounts.get(STATES[s]);
+      }
+    }
+  }
+
+  private void split(BinomialRule rule) {
+    int source = rule.sourceState().ordinal();
+    int target = rule.targetState().ordinal();
+    double probability = rule.probability(drugs);
+    TruncatedBinomial[] binomials = new TruncatedBinomial[outcomes];
+    long total = 0;
+    for (int o = 0; o < outcomes; o++) {
+      binomials[o] = TruncatedBinomial.of(counts[o * SIZE + source], probability, tail);
+      total += binomials[o].size();
+    }
+    if (total > MAX_OUTCOMES) {
+      throw new IllegalArgumentException("Exact distribution exceeds " + MAX_OUTCOMES + " outcomes.");
+    }
+
+    long[] splitCounts = new long[(int) total * SIZE];
+    double[] splitProbabilities = new double[(int) total];
+    int split = 0;
+    for (int o = 0; o < outcomes; o++) {
+      TruncatedBinomial binomial = binomials[o];
+      for (int k = 0; k < binomial.size(); k++) {
+        long moved = binomial.lowest() + k;
+        int row = split * SIZE;
+        System.arraycopy(counts, o * SIZE, splitCounts, row, SIZE);
+        splitCounts[row + source] -= moved;
+        splitCounts[row + target] += moved;
+        splitProbabilities[split++] = probabilities[o] * binomial.probability(k);
+      }
+    }
+    counts = splitCounts;
+    probabilities = splitProbabilities;
+    outcomes = split;
+  }
+
+  /**
+   * Sorts the outcomes by patient counts and merges those that are equal.
+   * Outcomes already in strictly increasing or decreasing order, such as the
+   * split of a single outcome, are left as they are.
+   */
+  private void merge() {
+    if (isStrictlyOrdered()) {
+      return;
+    }
+    long[] rows = counts;
+    Integer[] order = new Integer[outcomes];
+    Arrays.setAll(order, o -> o);
+    Arrays.sort(order, (a, b) -> compareRows(rows, a, b));
+
+    long[] mergedCounts = new long[outcomes * SIZE];
+    double[] mergedProbabilities = new double[outcomes];
+    int merged = 0;
+    for (int o : order) {
+      if (merged > 0 && Arrays.equals(rows, o * SIZE, o * SIZE + SIZE,
+          mergedCounts, (merged - 1) * SIZE, merged * SIZE)) {
+        mergedProbabilities[merged - 1] += probabilities[o];
+        continue;
+      }
+      System.arraycopy(rows, o * SIZE, mergedCounts, merged * SIZE, SIZE);
+      mergedProbabilities[merged++] = probabilities[o];
+    }
+    counts = mergedCounts;
+    probabilities = mergedProbabilities;
+    outcomes = merged;
+  }
+
+  private boolean isStrictlyOrdered() {
+    int direction = 0;
+    for (int o = 1; o < outcomes; o++) {
+      int comparison = Integer.signum(compareRows(counts, o - 1, o));
+      if (comparison == 0 || direction != 0 && comparison != direction) {
+        return false;
+      }
+      direction = comparison;
+    }
+    return true;
+  }
+
+  private static int compareRows(long[] rows, int a, int b) {
+    return Arrays.compare(rows, a * SIZE, a * SIZE + SIZE, rows, b * SIZE, b * SIZE + SIZE);
+  }
+
+  /**
+   * Sums the probabilities of the outcomes by number of patients in each
+   * state. Outcomes are usually ordered along every state, since a binomial
+   * step moves patients between two states in step with the number of
+   * patients moved, in which case no sorting is needed.
+   */
+  private OutcomeDistribution summarize() {
+    Map<HealthState, CountDistribution> marginals = new EnumMap<>(HealthState.class);
+    int[] order = new int[outcomes];
+    for (int s = 0; s < SIZE; s++) {
+      sortOutcomes(order, s);
+      long[] values = new long[outcomes];
+      double[] weights = new double[outcomes];
+      int size = 0;
+      for (int o : order) {
+        long value = counts[o * SIZE + s];
+        if (size > 0 && values[size - 1] == value) {
+          weights[size - 1] += probabilities[o];
+        } else {
+          values[size] = value;
+          weights[size++] = probabilities[o];
+        }
+      }
+      marginals.put(STATES[s], CountDistribution.of(Arrays.copyOf(values, size), Arrays.copyOf(weights, size)));
+    }
+    return new OutcomeDistribution(outcomes, marginals);
+  }
+
+  /**
+   * Fills {@code order} with the outcomes by increasing number of patients in
+   * the given state.
+   */
+  private void sortOutcomes(int[] order, int state) {
+    boolean increasing = true;
+    boolean decreasing = true;
+    for (int o = 1; o < outcomes; o++) {
+      long previous = counts[(o - 1) * SIZE + state];
+      long current = counts[o * SIZE + state];
+      increasing &= previous <= current;
+      decreasing &= previous >= current;
+    }
+    if (increasing || decreasing) {
+      for (int o = 0; o < outcomes; o++) {
+        order[o] = increasing ? o : outcomes - 1 - o;
+      }
+      return;
+    }
+    Integer[] boxed = new Integer[outcomes];
+    Arrays.setAll(boxed, o -> o);
+    Arrays.sort(boxed, Comparator.comparingLong(o -> counts[o * SIZE + state]));
+    for (int o = 0; o < outcomes; o++) {
+      order[o] = boxed[o];
+    }
+  }
+}
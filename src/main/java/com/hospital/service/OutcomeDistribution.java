@@ -0,0 +1,66 @@
+package com.hospital.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+import com.hospital.domain.HealthState;
+import com.hospital.service.stats.CountDistribution;
+
+/**
+ * Exact distribution of the final number of patients in each health state,
+ * as computed by {@link SimulatorEngine#distribution}. Instances are
+ * immutable.
+ */
+public final class OutcomeDistribution {
+
+  private final int outcomes;
+  private final Map<HealthState, CountDistribution> marginals;
+
+  OutcomeDistribution(int outcomes, Map<HealthState, CountDistribution> marginals) {
+    this.outcomes = outcomes;
+    this.marginals = Collections.unmodifiableMap(marginals);
+  }
+
+  /**
+   * @return the number of distinct final states of the whole population with
+   *         a non-negligible probability
+   */
+  public int outcomes() {
+    return outcomes;
+  }
+
+  /**
+   * @param state a health state
+   * @return the distribution of the final number of patients in that state
+   */
+  public CountDistribution marginal(HealthState state) {
+    return marginals.get(state);
+  }
+
+  public Map<HealthState, CountDistribution> marginals() {
+    return marginals;
+  }
+
+  public double mean(HealthState state) {
+    return marginal(state).mean();
+  }
+
+  public double variance(HealthState state) {
+    return marginal(state).variance();
+  }
+
+  /**
+   * @param state a health state
+   * @param count a number of patients
+   * @return the probability that at least {@code count} patients end up in
+   *         that state
+   */
+  public double probabilityAtLeast(HealthState state, long count) {
+    return marginal(state).probabilityAtLeast(count);
+  }
+
+  @Override
+  public String toString() {
+    return "OutcomeDistribution[outcomes=" + outcomes + ", marginals=" + marginals + "]";
+  }
+}
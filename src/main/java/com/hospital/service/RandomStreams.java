@@ -0,0 +1,53 @@
+package com.hospital.service;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Derives independent {@link SplittableRandom} streams from a master seed.
+ * 
+ * <p>
+ * Stream {@code i} depends only on the master seed and on {@code i}, never on
+ * the order in which streams are created or on the thread using them. Work
+ * split into indexed units (simulations of a batch, replicates of an ensemble,
+ * chunks of a population) therefore produces bit-for-bit identical results
+ * whatever the degree of parallelism.
+ */
+public final class RandomStreams {
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  private RandomStreams() {
+    // Utility class, no instantiation needed
+  }
+
+  /**
+   * Creates a fresh master seed for simulations that were not given one.
+   * 
+   * @return a random seed
+   */
+  public static long newSeed() {
+    return ThreadLocalRandom.current().nextLong();
+  }
+
+  /**
+   * Creates the random stream with the given index.
+   * 
+   * @param masterSeed the seed shared by all streams of a run
+   * @param index the index of the stream within the run
+   * @return a new stream, independent from the streams of other indices
+   */
+  public static SplittableRandom stream(long masterSeed, long index) {
+    return new SplittableRandom(mix64(masterSeed + (index + 1) * GOLDEN_GAMMA));
+  }
+
+  /**
+   * SplitMix64 finalizer, the same bit mixer {@link SplittableRandom} applies
+   * to its own seeds.
+   */
+  private static long mix64(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
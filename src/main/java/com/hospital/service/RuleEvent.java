@@ -0,0 +1,76 @@
+package com.hospital.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Flight recorder event for the application of one step of a compiled chain:
+ * a rule, or a run of linear rules folded into one transition matrix.
+ * Disabled unless a recording explicitly enables it, see {@code hospital.jfc}.
+ */
+@Name("com.hospital.RuleApply")
+@Label("Rule Apply")
+@Category({ "Hospital", "Simulation" })
+@Description("Application of a rule, or of rules folded into one transition matrix, to the patients")
+@StackTrace(false)
+@Enabled(false)
+final class RuleEvent extends Event {
+
+  @Label("Rule")
+  @Description("Simple class name of the rule, or of the folded rules joined with +")
+  String rule;
+
+  @Label("Input Healthy")
+  long inputHealthy;
+
+  @Label("Input Fever")
+  long inputFever;
+
+  @Label("Input Diabetes")
+  long inputDiabetes;
+
+  @Label("Input Tuberculosis")
+  long inputTuberculosis;
+
+  @Label("Input Dead")
+  long inputDead;
+
+  @Label("Output Healthy")
+  long outputHealthy;
+
+  @Label("Output Fever")
+  long outputFever;
+
+  @Label("Output Diabetes")
+  long outputDiabetes;
+
+  @Label("Output Tuberculosis")
+  long outputTuberculosis;
+
+  @Label("Output Dead")
+  long outputDead;
+
+  void setInput(PatientCounts input) {
+    inputHealthy = input.get(HealthState.HEALTHY);
+    inputFever = input.get(HealthState.FEVER);
+    inputDiabetes = input.get(HealthState.DIABETES);
+    inputTuberculosis = input.get(HealthState.TUBERCULOSIS);
+    inputDead = input.get(HealthState.DEAD);
+  }
+
+  void setOutput(PatientCounts output) {
+    outputHealthy = output.get(HealthState.HEALTHY);
+    outputFever = output.get(HealthState.FEVER);
+    outputDiabetes = output.get(HealthState.DIABETES);
+    outputTuberculosis = output.get(HealthState.TUBERCULOSIS);
+    outputDead = output.get(HealthState.DEAD);
+  }
+}
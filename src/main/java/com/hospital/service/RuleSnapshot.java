@@ -0,0 +1,110 @@
+package com.hospital.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.hospital.domain.Drug;
+import com.hospital.rule.Rule;
+import com.hospital.service.metrics.SimulationMetrics;
+
+/**
+ * Rule configuration of a {@link SimulatorEngine}: its rules, in order, and
+ * the chains compiled from them, one per drug set.
+ *
+ * <p>
+ * A snapshot never changes its rules. The engine reloads rules by publishing a
+ * new snapshot, of the next generation, through a volatile reference, and
+ * every simulation reads that reference once and runs on the snapshot it got
+ * until it ends. Simulations in flight during a reload thus finish on the old
+ * rules, without any lock on their path.
+ *
+ * <p>
+ * The chains of the snapshot an engine is created with are compiled on first
+ * use, which keeps one-off command-line simulations from compiling drug sets
+ * they never use. Reloaded snapshots are compiled in full before they are
+ * published, see {@link #compileAll()}. Concurrent first uses may compile the
+ * same chain twice, but only the first one published is ever used, so that the
+ * skipped invocations it counts are the only ones for its drug set.
+ */
+final class RuleSnapshot {
+
+  private final Rule[] rules;
+  private final long generation;
+  private final long retiredSkippedInvocations;
+  private final SimulationMetrics metrics;
+  private final AtomicReferenceArray<CompiledRuleChain> chains = new AtomicReferenceArray<>(Drug.COMBINATIONS);
+
+  /**
+   * Creates the first snapshot of an engine.
+   *
+   * @param rules the rules, applied in order
+   * @param metrics the registry measuring the steps of the chains, or
+   *        {@code null} for none
+   */
+  RuleSnapshot(List<Rule> rules, SimulationMetrics metrics) {
+    this(rules, 0, 0, metrics);
+  }
+
+  private RuleSnapshot(List<Rule> rules, long generation, long retiredSkippedInvocations,
+      SimulationMetrics metrics) {
+    this.rules = rules.toArray(Rule[]::new);
+    this.generation = generation;
+    this.retiredSkippedInvocations = retiredSkippedInvocations;
+    this.metrics = metrics;
+  }
+
+  /**
+   * @param rules the rules replacing those of this snapshot
+   * @return the snapshot of the next generation, not compiled yet
+   */
+  RuleSnapshot successor(List<Rule> rules) {
+    return new RuleSnapshot(rules, generation + 1, skippedInvocations(), metrics);
+  }
+
+  /**
+   * Compiles the chain of every drug set, so that no simulation on this
+   * snapshot pays for a compilation.
+   *
+   * @return this snapshot, for chaining
+   */
+  RuleSnapshot compileAll() {
+    for (int mask = 0; mask < Drug.COMBINATIONS; mask++) {
+      chain(mask);
+    }
+    return this;
+  }
+
+  CompiledRuleChain chain(int mask) {
+    CompiledRuleChain chain = chains.get(mask);
+    if (chain != null) {
+      return chain;
+    }
+    CompiledRuleChain compiled = CompiledRuleChain.compile(rules, Drug.fromMask(mask), generation, metrics);
+    CompiledRuleChain published = chains.compareAndExchange(mask, null, compiled);
+    return published != null ? published : compiled;
+  }
+
+  List<Rule> rules() {
+    return List.of(rules);
+  }
+
+  long generation() {
+    return generation;
+  }
+
+  /**
+   * @return the number of rule invocations the chains of this snapshot
+   *         avoided, plus those of the snapshots it replaced as of their
+   *         replacement
+   */
+  long skippedInvocations() {
+    long skipped = retiredSkippedInvocations;
+    for (int mask = 0; mask < Drug.COMBINATIONS; mask++) {
+      CompiledRuleChain chain = chains.get(mask);
+      if (chain != null) {
+        skipped += chain.skippedInvocations();
+      }
+    }
+    return skipped;
+  }
+}
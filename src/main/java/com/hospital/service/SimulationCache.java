@@ -0,0 +1,181 @@
+package com.hospital.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Bounded memo of the deterministic part of simulations.
+ * 
+ * <p>
+ * A {@link SimulatorEngine} created with a cache looks up the patient counts
+ * and drugs of each simulation before running the
+ * {@link com.hospital.rule.Rule#isDeterministic() deterministic} steps at the
+ * start of its compiled chain, and stores their outcome on a miss. The
+ * remaining steps, from the first stochastic rule on, always run, so seeded
+ * simulations give the same responses with or without a cache. A cache holds
+ * outcomes of one engine: do not share it between engines. Keys include the
+ * generation of the engine's rule set, so outcomes of rules that were reloaded
+ * away are never returned.
+ * 
+ * <p>
+ * Entries are evicted in least-recently-used order. To keep concurrent
+ * lookups from contending on a single lock, the cache is split into
+ * independently locked stripes selected by key hash; each stripe evicts on its
+ * own, so the bound is exact while the LRU order is per stripe. Stripes hold
+ * at least {@value #MIN_STRIPE_SIZE} entries, so small caches are a single,
+ * exact LRU.
+ */
+public final class SimulationCache {
+
+  private static final int MAX_STRIPES = 16;
+
+  /** Smallest stripe capacity, below which striping would distort the LRU order. */
+  private static final int MIN_STRIPE_SIZE = 64;
+
+  private final Stripe[] stripes;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * @param maximumSize the largest number of entries held at once
+   */
+  public SimulationCache(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("Cache size must be positive.");
+    }
+    int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_STRIPES, maximumSize / MIN_STRIPE_SIZE)));
+    this.stripes = new Stripe[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      // Spread the remainder so that stripe capacities add up to the maximum size
+      stripes[i] = new Stripe(maximumSize / stripeCount + (i < maximumSize % stripeCount ? 1 : 0));
+    }
+  }
+
+  /**
+   * Copies the memoized outcome of the given input into {@code patientCounts}.
+   * 
+   * @return {@code true} on a hit, {@code false} if the input is not cached
+   */
+  boolean get(SimulationKey key, PatientCounts patientCounts) {
+    PatientCounts outcome = stripe(key).get(key);
+    if (outcome == null) {
+      misses.increment();
+      return false;
+    }
+    hits.increment();
+    patientCounts.copyFrom(outcome);
+    return true;
+  }
+
+  void put(SimulationKey key, PatientCounts outcome) {
+    stripe(key).put(key, outcome.copy());
+  }
+
+  /**
+   * @return the keys held, from least to most recently used within each
+   *         stripe
+   */
+  List<SimulationKey> keys() {
+    List<SimulationKey> keys = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      stripe.addKeysTo(keys);
+    }
+    return keys;
+  }
+
+  /**
+   * Removes the entries of rule sets older than the given generation, which
+   * no new simulation can hit.
+   */
+  void removeGenerationsBefore(long generation) {
+    for (Stripe stripe : stripes) {
+      stripe.removeGenerationsBefore(generation);
+    }
+  }
+
+  public void clear() {
+    for (Stripe stripe : stripes) {
+      stripe.clear();
+    }
+  }
+
+  public Stats stats() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return new Stats(hits.sum(), misses.sum(), evictions.sum(), size);
+  }
+
+  private Stripe stripe(SimulationKey key) {
+    int hash = key.hashCode();
+    return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+  }
+
+  /**
+   * @param hits the number of lookups that found an entry
+   * @param misses the number of lookups that did not
+   * @param evictions the number of entries evicted to make room for others
+   * @param size the number of entries currently held
+   */
+  public record Stats(long hits, long misses, long evictions, long size) {
+
+    /**
+     * @return the fraction of lookups that were hits, or {@code 0} before any
+     *         lookup
+     */
+    public double hitRate() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+  }
+
+  private final class Stripe {
+
+    private final LinkedHashMap<SimulationKey, PatientCounts> entries;
+
+    Stripe(int capacity) {
+      this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SimulationKey, PatientCounts> eldest) {
+          if (size() <= capacity) {
+            return false;
+          }
+          evictions.increment();
+          return true;
+        }
+      };
+    }
+
+    synchronized PatientCounts get(SimulationKey key) {
+      return entries.get(key);
+    }
+
+    synchronized void put(SimulationKey key, PatientCounts outcome) {
+      entries.put(key, outcome);
+    }
+
+    synchronized void addKeysTo(List<SimulationKey> keys) {
+      keys.addAll(entries.keySet());
+    }
+
+    synchronized void removeGenerationsBefore(long generation) {
+      entries.keySet().removeIf(key -> key.generation() < generation);
+    }
+
+    synchronized void clear() {
+      entries.clear();
+    }
+
+    synchronized int size() {
+      return entries.size();
+    }
+  }
+}
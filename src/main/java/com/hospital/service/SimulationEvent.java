@@ -0,0 +1,32 @@
+package com.hospital.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event spanning one simulation, from the input patients to
+ * the final state. Disabled unless a recording enables it, see
+ * {@code hospital.jfc}.
+ */
+@Name("com.hospital.Simulation")
+@Label("Simulation")
+@Category({ "Hospital", "Simulation" })
+@Description("A simulation of patients, from the first rule to the last")
+@StackTrace(false)
+@Enabled(false)
+final class SimulationEvent extends Event {
+
+  @Label("Drugs")
+  @Description("Codes of the drugs administered")
+  String drugs;
+
+  @Label("Patients")
+  @Description("Number of patients simulated")
+  long patients;
+
+}
@@ -0,0 +1,87 @@
+package com.hospital.service;
+
+import java.util.Arrays;
+
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Identity of a simulation input: the patient counts, packed in state
+ * ordinal order, the drug bitmask and the generation of the rule set that
+ * simulates it. Unlike a {@code Map<HealthState, Integer>}, it hashes and
+ * compares as a handful of primitives. Instances are immutable.
+ */
+final class SimulationKey {
+
+  private static final HealthState[] STATES = HealthState.values();
+
+  private final long[] counts;
+  private final int drugMask;
+  private final long generation;
+  private final int hash;
+
+  private SimulationKey(long[] counts, int drugMask, long generation) {
+    this.counts = counts;
+    this.drugMask = drugMask;
+    this.generation = generation;
+    this.hash = 31 * (31 * Arrays.hashCode(counts) + drugMask) + Long.hashCode(generation);
+  }
+
+  static SimulationKey of(PatientCounts patientCounts, int drugMask) {
+    return of(patientCounts, drugMask, 0);
+  }
+
+  /**
+   * @param generation the {@link RuleSnapshot#generation() generation} of the
+   *        rule set, so that inputs of different rule sets never match
+   */
+  static SimulationKey of(PatientCounts patientCounts, int drugMask, long generation) {
+    long[] counts = new long[STATES.length];
+    for (int i = 0; i < STATES.length; i++) {
+      counts[i] = patientCounts.get(STATES[i]);
+    }
+    return new SimulationKey(counts, drugMask, generation);
+  }
+
+  /**
+   * @return the same input, for the rule set of the given generation
+   */
+  SimulationKey withGeneration(long generation) {
+    return new SimulationKey(counts, drugMask, generation);
+  }
+
+  PatientCounts patientCounts() {
+    PatientCounts patientCounts = new PatientCounts();
+    for (int i = 0; i < STATES.length; i++) {
+      patientCounts.set(STATES[i], counts[i]);
+    }
+    return patientCounts;
+  }
+
+  int drugMask() {
+    return drugMask;
+  }
+
+  long generation() {
+    return generation;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof SimulationKey other
+        && hash == other.hash
+        && drugMask == other.drugMask
+        && generation == other.generation
+        && Arrays.equals(counts, other.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(counts) + "/" + drugMask + "@" + generation;
+  }
+}
@@ -0,0 +1,209 @@
+package com.hospital.service;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+
+/**
+ * {@link Flow.Processor} simulating a stream of requests on an
+ * {@link AsyncSimulator} and publishing their responses in request order.
+ *
+ * <p>
+ * The processor requests {@code window} requests upfront and one more each
+ * time it delivers a response, so at most {@code window} requests are being
+ * simulated or waiting for downstream demand at any time: a slow subscriber
+ * slows down the upstream publisher instead of filling a buffer. The window
+ * should not exceed the simulator's capacity unless the simulator blocks or
+ * runs overflowing simulations on the caller.
+ *
+ * <p>
+ * A failed simulation cancels the upstream subscription and fails the stream.
+ * The stream completes once the upstream publisher has completed and every
+ * response has been delivered. A processor serves a single subscriber.
+ */
+public final class SimulationProcessor implements Flow.Processor<SimulationRequest, SimulationResponse> {
+
+  private final AsyncSimulator simulator;
+  private final int window;
+  private final Queue<CompletableFuture<SimulationResponse>> pending = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger drains = new AtomicInteger();
+  private final AtomicLong demand = new AtomicLong();
+  private final AtomicBoolean subscribed = new AtomicBoolean();
+  private volatile Flow.Subscription upstream;
+  private volatile Flow.Subscriber<? super SimulationResponse> downstream;
+  private volatile boolean upstreamDone;
+  private volatile Throwable upstreamError;
+  private volatile Throwable demandError;
+  private volatile boolean terminated;
+
+  /**
+   * @param simulator the simulator of the requests
+   * @param window the largest number of requests simulated or awaiting demand
+   */
+  public SimulationProcessor(AsyncSimulator simulator, int window) {
+    if (window < 1) {
+      throw new IllegalArgumentException("Window must be positive.");
+    }
+    this.simulator = simulator;
+    this.window = window;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super SimulationResponse> subscriber) {
+    Objects.requireNonNull(subscriber);
+    if (!subscribed.compareAndSet(false, true)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+          // Already failed
+        }
+
+        @Override
+        public void cancel() {
+          // Already failed
+        }
+      });
+      subscriber.onError(new IllegalStateException("SimulationProcessor serves a single subscriber."));
+      return;
+    }
+    subscriber.onSubscribe(new Downstream());
+    downstream = subscriber;
+    drain();
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    if (upstream != null || terminated) {
+      subscription.cancel();
+      return;
+    }
+    upstream = subscription;
+    subscription.request(window);
+  }
+
+  @Override
+  public void onNext(SimulationRequest request) {
+    if (terminated) {
+      return;
+    }
+    CompletableFuture<SimulationResponse> response = simulator.simulateAsync(request);
+    pending.add(response);
+    response.whenComplete((ignored, error) -> drain());
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    upstreamError = throwable;
+    upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    upstreamDone = true;
+    drain();
+  }
+
+  /**
+   * Delivers the completed responses at the head of the queue for which there
+   * is demand. Only one thread drains at a time; calls made meanwhile make it
+   * loop once more, so no completion is missed.
+   */
+  private void drain() {
+    if (drains.getAndIncrement() != 0) {
+      return;
+    }
+    int missed = 1;
+    do {
+      Flow.Subscriber<? super SimulationResponse> subscriber = downstream;
+      if (subscriber != null) {
+        deliver(subscriber);
+      }
+      missed = drains.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void deliver(Flow.Subscriber<? super SimulationResponse> subscriber) {
+    while (!terminated) {
+      if (demandError != null) {
+        terminate(subscriber, demandError);
+        return;
+      }
+      CompletableFuture<SimulationResponse> head = pending.peek();
+      if (head == null) {
+        if (upstreamDone) {
+          terminated = true;
+          if (upstreamError != null) {
+            subscriber.onError(upstreamError);
+          } else {
+            subscriber.onComplete();
+          }
+        }
+        return;
+      }
+      if (!head.isDone()) {
+        return;
+      }
+      if (head.isCompletedExceptionally()) {
+        terminate(subscriber, head.exceptionNow());
+        return;
+      }
+      if (demand.get() == 0) {
+        return;
+      }
+      pending.poll();
+      if (demand.get() != Long.MAX_VALUE) {
+        demand.decrementAndGet();
+      }
+      subscriber.onNext(head.join());
+      Flow.Subscription subscription = upstream;
+      if (subscription != null && !upstreamDone) {
+        subscription.request(1);
+      }
+    }
+  }
+
+  private void terminate(Flow.Subscriber<? super SimulationResponse> subscriber, Throwable error) {
+    terminated = true;
+    pending.clear();
+    Flow.Subscription subscription = upstream;
+    if (subscription != null) {
+      subscription.cancel();
+    }
+    subscriber.onError(error);
+  }
+
+  private final class Downstream implements Flow.Subscription {
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        demandError = new IllegalArgumentException("Demand must be positive: " + n);
+      } else {
+        demand.accumulateAndGet(n, (current, added) -> {
+          long sum = current + added;
+          return sum < 0 ? Long.MAX_VALUE : sum;
+        });
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      terminated = true;
+      pending.clear();
+      Flow.Subscription subscription = upstream;
+      if (subscription != null) {
+        subscription.cancel();
+      }
+    }
+  }
+}
@@ -0,0 +1,458 @@
+package com.hospital.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+import com.hospital.client.model.EnsembleResponse;
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.DrugSchedule;
+import com.hospital.domain.PatientCounts;
+import com.hospital.service.stats.RunningStatistics;
+
+/**
+ * Runs simulations of several priority {@link Lane lanes} on one engine, so
+ * that interactive queries do not wait behind batch or background work.
+ *
+ * <p>
+ * Work runs on virtual threads, but only while holding one of a fixed number
+ * of slots, one per core by default. A lane holds at most its
+ * {@link LaneLimits#concurrency() concurrency} slots at once. When a slot frees
+ * up it goes to the waiting lane with the smallest virtual runtime: the CPU
+ * time the lane used, divided by its {@link LaneLimits#weight() weight}. Busy
+ * lanes thus share the slots in proportion to their weights, and a lane
+ * becoming busy starts slightly ahead of the others, so it is served first
+ * without banking credit while it was idle.
+ *
+ * <p>
+ * Long jobs release their slot at regular points so that other lanes can take
+ * over: batches every {@value #BATCH_SLICE} requests, ensembles every
+ * {@link EnsembleSimulation#CHUNK_SIZE chunk} of replicates, and multi-step
+ * simulations after any step where a lane with a smaller virtual runtime is
+ * waiting. Results are the same as running the job on the engine directly.
+ */
+public final class SimulationScheduler implements AutoCloseable {
+
+  /** Requests of a batch simulated per slot acquisition. */
+  static final int BATCH_SLICE = 256;
+
+  /** Head start of a lane becoming busy, in nanoseconds of virtual runtime. */
+  private static final long ACTIVATION_CREDIT = 1_000_000;
+
+  private static final Lane[] LANES = Lane.values();
+
+  /**
+   * Priority lanes, in decreasing default priority.
+   */
+  public enum Lane {
+    /** Queries a clinician is waiting for. */
+    INTERACTIVE,
+    /** Bulk simulations, such as nightly batches. */
+    BATCH,
+    /** Long-running ensembles and multi-step simulations. */
+    BACKGROUND
+  }
+
+  /**
+   * @param concurrency the largest number of slots the lane holds at once
+   * @param weight the share of CPU time of the lane, relative to the other
+   *        busy lanes
+   */
+  public record LaneLimits(int concurrency, int weight) {
+
+    public LaneLimits {
+      if (concurrency < 1 || weight < 1) {
+        throw new IllegalArgumentException("Lane concurrency and weight must be positive.");
+      }
+    }
+  }
+
+  /**
+   * @param completed the number of units of work completed: simulations,
+   *        batch slices, ensemble chunks or multi-step simulations
+   * @param preemptions the number of times a multi-step simulation of the lane
+   *        gave its slot to another lane
+   * @param cpuNanos the time the lane held slots
+   * @param running the number of slots the lane currently holds
+   * @param waiting the number of units currently waiting for a slot
+   */
+  public record LaneStats(long completed, long preemptions, long cpuNanos, int running, int waiting) {
+  }
+
+  private final SimulatorEngine engine;
+  private final LaneLimits[] limits = new LaneLimits[LANES.length];
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final List<ArrayDeque<Waiter>> waiters = new ArrayList<>();
+  private final int[] running = new int[LANES.length];
+  private final long[] virtualRuntime = new long[LANES.length];
+  private final long[] completed = new long[LANES.length];
+  private final long[] preemptions = new long[LANES.length];
+  private final long[] cpuNanos = new long[LANES.length];
+  private int freeSlots;
+  private volatile int waiting;
+
+  /**
+   * Creates a scheduler with one slot per core, where interactive work weighs
+   * 16, batches 4 and background jobs 1, and background jobs hold at most half
+   * of the slots.
+   */
+  public SimulationScheduler(SimulatorEngine engine) {
+    this(engine, Runtime.getRuntime().availableProcessors(),
+        defaultLimits(Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * @param engine the engine running the simulations
+   * @param slots the number of simulations running at once
+   * @param limits the limits of every lane
+   */
+  public SimulationScheduler(SimulatorEngine engine, int slots, Map<Lane, LaneLimits> limits) {
+    if (slots < 1) {
+      throw new IllegalArgumentException("Number of slots must be positive.");
+    }
+    for (Lane lane : LANES) {
+      if (!limits.containsKey(lane)) {
+        throw new IllegalArgumentException("Missing limits of lane " + lane);
+      }
+      this.limits[lane.ordinal()] = limits.get(lane);
+      waiters.add(new ArrayDeque<>());
+    }
+    this.engine = engine;
+    this.freeSlots = slots;
+  }
+
+  /**
+   * @param slots the number of slots of the scheduler
+   * @return the default limits of every lane
+   */
+  public static Map<Lane, LaneLimits> defaultLimits(int slots) {
+    Map<Lane, LaneLimits> limits = new EnumMap<>(Lane.class);
+    limits.put(Lane.INTERACTIVE, new LaneLimits(slots, 16));
+    limits.put(Lane.BATCH, new LaneLimits(slots, 4));
+    limits.put(Lane.BACKGROUND, new LaneLimits(Math.max(1, slots / 2), 1));
+    return limits;
+  }
+
+  /**
+   * Simulates a request in the given lane.
+   *
+   * @return the future response, failed if the request is invalid
+   */
+  public CompletableFuture<SimulationResponse> simulate(Lane lane, SimulationRequest request) {
+    return CompletableFuture.supplyAsync(() -> runInSlot(lane, () -> engine.simulate(request)), executor);
+  }
+
+  /**
+   * Simulates a batch of requests in the given lane, in slices of
+   * {@value #BATCH_SLICE} requests, as many at once as the lane's concurrency.
+   *
+   * @return the future responses, in the order of {@code requests}
+   */
+  public CompletableFuture<List<SimulationResponse>> simulateAll(Lane lane, List<SimulationRequest> requests) {
+    return CompletableFuture.supplyAsync(() -> {
+      SimulationResponse[] responses = new SimulationResponse[requests.size()];
+      int slices = (requests.size() + BATCH_SLICE - 1) / BATCH_SLICE;
+      AtomicInteger nextSlice = new AtomicInteger();
+      List<CompletableFuture<Void>> workers = new ArrayList<>();
+      int workerCount = Math.min(slices, limits[lane.ordinal()].concurrency());
+      for (int worker = 0; worker < workerCount; worker++) {
+        workers.add(CompletableFuture.runAsync(() -> {
+          for (int slice = nextSlice.getAndIncrement(); slice < slices; slice = nextSlice.getAndIncrement()) {
+            int from = slice * BATCH_SLICE;
+            int to = Math.min(requests.size(), from + BATCH_SLICE);
+            runInSlot(lane, () -> {
+              List<SimulationResponse> simulated = engine.simulateAll(requests.subList(from, to).stream()).toList();
+              for (int i = 0; i < simulated.size(); i++) {
+                responses[from + i] = simulated.get(i);
+              }
+              return null;
+            });
+            // Virtual threads are never preempted: let threads submitting other lanes' work run and queue
+            Thread.yield();
+          }
+        }, executor));
+      }
+      CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new)).join();
+      return Arrays.asList(responses);
+    }, executor);
+  }
+
+  /**
+   * Simulates replicates of a request in the given lane, running as many
+   * chunks at once as the lane's concurrency. The response is the one
+   * {@link SimulatorEngine#simulateEnsemble(SimulationRequest, long)} returns
+   * for the same seed.
+   *
+   * @return the future statistics of the replicates
+   */
+  public CompletableFuture<EnsembleResponse> simulateEnsemble(Lane lane, SimulationRequest request,
+      long replicates) {
+    return CompletableFuture.supplyAsync(() -> {
+      engine.validateRequest(request);
+      SimulatorEngine.validateReplicates(replicates);
+      EnsembleSimulation ensemble = engine.newEnsemble(request);
+      long chunks = EnsembleSimulation.chunks(replicates);
+      int wave = limits[lane.ordinal()].concurrency();
+      for (long first = 0; first < chunks; first += wave) {
+        List<CompletableFuture<RunningStatistics[]>> results = new ArrayList<>(wave);
+        for (long chunk = first; chunk < Math.min(chunks, first + wave); chunk++) {
+          long index = chunk;
+          results.add(CompletableFuture.supplyAsync(
+              () -> runInSlot(lane, () -> ensemble.simulateChunk(index, replicates)), executor));
+        }
+        for (int i = 0; i < results.size(); i++) {
+          ensemble.merge(first + i, results.get(i).join(), replicates);
+        }
+      }
+      return ensemble.toResponse();
+    }, executor);
+  }
+
+  /**
+   * Iterates a simulation in the given lane, giving up its slot after any
+   * step where a lane with a smaller virtual runtime is waiting.
+   *
+   * @see SimulatorEngine#simulateSteps(PatientCounts, DrugSchedule, long, StepSink, RandomGenerator)
+   */
+  public CompletableFuture<PatientCounts> simulateSteps(Lane lane, PatientCounts patientCounts,
+      DrugSchedule schedule, long steps, StepSink sink, RandomGenerator random) {
+    return CompletableFuture.supplyAsync(() -> {
+      Slot slot = acquire(lane);
+      try {
+        return engine.simulateSteps(patientCounts, schedule, steps, new PreemptibleSink(sink, slot), random);
+      } finally {
+        release(slot);
+      }
+    }, executor);
+  }
+
+  /**
+   * @return the statistics of the given lane since the scheduler was created
+   */
+  public LaneStats stats(Lane lane) {
+    int l = lane.ordinal();
+    lock.lock();
+    try {
+      return new LaneStats(completed[l], preemptions[l], cpuNanos[l], running[l], waiters.get(l).size());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Stops accepting work and waits for submitted work to complete.
+   */
+  @Override
+  public void close() {
+    executor.close();
+  }
+
+  private <T> T runInSlot(Lane lane, Supplier<T> work) {
+    Slot slot = acquire(lane);
+    try {
+      return work.get();
+    } finally {
+      release(slot);
+    }
+  }
+
+  private Slot acquire(Lane lane) {
+    int l = lane.ordinal();
+    lock.lock();
+    try {
+      if (!isBusy(l)) {
+        activate(l);
+      }
+      if (waiting == 0 && freeSlots > 0 && running[l] < limits[l].concurrency()) {
+        freeSlots--;
+        running[l]++;
+      } else {
+        await(l);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return new Slot(l, System.nanoTime());
+  }
+
+  private void release(Slot slot) {
+    lock.lock();
+    try {
+      charge(slot.lane, System.nanoTime() - slot.start);
+      completed[slot.lane]++;
+      running[slot.lane]--;
+      freeSlots++;
+      dispatch();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gives the slot to a waiting lane with a smaller virtual runtime, if any,
+   * and waits to get one back. Checked without the lock while nothing waits.
+   */
+  private void checkpoint(Slot slot) {
+    if (waiting == 0) {
+      return;
+    }
+    lock.lock();
+    try {
+      long now = System.nanoTime();
+      charge(slot.lane, now - slot.start);
+      slot.start = now;
+      if (!isPreempted(slot.lane)) {
+        return;
+      }
+      preemptions[slot.lane]++;
+      running[slot.lane]--;
+      freeSlots++;
+      await(slot.lane);
+      slot.start = System.nanoTime();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean isPreempted(int lane) {
+    for (int l = 0; l < LANES.length; l++) {
+      if (l != lane && isEligible(l) && virtualRuntime[l] < virtualRuntime[lane]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Queues the calling thread in the given lane, hands out free slots and
+   * waits for one. Called with the lock held.
+   */
+  private void await(int lane) {
+    Waiter waiter = new Waiter(lock.newCondition());
+    waiters.get(lane).add(waiter);
+    waiting++;
+    dispatch();
+    while (!waiter.granted) {
+      waiter.condition.awaitUninterruptibly();
+    }
+  }
+
+  /**
+   * Hands out free slots to the eligible lane with the smallest virtual
+   * runtime, the first lane on ties. Called with the lock held.
+   */
+  private void dispatch() {
+    while (freeSlots > 0) {
+      int next = -1;
+      for (int l = 0; l < LANES.length; l++) {
+        if (isEligible(l) && (next < 0 || virtualRuntime[l] < virtualRuntime[next])) {
+          next = l;
+        }
+      }
+      if (next < 0) {
+        return;
+      }
+      Waiter waiter = waiters.get(next).poll();
+      waiting--;
+      freeSlots--;
+      running[next]++;
+      waiter.granted = true;
+      waiter.condition.signal();
+    }
+  }
+
+  private boolean isEligible(int lane) {
+    return !waiters.get(lane).isEmpty() && running[lane] < limits[lane].concurrency();
+  }
+
+  private boolean isBusy(int lane) {
+    return running[lane] > 0 || !waiters.get(lane).isEmpty();
+  }
+
+  /**
+   * Moves an idle lane becoming busy just ahead of the busy lanes, so that it
+   * neither starves them with credit from its idle time nor waits behind them.
+   */
+  private void activate(int lane) {
+    long minimum = Long.MAX_VALUE;
+    for (int l = 0; l < LANES.length; l++) {
+      if (l != lane && isBusy(l)) {
+        minimum = Math.min(minimum, virtualRuntime[l]);
+      }
+    }
+    if (minimum != Long.MAX_VALUE) {
+      virtualRuntime[lane] = Math.max(virtualRuntime[lane], minimum - ACTIVATION_CREDIT);
+    }
+  }
+
+  private void charge(int lane, long nanos) {
+    cpuNanos[lane] += nanos;
+    virtualRuntime[lane] += nanos / limits[lane].weight();
+  }
+
+  private static final class Slot {
+
+    private final int lane;
+    private long start;
+
+    Slot(int lane, long start) {
+      this.lane = lane;
+      this.start = start;
+    }
+  }
+
+  private static final class Waiter {
+
+    private final Condition condition;
+    private boolean granted;
+
+    Waiter(Condition condition) {
+      this.condition = condition;
+    }
+  }
+
+  /**
+   * Sink checking for preemption after every report of the simulation.
+   */
+  private final class PreemptibleSink implements StepSink {
+
+    private final StepSink sink;
+    private final Slot slot;
+
+    PreemptibleSink(StepSink sink, Slot slot) {
+      this.sink = sink;
+      this.slot = slot;
+    }
+
+    @Override
+    public void onStep(long step, PatientCounts patients) {
+      sink.onStep(step, patients);
+      checkpoint(slot);
+    }
+
+    @Override
+    public void onSteadyState(long fromStep, long toStep, PatientCounts patients) {
+      sink.onSteadyState(fromStep, toStep, patients);
+      checkpoint(slot);
+    }
+
+    @Override
+    public void onFastForward(long fromStep, long toStep, PatientCounts patients) {
+      sink.onFastForward(fromStep, toStep, patients);
+      checkpoint(slot);
+    }
+  }
+}
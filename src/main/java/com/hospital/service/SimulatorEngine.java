@@ -1,17 +1,32 @@
 package com.hospital.service;
 
-import java.util.EnumMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hospital.client.model.EnsembleResponse;
 import com.hospital.client.model.SimulationRequest;
 import com.hospital.client.model.SimulationResponse;
 import com.hospital.domain.Drug;
-import com.hospital.domain.HealthState;
+import com.hospital.domain.DrugSchedule;
+import com.hospital.domain.MappedPopulation;
+import com.hospital.domain.PatientCounts;
+import com.hospital.domain.PatientPopulation;
+import com.hospital.rule.BinomialRule;
+import com.hospital.rule.PatientRule;
 import com.hospital.rule.Rule;
+import com.hospital.rule.impl.utils.FlightRecording;
+import com.hospital.rule.impl.utils.RuleValidationUtils;
+import com.hospital.service.metrics.SimulationMetrics;
 
 /**
  * SimulatorEngine is responsible for simulating the application of rules
@@ -22,15 +37,169 @@ import com.hospital.rule.Rule;
  * becomes the input for the next rule, which means rule order can significantly
  * affect the final outcome.
  * 
+ * <p>
+ * For every drug set the rule list is compiled once into a
+ * {@link CompiledRuleChain}: consecutive linear rules collapse into a single
+ * transition matrix and only non-linear rules, such as stochastic ones, still
+ * run individually. Compiled chains are cached by drug bitmask.
+ * 
+ * <p>
+ * The rules can be {@link #reload(List) reloaded} while simulations run. The
+ * rules and their compiled chains form an immutable snapshot, which a reload
+ * replaces atomically: simulations in flight finish on the rules they started
+ * with, later ones run on the new rules, and neither takes a lock.
+ * 
+ * <p>
+ * Compiled chains also skip rules that cannot fire, judging from the drugs
+ * and health states each {@link Rule} declares; see
+ * {@link #skippedRuleInvocations()}. Inputs are validated once, when they
+ * enter the engine, rather than by every rule.
+ * 
+ * <p>
+ * An engine created with {@link SimulationMetrics} records the number and
+ * duration of its simulations and the duration and effect of each rule. Steps
+ * are only logged at {@code DEBUG} level, since formatting patients on every
+ * call costs more than the simulation itself. For profiling, simulations and
+ * rule applications also emit flight recorder events, which cost nothing
+ * unless a recording enables them; see {@code hospital.jfc}.
+ * 
+ * <p>
+ * Every simulation draws its randomness from its own {@link SplittableRandom}
+ * stream created from the request seed, so a seeded request always yields the
+ * same response, whichever thread runs it. When the only stochastic rules are
+ * {@link BinomialRule binomial}, {@link #distribution(PatientCounts, Set)}
+ * computes the distribution of outcomes exactly instead.
+ * 
  */
 public class SimulatorEngine {
 
-  private static final Logger log = LoggerFactory.getLogger(SimulatorEngine.class);
+  /** Default ratio to the mode's probability below which binomial terms are left out. */
+  public static final double DEFAULT_TAIL = 1e-15;
 
-  private final List<Rule> rules;
+  private final SimulationCache cache;
+  private final SimulationMetrics metrics;
+  private final Object reloadLock = new Object();
+  private volatile RuleSnapshot snapshot;
 
   public SimulatorEngine(List<Rule> rules) {
-    this.rules = rules;
+    this(rules, null, null);
+  }
+
+  /**
+   * Creates an engine that memoizes the deterministic part of its simulations.
+   * 
+   * @param rules the rules, applied in order
+   * @param cache the cache of this engine, or {@code null} for none
+   * @see SimulationCache
+   */
+  public SimulatorEngine(List<Rule> rules, SimulationCache cache) {
+    this(rules, cache, null);
+  }
+
+  /**
+   * Creates an engine that records metrics, and optionally memoizes the
+   * deterministic part of its simulations.
+   * 
+   * @param rules the rules, applied in order
+   * @param cache the cache of this engine, or {@code null} for none
+   * @param metrics the registry of this engine's metrics, or {@code null} for
+   *        none
+   */
+  public SimulatorEngine(List<Rule> rules, SimulationCache cache, SimulationMetrics metrics) {
+    this.cache = cache;
+    this.metrics = metrics;
+    this.snapshot = new RuleSnapshot(rules, metrics);
+  }
+
+  /**
+   * Replaces the rules of this engine, without stopping it. The chain of
+   * every drug set is compiled for the new rules, and the cache, if any, is
+   * warmed with the outcomes of the new rules for the inputs it holds, before
+   * the new rules are published in a single volatile write.
+   * 
+   * <p>
+   * Simulations that started before the reload finish on the old rules, so a
+   * simulation never mixes rules of two generations; those starting after it
+   * run on the new rules. Simulations take no lock either way. Multi-step and
+   * per-step simulations keep the rules they started with for all their
+   * steps, while batches and streams of requests pick up the new rules from
+   * the next request they resolve a chain for. Concurrent reloads are
+   * applied one after the other.
+   * 
+   * @param rules the new rules, applied in order
+   * @return the generation of the new rules, see {@link #generation()}
+   */
+  public long reload(List<Rule> rules) {
+    if (rules == null || rules.stream().anyMatch(Objects::isNull)) {
+      throw new IllegalArgumentException("Rules cannot be null.");
+    }
+
+    synchronized (reloadLock) {
+      RuleSnapshot current = snapshot;
+      RuleSnapshot next = current.successor(rules).compileAll();
+      int warmed = cache == null ? 0 : warmCache(current, next);
+      snapshot = next;
+      if (cache != null) {
+        // Simulations still running on older rules can do without their entries, and any they add back age out
+        cache.removeGenerationsBefore(next.generation());
+      }
+      log().info("Reloaded {} rules as generation {}, warmed {} cache entries", rules.size(), next.generation(),
+          warmed);
+      return next.generation();
+    }
+  }
+
+  /**
+   * Simulates the deterministic prefix of the new chains for the inputs the
+   * cache holds for the current ones, least recently used first so that the
+   * hottest inputs are the last to be evicted.
+   * 
+   * @return the number of entries warmed
+   */
+  private int warmCache(RuleSnapshot current, RuleSnapshot next) {
+    int warmed = 0;
+    for (SimulationKey key : cache.keys()) {
+      CompiledRuleChain chain = next.chain(key.drugMask());
+      if (key.generation() != current.generation() || chain.deterministicPrefix() == 0) {
+        continue;
+      }
+      PatientCounts outcome = key.patientCounts();
+      // Deterministic steps draw nothing, and warming skips no invocation of a simulation
+      chain.run(outcome, Drug.fromMask(key.drugMask()), ThreadLocalRandom.current(), 0, chain.deterministicPrefix());
+      cache.put(key.withGeneration(next.generation()), outcome);
+      warmed++;
+    }
+    return warmed;
+  }
+
+  /**
+   * @return the rules of this engine, in order, as of the last reload
+   */
+  public List<Rule> rules() {
+    return snapshot.rules();
+  }
+
+  /**
+   * @return the number of times the rules of this engine were reloaded
+   */
+  public long generation() {
+    return snapshot.generation();
+  }
+
+  /**
+   * @return the current rule configuration, to resolve every chain of a
+   *         simulation from the same rules
+   */
+  RuleSnapshot snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * @return the registry of this engine's metrics, or {@code null} if it does
+   *         not record any
+   */
+  public SimulationMetrics metrics() {
+    return metrics;
   }
 
   /**
@@ -39,29 +208,529 @@ public class SimulatorEngine {
    * @param request the simulation request containing initial patients and drugs
    * @return SimulationResponse containing the final state of patients after
    *         applying all rules
+   * @see AsyncSimulator
    */
   public SimulationResponse simulate(SimulationRequest request) {
     validateRequest(request);
+    return simulateLogged(request, compiledChain(request.drugs()));
+  }
 
-    Map<HealthState, Integer> patientsByState = new EnumMap<>(request.initialPatients());
+  /**
+   * Simulates a validated request on an already compiled chain, logging its
+   * steps at debug level like {@link #simulate(SimulationRequest)}.
+   */
+  SimulationResponse simulateLogged(SimulationRequest request, CompiledRuleChain chain) {
+    PatientCounts patientCounts = PatientCounts.from(request.initialPatients());
     Set<Drug> drugs = request.drugs();
+    long seed = seedOf(request);
+    RandomGenerator random = new SplittableRandom(seed);
+
+    log().debug("Starting simulation with initial patients: {}, drugs: {} and seed: {}", patientCounts, drugs, seed);
+    apply(chain, patientCounts, drugs, random, log().isDebugEnabled());
+    log().debug("Simulation finished. Final patients state: {}", patientCounts);
+
+    return new SimulationResponse(patientCounts.toMap(), seed);
+  }
+
+  /**
+   * Simulates a batch of requests in parallel, using as many workers as the
+   * common fork/join pool.
+   * 
+   * @param requests the requests to simulate
+   * @return the responses, in the iteration order of {@code requests}
+   * @see #simulateAll(Collection, int)
+   */
+  public List<SimulationResponse> simulateAll(Collection<SimulationRequest> requests) {
+    return simulateAll(requests, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Simulates a batch of requests on a dedicated fork/join pool.
+   * 
+   * <p>
+   * Requests are grouped by drug set so that the compiled chain of each set is
+   * resolved once per group. Each response is identical to the one
+   * {@link #simulate(SimulationRequest)} returns for the same request and seed,
+   * whatever the parallelism. Unlike the single-request path, steps are not
+   * logged.
+   * 
+   * @param requests the requests to simulate
+   * @param parallelism the number of worker threads; {@code 1} or less runs the
+   *        batch sequentially on the calling thread
+   * @return the responses, in the iteration order of {@code requests}
+   */
+  public List<SimulationResponse> simulateAll(Collection<SimulationRequest> requests, int parallelism) {
+    BatchSimulation batch = new BatchSimulation(this, requests);
+    int groups = batch.group();
+    log().info("Simulating batch of {} requests in {} drug groups with parallelism {}",
+        requests.size(), groups, parallelism);
+    return batch.run(parallelism);
+  }
+
+  /**
+   * Lazily simulates a stream of requests. The returned stream is parallel,
+   * and keeps the encounter order, exactly when the given stream does. Since
+   * requests are not materialised, they are not grouped by drug set.
+   * 
+   * @param requests the requests to simulate
+   * @return the stream of responses
+   */
+  public Stream<SimulationResponse> simulateAll(Stream<SimulationRequest> requests) {
+    return requests.map(request -> {
+      validateRequest(request);
+      return simulate(request, compiledChain(request.drugs()));
+    });
+  }
+
+  /**
+   * Simulates a validated request on an already compiled chain, without logging.
+   */
+  SimulationResponse simulate(SimulationRequest request, CompiledRuleChain chain) {
+    PatientCounts patientCounts = PatientCounts.from(request.initialPatients());
+    long seed = seedOf(request);
+    apply(chain, patientCounts, request.drugs(), new SplittableRandom(seed), false);
+    return new SimulationResponse(patientCounts.toMap(), seed);
+  }
+
+  /**
+   * Simulates the given number of replicates of a request, using as many
+   * workers as the common fork/join pool.
+   * 
+   * @see #simulateEnsemble(SimulationRequest, long, int)
+   */
+  public EnsembleResponse simulateEnsemble(SimulationRequest request, long replicates) {
+    return simulateEnsemble(request, replicates, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Simulates replicates of a request and summarises the distribution of the
+   * final number of patients in each health state. Statistics are accumulated
+   * in a streaming fashion, so memory does not grow with the number of
+   * replicates. The response depends only on the request's seed and the number
+   * of replicates, not on the parallelism.
+   * 
+   * @param request the request to replicate
+   * @param replicates the number of replicates
+   * @param parallelism the number of worker threads
+   * @return the statistics of the replicates
+   */
+  public EnsembleResponse simulateEnsemble(SimulationRequest request, long replicates, int parallelism) {
+    validateRequest(request);
+    validateReplicates(replicates);
+
+    EnsembleSimulation ensemble = newEnsemble(request);
+    log().info("Simulating ensemble of {} replicates of {} with parallelism {}", replicates, request, parallelism);
+    return ensemble.run(replicates, parallelism);
+  }
+
+  /**
+   * Simulates replicates of a request until the confidence interval of the
+   * mean of every health state is narrow enough, using as many workers as the
+   * common fork/join pool.
+   * 
+   * @see #simulateEnsemble(SimulationRequest, double, double, long, int)
+   */
+  public EnsembleResponse simulateEnsemble(SimulationRequest request, double halfWidth, double confidence,
+      long maxReplicates) {
+    return simulateEnsemble(request, halfWidth, confidence, maxReplicates, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Simulates replicates of a request until, for every health state, the
+   * normal confidence interval of the mean number of patients is within
+   * {@code halfWidth} of the mean, or until {@code maxReplicates} replicates
+   * have run. Replicates run in chunks of
+   * {@value EnsembleSimulation#CHUNK_SIZE}, and the criterion is checked after
+   * each chunk.
+   * 
+   * @param request the request to replicate
+   * @param halfWidth the target half-width of the confidence intervals, in
+   *        patients
+   * @param confidence the confidence level, e.g. {@code 0.95}
+   * @param maxReplicates the largest number of replicates to run
+   * @param parallelism the number of worker threads
+   * @return the statistics of the replicates
+   */
+  public EnsembleResponse simulateEnsemble(SimulationRequest request, double halfWidth, double confidence,
+      long maxReplicates, int parallelism) {
+    validateRequest(request);
+    validateReplicates(maxReplicates);
+    if (!(halfWidth > 0)) {
+      throw new IllegalArgumentException("Confidence interval half-width must be positive.");
+    }
+    if (!(confidence > 0 && confidence < 1)) {
+      throw new IllegalArgumentException("Confidence level must be between 0 and 1.");
+    }
+
+    EnsembleSimulation ensemble = newEnsemble(request);
+    log().info("Simulating ensemble of {} with half-width {} at confidence {}, up to {} replicates",
+        request, halfWidth, confidence, maxReplicates);
+    return ensemble.runUntil(halfWidth, confidence, maxReplicates, parallelism);
+  }
+
+  EnsembleSimulation newEnsemble(SimulationRequest request) {
+    return new EnsembleSimulation(compiledChain(request.drugs()), PatientCounts.from(request.initialPatients()),
+        request.drugs(), seedOf(request));
+  }
+
+  /**
+   * Computes the exact distribution of the outcomes of a simulation, leaving
+   * out binomial terms below {@value #DEFAULT_TAIL} times their mode's
+   * probability.
+   * 
+   * @see #distribution(PatientCounts, Set, double)
+   */
+  public OutcomeDistribution distribution(PatientCounts patientCounts, Set<Drug> drugs) {
+    return distribution(patientCounts, drugs, DEFAULT_TAIL);
+  }
+
+  /**
+   * Computes the exact distribution of the final number of patients in each
+   * health state, rather than sampling it with replicates. Rules propagate
+   * distributions instead of counts: deterministic rules map every possible
+   * outcome, and {@link BinomialRule binomial rules} split them along their
+   * binomial distribution. Means, variances and tail probabilities are then
+   * exact, up to the binomial terms left out and floating-point rounding.
+   * 
+   * <p>
+   * With {@code FlyingSpaghettiMonsterRule} as the only stochastic rule, this
+   * takes microseconds up to millions of dead patients, where an ensemble
+   * would need millions of replicates to estimate a small tail probability.
+   * 
+   * @param patientCounts the initial patients, left unchanged
+   * @param drugs the drugs administered
+   * @param tail the ratio to the mode's probability below which binomial terms
+   *        are left out, {@code 0} to keep every term that does not underflow
+   * @return the distribution of the final patients
+   * @throws IllegalArgumentException if a stochastic rule applied is not a
+   *         {@link BinomialRule}, or if the distribution has too many outcomes
+   */
+  public OutcomeDistribution distribution(PatientCounts patientCounts, Set<Drug> drugs, double tail) {
+    RuleValidationUtils.validateRulePreconditions(patientCounts, drugs);
+    if (!(tail >= 0 && tail < 1)) {
+      throw new IllegalArgumentException("Tail ratio must be in [0, 1): " + tail);
+    }
+
+    return new ExactSimulation(compiledChain(drugs), drugs, tail).run(patientCounts);
+  }
+
+  /**
+   * Performs the simulation directly on primitive patient counts, updating them
+   * in place. Nothing is logged and, as long as every rule is an
+   * {@link com.hospital.rule.InPlaceRule}, nothing is allocated.
+   * 
+   * @param patientCounts the initial patients, replaced by the final state
+   * @param drugs the drugs administered
+   * @return the given {@code patientCounts}, for chaining
+   */
+  public PatientCounts simulate(PatientCounts patientCounts, Set<Drug> drugs) {
+    return simulate(patientCounts, drugs, ThreadLocalRandom.current());
+  }
+
+  /**
+   * Same as {@link #simulate(PatientCounts, Set)}, drawing randomness from the
+   * given stream. Use {@link RandomStreams} to derive independent, reproducible
+   * streams for replicates or worker threads.
+   * 
+   * @param patientCounts the initial patients, replaced by the final state
+   * @param drugs the drugs administered
+   * @param random the random stream of this simulation
+   * @return the given {@code patientCounts}, for chaining
+   */
+  public PatientCounts simulate(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+    RuleValidationUtils.validateRulePreconditions(patientCounts, drugs);
+
+    apply(compiledChain(drugs), patientCounts, drugs, random, false);
+    return patientCounts;
+  }
+
+  /**
+   * Applies the chain, logging every step if {@code logged}, which costs more
+   * than the simulation itself.
+   */
+  private void apply(CompiledRuleChain chain, PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random,
+      boolean logged) {
+    if (FlightRecording.isRunning()) {
+      applyRecorded(chain, patientCounts, drugs, random, logged);
+    } else {
+      applyChain(chain, patientCounts, drugs, random, logged);
+    }
+  }
+
+  private void applyRecorded(CompiledRuleChain chain, PatientCounts patientCounts, Set<Drug> drugs,
+      RandomGenerator random, boolean logged) {
+    // Unless the event is enabled it is never used, so the JIT compiler removes its allocation
+    SimulationEvent event = new SimulationEvent();
+    if (!event.isEnabled()) {
+      applyChain(chain, patientCounts, drugs, random, logged);
+      return;
+    }
+    event.begin();
+    applyChain(chain, patientCounts, drugs, random, logged);
+    event.end();
+    if (event.shouldCommit()) {
+      event.drugs = codes(drugs);
+      event.patients = patientCounts.total();
+      event.commit();
+    }
+  }
+
+  private void applyChain(CompiledRuleChain chain, PatientCounts patientCounts, Set<Drug> drugs,
+      RandomGenerator random, boolean logged) {
+    if (logged) {
+      applyLogged(chain, patientCounts, drugs, random);
+      return;
+    }
+    if (!chain.isMeasured()) {
+      int cachedSteps = applyCachedPrefix(chain, patientCounts, drugs, random);
+      chain.apply(patientCounts, drugs, random, cachedSteps, chain.size());
+      return;
+    }
+    long start = System.nanoTime();
+    int cachedSteps = applyCachedPrefix(chain, patientCounts, drugs, random);
+    // The cached steps were measured on a miss, and not applied on a hit
+    long resume = cachedSteps > 0 ? System.nanoTime() : start;
+    long end = chain.runMeasured(patientCounts, drugs, random, cachedSteps, chain.size(), resume);
+    metrics.recordSimulation(end - start);
+  }
+
+  private void applyLogged(CompiledRuleChain chain, PatientCounts patientCounts, Set<Drug> drugs,
+      RandomGenerator random) {
+    long start = System.nanoTime();
+    int cachedSteps = applyCachedPrefix(chain, patientCounts, drugs, random);
+    if (cachedSteps > 0) {
+      log().debug("Applied first {} deterministic steps through cache", cachedSteps);
+    }
+    int nonEmptyStates = patientCounts.nonEmptyStates();
+    int skipped = chain.elidedRules();
+    for (int i = cachedSteps; i < chain.size(); i++) {
+      CompiledRuleChain.Step step = chain.step(i);
+      if (!step.canChange(nonEmptyStates)) {
+        log().debug("Skipping step without patients to change: {}", step);
+        skipped += step.ruleCount();
+        continue;
+      }
+      log().debug("Applying step: {}", step);
+      chain.applyStep(i, patientCounts, drugs, random);
+      nonEmptyStates |= step.writtenStates();
+      log().debug("State after {}: {}", step, patientCounts);
+    }
+    chain.recordSkipped(skipped);
+    recordSimulation(start);
+  }
+
+  private static String codes(Set<Drug> drugs) {
+    return drugs.stream().map(Drug::getCode).sorted().collect(Collectors.joining(","));
+  }
+
+  private void recordSimulation(long start) {
+    if (metrics != null) {
+      metrics.recordSimulation(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Applies the deterministic prefix of the chain through the cache, if this
+   * engine has one. On a miss the prefix steps are measured like any other
+   * step; on a hit no step runs, so none is measured.
+   * 
+   * @return the number of steps applied
+   */
+  private int applyCachedPrefix(CompiledRuleChain chain, PatientCounts patientCounts, Set<Drug> drugs,
+      RandomGenerator random) {
+    int prefix = chain.deterministicPrefix();
+    if (cache == null || prefix == 0) {
+      return 0;
+    }
+    SimulationKey key = SimulationKey.of(patientCounts, Drug.toMask(drugs), chain.generation());
+    if (!cache.get(key, patientCounts)) {
+      if (chain.isMeasured()) {
+        chain.runMeasured(patientCounts, drugs, random, 0, prefix, System.nanoTime());
+      } else {
+        chain.apply(patientCounts, drugs, random, 0, prefix);
+      }
+      cache.put(key, patientCounts);
+    }
+    return prefix;
+  }
+
+  /**
+   * Simulates every patient of a population individually, using as many
+   * workers as the common fork/join pool.
+   * 
+   * @see #simulate(PatientPopulation, Set, long, int)
+   */
+  public PatientPopulation simulate(PatientPopulation population, Set<Drug> drugs, long seed) {
+    return simulate(population, drugs, seed, ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * Simulates every patient of a population individually, updating their
+   * states in place. Consecutive linear rules are applied as one lookup per
+   * patient, so for deterministic rules the states counted afterwards are
+   * exactly the counts {@link #simulate(PatientCounts, Set)} returns. The
+   * population is processed in chunks, each with its own random stream derived
+   * from {@code seed}, so the outcome does not depend on the parallelism.
+   * 
+   * @param population the patients, replaced by their final states
+   * @param drugs the drugs administered
+   * @param seed the master seed of the random streams
+   * @param parallelism the number of worker threads
+   * @return the given {@code population}, for chaining
+   * @throws IllegalArgumentException if a rule cannot be applied to individual
+   *         patients: a non-linear rule must implement {@link PatientRule}
+   */
+  public PatientPopulation simulate(PatientPopulation population, Set<Drug> drugs, long seed, int parallelism) {
+    if (population == null) {
+      throw new IllegalArgumentException("Patient population cannot be null.");
+    }
+    if (drugs == null) {
+      throw new IllegalArgumentException("Information about drugs cannot be null.");
+    }
 
-    log.info("Starting simulation with initial patients: {} and drugs: {}", patientsByState, drugs);
+    new AgentSimulation(compiledChain(drugs), drugs, seed).run(population, parallelism);
+    return population;
+  }
 
-    for (Rule rule : rules) {
-      log.info("Applying rule: {}", rule.getClass().getSimpleName());
-      patientsByState = rule.apply(patientsByState, drugs);
-      log.debug("State after {}: {}", rule.getClass().getSimpleName(), patientsByState);
+  /**
+   * Simulates every patient of a memory-mapped population, step by step,
+   * until it has completed the given number of steps. The population is
+   * checkpointed after each step, and a step never modifies the states of the
+   * last checkpoint, so a population reopened after an interruption, even in
+   * the middle of a step, resumes from its last completed step, with the same outcome
+   * as an uninterrupted run: the random streams of each step are derived from
+   * the population's seed and the step number.
+   * 
+   * @param population the patients, replaced by their states after the last
+   *        step
+   * @param schedule the drugs administered at each step
+   * @param steps the total number of steps, including those the population
+   *        already completed
+   * @param parallelism the number of worker threads
+   * @return the given {@code population}, for chaining
+   * @throws IllegalArgumentException if a rule cannot be applied to individual
+   *         patients: a non-linear rule must implement {@link PatientRule}
+   */
+  public MappedPopulation simulateSteps(MappedPopulation population, DrugSchedule schedule, long steps,
+      int parallelism) {
+    if (population == null) {
+      throw new IllegalArgumentException("Patient population cannot be null.");
+    }
+    if (schedule == null) {
+      throw new IllegalArgumentException("Drug schedule cannot be null.");
+    }
+    if (steps < 0) {
+      throw new IllegalArgumentException("Number of steps cannot be negative: " + steps);
     }
 
-    log.info("Simulation finished. Final patients state: {}", patientsByState);
-    
-    return new SimulationResponse(patientsByState);
+    log().info("Simulating {} patients from step {} to step {} with parallelism {}",
+        population.size(), population.completedSteps(), steps, parallelism);
+    RuleSnapshot rules = snapshot;
+    for (long step = population.completedSteps(); step < steps; step++) {
+      AgentSimulation simulation = new AgentSimulation(rules.chain(schedule.maskAt(step)),
+          schedule.drugsAt(step), RandomStreams.stream(population.seed(), step).nextLong());
+      population.beginStep();
+      simulation.run(population, parallelism);
+      population.checkpoint();
+      log().debug("Checkpointed step {}", step);
+    }
+    return population;
   }
 
-  private void validateRequest(SimulationRequest request) {
+  /**
+   * Iterates the simulation for the given number of steps, drawing randomness
+   * from a thread-local generator.
+   * 
+   * @see #simulateSteps(PatientCounts, DrugSchedule, long, StepSink, RandomGenerator)
+   */
+  public PatientCounts simulateSteps(PatientCounts patientCounts, DrugSchedule schedule, long steps,
+      StepSink sink) {
+    return simulateSteps(patientCounts, schedule, steps, sink, ThreadLocalRandom.current());
+  }
+
+  /**
+   * Iterates the simulation for the given number of steps, administering at
+   * each step the drugs of the schedule, and reports the patients after each
+   * step to the sink. Nothing is logged.
+   * 
+   * <p>
+   * Steps whose compiled chain is deterministic are fast-forwarded: once the
+   * patients stop changing the remaining steps of the run are skipped, and
+   * otherwise the run is applied at once with a matrix power. A horizon of
+   * {@code T} deterministic steps therefore costs {@code O(log T)}, and the
+   * sink receives a single {@link StepSink#onSteadyState} or
+   * {@link StepSink#onFastForward} call for the skipped steps.
+   * 
+   * @param patientCounts the initial patients, replaced by the final state
+   * @param schedule the drugs administered at each step
+   * @param steps the number of steps to simulate
+   * @param sink receives the patients as the simulation progresses
+   * @param random the random stream of this simulation
+   * @return the given {@code patientCounts}, for chaining
+   */
+  public PatientCounts simulateSteps(PatientCounts patientCounts, DrugSchedule schedule, long steps,
+      StepSink sink, RandomGenerator random) {
+    if (schedule == null) {
+      throw new IllegalArgumentException("Drug schedule cannot be null.");
+    }
+    if (steps < 0) {
+      throw new IllegalArgumentException("Number of steps cannot be negative: " + steps);
+    }
+    RuleValidationUtils.validateRulePreconditions(patientCounts, schedule.drugsAt(0));
+
+    new TimeSteppingSimulation(snapshot, schedule, sink, random).run(patientCounts, steps);
+    return patientCounts;
+  }
+
+  /**
+   * Returns the number of rule invocations that were avoided because the rule
+   * could not change anything: either none of its trigger drugs was
+   * administered, or none of the health states it reads had patients.
+   * Per-patient simulations are not counted.
+   * 
+   * Invocations skipped by simulations that were still running on replaced
+   * rules when they were reloaded are not counted.
+   * 
+   * @return the number of skipped rule invocations since the engine was created
+   */
+  public long skippedRuleInvocations() {
+    return snapshot.skippedInvocations();
+  }
+
+  /**
+   * Returns the chain compiled from the current rules for the given drugs,
+   * compiling it on first use.
+   */
+  CompiledRuleChain compiledChain(Set<Drug> drugs) {
+    return snapshot.chain(Drug.toMask(drugs));
+  }
+
+  private static long seedOf(SimulationRequest request) {
+    return request.seed() != null ? request.seed() : RandomStreams.newSeed();
+  }
+
+  static void validateReplicates(long replicates) {
+    if (replicates < 1) {
+      throw new IllegalArgumentException("Number of replicates must be positive.");
+    }
+  }
+
+  void validateRequest(SimulationRequest request) {
     if (request == null) {
       throw new IllegalArgumentException("Simulation request cannot be null.");
     }
   }
+
+  /**
+   * Initializing the logging backend takes longer than a command-line
+   * simulation, which never logs, so it waits for the first log statement.
+   */
+  private static Logger log() {
+    return LazyLogger.LOG;
+  }
+
+  private static final class LazyLogger {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimulatorEngine.class);
+  }
 }
@@ -0,0 +1,51 @@
+package com.hospital.service;
+
+import com.hospital.domain.PatientCounts;
+
+/**
+ * Receives the patients of a multi-step simulation as it progresses.
+ * 
+ * <p>
+ * Steps are numbered from {@code 0} and reported in order. Spans of steps
+ * that the engine skips instead of simulating one by one are reported with a
+ * single call, which is what keeps long horizons cheap; sinks that need every
+ * step can expand them. The given {@link PatientCounts} is the live state of
+ * the simulation: read it during the call and copy it to keep it.
+ */
+public interface StepSink {
+
+  /** A sink ignoring every step, for callers only interested in the final state. */
+  StepSink NONE = (step, patients) -> {
+  };
+
+  /**
+   * @param step the step just simulated
+   * @param patients the patients after that step
+   */
+  void onStep(long step, PatientCounts patients);
+
+  /**
+   * Reports steps skipped because the patients reached a fixed point: after
+   * every step of the span, the patients are exactly the given ones. Ignored by
+   * default.
+   * 
+   * @param fromStep the first skipped step
+   * @param toStep the step after the last skipped step
+   * @param patients the patients after every skipped step
+   */
+  default void onSteadyState(long fromStep, long toStep, PatientCounts patients) {
+    // Intermediate steps are not needed by default
+  }
+
+  /**
+   * Reports steps applied at once by raising their transition matrix to a
+   * power. Ignored by default.
+   * 
+   * @param fromStep the first skipped step
+   * @param toStep the step after the last skipped step
+   * @param patients the patients after step {@code toStep - 1}
+   */
+  default void onFastForward(long fromStep, long toStep, PatientCounts patients) {
+    // Intermediate steps are not needed by default
+  }
+}
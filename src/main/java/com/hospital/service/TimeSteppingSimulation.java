@@ -0,0 +1,100 @@
+package com.hospital.service;
+
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.DrugSchedule;
+import com.hospital.domain.PatientCounts;
+import com.hospital.domain.TransitionMatrix;
+
+/**
+ * Iterates the rule chain over many steps, following a drug schedule.
+ * 
+ * <p>
+ * The schedule is walked run by run, a run being consecutive steps with the
+ * same drugs. Runs whose compiled chain is a single matrix are not looped
+ * over: after simulating their first step, the remaining steps are skipped if
+ * the patients have reached a fixed point of the matrix, and otherwise applied
+ * at once with a matrix power. Whole periods of a cyclic schedule are skipped the same way when
+ * every step of the period is linear. A horizon of {@code T} steps thus costs
+ * {@code O(log T)} matrix products per run. Runs with a stochastic rule are
+ * simulated step by step. Every step runs on the rules of the same
+ * {@link RuleSnapshot}, even if the engine's rules are reloaded meanwhile.
+ */
+final class TimeSteppingSimulation {
+
+  private final RuleSnapshot rules;
+  private final DrugSchedule schedule;
+  private final StepSink sink;
+  private final RandomGenerator random;
+  private final PatientCounts next = new PatientCounts();
+  private TransitionMatrix periodMatrix;
+  private boolean periodResolved;
+
+  TimeSteppingSimulation(RuleSnapshot rules, DrugSchedule schedule, StepSink sink, RandomGenerator random) {
+    this.rules = rules;
+    this.schedule = schedule;
+    this.sink = sink;
+    this.random = random;
+  }
+
+  void run(PatientCounts patients, long steps) {
+    int period = schedule.period();
+    long step = 0;
+    while (step < steps) {
+      if (period > 0 && step % period == 0 && steps - step >= 2L * period && periodMatrix() != null) {
+        long periods = (steps - step) / period;
+        periodMatrix.power(periods).applyTo(patients);
+        sink.onFastForward(step, step + periods * period, patients);
+        step += periods * period;
+        continue;
+      }
+
+      int mask = schedule.maskAt(step);
+      long end = Math.min(steps, schedule.runEnd(step));
+      CompiledRuleChain chain = rules.chain(mask);
+      TransitionMatrix matrix = chain.matrix();
+      if (matrix == null) {
+        Set<Drug> drugs = Drug.fromMask(mask);
+        for (; step < end; step++) {
+          chain.apply(patients, drugs, random);
+          sink.onStep(step, patients);
+        }
+        continue;
+      }
+
+      matrix.applyTo(patients);
+      sink.onStep(step++, patients);
+      if (step < end) {
+        // One more step that changes nothing means every later step of the run changes nothing
+        next.copyFrom(patients);
+        matrix.applyTo(next);
+        if (next.equals(patients)) {
+          sink.onSteadyState(step, end, patients);
+        } else {
+          matrix.power(end - step).applyTo(patients);
+          sink.onFastForward(step, end, patients);
+        }
+        step = end;
+      }
+    }
+  }
+
+  /**
+   * @return the product of the matrices of one period of the schedule, or
+   *         {@code null} if a step of the period is not linear
+   */
+  private TransitionMatrix periodMatrix() {
+    if (!periodResolved) {
+      TransitionMatrix product = TransitionMatrix.identity();
+      for (int step = 0; step < schedule.period() && product != null; step++) {
+        TransitionMatrix matrix = rules.chain(schedule.maskAt(step)).matrix();
+        product = matrix == null ? null : product.then(matrix);
+      }
+      periodMatrix = product;
+      periodResolved = true;
+    }
+    return periodMatrix;
+  }
+}
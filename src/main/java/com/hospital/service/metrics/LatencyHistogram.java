@@ -0,0 +1,125 @@
+package com.hospital.service.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent, fixed-precision histogram of durations in nanoseconds.
+ *
+ * <p>
+ * Buckets follow the same log-linear layout as
+ * {@link com.hospital.service.stats.QuantileSketch}, with coarser precision:
+ * durations below {@code 64} ns get a bucket each, and every larger
+ * power-of-two range is split into {@code 32} equal buckets, so a reported
+ * quantile is within {@code 1/64} of the true value, relatively. All buckets
+ * are allocated upfront, about 15 KB, and recording is an atomic increment
+ * of the bucket plus an add to the total, without locks or allocation. Bucket
+ * counts are atomics shared by every thread, so threads recording similar
+ * durations at once contend on their bucket. The total, which every recording
+ * updates, is a {@link LongAdder} that spreads contended adds over cells.
+ * Quantiles are read from a {@link #snapshot() snapshot}, which may miss
+ * recordings that happen while it is taken.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int EXACT_VALUES = 2 * SUB_BUCKETS;
+  private static final int BUCKETS = bucketIndex(Long.MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder totalNanos = new LongAdder();
+
+  /**
+   * @param nanos the duration to record; negative durations, which a
+   *        non-monotonic clock could produce, are recorded as zero
+   */
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    counts.getAndIncrement(bucketIndex(value));
+    totalNanos.add(value);
+  }
+
+  public Snapshot snapshot() {
+    long[] copy = new long[BUCKETS];
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+    return new Snapshot(copy, count, totalNanos.sum());
+  }
+
+  static int bucketIndex(long value) {
+    if (value < EXACT_VALUES) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return EXACT_VALUES + (shift - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the middle of the values sharing a bucket. */
+  static long bucketValue(int index) {
+    if (index < EXACT_VALUES) {
+      return index;
+    }
+    int shift = (index - EXACT_VALUES) / SUB_BUCKETS + 1;
+    long lowest = (long) (SUB_BUCKETS + (index - EXACT_VALUES) % SUB_BUCKETS) << shift;
+    return lowest + ((1L << shift) - 1) / 2;
+  }
+
+  /**
+   * Point-in-time copy of a histogram.
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long totalNanos;
+
+    private Snapshot(long[] counts, long count, long totalNanos) {
+      this.counts = counts;
+      this.count = count;
+      this.totalNanos = totalNanos;
+    }
+
+    public long count() {
+      return count;
+    }
+
+    public long totalNanos() {
+      return totalNanos;
+    }
+
+    public double meanNanos() {
+      return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Estimates the smallest recorded duration that is greater than or equal
+     * to a fraction {@code q} of the recorded durations.
+     *
+     * @param q the quantile, in {@code [0, 1]}
+     * @return the estimated quantile in nanoseconds, or {@code 0} when nothing
+     *         was recorded
+     */
+    public long quantileNanos(double q) {
+      if (!(q >= 0 && q <= 1)) {
+        throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+      }
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(q * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return bucketValue(i);
+        }
+      }
+      throw new IllegalStateException("Histogram counts do not add up to " + count + ".");
+    }
+  }
+}
@@ -0,0 +1,267 @@
+package com.hospital.service.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.random.RandomGenerator;
+
+import com.hospital.rule.BinomialSampler;
+
+/**
+ * Registry of the metrics of a {@link com.hospital.service.SimulatorEngine}.
+ *
+ * <p>
+ * The engine records the number of simulations, the duration of each, and
+ * for every rule the duration of its invocations and the number of patients
+ * it moved. Rules that the engine folds into a single transition matrix run
+ * as one step, so they are measured together under their joined names, such
+ * as {@code AspirinRule+InsulinRule}. Binomial samplers wrapped with
+ * {@link #countingSampler(BinomialSampler)} count their calls. Counters are
+ * {@link LongAdder}s and durations go to {@link LatencyHistogram}s, so
+ * recording takes a few nanoseconds, on top of reading the clock, and never
+ * blocks. Threads recording similar durations at once still share the
+ * atomic count of their histogram bucket.
+ *
+ * <p>
+ * Metrics can be read programmatically or as a Prometheus text exposition,
+ * see {@link #toPrometheus()}.
+ */
+public final class SimulationMetrics {
+
+  private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final LongAdder simulations = new LongAdder();
+  private final LatencyHistogram simulationLatency = new LatencyHistogram();
+  private final Map<String, RuleMetrics> rules = new ConcurrentHashMap<>();
+  private final LongAdder samplerCalls = new LongAdder();
+  private final LongAdder coalescerRequests = new LongAdder();
+  private final LongAdder coalescedRequests = new LongAdder();
+
+  /**
+   * Records a completed simulation.
+   *
+   * @param nanos the duration of the simulation
+   */
+  public void recordSimulation(long nanos) {
+    simulations.increment();
+    simulationLatency.record(nanos);
+  }
+
+  /**
+   * Records a request received by a
+   * {@link com.hospital.service.CoalescingSimulator}.
+   *
+   * @param coalesced whether the request shared a simulation in flight
+   */
+  public void recordCoalescing(boolean coalesced) {
+    coalescerRequests.increment();
+    if (coalesced) {
+      coalescedRequests.increment();
+    }
+  }
+
+  /**
+   * Returns the metrics of the given rule, or group of rules applied as one
+   * step, registering them on first use. Callers on the hot path should keep
+   * the returned instance rather than look it up every time.
+   *
+   * @param name the name of the rule
+   * @return the metrics of the rule
+   */
+  public RuleMetrics rule(String name) {
+    return rules.computeIfAbsent(name, key -> new RuleMetrics());
+  }
+
+  /**
+   * Wraps a sampler so that its calls are counted by this registry.
+   *
+   * @param sampler the sampler to wrap
+   * @return a sampler drawing from {@code sampler}
+   */
+  public BinomialSampler countingSampler(BinomialSampler sampler) {
+    return new CountingSampler(sampler, samplerCalls);
+  }
+
+  public long simulations() {
+    return simulations.sum();
+  }
+
+  public LatencyHistogram.Snapshot simulationLatency() {
+    return simulationLatency.snapshot();
+  }
+
+  /**
+   * @return the metrics of every rule that ran, by name
+   */
+  public Map<String, RuleMetrics> rules() {
+    return Collections.unmodifiableMap(new TreeMap<>(rules));
+  }
+
+  public long samplerCalls() {
+    return samplerCalls.sum();
+  }
+
+  public long coalescerRequests() {
+    return coalescerRequests.sum();
+  }
+
+  public long coalescedRequests() {
+    return coalescedRequests.sum();
+  }
+
+  /**
+   * Formats the metrics in the Prometheus text exposition format. Durations
+   * are summaries in seconds, with the quantiles {@code 0.5}, {@code 0.9},
+   * {@code 0.99} and {@code 0.999}.
+   *
+   * @return the metrics, one sample per line
+   */
+  public String toPrometheus() {
+    StringBuilder text = new StringBuilder();
+    counter(text, "hospital_simulations_total", "Simulations run by the engine.");
+    sample(text, "hospital_simulations_total", "", simulations.sum());
+
+    summary(text, "hospital_simulation_duration_seconds", "Duration of simulations.");
+    quantiles(text, "hospital_simulation_duration_seconds", "", simulationLatency.snapshot());
+
+    counter(text, "hospital_coalescer_requests_total", "Requests received by coalescing simulators.");
+    sample(text, "hospital_coalescer_requests_total", "", coalescerRequests.sum());
+    counter(text, "hospital_coalesced_requests_total", "Requests that shared a simulation in flight.");
+    sample(text, "hospital_coalesced_requests_total", "", coalescedRequests.sum());
+
+    Map<String, RuleMetrics> sortedRules = rules();
+    summary(text, "hospital_rule_duration_seconds", "Duration of rule invocations.");
+    for (Map.Entry<String, RuleMetrics> rule : sortedRules.entrySet()) {
+      quantiles(text, "hospital_rule_duration_seconds", label(rule.getKey()), rule.getValue().latency());
+    }
+
+    counter(text, "hospital_rule_transitions_total", "Patients whose health state a rule changed.");
+    for (Map.Entry<String, RuleMetrics> rule : sortedRules.entrySet()) {
+      sample(text, "hospital_rule_transitions_total", "{" + label(rule.getKey()) + "}",
+          rule.getValue().transitions());
+    }
+
+    counter(text, "hospital_sampler_calls_total", "Calls to binomial samplers.");
+    sample(text, "hospital_sampler_calls_total", "", samplerCalls.sum());
+    return text.toString();
+  }
+
+  /**
+   * Writes the Prometheus text exposition to a file, for instance for the
+   * text file collector of a node exporter. The file is replaced atomically,
+   * so a scraper never reads it half written.
+   *
+   * @param file the file to write
+   * @throws UncheckedIOException if the file cannot be written
+   */
+  public void writePrometheus(Path file) {
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try {
+      Files.writeString(temporary, toPrometheus(), StandardCharsets.UTF_8);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot write metrics to " + file, e);
+    }
+  }
+
+  private static void counter(StringBuilder text, String name, String help) {
+    header(text, name, help, "counter");
+  }
+
+  private static void summary(StringBuilder text, String name, String help) {
+    header(text, name, help, "summary");
+  }
+
+  private static void header(StringBuilder text, String name, String help, String type) {
+    text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void quantiles(StringBuilder text, String name, String labels,
+      LatencyHistogram.Snapshot snapshot) {
+    String separator = labels.isEmpty() ? "" : ",";
+    for (double quantile : QUANTILES) {
+      sample(text, name, "{" + labels + separator + "quantile=\"" + quantile + "\"}",
+          snapshot.quantileNanos(quantile) / NANOS_PER_SECOND);
+    }
+    String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+    sample(text, name + "_sum", suffix, snapshot.totalNanos() / NANOS_PER_SECOND);
+    sample(text, name + "_count", suffix, snapshot.count());
+  }
+
+  private static void sample(StringBuilder text, String name, String labels, Object value) {
+    text.append(name).append(labels).append(' ').append(value).append('\n');
+  }
+
+  private static String label(String rule) {
+    return "rule=\"" + rule.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  /**
+   * Metrics of a rule, or of a group of rules applied as one step.
+   */
+  public static final class RuleMetrics {
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder transitions = new LongAdder();
+
+    private RuleMetrics() {
+      // Created by the registry only
+    }
+
+    /**
+     * Records an invocation of the rule.
+     *
+     * @param nanos the duration of the invocation
+     * @param transitions the net number of patients whose health state changed
+     */
+    public void record(long nanos, long transitions) {
+      latency.record(nanos);
+      if (transitions != 0) {
+        this.transitions.add(transitions);
+      }
+    }
+
+    public long invocations() {
+      return latency.snapshot().count();
+    }
+
+    public LatencyHistogram.Snapshot latency() {
+      return latency.snapshot();
+    }
+
+    public long transitions() {
+      return transitions.sum();
+    }
+  }
+
+  private record CountingSampler(BinomialSampler sampler, LongAdder calls) implements BinomialSampler {
+
+    @Override
+    public int sample(int trials, double probability) {
+      calls.increment();
+      return sampler.sample(trials, probability);
+    }
+
+    @Override
+    public long sample(long trials, double probability) {
+      calls.increment();
+      return sampler.sample(trials, probability);
+    }
+
+    @Override
+    public long sample(long trials, double probability, RandomGenerator random) {
+      calls.increment();
+      return sampler.sample(trials, probability, random);
+    }
+  }
+}
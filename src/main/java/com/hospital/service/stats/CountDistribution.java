@@ -0,0 +1,155 @@
+package com.hospital.service.stats;
+
+import java.util.Arrays;
+
+/**
+ * Probability mass function of a number of patients, over the counts that
+ * have a non-negligible probability.
+ *
+ * <p>
+ * Moments are computed relative to the smallest count, so that populations of
+ * billions of patients keep the precision of their spread. Tail probabilities
+ * are summed from the far end of each tail, which keeps tiny tails accurate,
+ * and looked up in {@code O(log n)}. Instances are immutable.
+ */
+public final class CountDistribution {
+
+  private final long[] counts;
+  private final double[] probabilities;
+  private final double[] upperTails;
+  private final double[] lowerTails;
+  private final double mean;
+  private final double variance;
+
+  private CountDistribution(long[] counts, double[] probabilities) {
+    this.counts = counts;
+    this.probabilities = probabilities;
+    int size = counts.length;
+    this.upperTails = new double[size];
+    this.lowerTails = new double[size];
+    double sum = 0;
+    for (int i = size - 1; i >= 0; i--) {
+      sum += probabilities[i];
+      upperTails[i] = sum;
+    }
+    sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += probabilities[i];
+      lowerTails[i] = sum;
+    }
+
+    double offset = 0;
+    for (int i = 0; i < size; i++) {
+      offset += probabilities[i] * (counts[i] - counts[0]);
+    }
+    double squaredDeviations = 0;
+    for (int i = 0; i < size; i++) {
+      double deviation = (counts[i] - counts[0]) - offset;
+      squaredDeviations += probabilities[i] * deviation * deviation;
+    }
+    this.mean = counts[0] + offset;
+    this.variance = squaredDeviations;
+  }
+
+  /**
+   * @param counts the numbers of patients, in strictly increasing order
+   * @param probabilities the probability of each number of patients
+   * @return the distribution, which keeps the given arrays
+   * @throws IllegalArgumentException if the arrays are empty, of different
+   *         lengths, or the counts are not increasing
+   */
+  public static CountDistribution of(long[] counts, double[] probabilities) {
+    if (counts.length == 0 || counts.length != probabilities.length) {
+      throw new IllegalArgumentException("Expected as many probabilities as counts, at least one.");
+    }
+    for (int i = 1; i < counts.length; i++) {
+      if (counts[i] <= counts[i - 1]) {
+        throw new IllegalArgumentException("Counts must be strictly increasing.");
+      }
+    }
+    return new CountDistribution(counts, probabilities);
+  }
+
+  /**
+   * @param count a number of patients
+   * @return the distribution of that number with probability one
+   */
+  public static CountDistribution certain(long count) {
+    return new CountDistribution(new long[] { count }, new double[] { 1 });
+  }
+
+  public double mean() {
+    return mean;
+  }
+
+  public double variance() {
+    return variance;
+  }
+
+  /**
+   * @return the smallest number of patients with a non-negligible probability
+   */
+  public long min() {
+    return counts[0];
+  }
+
+  /**
+   * @return the largest number of patients with a non-negligible probability
+   */
+  public long max() {
+    return counts[counts.length - 1];
+  }
+
+  /**
+   * @return the number of distinct numbers of patients
+   */
+  public int size() {
+    return counts.length;
+  }
+
+  /**
+   * @param index the index of a number of patients, in increasing order
+   * @return that number of patients
+   */
+  public long count(int index) {
+    return counts[index];
+  }
+
+  /**
+   * @param count a number of patients
+   * @return the probability of exactly that number
+   */
+  public double probability(long count) {
+    int index = Arrays.binarySearch(counts, count);
+    return index < 0 ? 0 : probabilities[index];
+  }
+
+  /**
+   * @param count a number of patients
+   * @return the probability of at least that number
+   */
+  public double probabilityAtLeast(long count) {
+    int index = Arrays.binarySearch(counts, count);
+    if (index < 0) {
+      index = -index - 1;
+    }
+    return index == counts.length ? 0 : upperTails[index];
+  }
+
+  /**
+   * @param count a number of patients
+   * @return the probability of at most that number
+   */
+  public double probabilityAtMost(long count) {
+    int index = Arrays.binarySearch(counts, count);
+    if (index < 0) {
+      index = -index - 2;
+    }
+    return index < 0 ? 0 : lowerTails[index];
+  }
+
+  @Override
+  public String toString() {
+    return "CountDistribution[mean=" + mean + ", variance=" + variance + ", min=" + min() + ", max=" + max() + "]";
+  }
+}
@@ -0,0 +1,106 @@
+package com.hospital.service.stats;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable, fixed-precision histogram of non-negative {@code long} values
+ * for estimating quantiles in constant memory.
+ * 
+ * <p>
+ * Values below {@code 256} get a bucket each and are reported exactly. Larger
+ * values share log-linear buckets: every power-of-two range is split into
+ * {@code 128} equal buckets, so a reported quantile is within {@code 1/256}
+ * of the true value, relatively. The sketch never holds more than a few
+ * thousand counters, however many values it records, and two sketches merge
+ * by adding their counters, so merging is exact and order-independent.
+ * Instances are not thread-safe.
+ */
+public final class QuantileSketch {
+
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int EXACT_VALUES = 2 * SUB_BUCKETS;
+  private static final int INITIAL_BUCKETS = EXACT_VALUES;
+
+  private long[] counts = new long[INITIAL_BUCKETS];
+  private long total;
+
+  /**
+   * @param value the value to record
+   * @throws IllegalArgumentException if the value is negative
+   */
+  public void add(long value) {
+    if (value < 0) {
+      throw new IllegalArgumentException("Quantile sketch values cannot be negative.");
+    }
+    int index = bucketIndex(value);
+    if (index >= counts.length) {
+      counts = Arrays.copyOf(counts, Math.max(index + 1, 2 * counts.length));
+    }
+    counts[index]++;
+    total++;
+  }
+
+  /**
+   * Adds the values recorded by another sketch to this one.
+   * 
+   * @param other the sketch to merge
+   */
+  public void merge(QuantileSketch other) {
+    if (other.counts.length > counts.length) {
+      counts = Arrays.copyOf(counts, other.counts.length);
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    total += other.total;
+  }
+
+  public long count() {
+    return total;
+  }
+
+  /**
+   * Estimates the smallest recorded value that is greater than or equal to a
+   * fraction {@code q} of the recorded values.
+   * 
+   * @param q the quantile, in {@code [0, 1]}
+   * @return the estimated quantile, or {@code 0} when the sketch is empty
+   */
+  public long quantile(double q) {
+    if (!(q >= 0 && q <= 1)) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(q * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return bucketValue(i);
+      }
+    }
+    throw new IllegalStateException("Quantile sketch counts do not add up to " + total + ".");
+  }
+
+  static int bucketIndex(long value) {
+    if (value < EXACT_VALUES) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return EXACT_VALUES + (shift - 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Returns the middle of the values sharing a bucket. */
+  static long bucketValue(int index) {
+    if (index < EXACT_VALUES) {
+      return index;
+    }
+    int shift = (index - EXACT_VALUES) / SUB_BUCKETS + 1;
+    long lowest = (long) (SUB_BUCKETS + (index - EXACT_VALUES) % SUB_BUCKETS) << shift;
+    return lowest + ((1L << shift) - 1) / 2;
+  }
+}
@@ -0,0 +1,100 @@
+package com.hospital.service.stats;
+
+/**
+ * Streaming summary of a sequence of non-negative {@code long} values: count,
+ * mean, variance, extremes and quantiles, in constant memory.
+ * 
+ * <p>
+ * Mean and variance use Welford's update, which stays accurate over very long
+ * sequences, and summaries of disjoint sequences combine with
+ * {@link #merge(RunningStatistics)} as if all values had been recorded by a
+ * single instance. Merging in a fixed order gives bit-for-bit reproducible
+ * results. Instances are not thread-safe.
+ */
+public final class RunningStatistics {
+
+  private final QuantileSketch sketch = new QuantileSketch();
+  private long count;
+  private double mean;
+  private double squaredDeviations;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  /**
+   * @param value the value to record
+   * @throws IllegalArgumentException if the value is negative
+   */
+  public void add(long value) {
+    sketch.add(value);
+    count++;
+    double delta = value - mean;
+    mean += delta / count;
+    squaredDeviations += delta * (value - mean);
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  /**
+   * Adds the values recorded by another summary to this one.
+   * 
+   * @param other the summary to merge
+   */
+  public void merge(RunningStatistics other) {
+    if (other.count == 0) {
+      return;
+    }
+    long combined = count + other.count;
+    double delta = other.mean - mean;
+    mean += delta * other.count / combined;
+    squaredDeviations += other.squaredDeviations + delta * delta * ((double) count * other.count / combined);
+    count = combined;
+    min = Math.min(min, other.min);
+    max = Math.max(max, other.max);
+    sketch.merge(other.sketch);
+  }
+
+  public long count() {
+    return count;
+  }
+
+  public double mean() {
+    return mean;
+  }
+
+  /**
+   * @return the unbiased sample variance, or {@code 0} for fewer than two values
+   */
+  public double variance() {
+    return count < 2 ? 0 : squaredDeviations / (count - 1);
+  }
+
+  public long min() {
+    return count == 0 ? 0 : min;
+  }
+
+  public long max() {
+    return count == 0 ? 0 : max;
+  }
+
+  /**
+   * @param q the quantile, in {@code [0, 1]}
+   * @return the estimated quantile, clamped to the recorded extremes
+   * @see QuantileSketch#quantile(double)
+   */
+  public long quantile(double q) {
+    return Math.min(max(), Math.max(min(), sketch.quantile(q)));
+  }
+
+  /**
+   * Half-width of the confidence interval of the mean, under the normal
+   * approximation.
+   * 
+   * @param z the standard normal quantile of the confidence level, e.g.
+   *          {@code 1.96} for 95%
+   * @return the half-width, or {@link Double#POSITIVE_INFINITY} for fewer than
+   *         two values
+   */
+  public double confidenceHalfWidth(double z) {
+    return count < 2 ? Double.POSITIVE_INFINITY : z * Math.sqrt(variance() / count);
+  }
+}
@@ -0,0 +1,129 @@
+package com.hospital.service.stats;
+
+import java.util.Arrays;
+
+/**
+ * Probability mass function of a binomial distribution, restricted to the
+ * consecutive counts whose probability is not negligible.
+ *
+ * <p>
+ * Terms are computed from the mode outwards with the ratio of consecutive
+ * terms, {@code P(k + 1) / P(k) = (n - k) p / ((k + 1) (1 - p))}, rather than
+ * from factorials, which lose all precision for large numbers of trials. Each
+ * walk stops at the first term below {@code tail} times the mode's, and the
+ * terms kept are normalized to sum to one. The cost is thus proportional to the
+ * standard deviation, whatever the number of trials. Instances are immutable.
+ */
+public final class TruncatedBinomial {
+
+  /** Largest number of terms kept, which bounds the memory of very wide distributions. */
+  public static final int MAX_SIZE = 1 << 24;
+
+  private final long lowest;
+  private final double[] probabilities;
+
+  private TruncatedBinomial(long lowest, double[] probabilities) {
+    this.lowest = lowest;
+    this.probabilities = probabilities;
+  }
+
+  /**
+   * @param trials the number of trials, non-negative
+   * @param probability the probability of success of each trial
+   * @param tail the ratio to the mode's probability below which terms are
+   *        dropped, {@code 0} to only drop the terms that underflow
+   * @return the distribution of the number of successes
+   * @throws IllegalArgumentException if the distribution has more than
+   *         {@link #MAX_SIZE} terms
+   */
+  public static TruncatedBinomial of(long trials, double probability, double tail) {
+    if (trials < 0) {
+      throw new IllegalArgumentException("Number of trials cannot be negative: " + trials);
+    }
+    if (!(probability >= 0 && probability <= 1)) {
+      throw new IllegalArgumentException("Probability must be between 0 and 1: " + probability);
+    }
+    if (!(tail >= 0 && tail < 1)) {
+      throw new IllegalArgumentException("Tail ratio must be in [0, 1): " + tail);
+    }
+    long mode = (long) Math.min(trials, Math.floor((trials + 1.0) * probability));
+    double ratio = probability / (1 - probability);
+
+    double[] above = new double[16];
+    int aboveSize = 0;
+    double term = 1;
+    for (long k = mode; k < trials; k++) {
+      term *= (trials - k) / (k + 1.0) * ratio;
+      if (term == 0 || term < tail) {
+        break;
+      }
+      above = append(above, aboveSize++, term, MAX_SIZE - 1);
+    }
+
+    double[] below = new double[16];
+    int belowSize = 0;
+    term = 1;
+    for (long k = mode; k > 0; k--) {
+      term *= k / ((trials - k + 1.0) * ratio);
+      if (term == 0 || term < tail) {
+        break;
+      }
+      below = append(below, belowSize++, term, MAX_SIZE - 1 - aboveSize);
+    }
+
+    double[] probabilities = new double[belowSize + 1 + aboveSize];
+    for (int i = 0; i < belowSize; i++) {
+      probabilities[belowSize - 1 - i] = below[i];
+    }
+    probabilities[belowSize] = 1;
+    System.arraycopy(above, 0, probabilities, belowSize + 1, aboveSize);
+    double sum = 0;
+    for (double p : probabilities) {
+      sum += p;
+    }
+    for (int i = 0; i < probabilities.length; i++) {
+      probabilities[i] /= sum;
+    }
+    return new TruncatedBinomial(mode - belowSize, probabilities);
+  }
+
+  private static double[] append(double[] terms, int size, double term, int limit) {
+    if (size == limit) {
+      throw new IllegalArgumentException("Binomial distribution exceeds " + MAX_SIZE + " terms.");
+    }
+    if (size == terms.length) {
+      terms = Arrays.copyOf(terms, Math.min(limit, 2 * size));
+    }
+    terms[size] = term;
+    return terms;
+  }
+
+  /**
+   * @return the smallest number of successes kept
+   */
+  public long lowest() {
+    return lowest;
+  }
+
+  /**
+   * @return the largest number of successes kept
+   */
+  public long highest() {
+    return lowest + probabilities.length - 1;
+  }
+
+  /**
+   * @return the number of terms kept
+   */
+  public int size() {
+    return probabilities.length;
+  }
+
+  /**
+   * @param index the index of the term, from {@code 0} to {@code size() - 1}
+   * @return the probability of {@code lowest() + index} successes
+   */
+  public double probability(int index) {
+    return probabilities[index];
+  }
+}
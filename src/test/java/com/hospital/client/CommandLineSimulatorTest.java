@@ -5,10 +5,14 @@ import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.stream.Stream;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -68,7 +72,12 @@ class CommandLineSimulatorTest {
         // Example 2 in lower-case
         Arguments.of(new String[] { "f", "p" }, "F:0,H:1,D:0,T:0,X:0"),
         // Example 3 in lower-case
-        Arguments.of(new String[] { "t,f,d", "an,i" }, "F:2,H:0,D:1,T:0,X:0"));
+        Arguments.of(new String[] { "t,f,d", "an,i" }, "F:2,H:0,D:1,T:0,X:0"),
+        // Run-length counts, mixed with single patients
+        Arguments.of(new String[] { "F:2,H:1", "As" }, "F:0,H:3,D:0,T:0,X:0"),
+        Arguments.of(new String[] { "D:1000000,F", "I" }, "F:1,H:0,D:1000000,T:0,X:0"),
+        // Counts beyond Integer.MAX_VALUE
+        Arguments.of(new String[] { "H:5000000000,T:3000000000", "An" }, "F:0,H:8000000000,D:0,T:0,X:0"));
   }
 
   @Test
@@ -127,4 +136,36 @@ class CommandLineSimulatorTest {
     // Then
     assertEquals("Invalid Health State: New_HealthState", exception.getMessage());
   }
+
+  @Test
+  void testCommandLineSimulatorWithPatientsFileShouldReadPatientsFromFile(@TempDir Path tempDir) throws IOException {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule()));
+    CommandLineSimulator cli = new CommandLineSimulator(simulatorEngine);
+    Path file = Files.writeString(tempDir.resolve("patients.txt"), "F:3\nT,T\nD:4\n");
+
+    // When
+    String result = cli.run(new String[] { "@" + file, "As,An" });
+
+    // Then
+    assertEquals("F:0,H:5,D:0,T:0,X:4", result);
+  }
+
+  @Test
+  void testCommandLineSimulatorWithMissingPatientsFileShouldThrowIllegalArgumentException(@TempDir Path tempDir) {
+    // Given
+    CommandLineSimulator cli = new CommandLineSimulator(new SimulatorEngine(List.of(new AspirinRule())));
+    Path file = tempDir.resolve("missing.txt");
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> cli.run(new String[] { "@" + file }));
+
+    // Then
+    assertEquals("Cannot read patients file: " + file, exception.getMessage());
+  }
 }
@@ -0,0 +1,143 @@
+package com.hospital.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+
+class ScenarioParserTest {
+
+  @TempDir
+  Path tempDir;
+
+  @ParameterizedTest
+  @MethodSource("providePatientsAndCounts")
+  void testParsePatientsShouldCountEveryEntry(String input, long[] expected) {
+    // When
+    PatientCounts patients = ScenarioParser.parsePatients(input);
+
+    // Then
+    assertEquals(counts(expected), patients);
+  }
+
+  static Stream<Arguments> providePatientsAndCounts() {
+    // Expected counts are in HealthState order: H, F, D, T, X
+    return Stream.of(
+        Arguments.of("F,F,H", new long[] { 1, 2, 0, 0, 0 }),
+        Arguments.of("f, d ,T", new long[] { 0, 1, 1, 1, 0 }),
+        Arguments.of("F:2,H:1", new long[] { 1, 2, 0, 0, 0 }),
+        Arguments.of("F:1000000,H:250,F", new long[] { 250, 1_000_001, 0, 0, 0 }),
+        Arguments.of(" x : 3 ,D:0", new long[] { 0, 0, 0, 0, 3 }),
+        Arguments.of("T:5000000000", new long[] { 0, 0, 0, 5_000_000_000L, 0 }),
+        Arguments.of("F\nH\n\nD:2\n", new long[] { 1, 1, 2, 0, 0 }),
+        Arguments.of("F,H,", new long[] { 1, 1, 0, 0, 0 }));
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideInvalidPatientsAndMessages")
+  void testParsePatientsWithInvalidEntryShouldThrowIllegalArgumentException(String input, String message) {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> ScenarioParser.parsePatients(input));
+
+    // Then
+    assertEquals(message, exception.getMessage());
+  }
+
+  static Stream<Arguments> provideInvalidPatientsAndMessages() {
+    return Stream.of(
+        Arguments.of("", "Invalid Health State: "),
+        Arguments.of("F,,H", "Invalid Health State: "),
+        Arguments.of("F, New_HealthState", "Invalid Health State: New_HealthState"),
+        Arguments.of("F H", "Invalid Health State: F H"),
+        Arguments.of("F:", "Invalid patient count: "),
+        Arguments.of("F:-1", "Invalid patient count: -1"),
+        Arguments.of("F:1x", "Invalid patient count: 1x"),
+        Arguments.of("F:99999999999999999999", "Invalid patient count: 99999999999999999999"),
+        Arguments.of("F:9223372036854775807,H", "Total number of patients cannot exceed 9223372036854775807."));
+  }
+
+  @Test
+  void testParsePatientsFromFileShouldMatchParsingFromString() throws IOException {
+    // Given
+    String input = "F:3,H\nD, T:12\nX\n";
+    Path file = Files.writeString(tempDir.resolve("patients.txt"), input);
+
+    // When
+    PatientCounts patients = ScenarioParser.parsePatients(file);
+
+    // Then
+    assertEquals(ScenarioParser.parsePatients(input), patients);
+  }
+
+  @Test
+  void testParsePatientsFromFileShouldCarryEntriesAcrossRegions() throws IOException {
+    // Given
+    StringBuilder input = new StringBuilder("T:12,");
+    for (int i = 0; i < 1_000; i++) {
+      input.append("F:").append(i).append(i % 2 == 0 ? ",H" : ", H ,D").append('\n');
+    }
+    Path file = Files.writeString(tempDir.resolve("patients.txt"), input);
+
+    // When
+    PatientCounts patients = ScenarioParser.parsePatients(file, 7);
+
+    // Then
+    assertEquals(ScenarioParser.parsePatients(input), patients);
+  }
+
+  @Test
+  void testParsePatientsFromFileWithInvalidEntryShouldThrowIllegalArgumentException() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("patients.txt"), "F:12,Zebra:4");
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> ScenarioParser.parsePatients(file, 5));
+
+    // Then
+    assertEquals("Invalid Health State: Zebra", exception.getMessage());
+  }
+
+  @Test
+  void testParseDrugsShouldIgnoreCaseAndWhitespace() {
+    // When
+    Set<Drug> drugs = ScenarioParser.parseDrugs(" as,AN , p");
+
+    // Then
+    assertEquals(EnumSet.of(Drug.ASPIRIN, Drug.ANTIBIOTIC, Drug.PARACETAMOL), drugs);
+  }
+
+  @Test
+  void testParseDrugsWithUnknownDrugShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> ScenarioParser.parseDrugs("As,Ax"));
+
+    // Then
+    assertEquals("Unknown drug: Ax", exception.getMessage());
+  }
+
+  private static PatientCounts counts(long[] expected) {
+    PatientCounts patients = new PatientCounts();
+    for (HealthState state : HealthState.values()) {
+      patients.set(state, expected[state.ordinal()]);
+    }
+    return patients;
+  }
+}
@@ -0,0 +1,176 @@
+package com.hospital.client;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.SimulatorEngine;
+
+class StreamingSimulatorTest {
+
+  private static final SimulatorEngine SIMULATOR_ENGINE = new SimulatorEngine(List.of(
+      new AspirinRule(),
+      new AntibioticRule(),
+      new InsulinRule(),
+      new ParacetamolRule(),
+      new FlyingSpaghettiMonsterRule((trials, probability) -> 0)));
+
+  @Test
+  void testRunShouldWriteOneLinePerScenario() throws IOException {
+    // Given
+    String input = """
+        D,D
+        F P
+        T,F,D An,I
+
+        F,F,H,D,T\tP,An
+        """;
+
+    // When
+    Output output = run(new StreamingSimulator(SIMULATOR_ENGINE), input);
+
+    // Then
+    assertEquals("""
+        F:0,H:0,D:0,T:0,X:2
+        F:0,H:1,D:0,T:0,X:0
+        F:2,H:0,D:1,T:0,X:0
+        F:0,H:4,D:0,T:0,X:1
+        """, output.results());
+    assertEquals("", output.errors());
+    assertEquals(new StreamingSimulator.Summary(4, 0), output.summary());
+  }
+
+  @Test
+  void testRunShouldReportInvalidLinesWithoutAborting() throws IOException {
+    // Given
+    String input = """
+        F P
+        F,Z P
+        H
+        F Xx
+        F P An
+        D,D""";
+
+    // When
+    Output output = run(new StreamingSimulator(SIMULATOR_ENGINE), input);
+
+    // Then
+    assertEquals("""
+        F:0,H:1,D:0,T:0,X:0
+        F:0,H:1,D:0,T:0,X:0
+        F:0,H:0,D:0,T:0,X:2
+        """, output.results());
+    assertEquals("""
+        Error at line 2: Invalid Health State: Z
+        Error at line 4: Unknown drug: Xx
+        Error at line 5: Expected <patients> [<drugs>] separated by whitespace.
+        """, output.errors());
+    assertEquals(new StreamingSimulator.Summary(3, 3), output.summary());
+  }
+
+  @Test
+  void testRunShouldPreserveInputOrderAcrossChunks() throws IOException {
+    // Given
+    String[] scenarios = { "D,D", "F P", "T,F,D An,I", "F,Q", "X" };
+    String[] results = { "F:0,H:0,D:0,T:0,X:2", "F:0,H:1,D:0,T:0,X:0", "F:2,H:0,D:1,T:0,X:0", null,
+        "F:0,H:0,D:0,T:0,X:1" };
+    StringBuilder input = new StringBuilder();
+    StringBuilder expectedResults = new StringBuilder();
+    StringBuilder expectedErrors = new StringBuilder();
+    for (int line = 1; line <= 10_000; line++) {
+      int scenario = (line * 7) % scenarios.length;
+      input.append(scenarios[scenario]).append('\n');
+      if (results[scenario] == null) {
+        expectedErrors.append("Error at line ").append(line).append(": Invalid Health State: Q\n");
+      } else {
+        expectedResults.append(results[scenario]).append('\n');
+      }
+    }
+
+    // When
+    Output output = run(new StreamingSimulator(SIMULATOR_ENGINE, 97, 3), input.toString());
+
+    // Then
+    assertEquals(expectedResults.toString(), output.results());
+    assertEquals(expectedErrors.toString(), output.errors());
+    assertEquals(new StreamingSimulator.Summary(8_000, 2_000), output.summary());
+  }
+
+  @Test
+  void testRunWithMalformedUtf8LineShouldReportOnlyThatLine() throws IOException {
+    // Given
+    ByteArrayOutputStream input = new ByteArrayOutputStream();
+    input.writeBytes("F P\n".getBytes(StandardCharsets.UTF_8));
+    input.writeBytes(new byte[] { 'F', ',', (byte) 0xC3, (byte) 0x28, '\n' });
+    input.writeBytes("D,D\n".getBytes(StandardCharsets.UTF_8));
+
+    // When
+    Output output = run(new StreamingSimulator(SIMULATOR_ENGINE), input.toByteArray());
+
+    // Then
+    assertEquals("""
+        F:0,H:1,D:0,T:0,X:0
+        F:0,H:0,D:0,T:0,X:2
+        """, output.results());
+    assertEquals("Error at line 2: Line is not valid UTF-8.\n", output.errors());
+    assertEquals(new StreamingSimulator.Summary(2, 1), output.summary());
+  }
+
+  @Test
+  void testRunWithOverlongLineShouldReportOnlyThatLine() throws IOException {
+    // Given
+    String input = "F P\n" + "F,".repeat(StreamingSimulator.MAX_LINE_LENGTH) + "F\nD,D";
+
+    // When
+    Output output = run(new StreamingSimulator(SIMULATOR_ENGINE), input);
+
+    // Then
+    assertEquals("""
+        F:0,H:1,D:0,T:0,X:0
+        F:0,H:0,D:0,T:0,X:2
+        """, output.results());
+    assertEquals("Error at line 2: Line exceeds 65536 bytes.\n", output.errors());
+    assertEquals(new StreamingSimulator.Summary(2, 1), output.summary());
+  }
+
+  @Test
+  void testConstructorShouldRejectNonPositiveChunkSize() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> new StreamingSimulator(SIMULATOR_ENGINE, 0, 1));
+
+    // Then
+    assertEquals("Chunk size and number of workers must be positive.", exception.getMessage());
+  }
+
+  private static Output run(StreamingSimulator simulator, String input) throws IOException {
+    return run(simulator, input.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static Output run(StreamingSimulator simulator, byte[] input) throws IOException {
+    ByteArrayOutputStream results = new ByteArrayOutputStream();
+    ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    StreamingSimulator.Summary summary = simulator.run(
+        Channels.newChannel(new ByteArrayInputStream(input)),
+        Channels.newChannel(results),
+        Channels.newChannel(errors));
+    return new Output(results.toString(StandardCharsets.UTF_8), errors.toString(StandardCharsets.UTF_8),
+        summary);
+  }
+
+  private record Output(String results, String errors, StreamingSimulator.Summary summary) {
+  }
+}
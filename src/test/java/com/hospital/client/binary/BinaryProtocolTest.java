@@ -0,0 +1,94 @@
+package com.hospital.client.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+
+class BinaryProtocolTest {
+
+  @Test
+  void testVarintShouldRoundTripAcrossByteBoundaries() {
+    // Given
+    long[] values = { 0, 1, 127, 128, 300, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1 };
+    ByteBuffer buffer = ByteBuffer.allocate(128);
+
+    // When
+    for (long value : values) {
+      BinaryProtocol.writeVarint(buffer, value);
+    }
+    buffer.flip();
+
+    // Then
+    assertEquals(1, encodedLength(0));
+    assertEquals(2, encodedLength(128));
+    assertEquals(10, encodedLength(-1));
+    for (long value : values) {
+      assertEquals(value, BinaryProtocol.readVarint(buffer));
+    }
+  }
+
+  @Test
+  void testRequestShouldRoundTripThroughFrame() {
+    // Given
+    PatientCounts patients = PatientCounts.from(Map.of(HealthState.FEVER, 300, HealthState.DEAD, 2));
+    patients.set(HealthState.HEALTHY, 5_000_000_000L);
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    BinaryProtocol.writeRequest(buffer, patients, Set.of(Drug.ASPIRIN, Drug.INSULIN));
+    buffer.flip();
+
+    // When
+    int length = BinaryProtocol.readFrameLength(buffer);
+    PatientCounts decoded = new PatientCounts();
+    int mask = BinaryProtocol.readRequest(buffer.slice(buffer.position(), length), decoded);
+
+    // Then
+    assertEquals(Set.of(Drug.ASPIRIN, Drug.INSULIN), BinaryProtocol.drugs(mask));
+    assertEquals(patients, decoded);
+  }
+
+  @Test
+  void testReadFrameLengthWithIncompleteFrameShouldLeaveBufferUnchanged() {
+    // Given
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    BinaryProtocol.writeRequest(buffer, new PatientCounts(), Set.of());
+    buffer.flip().limit(buffer.limit() - 1);
+
+    // When
+    int length = BinaryProtocol.readFrameLength(buffer);
+
+    // Then
+    assertEquals(-1, length);
+    assertEquals(0, buffer.position());
+  }
+
+  @Test
+  void testReadResponseWithErrorShouldThrowServerMessage() {
+    // Given
+    ByteBuffer buffer = ByteBuffer.allocate(64);
+    BinaryProtocol.writeError(buffer, "Invalid drug mask: 16");
+    buffer.flip();
+    int length = BinaryProtocol.readFrameLength(buffer);
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> BinaryProtocol.readResponse(buffer.slice(buffer.position(), length), new PatientCounts()));
+
+    // Then
+    assertEquals("Invalid drug mask: 16", exception.getMessage());
+  }
+
+  private static int encodedLength(long value) {
+    ByteBuffer buffer = ByteBuffer.allocate(16);
+    BinaryProtocol.writeVarint(buffer, value);
+    return buffer.position();
+  }
+}
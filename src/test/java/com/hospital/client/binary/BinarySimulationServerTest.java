@@ -0,0 +1,207 @@
+package com.hospital.client.binary;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.SimulatorEngine;
+
+class BinarySimulationServerTest {
+
+  private static final Logger log = LoggerFactory.getLogger(BinarySimulationServerTest.class);
+
+  private static final SimulatorEngine SIMULATOR_ENGINE = new SimulatorEngine(List.of(
+      new AspirinRule(),
+      new AntibioticRule(),
+      new InsulinRule(),
+      new ParacetamolRule()));
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testSimulateOverTcpShouldMatchEngine() throws IOException {
+    // Given
+    PatientCounts patients = PatientCounts.from(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2));
+
+    try (BinarySimulationServer server = new BinarySimulationServer(SIMULATOR_ENGINE,
+        new InetSocketAddress("localhost", 0))) {
+      server.start();
+      try (BinarySimulationClient client = BinarySimulationClient.connect(server.localAddress())) {
+        // When
+        PatientCounts result = client.simulate(patients.copy(), Set.of(Drug.PARACETAMOL));
+
+        // Then
+        assertEquals(SIMULATOR_ENGINE.simulate(patients, Set.of(Drug.PARACETAMOL)), result);
+      }
+    }
+  }
+
+  @Test
+  void testPipelinedRequestsOverUnixSocketShouldMatchEngine() throws IOException {
+    // Given
+    int count = 200_000;
+    SplittableRandom random = new SplittableRandom(42);
+    List<PatientCounts> patients = new ArrayList<>(count);
+    List<Set<Drug>> drugs = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      PatientCounts population = new PatientCounts();
+      for (HealthState state : HealthState.values()) {
+        population.set(state, random.nextLong(1L << random.nextInt(40)));
+      }
+      patients.add(population);
+      drugs.add(BinaryProtocol.drugs(random.nextInt(Drug.COMBINATIONS)));
+    }
+    SocketAddress address = UnixDomainSocketAddress.of(tempDir.resolve("simulator.sock"));
+
+    try (BinarySimulationServer server = new BinarySimulationServer(SIMULATOR_ENGINE, address)) {
+      server.start();
+      try (BinarySimulationClient client = BinarySimulationClient.connect(address)) {
+        // When
+        long start = System.nanoTime();
+        List<PatientCounts> results = client.simulateAll(patients, drugs);
+        long elapsed = System.nanoTime() - start;
+        log.info("Simulated {} pipelined requests in {} ms ({} requests/s)", count, elapsed / 1_000_000,
+            count * 1_000_000_000L / elapsed);
+
+        // Then
+        for (int i = 0; i < count; i++) {
+          assertEquals(SIMULATOR_ENGINE.simulate(patients.get(i).copy(), drugs.get(i)), results.get(i));
+        }
+      }
+    }
+  }
+
+  @Test
+  void testInvalidRequestShouldReturnErrorAndKeepConnection() throws IOException {
+    // Given
+    PatientCounts negative = new PatientCounts();
+    negative.set(HealthState.FEVER, -1);
+
+    try (BinarySimulationServer server = new BinarySimulationServer(SIMULATOR_ENGINE,
+        new InetSocketAddress("localhost", 0))) {
+      server.start();
+      try (BinarySimulationClient client = BinarySimulationClient.connect(server.localAddress())) {
+        // When
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> client.simulate(negative, Set.of()));
+
+        // Then
+        assertEquals("Patient counts cannot be negative.", exception.getMessage());
+        PatientCounts patients = PatientCounts.from(Map.of(HealthState.TUBERCULOSIS, 1));
+        assertEquals(PatientCounts.from(Map.of(HealthState.HEALTHY, 1)),
+            client.simulate(patients, Set.of(Drug.ANTIBIOTIC)));
+      }
+    }
+  }
+
+  @Test
+  void testInvalidRequestInPipelineShouldReadEveryResponseAndKeepClientUsable() throws IOException {
+    // Given
+    PatientCounts negative = new PatientCounts();
+    negative.set(HealthState.FEVER, -1);
+    List<PatientCounts> patients = new ArrayList<>();
+    List<Set<Drug>> drugs = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      patients.add(i == 50 ? negative : PatientCounts.from(Map.of(HealthState.FEVER, i + 1)));
+      drugs.add(Set.of(Drug.ASPIRIN));
+    }
+
+    try (BinarySimulationServer server = new BinarySimulationServer(SIMULATOR_ENGINE,
+        new InetSocketAddress("localhost", 0))) {
+      server.start();
+      try (BinarySimulationClient client = BinarySimulationClient.connect(server.localAddress())) {
+        // When
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+            () -> client.simulateAll(patients, drugs));
+
+        // Then
+        assertEquals("Patient counts cannot be negative.", exception.getMessage());
+        PatientCounts tuberculosis = PatientCounts.from(Map.of(HealthState.TUBERCULOSIS, 1));
+        assertEquals(PatientCounts.from(Map.of(HealthState.HEALTHY, 1)),
+            client.simulate(tuberculosis, Set.of(Drug.ANTIBIOTIC)));
+      }
+    }
+  }
+
+  @Test
+  void testInvalidDrugMaskShouldReturnError() throws IOException {
+    try (BinarySimulationServer server = new BinarySimulationServer(SIMULATOR_ENGINE,
+        new InetSocketAddress("localhost", 0));
+        SocketChannel channel = SocketChannel.open()) {
+      server.start();
+      channel.connect(server.localAddress());
+
+      // Given
+      ByteBuffer request = ByteBuffer.wrap(new byte[] { 6, 16, 0, 0, 0, 0, 0 });
+
+      // When
+      channel.write(request);
+      ByteBuffer response = ByteBuffer.allocate(64);
+      while (BinaryProtocol.readFrameLength(response.duplicate().flip()) < 0) {
+        channel.read(response);
+      }
+      response.flip();
+      int length = BinaryProtocol.readFrameLength(response);
+      IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+          () -> BinaryProtocol.readResponse(response.slice(response.position(), length), new PatientCounts()));
+
+      // Then
+      assertEquals("Invalid drug mask: 16", exception.getMessage());
+    }
+  }
+
+  @Test
+  void testMalformedFrameLengthShouldCloseOnlyThatConnection() throws IOException {
+    try (BinarySimulationServer server = new BinarySimulationServer(SIMULATOR_ENGINE,
+        new InetSocketAddress("localhost", 0))) {
+      server.start();
+
+      // Given
+      byte[] tooLong = new byte[10];
+      Arrays.fill(tooLong, (byte) 0xFF);
+      byte[] negative = tooLong.clone();
+      negative[9] = 1;
+
+      for (byte[] length : List.of(tooLong, negative)) {
+        try (SocketChannel channel = SocketChannel.open(server.localAddress())) {
+          // When
+          channel.write(ByteBuffer.wrap(length));
+
+          // Then
+          assertEquals(-1, channel.read(ByteBuffer.allocate(64)));
+        }
+      }
+      try (BinarySimulationClient client = BinarySimulationClient.connect(server.localAddress())) {
+        PatientCounts patients = PatientCounts.from(Map.of(HealthState.TUBERCULOSIS, 1));
+        assertEquals(PatientCounts.from(Map.of(HealthState.HEALTHY, 1)),
+            client.simulate(patients, Set.of(Drug.ANTIBIOTIC)));
+      }
+    }
+  }
+}
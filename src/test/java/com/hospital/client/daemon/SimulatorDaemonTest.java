@@ -0,0 +1,180 @@
+package com.hospital.client.daemon;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hospital.client.CommandLineSimulator;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.SimulatorEngine;
+
+class SimulatorDaemonTest {
+
+  private static CommandLineSimulator commandLineSimulator() {
+    return new CommandLineSimulator(new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule())));
+  }
+
+  @Test
+  void testDaemonShouldReplyWhatTheCommandLinePrints(@TempDir Path tempDir) throws IOException {
+    // Given
+    Path socketPath = tempDir.resolve("daemon.sock");
+    String expected = commandLineSimulator().run(new String[] { "T,F,D", "An,I" }) + System.lineSeparator();
+
+    // When
+    String reply;
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), socketPath)) {
+      daemon.start();
+      reply = send(socketPath, "T,F,D An,I\n");
+    }
+
+    // Then
+    assertEquals(expected, reply);
+    assertFalse(Files.exists(socketPath));
+  }
+
+  @Test
+  void testDaemonWithInvalidHealthStateShouldReplyWithError(@TempDir Path tempDir) throws IOException {
+    // Given
+    Path socketPath = tempDir.resolve("daemon.sock");
+
+    // When
+    String reply;
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), socketPath)) {
+      daemon.start();
+      reply = send(socketPath, "F,Z P\n");
+    }
+
+    // Then
+    assertEquals("Error: Invalid Health State: Z" + System.lineSeparator(), reply);
+  }
+
+  @Test
+  void testDaemonWithPatientsFileShouldReadPatientsFromFile(@TempDir Path tempDir) throws IOException {
+    // Given
+    Path socketPath = tempDir.resolve("daemon.sock");
+    Path file = Files.writeString(tempDir.resolve("patients.txt"), "F:3\nT,T\nD:4\n");
+
+    // When
+    String reply;
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), socketPath)) {
+      daemon.start();
+      reply = send(socketPath, "@" + file + " As,An\n");
+    }
+
+    // Then
+    assertEquals("F:0,H:5,D:0,T:0,X:4" + System.lineSeparator(), reply);
+  }
+
+  @Test
+  void testDaemonShouldReplaceStaleSocketFile(@TempDir Path tempDir) throws IOException {
+    // Given
+    Path socketPath = Files.createFile(tempDir.resolve("daemon.sock"));
+
+    // When
+    String reply;
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), socketPath)) {
+      daemon.start();
+      reply = send(socketPath, "D,D\n");
+    }
+
+    // Then
+    assertEquals("F:0,H:0,D:0,T:0,X:2" + System.lineSeparator(), reply);
+  }
+
+  @Test
+  void testSecondDaemonOnSameSocketShouldThrowIllegalStateException(@TempDir Path tempDir) throws IOException {
+    // Given
+    Path socketPath = tempDir.resolve("daemon.sock");
+
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), socketPath)) {
+      daemon.start();
+
+      // When
+      IllegalStateException exception = assertThrows(IllegalStateException.class,
+          () -> new SimulatorDaemon(commandLineSimulator(), socketPath));
+
+      // Then
+      assertEquals("A simulator daemon already listens on " + socketPath, exception.getMessage());
+    }
+  }
+
+  @Test
+  void testReplyWithOversizedRequestShouldReplyWithError(@TempDir Path tempDir) throws IOException {
+    // Given
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), tempDir.resolve("daemon.sock"))) {
+
+      // When
+      String reply = daemon.reply(null);
+
+      // Then
+      assertEquals("Error: Request exceeds 65536 bytes." + System.lineSeparator(), reply);
+    }
+  }
+
+  @Test
+  void testSilentClientShouldBeDisconnectedAfterReadTimeout(@TempDir Path tempDir) throws IOException {
+    // Given
+    Path socketPath = tempDir.resolve("daemon.sock");
+
+    try (SimulatorDaemon daemon = new SimulatorDaemon(commandLineSimulator(), socketPath,
+        Duration.ofMillis(100))) {
+      daemon.start();
+      try (SocketChannel silent = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+        silent.connect(UnixDomainSocketAddress.of(socketPath));
+
+        // When
+        int read = silent.read(ByteBuffer.allocate(1));
+
+        // Then
+        assertEquals(-1, read);
+        assertEquals("F:0,H:1,D:0,T:0,X:0" + System.lineSeparator(), send(socketPath, "F P\n"));
+      }
+    }
+  }
+
+  @Test
+  void testDefaultSocketPathShouldBeTheLauncherDefault() {
+    // Given
+    assumeTrue(System.getenv(SimulatorDaemon.SOCKET_VARIABLE) == null);
+
+    // When
+    Path socketPath = SimulatorDaemon.defaultSocketPath();
+
+    // Then
+    assertEquals(Path.of("/tmp", "hospital-simulator-" + System.getProperty("user.name") + ".sock"), socketPath);
+  }
+
+  private static String send(Path socketPath, String request) throws IOException {
+    try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+      channel.connect(UnixDomainSocketAddress.of(socketPath));
+      channel.write(ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8)));
+      try (InputStream input = Channels.newInputStream(channel)) {
+        return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+      }
+    }
+  }
+}
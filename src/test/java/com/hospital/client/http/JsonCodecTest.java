@@ -0,0 +1,143 @@
+package com.hospital.client.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+
+class JsonCodecTest {
+
+  @Test
+  void testParseRequestShouldAcceptNamesAndCodes() {
+    // Given
+    String json = """
+        { "initialPatients" : { "FEVER": 2, "h": 1 },
+          "comment": { "nested": [1, 2.5, true, null, "x"] },
+          "drugs": ["ASPIRIN", "An"], "seed": -42 }""";
+
+    // When
+    SimulationRequest request = JsonCodec.parseRequest(bytes(json));
+
+    // Then
+    assertEquals(new SimulationRequest(Map.of(HealthState.FEVER, 2, HealthState.HEALTHY, 1),
+        Set.of(Drug.ASPIRIN, Drug.ANTIBIOTIC), -42L), request);
+  }
+
+  @Test
+  void testParseRequestWithoutOptionalFieldsShouldUseDefaults() {
+    // When
+    SimulationRequest request = JsonCodec.parseRequest(bytes("{\"initialPatients\":{},\"seed\":null}"));
+
+    // Then
+    assertEquals(new SimulationRequest(Map.of(), Set.of(), null), request);
+  }
+
+  @Test
+  void testParseRequestsShouldReadArrayOfRequests() {
+    // When
+    List<SimulationRequest> requests = JsonCodec.parseRequests(bytes(
+        "[{\"initialPatients\":{\"D\":2}},{\"initialPatients\":{\"F\":1},\"drugs\":[\"P\"]}]"));
+
+    // Then
+    assertEquals(List.of(
+        new SimulationRequest(Map.of(HealthState.DIABETES, 2), Set.of()),
+        new SimulationRequest(Map.of(HealthState.FEVER, 1), Set.of(Drug.PARACETAMOL))), requests);
+  }
+
+  @Test
+  void testParseRequestWithUnknownHealthStateShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> JsonCodec.parseRequest(bytes("{\"initialPatients\":{\"Z\":1}}")));
+
+    // Then
+    assertEquals("Invalid JSON at offset 20: expected health state name or code but got \"Z\".",
+        exception.getMessage());
+  }
+
+  @Test
+  void testParseRequestShouldAcceptEscapedAndMixedCaseSpellings() {
+    // Given
+    String json = "{\"initialPatients\":{\"\\u0046ever\":1,\"tuberculosis\":2,\"x\":3},"
+        + "\"drugs\":[\"pArAcEtAmOl\",\"\\u0069\",\"as\"]}";
+
+    // When
+    SimulationRequest request = JsonCodec.parseRequest(bytes(json));
+
+    // Then
+    assertEquals(new SimulationRequest(Map.of(HealthState.FEVER, 1, HealthState.TUBERCULOSIS, 2, HealthState.DEAD, 3),
+        Set.of(Drug.PARACETAMOL, Drug.INSULIN, Drug.ASPIRIN)), request);
+  }
+
+  @Test
+  void testParseRequestWithUnknownDrugShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> JsonCodec.parseRequest(bytes("{\"initialPatients\":{},\"drugs\":[\"Asp\u00e9rin\"]}")));
+
+    // Then
+    assertEquals("Invalid JSON at offset 31: expected drug name or code but got \"Asp\u00e9rin\".",
+        exception.getMessage());
+  }
+
+  @Test
+  void testParseRequestWithMalformedJsonShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> JsonCodec.parseRequest(bytes("{\"initialPatients\":{\"F\":1.5}}")));
+
+    // Then
+    assertEquals("Invalid JSON at offset 24: expected integer.", exception.getMessage());
+  }
+
+  @Test
+  void testParseRequestWithoutPatientsShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> JsonCodec.parseRequest(bytes("{\"drugs\":[]}")));
+
+    // Then
+    assertEquals("Invalid SimulationRequest: Initial patients map cannot be null.", exception.getMessage());
+  }
+
+  @Test
+  void testWriteResponseShouldListEveryState() {
+    // Given
+    Map<HealthState, Integer> patientsByState = new EnumMap<>(HealthState.class);
+    for (HealthState state : HealthState.values()) {
+      patientsByState.put(state, state.ordinal());
+    }
+
+    // When
+    String json = new String(JsonCodec.writeResponse(new SimulationResponse(patientsByState, 7L)),
+        StandardCharsets.UTF_8);
+
+    // Then
+    assertEquals("{\"patientsByState\":{\"HEALTHY\":0,\"FEVER\":1,\"DIABETES\":2,\"TUBERCULOSIS\":3,\"DEAD\":4},"
+        + "\"seed\":7}", json);
+  }
+
+  @Test
+  void testWriteErrorShouldEscapeMessage() {
+    // When
+    String json = new String(JsonCodec.writeError("Bad \"input\"\nhere\u0001"), StandardCharsets.UTF_8);
+
+    // Then
+    assertEquals("{\"error\":\"Bad \\\"input\\\"\\nhere\\u0001\"}", json);
+  }
+
+  private static byte[] bytes(String json) {
+    return json.getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,152 @@
+package com.hospital.client.http;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.SimulatorEngine;
+import com.hospital.service.metrics.SimulationMetrics;
+
+class SimulationHttpServerTest {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+  private SimulationHttpServer server;
+
+  @BeforeEach
+  void startServer() throws IOException {
+    server = new SimulationHttpServer(new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule()), null, new SimulationMetrics()), new InetSocketAddress("localhost", 0));
+    server.start();
+  }
+
+  @AfterEach
+  void stopServer() {
+    server.close();
+  }
+
+  @Test
+  void testSimulateShouldReturnResponse() throws Exception {
+    // When
+    HttpResponse<String> response = post("/simulate",
+        "{\"initialPatients\":{\"F\":1,\"D\":2},\"drugs\":[\"P\"],\"seed\":3}");
+
+    // Then
+    assertEquals(200, response.statusCode());
+    assertEquals("application/json", response.headers().firstValue("Content-Type").orElseThrow());
+    assertEquals("{\"patientsByState\":{\"HEALTHY\":1,\"FEVER\":0,\"DIABETES\":0,\"TUBERCULOSIS\":0,\"DEAD\":2},"
+        + "\"seed\":3}", response.body());
+  }
+
+  @Test
+  void testBatchShouldReturnResponsesInOrder() throws Exception {
+    // When
+    HttpResponse<String> response = post("/simulate/batch",
+        "[{\"initialPatients\":{\"D\":1},\"seed\":1},{\"initialPatients\":{\"T\":1},\"drugs\":[\"An\"],\"seed\":2}]");
+
+    // Then
+    assertEquals(200, response.statusCode());
+    assertEquals("[{\"patientsByState\":{\"HEALTHY\":0,\"FEVER\":0,\"DIABETES\":0,\"TUBERCULOSIS\":0,\"DEAD\":1},"
+        + "\"seed\":1},"
+        + "{\"patientsByState\":{\"HEALTHY\":1,\"FEVER\":0,\"DIABETES\":0,\"TUBERCULOSIS\":0,\"DEAD\":0},"
+        + "\"seed\":2}]", response.body());
+  }
+
+  @Test
+  void testInvalidRequestShouldReturnBadRequest() throws Exception {
+    // When
+    HttpResponse<String> response = post("/simulate", "{\"initialPatients\":{\"F\":-1}}");
+
+    // Then
+    assertEquals(400, response.statusCode());
+    assertEquals("{\"error\":\"Invalid SimulationRequest: Patient counts cannot be negative.\"}", response.body());
+  }
+
+  @Test
+  void testOversizedBodyShouldReturnPayloadTooLargeWithoutReadingIt() throws Exception {
+    // Given
+    String headers = "POST /simulate HTTP/1.1\r\nHost: localhost\r\nContent-Length: "
+        + (SimulationHttpServer.MAX_BODY_SIZE + 1) + "\r\n\r\n";
+
+    // When
+    String statusLine;
+    try (Socket socket = new Socket("localhost", server.port())) {
+      OutputStream output = socket.getOutputStream();
+      output.write(headers.getBytes(StandardCharsets.US_ASCII));
+      output.flush();
+      statusLine = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))
+          .readLine();
+    }
+
+    // Then
+    assertEquals("HTTP/1.1 413 Request Entity Too Large", statusLine);
+  }
+
+  @Test
+  void testGetShouldReturnMethodNotAllowed() throws Exception {
+    // When
+    HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/simulate")).GET().build(),
+        HttpResponse.BodyHandlers.ofString());
+
+    // Then
+    assertEquals(405, response.statusCode());
+  }
+
+  @Test
+  void testUnknownPathShouldReturnNotFound() throws Exception {
+    // When
+    HttpResponse<String> response = post("/simulate/unknown", "{}");
+
+    // Then
+    assertEquals(404, response.statusCode());
+  }
+
+  @Test
+  void testMetricsShouldReturnPrometheusText() throws Exception {
+    // Given
+    post("/simulate", "{\"initialPatients\":{\"D\":2},\"seed\":1}");
+
+    // When
+    HttpResponse<String> response = client.send(HttpRequest.newBuilder(uri("/metrics")).GET().build(),
+        HttpResponse.BodyHandlers.ofString());
+
+    // Then
+    assertEquals(200, response.statusCode());
+    assertEquals("text/plain; version=0.0.4; charset=utf-8",
+        response.headers().firstValue("Content-Type").orElseThrow());
+    assertTrue(response.body().contains("\nhospital_simulations_total 1\n"), response.body());
+    assertTrue(response.body().contains("\nhospital_rule_transitions_total{rule=\"InsulinRule\"} 2\n"),
+        response.body());
+  }
+
+  private HttpResponse<String> post(String path, String body) throws Exception {
+    return client.send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.ofString(body)).build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  private URI uri(String path) {
+    return URI.create("http://localhost:" + server.port() + path);
+  }
+}
@@ -1,6 +1,7 @@
 package com.hospital.client.model;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.Map;
@@ -66,4 +67,18 @@ class SimulationRequestTest {
     assertEquals(Set.of(), request.drugs());
     assertEquals(10, request.initialPatients().get(HealthState.HEALTHY));
   }
+
+  @Test
+  void testCreateSimulationRequestWithoutSeedShouldLeaveSeedUnset() {
+    // Given
+    Map<HealthState, Integer> initialPatients = Map.of(HealthState.HEALTHY, 10);
+
+    // When
+    SimulationRequest request = new SimulationRequest(initialPatients, Set.of());
+    SimulationRequest seededRequest = new SimulationRequest(initialPatients, Set.of(), 42L);
+
+    // Then
+    assertNull(request.seed());
+    assertEquals(42L, seededRequest.seed());
+  }
 }
@@ -0,0 +1,71 @@
+package com.hospital.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class DrugScheduleTest {
+
+  @Test
+  void testConstantScheduleShouldNeverChange() {
+    // Given
+    DrugSchedule schedule = DrugSchedule.constant(Set.of(Drug.ASPIRIN));
+
+    // When / Then
+    assertEquals(Set.of(Drug.ASPIRIN), schedule.drugsAt(1_000_000));
+    assertEquals(Long.MAX_VALUE, schedule.runEnd(5));
+    assertEquals(0, schedule.period());
+  }
+
+  @Test
+  void testScheduleShouldKeepLastDrugsAfterItsEnd() {
+    // Given
+    DrugSchedule schedule = DrugSchedule.of(List.of(
+        Set.of(Drug.ASPIRIN), Set.of(Drug.ASPIRIN), Set.of(), Set.of(Drug.INSULIN)));
+
+    // When / Then
+    assertEquals(2, schedule.runEnd(0));
+    assertEquals(2, schedule.runEnd(1));
+    assertEquals(3, schedule.runEnd(2));
+    assertEquals(Long.MAX_VALUE, schedule.runEnd(3));
+    assertEquals(Set.of(Drug.INSULIN), schedule.drugsAt(42));
+  }
+
+  @Test
+  void testCyclicScheduleShouldRepeatItsPeriod() {
+    // Given
+    DrugSchedule schedule = DrugSchedule.cyclic(List.of(
+        Set.of(Drug.ASPIRIN), Set.of(Drug.ASPIRIN), Set.of(Drug.INSULIN)));
+
+    // When / Then
+    assertEquals(3, schedule.period());
+    assertEquals(Set.of(Drug.ASPIRIN), schedule.drugsAt(3_000));
+    assertEquals(Set.of(Drug.INSULIN), schedule.drugsAt(3_002));
+    assertEquals(3_002, schedule.runEnd(3_000));
+    assertEquals(3_003, schedule.runEnd(3_002));
+  }
+
+  @Test
+  void testCyclicScheduleWithoutChangesShouldBeConstant() {
+    // Given
+    DrugSchedule schedule = DrugSchedule.cyclic(List.of(Set.of(Drug.PARACETAMOL), Set.of(Drug.PARACETAMOL)));
+
+    // When / Then
+    assertEquals(0, schedule.period());
+    assertEquals(Long.MAX_VALUE, schedule.runEnd(7));
+  }
+
+  @Test
+  void testEmptyScheduleShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> DrugSchedule.of(List.of()));
+
+    // Then
+    assertEquals("Drug schedule must contain at least one step.", exception.getMessage());
+  }
+}
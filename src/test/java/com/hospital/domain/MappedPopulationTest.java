@@ -0,0 +1,128 @@
+package com.hospital.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedPopulationTest {
+
+  private static final PatientCounts PATIENT_COUNTS = PatientCounts.from(Map.of(
+      HealthState.HEALTHY, 3, HealthState.FEVER, 2, HealthState.DEAD, 1));
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void testCreateShouldLayOutPatientsLikeHeapPopulation() throws IOException {
+    // Given
+    Path file = tempDir.resolve("population.bin");
+
+    // When
+    try (MappedPopulation population = MappedPopulation.create(file, PATIENT_COUNTS, 42L)) {
+      // Then
+      assertEquals(6, population.size());
+      assertEquals(42L, population.seed());
+      assertEquals(0, population.completedSteps());
+      assertEquals(PATIENT_COUNTS, population.countStates());
+      assertEquals(HealthState.FEVER, population.get(3));
+      assertEquals(MappedPopulation.HEADER_SIZE + 2 * 6, Files.size(file));
+    }
+  }
+
+  @Test
+  void testReadAndWriteShouldCopyRangesOfPatients() throws IOException {
+    // Given
+    try (MappedPopulation population = MappedPopulation.create(tempDir.resolve("population.bin"),
+        PATIENT_COUNTS, 42L)) {
+      byte[] buffer = new byte[4];
+
+      // When
+      population.read(2, buffer, 3);
+      byte[] read = buffer.clone();
+      buffer[0] = (byte) HealthState.TUBERCULOSIS.ordinal();
+      population.write(2, buffer, 1);
+
+      // Then
+      assertArrayEquals(new byte[] { 0, 1, 1, 0 }, read);
+      assertEquals(HealthState.TUBERCULOSIS, population.get(2));
+      assertEquals(HealthState.FEVER, population.get(3));
+    }
+  }
+
+  @Test
+  void testOpenShouldResumeFromLastCheckpoint() throws IOException {
+    // Given
+    Path file = tempDir.resolve("population.bin");
+    try (MappedPopulation population = MappedPopulation.create(file, PATIENT_COUNTS, 42L)) {
+      byte[] states = new byte[6];
+      population.read(0, states, 6);
+      states[0] = (byte) HealthState.DIABETES.ordinal();
+      population.beginStep();
+      population.write(0, states, 6);
+      population.checkpoint();
+    }
+
+    // When
+    try (MappedPopulation population = MappedPopulation.open(file)) {
+      // Then
+      assertEquals(1, population.completedSteps());
+      assertEquals(42L, population.seed());
+      assertEquals(HealthState.DIABETES, population.get(0));
+      assertEquals(HealthState.FEVER, population.get(3));
+    }
+  }
+
+  @Test
+  void testOpenAfterInterruptedStepShouldResumeFromLastCheckpoint() throws IOException {
+    // Given
+    Path file = tempDir.resolve("population.bin");
+    try (MappedPopulation population = MappedPopulation.create(file, PATIENT_COUNTS, 42L)) {
+      population.beginStep();
+      population.write(0, new byte[] { 4, 4, 4 }, 3);
+      // Closed halfway through the step, without a checkpoint
+      assertEquals(PATIENT_COUNTS, population.countStates());
+    }
+
+    // When
+    try (MappedPopulation population = MappedPopulation.open(file)) {
+      // Then
+      assertEquals(0, population.completedSteps());
+      assertEquals(PATIENT_COUNTS, population.countStates());
+    }
+  }
+
+  @Test
+  void testCheckpointWithoutStepShouldThrowIllegalStateException() throws IOException {
+    // Given
+    try (MappedPopulation population = MappedPopulation.create(tempDir.resolve("population.bin"),
+        PATIENT_COUNTS, 42L)) {
+
+      // When
+      IllegalStateException exception = assertThrows(IllegalStateException.class, population::checkpoint);
+
+      // Then
+      assertEquals("No step in progress.", exception.getMessage());
+      assertEquals(0, population.completedSteps());
+    }
+  }
+
+  @Test
+  void testOpenWithForeignFileShouldThrowIllegalStateException() throws IOException {
+    // Given
+    Path file = Files.writeString(tempDir.resolve("patients.txt"), "F,F,H");
+
+    // When
+    IllegalStateException exception = assertThrows(IllegalStateException.class, () -> MappedPopulation.open(file));
+
+    // Then
+    assertEquals("Not a population file: " + file, exception.getMessage());
+  }
+}
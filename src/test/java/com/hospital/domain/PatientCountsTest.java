@@ -0,0 +1,124 @@
+package com.hospital.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PatientCountsTest {
+
+  @Test
+  void testFromMapShouldSetMissingStatesToZero() {
+    // Given
+    Map<HealthState, Integer> patientsByState = Map.of(HealthState.FEVER, 3);
+
+    // When
+    PatientCounts patientCounts = PatientCounts.from(patientsByState);
+
+    // Then
+    assertEquals(3, patientCounts.get(HealthState.FEVER));
+    assertEquals(0, patientCounts.get(HealthState.HEALTHY));
+    assertEquals(3, patientCounts.total());
+  }
+
+  @Test
+  void testTransitionShouldMovePatientsBetweenStates() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 5));
+
+    // When
+    patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, 2);
+
+    // Then
+    assertEquals(3, patientCounts.get(HealthState.FEVER));
+    assertEquals(2, patientCounts.get(HealthState.HEALTHY));
+  }
+
+  @Test
+  void testTransitionWithNonPositiveCountShouldNotChangeCounts() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 5));
+
+    // When
+    patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, -2);
+
+    // Then
+    assertEquals(5, patientCounts.get(HealthState.FEVER));
+    assertEquals(0, patientCounts.get(HealthState.HEALTHY));
+  }
+
+  @Test
+  void testKillAllShouldMoveEveryPatientToDead() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(
+        Map.of(HealthState.FEVER, 1, HealthState.HEALTHY, 2, HealthState.DEAD, 3));
+
+    // When
+    patientCounts.killAll();
+
+    // Then
+    assertEquals(6, patientCounts.get(HealthState.DEAD));
+    assertEquals(6, patientCounts.total());
+  }
+
+  @Test
+  void testCountsAboveIntegerRangeShouldBeSupported() {
+    // Given
+    PatientCounts patientCounts = new PatientCounts();
+    long count = Integer.MAX_VALUE + 10L;
+
+    // When
+    patientCounts.set(HealthState.DEAD, count);
+    patientCounts.add(HealthState.DEAD, count);
+
+    // Then
+    assertEquals(2 * count, patientCounts.get(HealthState.DEAD));
+    assertThrows(ArithmeticException.class, patientCounts::toMap);
+  }
+
+  @Test
+  void testToMapShouldContainEveryHealthState() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.TUBERCULOSIS, 4));
+
+    // When
+    Map<HealthState, Integer> patientsByState = patientCounts.toMap();
+
+    // Then
+    assertEquals(HealthState.values().length, patientsByState.size());
+    assertEquals(4, patientsByState.get(HealthState.TUBERCULOSIS));
+    assertEquals(0, patientsByState.get(HealthState.DEAD));
+  }
+
+  @Test
+  void testHasNegativeCountShouldDetectNegativeCounts() {
+    // Given
+    PatientCounts patientCounts = new PatientCounts();
+
+    // When
+    patientCounts.add(HealthState.HEALTHY, -1);
+
+    // Then
+    assertTrue(patientCounts.hasNegativeCount());
+    patientCounts.clear();
+    assertFalse(patientCounts.hasNegativeCount());
+  }
+
+  @Test
+  void testCopyShouldBeIndependentFromOriginal() {
+    // Given
+    PatientCounts original = PatientCounts.from(Map.of(HealthState.FEVER, 1));
+
+    // When
+    PatientCounts copy = original.copy();
+    copy.add(HealthState.FEVER, 1);
+
+    // Then
+    assertEquals(1, original.get(HealthState.FEVER));
+    assertEquals(2, copy.get(HealthState.FEVER));
+  }
+}
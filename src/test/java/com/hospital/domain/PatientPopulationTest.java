@@ -0,0 +1,55 @@
+package com.hospital.domain;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class PatientPopulationTest {
+
+  @Test
+  void testOfShouldLayOutPatientsStateByState() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 2, HealthState.HEALTHY, 1,
+        HealthState.DEAD, 3));
+
+    // When
+    PatientPopulation population = PatientPopulation.of(patientCounts);
+
+    // Then
+    assertEquals(6, population.size());
+    assertEquals(HealthState.HEALTHY, population.get(0));
+    assertEquals(HealthState.FEVER, population.get(1));
+    assertEquals(HealthState.FEVER, population.get(2));
+    assertEquals(HealthState.DEAD, population.get(5));
+    assertEquals(patientCounts, population.countStates());
+  }
+
+  @Test
+  void testSetShouldUpdateSinglePatient() {
+    // Given
+    PatientPopulation population = new PatientPopulation(4);
+
+    // When
+    population.set(2, HealthState.TUBERCULOSIS);
+
+    // Then
+    assertEquals(HealthState.TUBERCULOSIS, population.get(2));
+    assertEquals(PatientCounts.from(Map.of(HealthState.HEALTHY, 3, HealthState.TUBERCULOSIS, 1)),
+        population.countStates());
+    assertEquals(1, population.segmentCount());
+    assertEquals(4, population.segment(0).length);
+  }
+
+  @Test
+  void testNegativeSizeShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> new PatientPopulation(-1));
+
+    // Then
+    assertEquals("Population size cannot be negative: -1", exception.getMessage());
+  }
+}
@@ -0,0 +1,120 @@
+package com.hospital.domain;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class TransitionMatrixTest {
+
+  @Test
+  void testIdentityShouldNotChangePatientCounts() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 2, HealthState.DEAD, 3));
+
+    // When
+    TransitionMatrix.identity().applyTo(patientCounts);
+
+    // Then
+    assertEquals(PatientCounts.from(Map.of(HealthState.FEVER, 2, HealthState.DEAD, 3)), patientCounts);
+    assertTrue(TransitionMatrix.identity().isIdentity());
+  }
+
+  @Test
+  void testFromColumnsShouldMovePatientsAccordingToColumns() {
+    // Given
+    TransitionMatrix feverToHealthy = feverToHealthy();
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 2, HealthState.HEALTHY, 1));
+
+    // When
+    feverToHealthy.applyTo(patientCounts);
+
+    // Then
+    assertFalse(feverToHealthy.isIdentity());
+    assertEquals(1, feverToHealthy.get(HealthState.HEALTHY, HealthState.FEVER));
+    assertEquals(0, patientCounts.get(HealthState.FEVER));
+    assertEquals(3, patientCounts.get(HealthState.HEALTHY));
+  }
+
+  @Test
+  void testThenShouldComposeMatricesInOrder() {
+    // Given
+    TransitionMatrix feverToHealthy = feverToHealthy();
+    TransitionMatrix healthyToDead = unitMove(HealthState.HEALTHY, HealthState.DEAD);
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 2));
+
+    // When
+    feverToHealthy.then(healthyToDead).applyTo(patientCounts);
+
+    // Then
+    assertEquals(2, patientCounts.get(HealthState.DEAD));
+    assertEquals(2, patientCounts.total());
+  }
+
+  @Test
+  void testPowerShouldMatchRepeatedComposition() {
+    // Given
+    // F -> H -> D -> F rotates with period 3
+    PatientCounts[] columns = new PatientCounts[HealthState.values().length];
+    for (HealthState state : HealthState.values()) {
+      columns[state.ordinal()] = new PatientCounts();
+    }
+    columns[HealthState.FEVER.ordinal()].set(HealthState.HEALTHY, 1);
+    columns[HealthState.HEALTHY.ordinal()].set(HealthState.DIABETES, 1);
+    columns[HealthState.DIABETES.ordinal()].set(HealthState.FEVER, 1);
+    columns[HealthState.TUBERCULOSIS.ordinal()].set(HealthState.TUBERCULOSIS, 1);
+    columns[HealthState.DEAD.ordinal()].set(HealthState.DEAD, 1);
+    TransitionMatrix cycle = TransitionMatrix.fromColumns(columns);
+    TransitionMatrix repeated = TransitionMatrix.identity();
+    for (int i = 0; i < 13; i++) {
+      repeated = repeated.then(cycle);
+    }
+
+    // When
+    TransitionMatrix power = cycle.power(13);
+
+    // Then
+    assertEquals(repeated, power);
+    assertTrue(cycle.power(0).isIdentity());
+    assertTrue(cycle.power(3).isIdentity());
+    assertEquals(cycle, cycle.power(1_000_000_000_000L));
+  }
+
+  private static TransitionMatrix feverToHealthy() {
+    return unitMove(HealthState.FEVER, HealthState.HEALTHY);
+  }
+
+  private static TransitionMatrix unitMove(HealthState fromState, HealthState toState) {
+    PatientCounts[] columns = new PatientCounts[HealthState.values().length];
+    for (HealthState state : HealthState.values()) {
+      columns[state.ordinal()] = new PatientCounts();
+      columns[state.ordinal()].set(state == fromState ? toState : state, 1);
+    }
+    return TransitionMatrix.fromColumns(columns);
+  }
+
+  @Test
+  void testToStateMappingShouldDescribeZeroOneMatrices() {
+    // Given
+    PatientCounts[] columns = new PatientCounts[HealthState.values().length];
+    for (HealthState state : HealthState.values()) {
+      columns[state.ordinal()] = PatientCounts.from(Map.of(
+          state == HealthState.FEVER ? HealthState.HEALTHY : state, 1));
+    }
+    TransitionMatrix cure = TransitionMatrix.fromColumns(columns);
+    columns[HealthState.DIABETES.ordinal()] = PatientCounts.from(Map.of(HealthState.DIABETES, 2));
+    TransitionMatrix doubling = TransitionMatrix.fromColumns(columns);
+
+    // When
+    byte[] mapping = cure.toStateMapping();
+
+    // Then
+    assertArrayEquals(new byte[] { 0, 0, 2, 3, 4 }, mapping);
+    assertNull(doubling.toStateMapping());
+  }
+}
@@ -0,0 +1,190 @@
+package com.hospital.rule.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.apache.commons.math3.stat.inference.ChiSquareTest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+class FastBinomialSamplerTest {
+
+  private static final int SAMPLE_SIZE = 200_000;
+  private static final double SIGNIFICANCE_LEVEL = 0.001;
+
+  static Stream<Arguments> provideTrialsAndProbabilities() {
+    return Stream.of(
+        // Inversion: the FlyingSpaghettiMonsterRule regime
+        Arguments.of(2_000_000, 1e-6),
+        Arguments.of(30_000_000, 1e-6),
+        Arguments.of(50, 0.3),
+        // BTPE
+        Arguments.of(1_000, 0.5),
+        Arguments.of(100_000, 0.02),
+        Arguments.of(120, 0.25),
+        // Complement of both regimes
+        Arguments.of(200, 0.9),
+        Arguments.of(10_000, 0.97));
+  }
+
+  @ParameterizedTest
+  @MethodSource("provideTrialsAndProbabilities")
+  void testSampleShouldFollowCommonsMathBinomialDistribution(int trials, double probability) {
+    // Given
+    FastBinomialSampler sampler = new FastBinomialSampler(42L);
+    BinomialDistribution distribution = new BinomialDistribution(trials, probability);
+
+    // When
+    double mean = trials * probability;
+    int maxValue = (int) Math.min(trials, Math.ceil(mean + 15 * Math.sqrt(mean) + 20));
+    long[] histogram = new long[maxValue + 1];
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      histogram[Math.min(sampler.sample(trials, probability), maxValue)]++;
+    }
+
+    // Then
+    assertTrue(chiSquarePValue(distribution, histogram) > SIGNIFICANCE_LEVEL);
+  }
+
+  @Test
+  void testSampleWithTrialsAboveIntegerRangeShouldHaveBinomialMean() {
+    // Given
+    FastBinomialSampler sampler = new FastBinomialSampler(7L);
+    long trials = 5_000_000_000L;
+    double probability = 1e-6;
+    int sampleSize = 20_000;
+
+    // When
+    double sum = 0;
+    for (int i = 0; i < sampleSize; i++) {
+      sum += sampler.sample(trials, probability);
+    }
+
+    // Then
+    double expectedMean = trials * probability;
+    double standardError = Math.sqrt(expectedMean * (1 - probability) / sampleSize);
+    assertEquals(expectedMean, sum / sampleSize, 5 * standardError);
+  }
+
+  @Test
+  void testSampleWithSameSeedShouldBeReproducible() {
+    // Given
+    FastBinomialSampler first = new FastBinomialSampler(123L);
+    FastBinomialSampler second = new FastBinomialSampler(123L);
+
+    // When / Then
+    for (int i = 0; i < 1_000; i++) {
+      assertEquals(first.sample(10_000, 0.3), second.sample(10_000, 0.3));
+    }
+  }
+
+  @Test
+  void testSampleWithExternalStreamShouldOnlyDependOnThatStream() {
+    // Given
+    FastBinomialSampler sampler = new FastBinomialSampler();
+
+    // When
+    long first = sampler.sample(1_000_000L, 0.3, new SplittableRandom(5L));
+    long second = sampler.sample(1_000_000L, 0.3, new SplittableRandom(5L));
+
+    // Then
+    assertEquals(first, second);
+  }
+
+  @Test
+  void testSplitShouldProduceIndependentReproducibleSamplers() {
+    // Given
+    FastBinomialSampler first = new FastBinomialSampler(9L).split();
+    FastBinomialSampler second = new FastBinomialSampler(9L).split();
+
+    // When / Then
+    for (int i = 0; i < 100; i++) {
+      assertEquals(first.sample(10_000, 0.3), second.sample(10_000, 0.3));
+    }
+    assertThrows(UnsupportedOperationException.class, () -> new FastBinomialSampler().split());
+  }
+
+  @Test
+  void testSampleWithDegenerateParametersShouldReturnBounds() {
+    FastBinomialSampler sampler = new FastBinomialSampler();
+
+    assertEquals(0, sampler.sample(0, 0.5));
+    assertEquals(0, sampler.sample(1_000, 0.0));
+    assertEquals(1_000, sampler.sample(1_000, 1.0));
+    assertEquals(Long.MAX_VALUE, sampler.sample(Long.MAX_VALUE, 1.0));
+  }
+
+  @Test
+  void testSampleWithInvalidParametersShouldThrowIllegalArgumentException() {
+    FastBinomialSampler sampler = new FastBinomialSampler();
+
+    assertEquals("Invalid number of trials: -1",
+        assertThrows(IllegalArgumentException.class, () -> sampler.sample(-1, 0.5)).getMessage());
+    assertEquals("Invalid probability: 1.5",
+        assertThrows(IllegalArgumentException.class, () -> sampler.sample(10, 1.5)).getMessage());
+    assertThrows(IllegalArgumentException.class, () -> sampler.sample(10, Double.NaN));
+  }
+
+  @Test
+  void testSampleShouldNotAllocate() {
+    // Given
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    FastBinomialSampler sampler = new FastBinomialSampler(1L);
+    int iterations = 10_000;
+    long checksum = 0;
+    for (int i = 0; i < 5 * iterations; i++) {
+      checksum += sampler.sample(2_000_000L, 1e-6) + sampler.sample(1_000_000L, 0.4);
+    }
+
+    // When
+    long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < iterations; i++) {
+      checksum += sampler.sample(2_000_000L, 1e-6) + sampler.sample(1_000_000L, 0.4);
+    }
+    long allocatedAfter = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    // Then
+    assertTrue(checksum > 0);
+    assertEquals(0, (allocatedAfter - allocatedBefore) / iterations);
+  }
+
+  /**
+   * Pearson's chi-square test on cells merged until each one expects at least
+   * five observations.
+   */
+  private static double chiSquarePValue(BinomialDistribution distribution, long[] histogram) {
+    List<Double> expected = new ArrayList<>();
+    List<Long> observed = new ArrayList<>();
+    double expectedCell = 0;
+    long observedCell = 0;
+    for (int k = 0; k < histogram.length; k++) {
+      expectedCell += SAMPLE_SIZE * distribution.probability(k);
+      observedCell += histogram[k];
+      if (expectedCell >= 5 && SAMPLE_SIZE * (1 - distribution.cumulativeProbability(k)) >= 5) {
+        expected.add(expectedCell);
+        observed.add(observedCell);
+        expectedCell = 0;
+        observedCell = 0;
+      }
+    }
+    // Upper tail
+    int last = expected.size() - 1;
+    expected.set(last, expected.get(last) + expectedCell);
+    observed.set(last, observed.get(last) + observedCell);
+
+    return new ChiSquareTest().chiSquareTest(
+        expected.stream().mapToDouble(Double::doubleValue).toArray(),
+        observed.stream().mapToLong(Long::longValue).toArray());
+  }
+}
@@ -1,11 +1,14 @@
 package com.hospital.rule.impl;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyDouble;
 import static org.mockito.ArgumentMatchers.anyInt;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -84,4 +87,25 @@ class FlyingSpaghettiMonsterRuleTest {
     assertEquals(0, result.get(HealthState.TUBERCULOSIS));
     assertEquals(0, result.get(HealthState.DIABETES));
   }
+
+  @Test
+  void testApplyToPatientsShouldResurrectAboutOneInAMillionDeadPatients() {
+    // Given
+    byte[] states = new byte[20_000_000];
+    Arrays.fill(states, (byte) HealthState.DEAD.ordinal());
+    states[0] = (byte) HealthState.FEVER.ordinal();
+
+    // When
+    FlyingSpaghettiMonsterRule rule = new FlyingSpaghettiMonsterRule();
+    rule.applyToPatients(states, 0, states.length, Set.of(), new SplittableRandom(42));
+
+    // Then
+    int resurrected = 0;
+    for (byte state : states) {
+      resurrected += state == HealthState.HEALTHY.ordinal() ? 1 : 0;
+    }
+    // Poisson with mean 20: more than six standard deviations away is practically impossible
+    assertTrue(resurrected > 0 && resurrected < 50, "resurrected: " + resurrected);
+    assertEquals(HealthState.FEVER.ordinal(), states[0]);
+  }
 }
@@ -0,0 +1,65 @@
+package com.hospital.rule.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.Rule;
+
+class RuleMetadataTest {
+
+  private static final HealthState[] HEALTH_STATES = HealthState.values();
+
+  static Stream<Rule> allRules() {
+    return Stream.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new FlyingSpaghettiMonsterRule((trials, probability) -> trials),
+        new InsulinRule(),
+        new ParacetamolRule());
+  }
+
+  @ParameterizedTest
+  @MethodSource("allRules")
+  void testRuleShouldOnlyChangePatientsItDeclaresForEveryDrugSet(Rule rule) {
+    int readStates = HealthState.toMask(rule.readStates());
+    int writtenStates = HealthState.toMask(rule.writtenStates());
+    for (int drugMask = 0; drugMask < Drug.COMBINATIONS; drugMask++) {
+      Set<Drug> drugs = Drug.fromMask(drugMask);
+      boolean triggered = rule.triggerDrugs().isEmpty() || rule.triggerDrugs().stream().anyMatch(drugs::contains);
+      for (int stateMask = 0; stateMask < 1 << HEALTH_STATES.length; stateMask++) {
+        // Given
+        PatientCounts before = new PatientCounts();
+        for (HealthState state : HEALTH_STATES) {
+          if ((stateMask & 1 << state.ordinal()) != 0) {
+            before.set(state, 7);
+          }
+        }
+        PatientCounts after = before.copy();
+
+        // When
+        rule.applyInPlace(after, drugs, new SplittableRandom(drugMask));
+
+        // Then
+        int changedStates = 0;
+        for (HealthState state : HEALTH_STATES) {
+          if (before.get(state) != after.get(state)) {
+            changedStates |= 1 << state.ordinal();
+          }
+        }
+        if (!triggered || (stateMask & readStates) == 0) {
+          assertEquals(0, changedStates, "Rule fired for drugs " + drugs + " and patients " + before);
+        }
+        assertEquals(0, changedStates & ~writtenStates, "Rule wrote undeclared states for patients " + before);
+      }
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.DrugSchedule;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.MappedPopulation;
+import com.hospital.domain.PatientCounts;
+import com.hospital.domain.PatientPopulation;
+import com.hospital.rule.Rule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class AgentSimulationTest {
+
+  private static final SimulatorEngine DETERMINISTIC_ENGINE = new SimulatorEngine(List.of(
+      new AspirinRule(),
+      new AntibioticRule(),
+      new InsulinRule(),
+      new ParacetamolRule()));
+
+  @Test
+  void testSimulatePopulationShouldMatchCountBasedSimulationForEveryDrugSet() {
+    for (int mask = 0; mask < Drug.COMBINATIONS; mask++) {
+      // Given
+      Set<Drug> drugs = Drug.fromMask(mask);
+      PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.HEALTHY, 11, HealthState.FEVER, 7,
+          HealthState.DIABETES, 5, HealthState.TUBERCULOSIS, 3, HealthState.DEAD, 2));
+      PatientPopulation population = PatientPopulation.of(patientCounts);
+
+      // When
+      DETERMINISTIC_ENGINE.simulate(population, drugs, 42L);
+
+      // Then
+      assertEquals(DETERMINISTIC_ENGINE.simulate(patientCounts, drugs), population.countStates(), "drugs " + drugs);
+    }
+  }
+
+  @Test
+  void testSimulatePopulationShouldTrackIndividualPatients() {
+    // Given
+    PatientPopulation population = new PatientPopulation(3);
+    population.set(0, HealthState.FEVER);
+    population.set(1, HealthState.TUBERCULOSIS);
+    population.set(2, HealthState.DIABETES);
+
+    // When
+    DETERMINISTIC_ENGINE.simulate(population, Set.of(Drug.ANTIBIOTIC), 42L);
+
+    // Then
+    assertEquals(HealthState.FEVER, population.get(0));
+    assertEquals(HealthState.HEALTHY, population.get(1));
+    assertEquals(HealthState.DEAD, population.get(2));
+  }
+
+  @Test
+  void testSimulatePopulationShouldNotDependOnParallelism() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(
+        new InsulinRule(),
+        new FlyingSpaghettiMonsterRule()));
+    long size = 5L * AgentSimulation.CHUNK_SIZE + 123;
+    PatientPopulation sequential = PatientPopulation.of(PatientCounts.from(Map.of(HealthState.DIABETES, (int) size)));
+    PatientPopulation parallel = PatientPopulation.of(PatientCounts.from(Map.of(HealthState.DIABETES, (int) size)));
+
+    // When
+    simulatorEngine.simulate(sequential, Set.of(), 7L, 1);
+    simulatorEngine.simulate(parallel, Set.of(), 7L, 4);
+
+    // Then
+    assertEquals(sequential.countStates(), parallel.countStates());
+    assertArrayEquals(sequential.segment(0), parallel.segment(0));
+  }
+
+  @Test
+  void testSimulatePopulationWithMapBasedRuleShouldThrowIllegalArgumentException() {
+    // Given
+    Rule mapBasedRule = (patientsByState, drugs) -> patientsByState;
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(mapBasedRule));
+    PatientPopulation population = new PatientPopulation(1);
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> simulatorEngine.simulate(population, Set.of(), 42L));
+
+    // Then
+    assertTrue(exception.getMessage().endsWith("cannot be applied to individual patients."));
+  }
+
+  @Test
+  void testSimulateMappedPopulationShouldMatchHeapPopulation(@TempDir Path tempDir) throws IOException {
+    // Given
+    SimulatorEngine simulatorEngine = stochasticEngine();
+    PatientCounts patientCounts = mixedPatients();
+    DrugSchedule schedule = DrugSchedule.of(List.of(Set.of(Drug.ASPIRIN), Set.of(), Set.of(Drug.ANTIBIOTIC)));
+    PatientPopulation expected = PatientPopulation.of(patientCounts);
+    for (long step = 0; step < 3; step++) {
+      simulatorEngine.simulate(expected, schedule.drugsAt(step), RandomStreams.stream(5L, step).nextLong(), 2);
+    }
+
+    try (MappedPopulation population = MappedPopulation.create(tempDir.resolve("population"), patientCounts, 5L)) {
+      // When
+      simulatorEngine.simulateSteps(population, schedule, 3, 2);
+
+      // Then
+      assertEquals(3, population.completedSteps());
+      assertEquals(expected.countStates(), population.countStates());
+      for (long index = 0; index < population.size(); index += 9_973) {
+        assertEquals(expected.get(index), population.get(index));
+      }
+    }
+  }
+
+  @Test
+  void testSimulateMappedPopulationShouldResumeFromLastCheckpoint(@TempDir Path tempDir) throws IOException {
+    // Given
+    SimulatorEngine simulatorEngine = stochasticEngine();
+    PatientCounts patientCounts = mixedPatients();
+    DrugSchedule schedule = DrugSchedule.cyclic(List.of(Set.of(), Set.of(Drug.INSULIN)));
+    Path uninterrupted = tempDir.resolve("uninterrupted");
+    Path resumed = tempDir.resolve("resumed");
+    try (MappedPopulation population = MappedPopulation.create(uninterrupted, patientCounts, 9L)) {
+      simulatorEngine.simulateSteps(population, schedule, 4, 1);
+    }
+    try (MappedPopulation population = MappedPopulation.create(resumed, patientCounts, 9L)) {
+      simulatorEngine.simulateSteps(population, schedule, 2, 1);
+      // A third step stopped halfway through
+      population.beginStep();
+      population.write(0, new byte[1_000], 1_000);
+    }
+
+    // When
+    try (MappedPopulation population = MappedPopulation.open(resumed)) {
+      simulatorEngine.simulateSteps(population, schedule, 4, 3);
+
+      // Then
+      assertEquals(4, population.completedSteps());
+    }
+    assertEquals(-1, Files.mismatch(uninterrupted, resumed));
+  }
+
+  private static SimulatorEngine stochasticEngine() {
+    return new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule()));
+  }
+
+  /** Spans a few chunks, with enough dead patients for some resurrections. */
+  private static PatientCounts mixedPatients() {
+    return PatientCounts.from(Map.of(HealthState.FEVER, 1_000_000, HealthState.DIABETES, 1_500_000,
+        HealthState.TUBERCULOSIS, 500_000, HealthState.DEAD, 2_000_000));
+  }
+}
@@ -0,0 +1,164 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class AsyncSimulatorTest {
+
+  private final SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(),
+      new AntibioticRule(), new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+
+  @Test
+  void testSimulateAsyncShouldMatchSynchronousSimulation() throws Exception {
+    // Given
+    List<SimulationRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      requests.add(new SimulationRequest(Map.of(HealthState.FEVER, i, HealthState.DEAD, 1000),
+          Set.of(Drug.ASPIRIN), (long) i));
+    }
+
+    // When
+    List<CompletableFuture<SimulationResponse>> futures = new ArrayList<>();
+    try (AsyncSimulator simulator = new AsyncSimulator(simulatorEngine)) {
+      for (SimulationRequest request : requests) {
+        futures.add(simulator.simulateAsync(request));
+      }
+    }
+
+    // Then
+    for (int i = 0; i < requests.size(); i++) {
+      assertEquals(simulatorEngine.simulate(requests.get(i)), futures.get(i).get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  void testSimulateAsyncShouldRejectBeyondCapacity() throws Exception {
+    // Given
+    HeldExecutor executor = new HeldExecutor();
+    AsyncSimulator simulator = new AsyncSimulator(simulatorEngine, executor, 2,
+        AsyncSimulator.OverflowPolicy.REJECT);
+
+    // When
+    CompletableFuture<SimulationResponse> first = simulator.simulateAsync(request());
+    CompletableFuture<SimulationResponse> second = simulator.simulateAsync(request());
+    CompletableFuture<SimulationResponse> third = simulator.simulateAsync(request());
+    int pendingWhenFull = simulator.pending();
+    executor.runAll();
+
+    // Then
+    assertEquals(2, pendingWhenFull);
+    assertEquals(0, simulator.pending());
+    assertEquals(1, simulator.rejected());
+    assertTrue(first.isDone() && second.isDone());
+    ExecutionException error = assertThrows(ExecutionException.class, third::get);
+    assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    assertFalse(simulator.simulateAsync(request()).isDone());
+  }
+
+  @Test
+  void testSimulateAsyncShouldRunOnCallerBeyondCapacity() throws Exception {
+    // Given
+    HeldExecutor executor = new HeldExecutor();
+    AsyncSimulator simulator = new AsyncSimulator(simulatorEngine, executor, 1,
+        AsyncSimulator.OverflowPolicy.CALLER_RUNS);
+
+    // When
+    CompletableFuture<SimulationResponse> queued = simulator.simulateAsync(request());
+    CompletableFuture<SimulationResponse> overflowing = simulator.simulateAsync(request());
+
+    // Then
+    assertFalse(queued.isDone());
+    assertEquals(simulatorEngine.simulate(request()), overflowing.getNow(null));
+    assertEquals(0, simulator.rejected());
+  }
+
+  @Test
+  void testSimulateAsyncShouldBlockUntilCapacityIsReleased() throws Exception {
+    // Given
+    HeldExecutor executor = new HeldExecutor();
+    AsyncSimulator simulator = new AsyncSimulator(simulatorEngine, executor, 1,
+        AsyncSimulator.OverflowPolicy.BLOCK);
+    CompletableFuture<SimulationResponse> queued = simulator.simulateAsync(request());
+
+    // When
+    CompletableFuture<CompletableFuture<SimulationResponse>> blocked =
+        CompletableFuture.supplyAsync(() -> simulator.simulateAsync(request()));
+    Thread.sleep(50);
+    boolean submittedWhileFull = blocked.isDone();
+    executor.runAll();
+    blocked.get(10, TimeUnit.SECONDS);
+    executor.runAll();
+
+    // Then
+    assertFalse(submittedWhileFull);
+    assertTrue(queued.isDone());
+    assertEquals(simulatorEngine.simulate(request()), blocked.get().get(10, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void testSimulateAsyncShouldFailFutureOnInvalidRequestAndAfterClose() {
+    // Given
+    AsyncSimulator simulator = new AsyncSimulator(simulatorEngine);
+
+    // When
+    CompletableFuture<SimulationResponse> invalid = simulator.simulateAsync(null);
+    simulator.close();
+    CompletableFuture<SimulationResponse> afterClose = simulator.simulateAsync(request());
+
+    // Then
+    ExecutionException error = assertThrows(ExecutionException.class, invalid::get);
+    assertInstanceOf(IllegalArgumentException.class, error.getCause());
+    error = assertThrows(ExecutionException.class, afterClose::get);
+    assertInstanceOf(RejectedExecutionException.class, error.getCause());
+    assertEquals(0, simulator.pending());
+  }
+
+  private static SimulationRequest request() {
+    return new SimulationRequest(Map.of(HealthState.FEVER, 3), Set.of(Drug.PARACETAMOL), 42L);
+  }
+
+  /**
+   * Executor holding its tasks until {@link #runAll()}, which keeps
+   * simulations pending.
+   */
+  private static final class HeldExecutor implements Executor {
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    @Override
+    public synchronized void execute(Runnable task) {
+      tasks.add(task);
+    }
+
+    synchronized void runAll() {
+      List<Runnable> held = new ArrayList<>(tasks);
+      tasks.clear();
+      held.forEach(Runnable::run);
+    }
+  }
+}
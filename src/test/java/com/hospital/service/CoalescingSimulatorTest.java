@@ -0,0 +1,231 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
+import com.hospital.service.metrics.SimulationMetrics;
+
+class CoalescingSimulatorTest {
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void testIdenticalDeterministicRequestsShouldShareOneSimulation() throws Exception {
+    // Given
+    GatedRule rule = new GatedRule(true, null);
+    SimulationMetrics metrics = new SimulationMetrics();
+    CoalescingSimulator simulator = new CoalescingSimulator(new SimulatorEngine(List.of(rule), null, metrics));
+    SimulationRequest leaderRequest = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of(Drug.ASPIRIN), 1L);
+
+    // When
+    Future<SimulationResponse> leader = executor.submit(() -> simulator.simulate(leaderRequest));
+    rule.awaitEntered(1);
+    List<Future<SimulationResponse>> followers = new ArrayList<>();
+    for (long seed = 2; seed <= 10; seed++) {
+      SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of(Drug.ASPIRIN), seed);
+      followers.add(executor.submit(() -> simulator.simulate(request)));
+    }
+    await(() -> simulator.stats().coalesced() == 9);
+    rule.release.countDown();
+
+    // Then
+    SimulationResponse leaderResponse = leader.get(10, TimeUnit.SECONDS);
+    for (int i = 0; i < followers.size(); i++) {
+      SimulationResponse response = followers.get(i).get(10, TimeUnit.SECONDS);
+      assertEquals(leaderResponse.patientsByState(), response.patientsByState());
+      assertNotSame(leaderResponse.patientsByState(), response.patientsByState());
+      assertEquals(i + 2L, response.seed());
+    }
+    assertEquals(1, rule.invocations.get());
+    assertEquals(new CoalescingSimulator.Stats(10, 9, 0), simulator.stats());
+    assertEquals(0.9, simulator.stats().coalescingRatio());
+    assertEquals(9, metrics.coalescedRequests());
+    assertEquals(10, metrics.coalescerRequests());
+  }
+
+  @Test
+  void testUnseededStochasticRequestsShouldNotShareSimulationByDefault() throws Exception {
+    // Given
+    GatedRule rule = new GatedRule(false, null);
+    CoalescingSimulator simulator = new CoalescingSimulator(new SimulatorEngine(List.of(rule)));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of());
+
+    // When
+    Future<SimulationResponse> first = executor.submit(() -> simulator.simulate(request));
+    Future<SimulationResponse> second = executor.submit(() -> simulator.simulate(request));
+    rule.awaitEntered(2);
+    rule.release.countDown();
+    first.get(10, TimeUnit.SECONDS);
+    second.get(10, TimeUnit.SECONDS);
+
+    // Then
+    assertEquals(2, rule.invocations.get());
+    assertEquals(new CoalescingSimulator.Stats(2, 0, 0), simulator.stats());
+  }
+
+  @Test
+  void testStochasticRequestsShouldShareSimulationWhenOptedInOrSeededAlike() throws Exception {
+    // Given
+    GatedRule rule = new GatedRule(false, null);
+    CoalescingSimulator simulator = new CoalescingSimulator(new SimulatorEngine(List.of(rule)), true);
+    SimulationRequest unseeded = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of());
+    SimulationRequest seeded = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of(), 7L);
+    SimulationRequest otherSeed = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of(), 8L);
+
+    // When
+    List<Future<SimulationResponse>> responses = new ArrayList<>();
+    for (SimulationRequest request : List.of(unseeded, seeded, otherSeed)) {
+      responses.add(executor.submit(() -> simulator.simulate(request)));
+    }
+    rule.awaitEntered(3);
+    for (SimulationRequest request : List.of(unseeded, seeded, otherSeed)) {
+      responses.add(executor.submit(() -> simulator.simulate(request)));
+    }
+    await(() -> simulator.stats().coalesced() == 3);
+    rule.release.countDown();
+
+    // Then
+    for (int i = 0; i < 3; i++) {
+      assertEquals(responses.get(i).get(10, TimeUnit.SECONDS), responses.get(i + 3).get(10, TimeUnit.SECONDS));
+    }
+    assertEquals(3, rule.invocations.get());
+    assertEquals(new CoalescingSimulator.Stats(6, 3, 0), simulator.stats());
+  }
+
+  @Test
+  void testFailedSimulationShouldFailEveryRequestSharingIt() throws Exception {
+    // Given
+    GatedRule rule = new GatedRule(true, new IllegalStateException("Ward unavailable"));
+    CoalescingSimulator simulator = new CoalescingSimulator(new SimulatorEngine(List.of(rule)));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of());
+
+    // When
+    CompletableFuture<SimulationResponse> leader = CompletableFuture.supplyAsync(() -> simulator.simulate(request),
+        executor);
+    rule.awaitEntered(1);
+    CompletableFuture<SimulationResponse> follower = CompletableFuture.supplyAsync(() -> simulator.simulate(request),
+        executor);
+    await(() -> simulator.stats().coalesced() == 1);
+    rule.release.countDown();
+
+    // Then
+    for (CompletableFuture<SimulationResponse> response : List.of(leader, follower)) {
+      CompletionException error = assertThrows(CompletionException.class, response::join);
+      assertInstanceOf(IllegalStateException.class, error.getCause());
+    }
+    assertEquals(1, rule.invocations.get());
+    assertEquals(0, simulator.stats().inFlight());
+  }
+
+  @Test
+  void testErrorInSimulationShouldFailEveryRequestSharingIt() throws Exception {
+    // Given
+    GatedRule rule = new GatedRule(true, new AssertionError("Ward collapsed"));
+    CoalescingSimulator simulator = new CoalescingSimulator(new SimulatorEngine(List.of(rule)));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 5), Set.of());
+
+    // When
+    CompletableFuture<SimulationResponse> leader = CompletableFuture.supplyAsync(() -> simulator.simulate(request),
+        executor);
+    rule.awaitEntered(1);
+    CompletableFuture<SimulationResponse> follower = CompletableFuture.supplyAsync(() -> simulator.simulate(request),
+        executor);
+    await(() -> simulator.stats().coalesced() == 1);
+    rule.release.countDown();
+
+    // Then
+    for (CompletableFuture<SimulationResponse> response : List.of(leader, follower)) {
+      ExecutionException error = assertThrows(ExecutionException.class, () -> response.get(10, TimeUnit.SECONDS));
+      assertInstanceOf(AssertionError.class, error.getCause());
+    }
+    assertEquals(0, simulator.stats().inFlight());
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  /**
+   * Rule curing every fever patient once released, which keeps its
+   * simulations in flight until then.
+   */
+  private static final class GatedRule implements InPlaceRule {
+
+    private final boolean deterministic;
+    private final Throwable failure;
+    private final AtomicInteger invocations = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * @param failure the runtime exception or error thrown once released, or
+     *        {@code null} to cure
+     */
+    GatedRule(boolean deterministic, Throwable failure) {
+      this.deterministic = deterministic;
+      this.failure = failure;
+    }
+
+    @Override
+    public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+      invocations.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+      if (failure instanceof RuntimeException e) {
+        throw e;
+      }
+      if (failure instanceof Error e) {
+        throw e;
+      }
+      patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, patientCounts.get(HealthState.FEVER));
+    }
+
+    @Override
+    public boolean isDeterministic() {
+      return deterministic;
+    }
+
+    void awaitEntered(int count) throws InterruptedException {
+      await(() -> invocations.get() == count);
+    }
+  }
+}
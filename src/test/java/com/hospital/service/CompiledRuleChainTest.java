@@ -0,0 +1,156 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.Rule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class CompiledRuleChainTest {
+
+  private static final Rule[] RULES = {
+      new AspirinRule(),
+      new AntibioticRule(),
+      new InsulinRule(),
+      new ParacetamolRule(),
+      new FlyingSpaghettiMonsterRule((trials, probability) -> 1) };
+
+  static IntStream allDrugMasks() {
+    return IntStream.range(0, Drug.COMBINATIONS);
+  }
+
+  @ParameterizedTest
+  @MethodSource("allDrugMasks")
+  void testCompiledChainShouldMatchSequentialRuleApplication(int drugMask) {
+    // Given
+    Set<Drug> drugs = Drug.fromMask(drugMask);
+    PatientCounts expected = PatientCounts.from(Map.of(HealthState.FEVER, 3, HealthState.HEALTHY, 5,
+        HealthState.DIABETES, 7, HealthState.TUBERCULOSIS, 11, HealthState.DEAD, 13));
+    PatientCounts actual = expected.copy();
+
+    // When
+    for (Rule rule : RULES) {
+      rule.applyInPlace(expected, drugs);
+    }
+    CompiledRuleChain.compile(RULES, drugs).apply(actual, drugs, new SplittableRandom(1L));
+
+    // Then
+    assertEquals(drugMask, Drug.toMask(drugs));
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  void testCompileShouldFoldLinearRulesAndKeepOtherRulesInOrder() {
+    // Given
+    Rule nonLinearRule = (patientsByState, drugs) -> patientsByState;
+    Rule[] rules = { new AspirinRule(), new AntibioticRule(), nonLinearRule, new InsulinRule() };
+
+    // When
+    CompiledRuleChain chain = CompiledRuleChain.compile(rules, Set.of(Drug.ASPIRIN));
+
+    // Then
+    assertEquals(3, chain.size());
+    assertInstanceOf(CompiledRuleChain.MatrixStep.class, chain.step(0));
+    assertEquals(new CompiledRuleChain.RuleStep(nonLinearRule), chain.step(1));
+    assertInstanceOf(CompiledRuleChain.MatrixStep.class, chain.step(2));
+  }
+
+  @Test
+  void testCompileShouldDropLinearRunsWithoutEffect() {
+    // Given
+    Rule[] rules = { new AspirinRule(), new AntibioticRule() };
+
+    // When
+    CompiledRuleChain chain = CompiledRuleChain.compile(rules, Set.of());
+
+    // Then
+    assertEquals(0, chain.size());
+  }
+
+  @Test
+  void testCompileShouldElideRulesWhoseTriggerDrugsAreAbsent() {
+    // Given
+    Rule[] rules = { new AspirinRule(), new AntibioticRule(), new FlyingSpaghettiMonsterRule() };
+
+    // When
+    CompiledRuleChain chain = CompiledRuleChain.compile(rules, Set.of(Drug.INSULIN));
+
+    // Then
+    assertEquals(1, chain.size());
+    assertEquals(new CompiledRuleChain.RuleStep(rules[2]), chain.step(0));
+    assertEquals(2, chain.elidedRules());
+  }
+
+  @Test
+  void testApplyShouldSkipStepsWithoutPatientsInTheStatesTheyRead() {
+    // Given
+    AtomicInteger invocations = new AtomicInteger();
+    Rule[] rules = { new InsulinRule(), deadReadingRule(invocations) };
+    CompiledRuleChain chain = CompiledRuleChain.compile(rules, Set.of(Drug.INSULIN));
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 4));
+
+    // When
+    chain.apply(patientCounts, Set.of(Drug.INSULIN), new SplittableRandom(1L));
+
+    // Then
+    assertEquals(0, invocations.get());
+    assertEquals(2, chain.skippedInvocations());
+    assertEquals(PatientCounts.from(Map.of(HealthState.FEVER, 4)), patientCounts);
+  }
+
+  @Test
+  void testApplyShouldRunStepsReadingStatesWrittenByEarlierSteps() {
+    // Given
+    AtomicInteger invocations = new AtomicInteger();
+    Rule[] rules = { new AspirinRule(), new InsulinRule(), deadReadingRule(invocations) };
+    CompiledRuleChain chain = CompiledRuleChain.compile(rules, Set.of());
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.DIABETES, 2));
+
+    // When
+    chain.apply(patientCounts, Set.of(), new SplittableRandom(1L));
+
+    // Then
+    assertEquals(1, invocations.get());
+    assertEquals(1, chain.skippedInvocations());
+    assertEquals(PatientCounts.from(Map.of(HealthState.DEAD, 2)), patientCounts);
+  }
+
+  private static Rule deadReadingRule(AtomicInteger invocations) {
+    return new Rule() {
+
+      @Override
+      public Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
+        invocations.incrementAndGet();
+        return patientsByState;
+      }
+
+      @Override
+      public Set<HealthState> readStates() {
+        return EnumSet.of(HealthState.DEAD);
+      }
+
+      @Override
+      public Set<HealthState> writtenStates() {
+        return EnumSet.of(HealthState.DEAD);
+      }
+    };
+  }
+}
@@ -0,0 +1,156 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.EnsembleResponse;
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FastBinomialSampler;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class EnsembleSimulationTest {
+
+  private static final int FEVER_PATIENTS = 1_000;
+
+  /** Cures each fever patient with probability 1/2, so cured patients follow Binomial(n, 1/2). */
+  private static final InPlaceRule COIN_FLIP_RULE = new InPlaceRule() {
+
+    private final FastBinomialSampler sampler = new FastBinomialSampler();
+
+    @Override
+    public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+      applyInPlace(patientCounts, drugs, RandomGenerator.getDefault());
+    }
+
+    @Override
+    public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+      long cured = sampler.sample(patientCounts.get(HealthState.FEVER), 0.5, random);
+      patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, cured);
+    }
+  };
+
+  private static final SimulationRequest REQUEST = new SimulationRequest(
+      Map.of(HealthState.FEVER, FEVER_PATIENTS, HealthState.DIABETES, 3), Set.of(), 42L);
+
+  @Test
+  void testSimulateEnsembleShouldMatchBinomialMoments() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(COIN_FLIP_RULE));
+
+    // When
+    EnsembleResponse response = simulatorEngine.simulateEnsemble(REQUEST, 100_000);
+
+    // Then
+    EnsembleResponse.Statistics healthy = response.statisticsByState().get(HealthState.HEALTHY);
+    assertEquals(100_000, response.replicates());
+    assertEquals(FEVER_PATIENTS / 2.0, healthy.mean(), 0.5);
+    assertEquals(FEVER_PATIENTS / 4.0, healthy.variance(), 5);
+    assertEquals(500, healthy.p50(), 2);
+    // Binomial(1000, 1/2) has its 95th and 99th percentiles at 526 and 537
+    assertEquals(526, healthy.p95(), 2);
+    assertEquals(537, healthy.p99(), 2);
+    assertTrue(healthy.min() < 450 && healthy.max() > 550);
+
+    EnsembleResponse.Statistics diabetes = response.statisticsByState().get(HealthState.DIABETES);
+    assertEquals(new EnsembleResponse.Statistics(3, 0, 3, 3, 3, 3, 3), diabetes);
+  }
+
+  @Test
+  void testSimulateEnsembleShouldNotDependOnParallelism() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(COIN_FLIP_RULE));
+
+    // When
+    EnsembleResponse sequential = simulatorEngine.simulateEnsemble(REQUEST, 50_000, 1);
+    EnsembleResponse parallel = simulatorEngine.simulateEnsemble(REQUEST, 50_000, 4);
+
+    // Then
+    assertEquals(sequential, parallel);
+    assertEquals(42L, sequential.seed());
+  }
+
+  @Test
+  void testSimulateEnsembleShouldStopOnceConfidenceIntervalIsNarrowEnough() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(COIN_FLIP_RULE));
+
+    // When
+    EnsembleResponse sequential = simulatorEngine.simulateEnsemble(REQUEST, 0.2, 0.95, 10_000_000, 1);
+    EnsembleResponse parallel = simulatorEngine.simulateEnsemble(REQUEST, 0.2, 0.95, 10_000_000, 4);
+
+    // Then
+    // The half-width is 1.96 * sqrt(250 / n), so n must reach 24,010: six chunks
+    assertEquals(6 * EnsembleSimulation.CHUNK_SIZE, sequential.replicates());
+    assertEquals(sequential, parallel);
+  }
+
+  @Test
+  void testSimulateEnsembleShouldStopAtMaxReplicates() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(COIN_FLIP_RULE));
+
+    // When
+    EnsembleResponse response = simulatorEngine.simulateEnsemble(REQUEST, 1e-6, 0.95, 5_000, 2);
+
+    // Then
+    assertEquals(5_000, response.replicates());
+  }
+
+  @Test
+  void testSimulateEnsembleOfDeterministicRulesShouldHaveNoSpread() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(
+        new AspirinRule(), new AntibioticRule(), new InsulinRule(), new ParacetamolRule()));
+    SimulationRequest request = new SimulationRequest(
+        Map.of(HealthState.FEVER, 300, HealthState.TUBERCULOSIS, 2), Set.of(Drug.PARACETAMOL));
+
+    // When
+    EnsembleResponse response = simulatorEngine.simulateEnsemble(request, 1e-3, 0.99, 1_000_000);
+
+    // Then
+    assertEquals(EnsembleSimulation.CHUNK_SIZE, response.replicates());
+    assertEquals(new EnsembleResponse.Statistics(300, 0, 300, 300, 300, 300, 300),
+        response.statisticsByState().get(HealthState.HEALTHY));
+  }
+
+  @Test
+  void testSimulateEnsembleWithNonPositiveReplicatesShouldThrowIllegalArgumentException() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(COIN_FLIP_RULE));
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> simulatorEngine.simulateEnsemble(REQUEST, 0));
+
+    // Then
+    assertEquals("Number of replicates must be positive.", exception.getMessage());
+  }
+
+  @Test
+  void testSimulateEnsembleWithInvalidConfidenceShouldThrowIllegalArgumentException() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(COIN_FLIP_RULE));
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> simulatorEngine.simulateEnsemble(REQUEST, 0.5, 1.0, 1_000));
+
+    // Then
+    assertEquals("Confidence level must be between 0 and 1.", exception.getMessage());
+  }
+}
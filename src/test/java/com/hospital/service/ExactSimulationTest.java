@@ -0,0 +1,183 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.junit.jupiter.api.Test;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.BinomialRule;
+import com.hospital.rule.InPlaceRule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FastBinomialSampler;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.stats.CountDistribution;
+
+class ExactSimulationTest {
+
+  /** Cures each fever patient with probability 1/2. */
+  private static final class CoinFlipRule implements InPlaceRule, BinomialRule {
+
+    private final FastBinomialSampler sampler = new FastBinomialSampler();
+
+    @Override
+    public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+      applyInPlace(patientCounts, drugs, RandomGenerator.getDefault());
+    }
+
+    @Override
+    public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs, RandomGenerator random) {
+      long cured = sampler.sample(patientCounts.get(HealthState.FEVER), 0.5, random);
+      patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, cured);
+    }
+
+    @Override
+    public HealthState sourceState() {
+      return HealthState.FEVER;
+    }
+
+    @Override
+    public HealthState targetState() {
+      return HealthState.HEALTHY;
+    }
+
+    @Override
+    public double probability(Set<Drug> drugs) {
+      return 0.5;
+    }
+  }
+
+  private static SimulatorEngine defaultEngine() {
+    return new SimulatorEngine(List.of(new AspirinRule(), new AntibioticRule(), new InsulinRule(),
+        new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+  }
+
+  @Test
+  void testDistributionOfDeterministicChainShouldBeCertain() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(), new InsulinRule()));
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2));
+
+    // When
+    OutcomeDistribution distribution = simulatorEngine.distribution(patientCounts, Set.of(Drug.ASPIRIN));
+
+    // Then
+    assertEquals(1, distribution.outcomes());
+    assertEquals(3, distribution.mean(HealthState.HEALTHY));
+    assertEquals(0, distribution.variance(HealthState.HEALTHY));
+    assertEquals(1, distribution.marginal(HealthState.DEAD).probability(2));
+    assertEquals(3, patientCounts.get(HealthState.FEVER));
+  }
+
+  @Test
+  void testDistributionShouldResurrectDeadPatientsBinomially() {
+    // Given
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2));
+    double p = 1e-6;
+
+    // When
+    OutcomeDistribution distribution = defaultEngine().distribution(patientCounts, Set.of(Drug.ASPIRIN));
+
+    // Then
+    assertEquals(3, distribution.outcomes());
+    assertEquals(3 + 2 * p, distribution.mean(HealthState.HEALTHY), 1e-15);
+    assertEquals(2 * p * (1 - p), distribution.variance(HealthState.HEALTHY), 1e-18);
+    assertEquals(2 * p - p * p, distribution.probabilityAtLeast(HealthState.HEALTHY, 4), 1e-20);
+    assertEquals(p * p, distribution.marginal(HealthState.DEAD).probability(0), 1e-24);
+    assertEquals(0, distribution.variance(HealthState.FEVER));
+  }
+
+  @Test
+  void testDistributionOfMillionDeadShouldMatchBinomialTails() {
+    // Given
+    PatientCounts patientCounts = new PatientCounts();
+    patientCounts.set(HealthState.DEAD, 1_000_000);
+    BinomialDistribution resurrections = new BinomialDistribution(null, 1_000_000, 1e-6);
+
+    // When
+    OutcomeDistribution distribution = defaultEngine().distribution(patientCounts, Set.of());
+
+    // Then
+    CountDistribution healthy = distribution.marginal(HealthState.HEALTHY);
+    assertEquals(1, healthy.mean(), 1e-12);
+    assertEquals(1 - 1e-6, healthy.variance(), 1e-12);
+    for (int k = 1; k <= 10; k++) {
+      double expected = 1 - resurrections.cumulativeProbability(k - 1);
+      assertEquals(expected, healthy.probabilityAtLeast(k), 1e-12 * expected + 1e-16);
+    }
+    assertEquals(1_000_000 - 1, distribution.mean(HealthState.DEAD), 1e-6);
+  }
+
+  @Test
+  void testDistributionShouldMatchBinomialRuleDistribution() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new CoinFlipRule()));
+    PatientCounts patientCounts = new PatientCounts();
+    patientCounts.set(HealthState.FEVER, 1_000);
+    BinomialDistribution cured = new BinomialDistribution(null, 1_000, 0.5);
+
+    // When
+    OutcomeDistribution distribution = simulatorEngine.distribution(patientCounts, Set.of(), 0);
+
+    // Then
+    CountDistribution healthy = distribution.marginal(HealthState.HEALTHY);
+    assertEquals(500, healthy.mean(), 1e-9);
+    assertEquals(250, healthy.variance(), 1e-9);
+    assertEquals(1 - cured.cumulativeProbability(525), healthy.probabilityAtLeast(526), 1e-12);
+    assertEquals(cured.cumulativeProbability(480), distribution.marginal(HealthState.FEVER).probabilityAtLeast(520),
+        1e-12);
+  }
+
+  @Test
+  void testDistributionShouldMergeOutcomesThatBecomeEqual() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new CoinFlipRule(), new AspirinRule(),
+        new ParacetamolRule()));
+    PatientCounts patientCounts = new PatientCounts();
+    patientCounts.set(HealthState.FEVER, 1_000);
+
+    // When
+    OutcomeDistribution distribution = simulatorEngine.distribution(patientCounts,
+        Set.of(Drug.ASPIRIN, Drug.PARACETAMOL));
+
+    // Then
+    // Aspirin mixed with paracetamol kills every patient, whoever was cured
+    assertEquals(1, distribution.outcomes());
+    assertEquals(1, distribution.marginal(HealthState.DEAD).probability(1_000), 1e-12);
+  }
+
+  @Test
+  void testDistributionWithOtherStochasticRuleShouldThrowIllegalArgumentException() {
+    // Given
+    InPlaceRule randomRule = new InPlaceRule() {
+
+      @Override
+      public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+        patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, RandomGenerator.getDefault().nextInt(2));
+      }
+    };
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(randomRule));
+    PatientCounts patientCounts = new PatientCounts();
+    patientCounts.set(HealthState.FEVER, 1);
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> simulatorEngine.distribution(patientCounts, Set.of()));
+
+    // Then
+    assertEquals(randomRule.getClass().getSimpleName()
+        + " is neither deterministic nor binomial, so its outcomes cannot be computed exactly.",
+        exception.getMessage());
+  }
+}
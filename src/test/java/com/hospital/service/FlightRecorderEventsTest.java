@@ -0,0 +1,154 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FastBinomialSampler;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.rule.impl.RecordingSampler;
+import com.hospital.rule.impl.utils.FlightRecording;
+
+class FlightRecorderEventsTest {
+
+  @Test
+  void testSimulateShouldEmitSimulationRuleAndSamplerEvents(@TempDir Path directory) throws Exception {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(), new AntibioticRule(),
+        new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+    PatientCounts patientCounts = PatientCounts.from(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2));
+    Path file = directory.resolve("simulation.jfr");
+
+    // When
+    try (Recording recording = new Recording()) {
+      recording.enable("com.hospital.Simulation");
+      recording.enable("com.hospital.RuleApply");
+      recording.enable("com.hospital.BinomialSample");
+      recording.start();
+      simulatorEngine.simulate(patientCounts, Set.of(Drug.ASPIRIN), new SplittableRandom(1L));
+      recording.stop();
+      recording.dump(file);
+    }
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+    // Then
+    RecordedEvent simulation = single(events, "com.hospital.Simulation");
+    assertEquals("As", simulation.getString("drugs"));
+    assertEquals(5, simulation.getLong("patients"));
+
+    List<RecordedEvent> rules = events.stream()
+        .filter(event -> event.getEventType().getName().equals("com.hospital.RuleApply"))
+        .sorted((a, b) -> a.getStartTime().compareTo(b.getStartTime()))
+        .toList();
+    assertEquals(2, rules.size());
+    assertEquals("AspirinRule+InsulinRule", rules.get(0).getString("rule"));
+    assertEquals(3, rules.get(0).getLong("inputFever"));
+    assertEquals(2, rules.get(0).getLong("inputDiabetes"));
+    assertEquals(3, rules.get(0).getLong("outputHealthy"));
+    assertEquals(2, rules.get(0).getLong("outputDead"));
+    assertEquals("FlyingSpaghettiMonsterRule", rules.get(1).getString("rule"));
+    assertEquals(2, rules.get(1).getLong("inputDead"));
+
+    RecordedEvent sample = single(events, "com.hospital.BinomialSample");
+    assertEquals("FastBinomialSampler", sample.getString("sampler"));
+    assertEquals(2, sample.getLong("trials"));
+    assertEquals(1e-6, sample.getDouble("probability"));
+    assertEquals(rules.get(1).getLong("inputDead") - rules.get(1).getLong("outputDead"),
+        sample.getLong("successes"));
+  }
+
+  @Test
+  void testRecordingSamplerShouldEmitEventWithDrawTrialsAndProbability(@TempDir Path directory) throws Exception {
+    // Given
+    RecordingSampler sampler = new RecordingSampler(new FastBinomialSampler(7L));
+    Path file = directory.resolve("sampler.jfr");
+    long successes;
+
+    // When
+    try (Recording recording = new Recording()) {
+      recording.enable("com.hospital.BinomialSample");
+      recording.start();
+      successes = sampler.sample(1_000L, 0.25, new SplittableRandom(3L));
+      recording.stop();
+      recording.dump(file);
+    }
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+    // Then
+    RecordedEvent sample = single(events, "com.hospital.BinomialSample");
+    assertEquals("FastBinomialSampler", sample.getString("sampler"));
+    assertEquals(1_000, sample.getLong("trials"));
+    assertEquals(0.25, sample.getDouble("probability"));
+    assertEquals(successes, sample.getLong("successes"));
+  }
+
+  @Test
+  void testFlightRecordingShouldTrackRunningRecordings() {
+    // Given
+    boolean runningBefore;
+    boolean runningDuring;
+
+    // When
+    try (Recording recording = new Recording()) {
+      runningBefore = FlightRecording.isRunning();
+      recording.start();
+      runningDuring = FlightRecording.isRunning();
+      recording.stop();
+    }
+
+    // Then
+    assertFalse(runningBefore);
+    assertTrue(runningDuring);
+    assertFalse(FlightRecording.isRunning());
+  }
+
+  @Test
+  void testBundledSettingsShouldEnableEveryEvent() throws Exception {
+    // Given
+    Configuration configuration;
+    try (Reader reader = new InputStreamReader(getClass().getResourceAsStream("/hospital.jfc"),
+        StandardCharsets.UTF_8)) {
+      configuration = Configuration.create(reader);
+    }
+
+    // When
+    Map<String, String> settings = configuration.getSettings();
+
+    // Then
+    assertEquals("true", settings.get("com.hospital.Simulation#enabled"));
+    assertEquals("true", settings.get("com.hospital.RuleApply#enabled"));
+    assertEquals("true", settings.get("com.hospital.BinomialSample#enabled"));
+    assertEquals("20 us", settings.get("com.hospital.RuleApply#threshold"));
+  }
+
+  private static RecordedEvent single(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> matching = events.stream()
+        .filter(event -> event.getEventType().getName().equals(name))
+        .toList();
+    assertEquals(1, matching.size(), name);
+    return matching.get(0);
+  }
+}
@@ -0,0 +1,34 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class RandomStreamsTest {
+
+  @Test
+  void testStreamWithSameSeedAndIndexShouldProduceSameSequence() {
+    // Given
+    SplittableRandom first = RandomStreams.stream(42L, 7);
+    SplittableRandom second = RandomStreams.stream(42L, 7);
+
+    // When / Then
+    assertArrayEquals(first.longs(100).toArray(), second.longs(100).toArray());
+  }
+
+  @Test
+  void testStreamWithDifferentIndicesShouldProduceDifferentSequences() {
+    // Given
+    long[] first = RandomStreams.stream(42L, 0).longs(100).toArray();
+    long[] second = RandomStreams.stream(42L, 1).longs(100).toArray();
+    long[] otherSeed = RandomStreams.stream(43L, 0).longs(100).toArray();
+
+    // When / Then
+    assertFalse(Arrays.equals(first, second));
+    assertFalse(Arrays.equals(first, otherSeed));
+  }
+}
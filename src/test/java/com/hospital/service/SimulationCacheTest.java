@@ -0,0 +1,142 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.Rule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class SimulationCacheTest {
+
+  @Test
+  void testCacheShouldEvictLeastRecentlyUsedEntry() {
+    // Given
+    SimulationCache cache = new SimulationCache(2);
+    SimulationKey first = key(1);
+    SimulationKey second = key(2);
+    SimulationKey third = key(3);
+    PatientCounts outcome = new PatientCounts();
+    cache.put(first, PatientCounts.from(Map.of(HealthState.HEALTHY, 1)));
+    cache.put(second, PatientCounts.from(Map.of(HealthState.HEALTHY, 2)));
+
+    // When
+    boolean firstHit = cache.get(first, outcome);
+    cache.put(third, PatientCounts.from(Map.of(HealthState.HEALTHY, 3)));
+
+    // Then
+    assertTrue(firstHit);
+    assertTrue(cache.get(first, outcome));
+    assertEquals(PatientCounts.from(Map.of(HealthState.HEALTHY, 1)), outcome);
+    assertFalse(cache.get(second, outcome));
+    assertTrue(cache.get(third, outcome));
+    assertEquals(new SimulationCache.Stats(3, 1, 1, 2), cache.stats());
+    assertEquals(0.75, cache.stats().hitRate());
+  }
+
+  @Test
+  void testCacheShouldNeverHoldMoreThanMaximumSize() {
+    // Given
+    SimulationCache cache = new SimulationCache(100);
+
+    // When
+    for (int i = 0; i < 10_000; i++) {
+      cache.put(key(i), new PatientCounts());
+    }
+
+    // Then
+    SimulationCache.Stats stats = cache.stats();
+    assertTrue(stats.size() <= 100, "size " + stats.size());
+    assertEquals(10_000 - stats.size(), stats.evictions());
+  }
+
+  @Test
+  void testCachedEngineShouldSkipDeterministicRulesOnRepeatedRequests() {
+    // Given
+    AtomicInteger invocations = new AtomicInteger();
+    Rule countingRule = (patientsByState, drugs) -> {
+      invocations.incrementAndGet();
+      Map<HealthState, Integer> result = new EnumMap<>(patientsByState);
+      result.merge(HealthState.HEALTHY, result.remove(HealthState.FEVER), Integer::sum);
+      return result;
+    };
+    Rule deterministicRule = new Rule() {
+
+      @Override
+      public Map<HealthState, Integer> apply(Map<HealthState, Integer> patientsByState, Set<Drug> drugs) {
+        return countingRule.apply(patientsByState, drugs);
+      }
+
+      @Override
+      public boolean isDeterministic() {
+        return true;
+      }
+    };
+    SimulationCache cache = new SimulationCache(16);
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(deterministicRule), cache);
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 4, HealthState.HEALTHY, 1), Set.of());
+
+    // When
+    SimulationResponse first = simulatorEngine.simulate(request);
+    SimulationResponse second = simulatorEngine.simulate(request);
+
+    // Then
+    assertEquals(1, invocations.get());
+    assertEquals(first.patientsByState(), second.patientsByState());
+    assertEquals(5, second.patientsByState().get(HealthState.HEALTHY));
+    assertEquals(new SimulationCache.Stats(1, 1, 0, 1), cache.stats());
+  }
+
+  @Test
+  void testCachedEngineShouldStillApplyStochasticRules() {
+    // Given
+    List<Rule> rules = List.of(new AspirinRule(), new AntibioticRule(), new InsulinRule(), new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule());
+    SimulatorEngine uncached = new SimulatorEngine(rules);
+    SimulationCache cache = new SimulationCache(16);
+    SimulatorEngine cached = new SimulatorEngine(rules, cache);
+    Map<HealthState, Integer> initialPatients = Map.of(HealthState.DIABETES, 3_000_000, HealthState.FEVER, 2);
+
+    for (long seed = 0; seed < 20; seed++) {
+      // When
+      SimulationRequest request = new SimulationRequest(initialPatients, Set.of(Drug.ASPIRIN), seed);
+
+      // Then
+      assertEquals(uncached.simulate(request), cached.simulate(request));
+      assertEquals(uncached.simulateAll(List.of(request), 1), cached.simulateAll(List.of(request), 1));
+    }
+    assertEquals(1, cache.stats().size());
+    assertEquals(39, cache.stats().hits());
+  }
+
+  @Test
+  void testCacheWithNonPositiveSizeShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> new SimulationCache(0));
+
+    // Then
+    assertEquals("Cache size must be positive.", exception.getMessage());
+  }
+
+  private static SimulationKey key(int fever) {
+    return SimulationKey.of(PatientCounts.from(Map.of(HealthState.FEVER, fever)), 0);
+  }
+}
@@ -0,0 +1,215 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class SimulationProcessorTest {
+
+  private final SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(),
+      new AntibioticRule(), new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+
+  @Test
+  void testProcessorShouldPublishResponsesInRequestOrder() throws Exception {
+    // Given
+    List<SimulationRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      requests.add(new SimulationRequest(Map.of(HealthState.FEVER, i % 7, HealthState.DEAD, i),
+          Drug.fromMask(i % Drug.COMBINATIONS), (long) i));
+    }
+    Source source = new Source(requests);
+    Sink sink = new Sink(Long.MAX_VALUE);
+
+    // When
+    try (AsyncSimulator simulator = new AsyncSimulator(simulatorEngine, 16, AsyncSimulator.OverflowPolicy.REJECT)) {
+      SimulationProcessor processor = new SimulationProcessor(simulator, 16);
+      processor.subscribe(sink);
+      source.subscribe(processor);
+      assertTrue(sink.done.await(10, TimeUnit.SECONDS));
+    }
+
+    // Then
+    assertNull(sink.error);
+    assertEquals(requests.stream().map(simulatorEngine::simulate).toList(), sink.responses);
+  }
+
+  @Test
+  void testProcessorShouldRequestNoMoreThanWindowAheadOfDemand() throws Exception {
+    // Given
+    List<SimulationRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      requests.add(new SimulationRequest(Map.of(HealthState.FEVER, i), Set.of(), (long) i));
+    }
+    Source source = new Source(requests);
+    Sink sink = new Sink(0);
+    AsyncSimulator simulator = new AsyncSimulator(simulatorEngine, 4, AsyncSimulator.OverflowPolicy.REJECT);
+    SimulationProcessor processor = new SimulationProcessor(simulator, 4);
+    processor.subscribe(sink);
+
+    // When
+    source.subscribe(processor);
+    long requestedWithoutDemand = source.requested.get();
+    sink.subscription.request(3);
+    await(() -> sink.responses.size() == 3 && source.requested.get() >= 7);
+    long requestedAfterDemand = source.requested.get();
+
+    // Then
+    assertEquals(4, requestedWithoutDemand);
+    assertEquals(7, requestedAfterDemand);
+    assertEquals(3, sink.responses.size());
+    simulator.close();
+  }
+
+  @Test
+  void testProcessorShouldFailStreamAndCancelUpstreamOnFailedSimulation() throws Exception {
+    // Given
+    InPlaceRule failingRule = new InPlaceRule() {
+      @Override
+      public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+        if (patientCounts.get(HealthState.FEVER) == 13) {
+          throw new IllegalStateException("Unlucky ward");
+        }
+      }
+    };
+    SimulatorEngine failingEngine = new SimulatorEngine(List.of(failingRule));
+    List<SimulationRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      requests.add(new SimulationRequest(Map.of(HealthState.FEVER, i), Set.of(), (long) i));
+    }
+    Source source = new Source(requests);
+    Sink sink = new Sink(Long.MAX_VALUE);
+
+    // When
+    try (AsyncSimulator simulator = new AsyncSimulator(failingEngine, 8, AsyncSimulator.OverflowPolicy.REJECT)) {
+      SimulationProcessor processor = new SimulationProcessor(simulator, 8);
+      processor.subscribe(sink);
+      source.subscribe(processor);
+      assertTrue(sink.done.await(10, TimeUnit.SECONDS));
+    }
+
+    // Then
+    assertInstanceOf(IllegalStateException.class, sink.error);
+    assertEquals(13, sink.responses.size());
+    assertTrue(source.cancelled.get());
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+  }
+
+  /**
+   * Publisher emitting its requests on the requesting thread, counting the
+   * demand it receives.
+   */
+  private static final class Source implements Flow.Publisher<SimulationRequest> {
+
+    private final List<SimulationRequest> requests;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    Source(List<SimulationRequest> requests) {
+      this.requests = requests;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SimulationRequest> subscriber) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        private int next;
+        private long demand;
+        private boolean emitting;
+        private boolean completed;
+
+        @Override
+        public synchronized void request(long n) {
+          requested.addAndGet(n);
+          demand += n;
+          if (emitting) {
+            return;
+          }
+          emitting = true;
+          while (demand > 0 && next < requests.size() && !cancelled.get()) {
+            demand--;
+            subscriber.onNext(requests.get(next++));
+          }
+          emitting = false;
+          if (next == requests.size() && !completed && !cancelled.get()) {
+            completed = true;
+            subscriber.onComplete();
+          }
+        }
+
+        @Override
+        public void cancel() {
+          cancelled.set(true);
+        }
+      });
+    }
+  }
+
+  private static final class Sink implements Flow.Subscriber<SimulationResponse> {
+
+    private final long initialDemand;
+    private final List<SimulationResponse> responses = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile Flow.Subscription subscription;
+    private volatile Throwable error;
+
+    Sink(long initialDemand) {
+      this.initialDemand = initialDemand;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (initialDemand > 0) {
+        subscription.request(initialDemand);
+      }
+    }
+
+    @Override
+    public void onNext(SimulationResponse response) {
+      responses.add(response);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      done.countDown();
+    }
+  }
+}
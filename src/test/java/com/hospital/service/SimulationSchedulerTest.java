@@ -0,0 +1,184 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.client.model.SimulationResponse;
+import com.hospital.domain.Drug;
+import com.hospital.domain.DrugSchedule;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.SimulationScheduler.Lane;
+
+class SimulationSchedulerTest {
+
+  private final SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(),
+      new AntibioticRule(), new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+
+  @Test
+  void testScheduledSimulationsShouldMatchEngine() throws Exception {
+    // Given
+    List<SimulationRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 600; i++) {
+      requests.add(new SimulationRequest(Map.of(HealthState.FEVER, i % 5, HealthState.DEAD, i),
+          Drug.fromMask(i % Drug.COMBINATIONS), (long) i));
+    }
+    SimulationRequest ensembleRequest = new SimulationRequest(Map.of(HealthState.DEAD, 100_000), Set.of(), 7L);
+    PatientCounts steppedPatients = PatientCounts.from(Map.of(HealthState.DEAD, 10_000, HealthState.FEVER, 3));
+    DrugSchedule schedule = DrugSchedule.constant(Set.of(Drug.ASPIRIN));
+
+    // When
+    try (SimulationScheduler scheduler = new SimulationScheduler(simulatorEngine, 2,
+        SimulationScheduler.defaultLimits(2))) {
+      SimulationResponse single = scheduler.simulate(Lane.INTERACTIVE, requests.get(3)).get(10, TimeUnit.SECONDS);
+      List<SimulationResponse> batch = scheduler.simulateAll(Lane.BATCH, requests).get(10, TimeUnit.SECONDS);
+      var ensemble = scheduler.simulateEnsemble(Lane.BACKGROUND, ensembleRequest, 10_000).get(10, TimeUnit.SECONDS);
+      PatientCounts stepped = scheduler.simulateSteps(Lane.BACKGROUND, steppedPatients.copy(), schedule, 50,
+          StepSink.NONE, new SplittableRandom(11)).get(10, TimeUnit.SECONDS);
+
+      // Then
+      assertEquals(simulatorEngine.simulate(requests.get(3)), single);
+      assertEquals(requests.stream().map(simulatorEngine::simulate).toList(), batch);
+      assertEquals(simulatorEngine.simulateEnsemble(ensembleRequest, 10_000, 1), ensemble);
+      assertEquals(simulatorEngine.simulateSteps(steppedPatients.copy(), schedule, 50, StepSink.NONE,
+          new SplittableRandom(11)), stepped);
+      assertEquals(3, scheduler.stats(Lane.BATCH).completed());
+      assertEquals(4, scheduler.stats(Lane.BACKGROUND).completed());
+    }
+  }
+
+  @Test
+  void testFreedSlotShouldGoToInteractiveLaneFirst() throws Exception {
+    // Given
+    RecordingRule rule = new RecordingRule();
+    try (SimulationScheduler scheduler = new SimulationScheduler(new SimulatorEngine(List.of(rule)), 1,
+        SimulationScheduler.defaultLimits(1))) {
+      CompletableFuture<SimulationResponse> gate = scheduler.simulate(Lane.BATCH, request(0));
+      await(() -> rule.fevers.size() == 1);
+
+      // When
+      CompletableFuture<SimulationResponse> background = scheduler.simulate(Lane.BACKGROUND, request(2));
+      await(() -> scheduler.stats(Lane.BACKGROUND).waiting() == 1);
+      CompletableFuture<SimulationResponse> interactive = scheduler.simulate(Lane.INTERACTIVE, request(1));
+      await(() -> scheduler.stats(Lane.INTERACTIVE).waiting() == 1);
+      rule.release.countDown();
+      CompletableFuture.allOf(gate, background, interactive).get(10, TimeUnit.SECONDS);
+
+      // Then
+      assertEquals(List.of(0L, 1L, 2L), rule.fevers);
+    }
+  }
+
+  @Test
+  void testLaneShouldNotExceedItsConcurrency() throws Exception {
+    // Given
+    RecordingRule rule = new RecordingRule();
+    Map<Lane, SimulationScheduler.LaneLimits> limits = SimulationScheduler.defaultLimits(2);
+    try (SimulationScheduler scheduler = new SimulationScheduler(new SimulatorEngine(List.of(rule)), 2, limits)) {
+
+      // When
+      CompletableFuture<SimulationResponse> first = scheduler.simulate(Lane.BACKGROUND, request(0));
+      CompletableFuture<SimulationResponse> second = scheduler.simulate(Lane.BACKGROUND, request(0));
+      await(() -> scheduler.stats(Lane.BACKGROUND).waiting() == 1);
+      CompletableFuture<SimulationResponse> interactive = scheduler.simulate(Lane.INTERACTIVE, request(1));
+      interactive.get(10, TimeUnit.SECONDS);
+      SimulationScheduler.LaneStats whileGated = scheduler.stats(Lane.BACKGROUND);
+      rule.release.countDown();
+      CompletableFuture.allOf(first, second).get(10, TimeUnit.SECONDS);
+
+      // Then
+      assertEquals(new SimulationScheduler.LaneStats(0, 0, 0, 1, 1), whileGated);
+      assertEquals(2, scheduler.stats(Lane.BACKGROUND).completed());
+    }
+  }
+
+  @Test
+  void testMultiStepSimulationShouldYieldToInteractiveLaneBetweenSteps() throws Exception {
+    // Given
+    AtomicBoolean interactiveDoneAtNextStep = new AtomicBoolean();
+    List<CompletableFuture<SimulationResponse>> interactive = new ArrayList<>();
+    try (SimulationScheduler scheduler = new SimulationScheduler(simulatorEngine, 1,
+        SimulationScheduler.defaultLimits(1))) {
+      StepSink sink = (step, patients) -> {
+        if (step == 5) {
+          interactive.add(scheduler.simulate(Lane.INTERACTIVE, request(1)));
+          await(() -> scheduler.stats(Lane.INTERACTIVE).waiting() == 1);
+        } else if (step == 6) {
+          interactiveDoneAtNextStep.set(interactive.get(0).isDone());
+        }
+      };
+
+      // When
+      scheduler.simulateSteps(Lane.BACKGROUND, PatientCounts.from(Map.of(HealthState.DEAD, 1_000)),
+          DrugSchedule.constant(Set.of()), 20, sink, new SplittableRandom(3)).get(10, TimeUnit.SECONDS);
+
+      // Then
+      assertTrue(interactiveDoneAtNextStep.get());
+      assertEquals(1, scheduler.stats(Lane.BACKGROUND).preemptions());
+      assertEquals(1, scheduler.stats(Lane.INTERACTIVE).completed());
+    }
+  }
+
+  private static SimulationRequest request(int fever) {
+    return new SimulationRequest(Map.of(HealthState.FEVER, fever, HealthState.HEALTHY, 1), Set.of(), 1L);
+  }
+
+  private static void await(BooleanSupplier condition) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+      try {
+        // Sleeping rather than spinning lets other virtual threads run on a single core
+        Thread.sleep(1);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      }
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  /**
+   * Rule recording the number of fever patients of each simulation, in the
+   * order they run, and holding simulations without fever patients until
+   * released.
+   */
+  private static final class RecordingRule implements InPlaceRule {
+
+    private final List<Long> fevers = Collections.synchronizedList(new ArrayList<>());
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+      long fever = patientCounts.get(HealthState.FEVER);
+      fevers.add(fever);
+      if (fever == 0) {
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+}
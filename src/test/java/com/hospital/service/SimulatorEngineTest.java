@@ -1,11 +1,23 @@
 package com.hospital.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.Test;
 
@@ -13,7 +25,10 @@ import com.hospital.client.model.SimulationRequest;
 import com.hospital.client.model.SimulationResponse;
 import com.hospital.domain.Drug;
 import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.InPlaceRule;
 import com.hospital.rule.Rule;
+import com.hospital.rule.impl.utils.HealthStateMapBuilder;
 import com.hospital.rule.impl.AntibioticRule;
 import com.hospital.rule.impl.AspirinRule;
 import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
@@ -22,6 +37,8 @@ import com.hospital.rule.impl.ParacetamolRule;
 
 class SimulatorEngineTest {
 
+  private static final HealthState[] HEALTH_STATES = HealthState.values();
+
   // From example #1
   @Test
   void testSimulateWhenTwoDiabetesDoNotGetInsulinShouldReturnTwoDead() {
@@ -122,5 +139,309 @@ class SimulatorEngineTest {
 
     // Then
     assertEquals("Simulation request cannot be null.", exception.getMessage());
-  }    
+  }
+
+  @Test
+  void testSimulateWithMapBasedRuleShouldApplyItThroughTheAdapter() {
+    // Given
+    Rule feverToTuberculosis = (patientsByState, drugs) -> HealthStateMapBuilder.from(patientsByState)
+        .transition(HealthState.FEVER, HealthState.TUBERCULOSIS, patientsByState.getOrDefault(HealthState.FEVER, 0))
+        .build();
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(feverToTuberculosis, new AntibioticRule()));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 3), Set.of(Drug.ANTIBIOTIC));
+
+    // When
+    SimulationResponse response = simulatorEngine.simulate(request);
+
+    // Then
+    assertEquals(0, response.patientsByState().get(HealthState.FEVER));
+    assertEquals(0, response.patientsByState().get(HealthState.TUBERCULOSIS));
+    assertEquals(3, response.patientsByState().get(HealthState.HEALTHY));
+  }
+
+  @Test
+  void testSkippedRuleInvocationsShouldCountRulesThatCannotFire() {
+    // Given
+    List<Rule> rules = List.of(new AspirinRule(), new AntibioticRule(), new InsulinRule(), new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule());
+    SimulatorEngine simulatorEngine = new SimulatorEngine(rules);
+    SimulationRequest healthyOnly = new SimulationRequest(Map.of(HealthState.HEALTHY, 3), Set.of());
+    SimulationRequest diabetesOnly = new SimulationRequest(Map.of(HealthState.DIABETES, 3), Set.of());
+
+    // When
+    simulatorEngine.simulate(healthyOnly);
+    simulatorEngine.simulate(PatientCounts.from(healthyOnly.initialPatients()), Set.of());
+    simulatorEngine.simulate(diabetesOnly);
+
+    // Then
+    // Aspirin, antibiotic and paracetamol are elided, insulin and the monster have no patients to change
+    // in the healthy runs, and the monster resurrects the patients insulin let die in the diabetes run
+    assertEquals(5 + 5 + 3, simulatorEngine.skippedRuleInvocations());
+  }
+
+  @Test
+  void testSimulateOnPatientCountsShouldMatchRequestBasedSimulation() {
+    // Given
+    Map<HealthState, Integer> initialPatients = Map.of(HealthState.TUBERCULOSIS, 1, HealthState.FEVER, 1,
+        HealthState.DIABETES, 1, HealthState.HEALTHY, 1);
+    Set<Drug> drugs = Set.of(Drug.ANTIBIOTIC, Drug.INSULIN);
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(), new AntibioticRule(),
+        new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule((trials, probability) -> 0)));
+
+    // When
+    SimulationResponse response = simulatorEngine.simulate(new SimulationRequest(initialPatients, drugs));
+    PatientCounts patientCounts = simulatorEngine.simulate(PatientCounts.from(initialPatients), drugs);
+
+    // Then
+    assertEquals(response.patientsByState(), patientCounts.toMap());
+  }
+
+  @Test
+  void testSimulateOnPatientCountsShouldNotAllocate() {
+    // Given
+    com.sun.management.ThreadMXBean threadMXBean =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(), new AntibioticRule(),
+        new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule((trials, probability) -> 0)));
+    Set<Drug> drugs = EnumSet.of(Drug.ANTIBIOTIC, Drug.PARACETAMOL);
+    PatientCounts patientCounts = new PatientCounts();
+    int iterations = 10_000;
+
+    for (int i = 0; i < 5 * iterations; i++) {
+      simulateAllStates(simulatorEngine, patientCounts, drugs);
+    }
+
+    // When
+    long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+    for (int i = 0; i < iterations; i++) {
+      simulateAllStates(simulatorEngine, patientCounts, drugs);
+    }
+    long allocatedAfter = threadMXBean.getCurrentThreadAllocatedBytes();
+
+    // Then
+    assertEquals(0, (allocatedAfter - allocatedBefore) / iterations);
+    assertEquals(3, patientCounts.get(HealthState.HEALTHY));
+    assertEquals(2, patientCounts.get(HealthState.DEAD));
+  }
+
+  private static void simulateAllStates(SimulatorEngine simulatorEngine, PatientCounts patientCounts,
+      Set<Drug> drugs) {
+    patientCounts.clear();
+    for (HealthState state : HEALTH_STATES) {
+      patientCounts.set(state, 1);
+    }
+    simulatorEngine.simulate(patientCounts, drugs);
+  }
+
+  @Test
+  void testSimulateWithSeedShouldBeReproducible() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new InsulinRule(), new FlyingSpaghettiMonsterRule()));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.DIABETES, 2_000_000_000), Set.of(), 42L);
+
+    // When
+    SimulationResponse first = simulatorEngine.simulate(request);
+    SimulationResponse second = simulatorEngine.simulate(request);
+
+    // Then
+    assertEquals(first, second);
+    assertEquals(42L, first.seed());
+    assertTrue(first.patientsByState().get(HealthState.HEALTHY) > 0);
+  }
+
+  @Test
+  void testSimulateWithoutSeedShouldReportSeedThatReproducesTheResponse() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new InsulinRule(), new FlyingSpaghettiMonsterRule()));
+    Map<HealthState, Integer> initialPatients = Map.of(HealthState.DIABETES, 2_000_000_000);
+
+    // When
+    SimulationResponse response = simulatorEngine.simulate(new SimulationRequest(initialPatients, Set.of()));
+    SimulationResponse replayed = simulatorEngine.simulate(
+        new SimulationRequest(initialPatients, Set.of(), response.seed()));
+
+    // Then
+    assertNotNull(response.seed());
+    assertEquals(response, replayed);
+  }
+
+  @Test
+  void testSimulateAllShouldReturnResponsesInInputOrderMatchingSingleSimulations() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(), new AntibioticRule(),
+        new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+    List<SimulationRequest> requests = randomRequests(5_000, 11L);
+
+    // When
+    List<SimulationResponse> sequential = simulatorEngine.simulateAll(requests, 1);
+    List<SimulationResponse> parallel = simulatorEngine.simulateAll(requests, 4);
+
+    // Then
+    assertEquals(requests.size(), parallel.size());
+    assertEquals(sequential, parallel);
+    for (int i = 0; i < requests.size(); i += 97) {
+      assertEquals(simulatorEngine.simulate(requests.get(i)), parallel.get(i));
+    }
+  }
+
+  @Test
+  void testSimulateAllWithStreamShouldMatchSingleSimulations() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule(), new AntibioticRule(),
+        new InsulinRule(), new ParacetamolRule(), new FlyingSpaghettiMonsterRule()));
+    List<SimulationRequest> requests = randomRequests(200, 13L);
+
+    // When
+    List<SimulationResponse> responses = simulatorEngine.simulateAll(requests.parallelStream()).toList();
+
+    // Then
+    assertEquals(simulatorEngine.simulateAll(requests, 1), responses);
+  }
+
+  @Test
+  void testSimulateAllWithNullRequestShouldThrowException() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule()));
+    List<SimulationRequest> requests = new ArrayList<>();
+    requests.add(new SimulationRequest(Map.of(HealthState.FEVER, 1), Set.of()));
+    requests.add(null);
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> simulatorEngine.simulateAll(requests));
+
+    // Then
+    assertEquals("Simulation request cannot be null.", exception.getMessage());
+  }
+
+  @Test
+  void testReloadShouldApplyNewRulesToLaterSimulations() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule()));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2),
+        Set.of(Drug.ASPIRIN));
+    SimulationResponse before = simulatorEngine.simulate(request);
+
+    // When
+    long generation = simulatorEngine.reload(List.of(new InsulinRule()));
+    SimulationResponse after = simulatorEngine.simulate(request);
+
+    // Then
+    assertEquals(3, before.patientsByState().get(HealthState.HEALTHY));
+    assertEquals(2, before.patientsByState().get(HealthState.DIABETES));
+    assertEquals(3, after.patientsByState().get(HealthState.FEVER));
+    assertEquals(2, after.patientsByState().get(HealthState.DEAD));
+    assertEquals(1, generation);
+    assertEquals(1, simulatorEngine.generation());
+    assertInstanceOf(InsulinRule.class, simulatorEngine.rules().get(0));
+  }
+
+  @Test
+  void testSimulationInFlightDuringReloadShouldFinishOnOldRules() throws Exception {
+    // Given
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    InPlaceRule gatedCure = new InPlaceRule() {
+      @Override
+      public void applyInPlace(PatientCounts patientCounts, Set<Drug> drugs) {
+        entered.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        }
+        patientCounts.transition(HealthState.FEVER, HealthState.HEALTHY, patientCounts.get(HealthState.FEVER));
+      }
+    };
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(gatedCure));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 3), Set.of());
+    CompletableFuture<SimulationResponse> inFlight = CompletableFuture.supplyAsync(
+        () -> simulatorEngine.simulate(request));
+    assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+    // When
+    simulatorEngine.reload(List.of());
+    SimulationResponse afterReload = simulatorEngine.simulate(request);
+    release.countDown();
+
+    // Then
+    assertEquals(3, afterReload.patientsByState().get(HealthState.FEVER));
+    assertEquals(3, inFlight.get(10, TimeUnit.SECONDS).patientsByState().get(HealthState.HEALTHY));
+  }
+
+  @Test
+  void testReloadShouldWarmCacheWithOutcomesOfNewRules() {
+    // Given
+    SimulationCache cache = new SimulationCache(16);
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule()), cache);
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2),
+        Set.of(Drug.ASPIRIN));
+    simulatorEngine.simulate(request);
+
+    // When
+    simulatorEngine.reload(List.of(new InsulinRule()));
+    SimulationResponse response = simulatorEngine.simulate(request);
+
+    // Then
+    assertEquals(2, response.patientsByState().get(HealthState.DEAD));
+    assertEquals(new SimulationCache.Stats(1, 1, 0, 1), cache.stats());
+  }
+
+  @Test
+  void testReloadWithNullRuleShouldThrowException() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(new AspirinRule()));
+    List<Rule> rules = new ArrayList<>();
+    rules.add(null);
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> simulatorEngine.reload(rules));
+
+    // Then
+    assertEquals("Rules cannot be null.", exception.getMessage());
+    assertEquals(0, simulatorEngine.generation());
+  }
+
+  @Test
+  void testConcurrentFirstUsesOfChainShouldAllGetTheSameChain() throws Exception {
+    // Given
+    RuleSnapshot snapshot = new RuleSnapshot(List.of(new AspirinRule(), new InsulinRule()), null);
+    CountDownLatch start = new CountDownLatch(1);
+    List<CompletableFuture<CompiledRuleChain>> chains = new ArrayList<>();
+
+    // When
+    for (int i = 0; i < 8; i++) {
+      chains.add(CompletableFuture.supplyAsync(() -> {
+        try {
+          start.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return snapshot.chain(0);
+      }));
+    }
+    start.countDown();
+
+    // Then
+    CompiledRuleChain published = snapshot.chain(0);
+    for (CompletableFuture<CompiledRuleChain> chain : chains) {
+      assertSame(published, chain.get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  private static List<SimulationRequest> randomRequests(int count, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    List<SimulationRequest> requests = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Map<HealthState, Integer> initialPatients = new EnumMap<>(HealthState.class);
+      for (HealthState state : HEALTH_STATES) {
+        initialPatients.put(state, random.nextInt(1_000_000));
+      }
+      requests.add(new SimulationRequest(initialPatients, Drug.fromMask(random.nextInt(Drug.COMBINATIONS)),
+          random.nextLong()));
+    }
+    return requests;
+  }
 }
@@ -0,0 +1,136 @@
+package com.hospital.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.hospital.domain.Drug;
+import com.hospital.domain.DrugSchedule;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+
+class TimeSteppingSimulationTest {
+
+  private static final SimulatorEngine DETERMINISTIC_ENGINE = new SimulatorEngine(List.of(
+      new AspirinRule(),
+      new AntibioticRule(),
+      new InsulinRule(),
+      new ParacetamolRule()));
+
+  @Test
+  void testSimulateStepsShouldSkipStepsOnceSteadyStateIsReached() {
+    // Given
+    PatientCounts patients = PatientCounts.from(Map.of(HealthState.DIABETES, 2, HealthState.FEVER, 3));
+    RecordingSink sink = new RecordingSink();
+
+    // When
+    DETERMINISTIC_ENGINE.simulateSteps(patients, DrugSchedule.constant(Set.of()), 1_000_000, sink);
+
+    // Then
+    assertEquals(PatientCounts.from(Map.of(HealthState.DEAD, 2, HealthState.FEVER, 3)), patients);
+    assertEquals(List.of("step 0", "steady 1..1000000"), sink.events);
+  }
+
+  @Test
+  void testSimulateStepsShouldMatchStepByStepSimulation() {
+    // Given
+    DrugSchedule schedule = DrugSchedule.of(List.of(
+        Set.of(Drug.ASPIRIN), Set.of(Drug.INSULIN, Drug.ANTIBIOTIC), Set.of(Drug.INSULIN, Drug.ANTIBIOTIC),
+        Set.of(Drug.ANTIBIOTIC), Set.of(Drug.INSULIN)));
+    PatientCounts patients = PatientCounts.from(Map.of(
+        HealthState.FEVER, 5, HealthState.HEALTHY, 4, HealthState.DIABETES, 3, HealthState.TUBERCULOSIS, 2));
+    PatientCounts expected = patients.copy();
+
+    // When
+    DETERMINISTIC_ENGINE.simulateSteps(patients, schedule, 20, StepSink.NONE);
+
+    // Then
+    for (long step = 0; step < 20; step++) {
+      DETERMINISTIC_ENGINE.simulate(expected, schedule.drugsAt(step));
+    }
+    assertEquals(expected, patients);
+  }
+
+  @Test
+  void testSimulateStepsShouldFastForwardWholePeriodsOfCyclicSchedule() {
+    // Given
+    DrugSchedule schedule = DrugSchedule.cyclic(List.of(
+        Set.of(Drug.ASPIRIN), Set.of(Drug.INSULIN, Drug.ANTIBIOTIC), Set.of(Drug.INSULIN)));
+    PatientCounts patients = PatientCounts.from(Map.of(HealthState.FEVER, 5, HealthState.HEALTHY, 4));
+    PatientCounts expected = patients.copy();
+    RecordingSink sink = new RecordingSink();
+
+    // When
+    DETERMINISTIC_ENGINE.simulateSteps(patients, schedule, 152, sink);
+
+    // Then
+    for (long step = 0; step < 152; step++) {
+      DETERMINISTIC_ENGINE.simulate(expected, schedule.drugsAt(step));
+    }
+    assertEquals(expected, patients);
+    assertEquals(List.of("fast-forward 0..150", "step 150", "step 151"), sink.events);
+  }
+
+  @Test
+  void testSimulateStepsWithStochasticRuleShouldSimulateEveryStep() {
+    // Given
+    SimulatorEngine simulatorEngine = new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new FlyingSpaghettiMonsterRule()));
+    PatientCounts patients = PatientCounts.from(Map.of(HealthState.FEVER, 5));
+    RecordingSink sink = new RecordingSink();
+
+    // When
+    simulatorEngine.simulateSteps(patients, DrugSchedule.constant(Set.of(Drug.ASPIRIN)), 50, sink,
+        new SplittableRandom(42));
+
+    // Then
+    assertEquals(50, sink.events.size());
+    assertEquals("step 49", sink.events.get(49));
+  }
+
+  @Test
+  void testSimulateStepsWithNegativeStepsShouldThrowIllegalArgumentException() {
+    // Given
+    PatientCounts patients = PatientCounts.from(Map.of(HealthState.FEVER, 5));
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> DETERMINISTIC_ENGINE.simulateSteps(patients, DrugSchedule.constant(Set.of()), -1, StepSink.NONE));
+
+    // Then
+    assertEquals("Number of steps cannot be negative: -1", exception.getMessage());
+  }
+
+  private static final class RecordingSink implements StepSink {
+
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void onStep(long step, PatientCounts patients) {
+      events.add("step " + step);
+    }
+
+    @Override
+    public void onSteadyState(long fromStep, long toStep, PatientCounts patients) {
+      events.add("steady " + fromStep + ".." + toStep);
+    }
+
+    @Override
+    public void onFastForward(long fromStep, long toStep, PatientCounts patients) {
+      events.add("fast-forward " + fromStep + ".." + toStep);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.hospital.service.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void testQuantilesShouldBeExactForSmallDurations() {
+    // Given
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long nanos = 1; nanos <= 50; nanos++) {
+      histogram.record(nanos);
+    }
+
+    // When
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    // Then
+    assertEquals(50, snapshot.count());
+    assertEquals(1275, snapshot.totalNanos());
+    assertEquals(25.5, snapshot.meanNanos());
+    assertEquals(1, snapshot.quantileNanos(0));
+    assertEquals(25, snapshot.quantileNanos(0.5));
+    assertEquals(50, snapshot.quantileNanos(1));
+  }
+
+  @Test
+  void testQuantilesShouldBeWithinRelativePrecisionForLargeDurations() {
+    // Given
+    LatencyHistogram histogram = new LatencyHistogram();
+    SplittableRandom random = new SplittableRandom(7);
+    List<Long> durations = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      long nanos = random.nextLong(1, 1L << 40);
+      durations.add(nanos);
+      histogram.record(nanos);
+    }
+    durations.sort(null);
+
+    // When
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+    // Then
+    for (double q : new double[] { 0.1, 0.5, 0.9, 0.99 }) {
+      long expected = durations.get((int) Math.ceil(q * durations.size()) - 1);
+      long actual = snapshot.quantileNanos(q);
+      assertTrue(Math.abs(actual - expected) <= expected / 64, q + ": " + actual + " vs " + expected);
+    }
+  }
+
+  @Test
+  void testRecordShouldNotLoseConcurrentRecordings() throws InterruptedException {
+    // Given
+    LatencyHistogram histogram = new LatencyHistogram();
+    List<Thread> threads = new ArrayList<>();
+
+    // When
+    for (int t = 0; t < 4; t++) {
+      threads.add(Thread.ofPlatform().start(() -> {
+        for (int i = 0; i < 100_000; i++) {
+          histogram.record(100);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // Then
+    assertEquals(400_000, histogram.snapshot().count());
+    assertEquals(40_000_000, histogram.snapshot().totalNanos());
+  }
+
+  @Test
+  void testRecordShouldClampNegativeDurationsToZero() {
+    // Given
+    LatencyHistogram histogram = new LatencyHistogram();
+
+    // When
+    histogram.record(-5);
+
+    // Then
+    assertEquals(0, histogram.snapshot().quantileNanos(1));
+    assertEquals(0, histogram.snapshot().totalNanos());
+  }
+
+  @Test
+  void testQuantileOutsideUnitIntervalShouldThrowException() {
+    LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+    assertThrows(IllegalArgumentException.class, () -> snapshot.quantileNanos(1.5));
+    assertEquals(0, snapshot.quantileNanos(0.5));
+  }
+}
@@ -0,0 +1,140 @@
+package com.hospital.service.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.hospital.client.model.SimulationRequest;
+import com.hospital.domain.Drug;
+import com.hospital.domain.HealthState;
+import com.hospital.domain.PatientCounts;
+import com.hospital.rule.impl.AntibioticRule;
+import com.hospital.rule.impl.AspirinRule;
+import com.hospital.rule.impl.FastBinomialSampler;
+import com.hospital.rule.impl.FlyingSpaghettiMonsterRule;
+import com.hospital.rule.impl.InsulinRule;
+import com.hospital.rule.impl.ParacetamolRule;
+import com.hospital.service.SimulationCache;
+import com.hospital.service.SimulatorEngine;
+
+class SimulationMetricsTest {
+
+  private static SimulatorEngine engine(SimulationMetrics metrics) {
+    return engine(metrics, null);
+  }
+
+  private static SimulatorEngine engine(SimulationMetrics metrics, SimulationCache cache) {
+    return new SimulatorEngine(List.of(
+        new AspirinRule(),
+        new AntibioticRule(),
+        new InsulinRule(),
+        new ParacetamolRule(),
+        new FlyingSpaghettiMonsterRule(metrics.countingSampler(new FastBinomialSampler()))), cache, metrics);
+  }
+
+  @Test
+  void testEngineShouldRecordSimulationsRulesAndSamplerCalls() {
+    // Given
+    SimulationMetrics metrics = new SimulationMetrics();
+    SimulatorEngine simulatorEngine = engine(metrics);
+
+    // When
+    simulatorEngine.simulate(new SimulationRequest(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2),
+        Set.of(Drug.ASPIRIN), 1L));
+    simulatorEngine.simulate(PatientCounts.from(Map.of(HealthState.DIABETES, 4)), Set.of());
+    simulatorEngine.simulateAll(List.of(new SimulationRequest(Map.of(HealthState.HEALTHY, 1), Set.of())), 1);
+
+    // Then
+    assertEquals(3, metrics.simulations());
+    assertEquals(3, metrics.simulationLatency().count());
+    Map<String, SimulationMetrics.RuleMetrics> rules = metrics.rules();
+    assertEquals(Set.of("AspirinRule+InsulinRule", "InsulinRule", "FlyingSpaghettiMonsterRule"), rules.keySet());
+    assertEquals(1, rules.get("AspirinRule+InsulinRule").invocations());
+    assertEquals(5, rules.get("AspirinRule+InsulinRule").transitions());
+    // The healthy-only simulation has no diabetes for insulin nor any dead for the monster
+    assertEquals(1, rules.get("InsulinRule").invocations());
+    assertEquals(4, rules.get("InsulinRule").transitions());
+    assertEquals(2, rules.get("FlyingSpaghettiMonsterRule").invocations());
+    assertEquals(2, metrics.samplerCalls());
+  }
+
+  @Test
+  void testCachedEngineShouldMeasureDeterministicStepsOnCacheMissOnly() {
+    // Given
+    SimulationMetrics metrics = new SimulationMetrics();
+    SimulatorEngine simulatorEngine = engine(metrics, new SimulationCache(16));
+    SimulationRequest request = new SimulationRequest(Map.of(HealthState.FEVER, 3, HealthState.DIABETES, 2),
+        Set.of(Drug.ASPIRIN), 1L);
+
+    // When
+    simulatorEngine.simulate(request);
+    simulatorEngine.simulate(request);
+
+    // Then
+    assertEquals(2, metrics.simulations());
+    Map<String, SimulationMetrics.RuleMetrics> rules = metrics.rules();
+    assertEquals(1, rules.get("AspirinRule+InsulinRule").invocations());
+    assertEquals(5, rules.get("AspirinRule+InsulinRule").transitions());
+    assertEquals(2, rules.get("FlyingSpaghettiMonsterRule").invocations());
+  }
+
+  @Test
+  void testToPrometheusShouldFormatEveryMetric() {
+    // Given
+    SimulationMetrics metrics = new SimulationMetrics();
+    metrics.recordSimulation(2_000);
+    metrics.rule("AspirinRule").record(1_000, 7);
+    metrics.recordCoalescing(false);
+    metrics.recordCoalescing(true);
+
+    // When
+    String text = metrics.toPrometheus();
+
+    // Then
+    assertTrue(text.startsWith("""
+        # HELP hospital_simulations_total Simulations run by the engine.
+        # TYPE hospital_simulations_total counter
+        hospital_simulations_total 1
+        # HELP hospital_simulation_duration_seconds Duration of simulations.
+        # TYPE hospital_simulation_duration_seconds summary
+        hospital_simulation_duration_seconds{quantile="0.5"} 1.999E-6
+        """), text);
+    assertTrue(text.contains("""
+        hospital_simulation_duration_seconds_sum 2.0E-6
+        hospital_simulation_duration_seconds_count 1
+        """), text);
+    assertTrue(text.contains("""
+        hospital_rule_duration_seconds{rule="AspirinRule",quantile="0.999"} 9.99E-7
+        hospital_rule_duration_seconds_sum{rule="AspirinRule"} 1.0E-6
+        hospital_rule_duration_seconds_count{rule="AspirinRule"} 1
+        """), text);
+    assertTrue(text.contains("hospital_rule_transitions_total{rule=\"AspirinRule\"} 7\n"), text);
+    assertTrue(text.contains("hospital_coalescer_requests_total 2\n"), text);
+    assertTrue(text.contains("hospital_coalesced_requests_total 1\n"), text);
+    assertTrue(text.endsWith("hospital_sampler_calls_total 0\n"), text);
+  }
+
+  @Test
+  void testWritePrometheusShouldReplaceFile(@TempDir Path directory) throws Exception {
+    // Given
+    SimulationMetrics metrics = new SimulationMetrics();
+    Path file = directory.resolve("hospital.prom");
+    Files.writeString(file, "stale");
+
+    // When
+    metrics.recordSimulation(10);
+    metrics.writePrometheus(file);
+
+    // Then
+    assertEquals(metrics.toPrometheus(), Files.readString(file));
+    assertEquals(List.of(file), Files.list(directory).toList());
+  }
+}
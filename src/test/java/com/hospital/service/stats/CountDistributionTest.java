@@ -0,0 +1,55 @@
+package com.hospital.service.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class CountDistributionTest {
+
+  @Test
+  void testOfShouldComputeMomentsAndTails() {
+    // Given
+    long[] counts = { 2, 3, 7 };
+    double[] probabilities = { 0.25, 0.5, 0.25 };
+
+    // When
+    CountDistribution distribution = CountDistribution.of(counts, probabilities);
+
+    // Then
+    assertEquals(3.75, distribution.mean(), 1e-12);
+    assertEquals(0.25 * 1.75 * 1.75 + 0.5 * 0.75 * 0.75 + 0.25 * 3.25 * 3.25, distribution.variance(), 1e-12);
+    assertEquals(2, distribution.min());
+    assertEquals(7, distribution.max());
+    assertEquals(0.5, distribution.probability(3));
+    assertEquals(0, distribution.probability(4));
+    assertEquals(1, distribution.probabilityAtLeast(0));
+    assertEquals(0.25, distribution.probabilityAtLeast(4));
+    assertEquals(0, distribution.probabilityAtLeast(8));
+    assertEquals(0, distribution.probabilityAtMost(1));
+    assertEquals(0.75, distribution.probabilityAtMost(6));
+    assertEquals(1, distribution.probabilityAtMost(7));
+  }
+
+  @Test
+  void testOfWithLargeCountsShouldKeepThePrecisionOfTheSpread() {
+    // Given
+    long base = 8_000_000_000_000_000L;
+
+    // When
+    CountDistribution distribution = CountDistribution.of(new long[] { base, base + 1 }, new double[] { 0.5, 0.5 });
+
+    // Then
+    assertEquals(0.25, distribution.variance(), 1e-12);
+  }
+
+  @Test
+  void testOfWithUnsortedCountsShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> CountDistribution.of(new long[] { 3, 2 }, new double[] { 0.5, 0.5 }));
+
+    // Then
+    assertEquals("Counts must be strictly increasing.", exception.getMessage());
+  }
+}
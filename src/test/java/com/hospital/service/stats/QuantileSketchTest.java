@@ -0,0 +1,101 @@
+package com.hospital.service.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+class QuantileSketchTest {
+
+  @Test
+  void testQuantileShouldBeExactForSmallValues() {
+    // Given
+    QuantileSketch sketch = new QuantileSketch();
+    for (long value = 1; value <= 100; value++) {
+      sketch.add(value);
+    }
+
+    // When / Then
+    assertEquals(1, sketch.quantile(0));
+    assertEquals(50, sketch.quantile(0.50));
+    assertEquals(95, sketch.quantile(0.95));
+    assertEquals(99, sketch.quantile(0.99));
+    assertEquals(100, sketch.quantile(1));
+  }
+
+  @Test
+  void testQuantileShouldStayWithinRelativeErrorForLargeValues() {
+    // Given
+    SplittableRandom random = new SplittableRandom(42);
+    long[] values = new long[100_000];
+    QuantileSketch sketch = new QuantileSketch();
+    for (int i = 0; i < values.length; i++) {
+      values[i] = random.nextLong(1L << 40);
+      sketch.add(values[i]);
+    }
+    Arrays.sort(values);
+
+    // When / Then
+    for (double q : new double[] { 0.01, 0.25, 0.50, 0.95, 0.99 }) {
+      long exact = values[(int) Math.ceil(q * values.length) - 1];
+      long estimate = sketch.quantile(q);
+      assertTrue(Math.abs(estimate - exact) <= exact / 256.0, "q=" + q + ": " + estimate + " vs " + exact);
+    }
+  }
+
+  @Test
+  void testMergeShouldMatchSingleSketch() {
+    // Given
+    QuantileSketch single = new QuantileSketch();
+    QuantileSketch left = new QuantileSketch();
+    QuantileSketch right = new QuantileSketch();
+    for (long value = 0; value < 10_000; value++) {
+      long squared = value * value;
+      single.add(squared);
+      (value % 3 == 0 ? left : right).add(squared);
+    }
+
+    // When
+    left.merge(right);
+
+    // Then
+    assertEquals(single.count(), left.count());
+    for (double q = 0; q <= 1; q += 0.05) {
+      assertEquals(single.quantile(q), left.quantile(q));
+    }
+  }
+
+  @Test
+  void testBucketValueShouldLieInsideItsBucket() {
+    // Given
+    long[] values = { 0, 255, 256, 257, 1_000, 123_456_789, Long.MAX_VALUE };
+
+    // When / Then
+    for (long value : values) {
+      int index = QuantileSketch.bucketIndex(value);
+      assertEquals(index, QuantileSketch.bucketIndex(QuantileSketch.bucketValue(index)));
+    }
+  }
+
+  @Test
+  void testEmptySketchShouldReturnZero() {
+    // When / Then
+    assertEquals(0, new QuantileSketch().quantile(0.5));
+  }
+
+  @Test
+  void testAddWithNegativeValueShouldThrowIllegalArgumentException() {
+    // Given
+    QuantileSketch sketch = new QuantileSketch();
+
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> sketch.add(-1));
+
+    // Then
+    assertEquals("Quantile sketch values cannot be negative.", exception.getMessage());
+  }
+}
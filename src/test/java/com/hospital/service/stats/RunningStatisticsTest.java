@@ -0,0 +1,82 @@
+package com.hospital.service.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class RunningStatisticsTest {
+
+  @Test
+  void testAddShouldComputeMomentsAndExtremes() {
+    // Given
+    RunningStatistics statistics = new RunningStatistics();
+
+    // When
+    for (long value : new long[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+      statistics.add(value);
+    }
+
+    // Then
+    assertEquals(8, statistics.count());
+    assertEquals(5.0, statistics.mean(), 1e-12);
+    assertEquals(32.0 / 7, statistics.variance(), 1e-12);
+    assertEquals(2, statistics.min());
+    assertEquals(9, statistics.max());
+    assertEquals(4, statistics.quantile(0.5));
+    assertEquals(1.96 * Math.sqrt(32.0 / 7 / 8), statistics.confidenceHalfWidth(1.96), 1e-12);
+  }
+
+  @Test
+  void testMergeShouldMatchSingleAccumulator() {
+    // Given
+    RunningStatistics single = new RunningStatistics();
+    RunningStatistics left = new RunningStatistics();
+    RunningStatistics right = new RunningStatistics();
+    for (long value = 0; value < 1_000; value++) {
+      long sample = 1_000_000 + (value * 7919) % 1_009;
+      single.add(sample);
+      (value < 300 ? left : right).add(sample);
+    }
+
+    // When
+    left.merge(right);
+
+    // Then
+    assertEquals(single.count(), left.count());
+    assertEquals(single.mean(), left.mean(), 1e-6);
+    assertEquals(single.variance(), left.variance(), 1e-6);
+    assertEquals(single.min(), left.min());
+    assertEquals(single.max(), left.max());
+    assertEquals(single.quantile(0.99), left.quantile(0.99));
+  }
+
+  @Test
+  void testMergeWithEmptyAccumulatorShouldKeepStatistics() {
+    // Given
+    RunningStatistics statistics = new RunningStatistics();
+    statistics.add(3);
+    statistics.add(5);
+
+    // When
+    statistics.merge(new RunningStatistics());
+
+    // Then
+    assertEquals(2, statistics.count());
+    assertEquals(4.0, statistics.mean());
+    assertEquals(2.0, statistics.variance());
+  }
+
+  @Test
+  void testEmptyAccumulatorShouldReportZeros() {
+    // Given
+    RunningStatistics statistics = new RunningStatistics();
+
+    // When / Then
+    assertEquals(0, statistics.mean());
+    assertEquals(0, statistics.variance());
+    assertEquals(0, statistics.min());
+    assertEquals(0, statistics.max());
+    assertEquals(0, statistics.quantile(0.5));
+    assertEquals(Double.POSITIVE_INFINITY, statistics.confidenceHalfWidth(1.96));
+  }
+}
@@ -0,0 +1,78 @@
+package com.hospital.service.stats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.apache.commons.math3.distribution.BinomialDistribution;
+import org.junit.jupiter.api.Test;
+
+class TruncatedBinomialTest {
+
+  @Test
+  void testOfShouldMatchBinomialProbabilities() {
+    // Given
+    BinomialDistribution expected = new BinomialDistribution(null, 1_000, 0.3);
+
+    // When
+    TruncatedBinomial binomial = TruncatedBinomial.of(1_000, 0.3, 0);
+
+    // Then
+    double sum = 0;
+    for (int i = 0; i < binomial.size(); i++) {
+      long successes = binomial.lowest() + i;
+      assertEquals(expected.probability((int) successes), binomial.probability(i),
+          1e-12 * Math.max(expected.probability((int) successes), 1e-300));
+      sum += binomial.probability(i);
+    }
+    assertEquals(1, sum, 1e-12);
+  }
+
+  @Test
+  void testOfShouldDropTermsBelowTail() {
+    // When
+    TruncatedBinomial binomial = TruncatedBinomial.of(1_000_000, 1e-6, 1e-15);
+
+    // Then
+    // Nearly Poisson(1), whose terms fall below 1e-15 of the mode's after 17
+    assertEquals(0, binomial.lowest());
+    assertEquals(17, binomial.highest());
+    assertEquals(Math.exp(-1), binomial.probability(0), 1e-6);
+  }
+
+  @Test
+  void testOfWithTrillionTrialsShouldStayAroundTheMean() {
+    // When
+    TruncatedBinomial binomial = TruncatedBinomial.of(1_000_000_000_000L, 1e-6, 1e-15);
+
+    // Then
+    assertTrue(binomial.lowest() > 990_000 && binomial.highest() < 1_010_000);
+    assertTrue(binomial.size() < 20_000);
+  }
+
+  @Test
+  void testOfWithDegenerateProbabilitiesShouldBeCertain() {
+    // When
+    TruncatedBinomial never = TruncatedBinomial.of(10, 0, 1e-15);
+    TruncatedBinomial always = TruncatedBinomial.of(10, 1, 1e-15);
+    TruncatedBinomial noTrials = TruncatedBinomial.of(0, 0.5, 1e-15);
+
+    // Then
+    assertEquals(0, never.lowest());
+    assertEquals(1, never.size());
+    assertEquals(10, always.lowest());
+    assertEquals(1, always.size());
+    assertEquals(0, noTrials.lowest());
+    assertEquals(1, noTrials.probability(0));
+  }
+
+  @Test
+  void testOfWithInvalidProbabilityShouldThrowIllegalArgumentException() {
+    // When
+    IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+        () -> TruncatedBinomial.of(10, 1.5, 1e-15));
+
+    // Then
+    assertEquals("Probability must be between 0 and 1: 1.5", exception.getMessage());
+  }
+}